@@ -0,0 +1,106 @@
+package com.jy.networklogmonitor;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// 通过Application.ActivityLifecycleCallbacks记录已启动（onStart之后、onStop之前）的Activity来判断应用是否在前台，
+// 只在前后台切换时通知监听器，没有任何定时任务。按Activity记录而不是只计数，注册之前已启动的Activity停止时计数不会出错；
+// 屏幕旋转等配置变化导致的短暂停止不算进入后台。所有方法和回调都在主线程中
+final class AppForegroundTracker implements Application.ActivityLifecycleCallbacks {
+
+    interface Listener {
+        void onForegroundChanged(boolean foreground);
+    }
+
+    private static AppForegroundTracker instance;
+
+    private final Application application;
+    private final Set<Activity> startedActivities = new HashSet<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    // 最后一个已启动的Activity因配置变化停止，重建后会立即再启动
+    private boolean changingConfigurations;
+    private boolean foreground;
+
+    AppForegroundTracker(Application application) {
+        this.application = application;
+    }
+
+    // 在应用中注册唯一的实例，重复调用返回同一个实例。应在Application或第一个Activity的onCreate中调用，
+    // 之后启动的Activity才会被记录
+    static AppForegroundTracker install(Application application) {
+        if (instance == null || instance.application != application) {
+            instance = new AppForegroundTracker(application);
+            application.registerActivityLifecycleCallbacks(instance);
+        }
+        return instance;
+    }
+
+    boolean isForeground() {
+        return foreground;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        changingConfigurations = false;
+        startedActivities.add(activity);
+        update();
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        if (startedActivities.remove(activity) && startedActivities.isEmpty()) {
+            changingConfigurations = activity.isChangingConfigurations();
+        }
+        update();
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        // 配置变化之外，Activity总是先停止再销毁；这里只防止遗漏
+        if (startedActivities.remove(activity)) {
+            update();
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    private void update() {
+        boolean newForeground = !startedActivities.isEmpty() || changingConfigurations;
+        if (newForeground == foreground) {
+            return;
+        }
+        foreground = newForeground;
+        // 复制一份，回调中可以注销监听器
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onForegroundChanged(newForeground);
+        }
+    }
+}
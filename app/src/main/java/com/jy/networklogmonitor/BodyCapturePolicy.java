@@ -0,0 +1,193 @@
+package com.jy.networklogmonitor;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Locale;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+
+// 根据MediaType和contentLength决定如何记录请求体，避免完整复制大请求体
+public final class BodyCapturePolicy {
+
+    private BodyCapturePolicy() {
+    }
+
+    // 判断是否为文本类型，无法判断时返回null
+    static Boolean isTextMediaType(MediaType mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        String type = mediaType.type().toLowerCase(Locale.US);
+        String subtype = mediaType.subtype().toLowerCase(Locale.US);
+        if (type.equals("text")) {
+            return true;
+        }
+        if (type.equals("multipart") || type.equals("image") || type.equals("audio")
+                || type.equals("video") || type.equals("font")) {
+            return false;
+        }
+        if (subtype.equals("json") || subtype.endsWith("+json")
+                || subtype.equals("xml") || subtype.endsWith("+xml")
+                || subtype.equals("x-www-form-urlencoded") || subtype.equals("javascript")
+                || subtype.equals("graphql") || subtype.equals("x-ndjson")) {
+            return true;
+        }
+        return mediaType.charset() != null ? Boolean.TRUE : null;
+    }
+
+    // 记录请求体：文本最多记录maxBytes字节，二进制只记录大小和预览，一次性/双工请求体不读取
+    public static CapturedBody captureRequestBody(RequestBody body, long maxBytes) throws IOException {
+        MediaType mediaType = body.contentType();
+        long contentLength = body.contentLength();
+        if (body.isDuplex()) {
+            return CapturedBody.skipped("duplex body, not captured", contentLength, mediaType);
+        }
+        if (body.isOneShot()) {
+            return CapturedBody.skipped("one-shot body, not captured", contentLength, mediaType);
+        }
+
+        if (body instanceof MultipartBody) {
+            return captureMultipart((MultipartBody) body, maxBytes);
+        }
+
+        boolean binary = Boolean.FALSE.equals(isTextMediaType(mediaType));
+        // 已知是二进制时只需要预览长度的字节；已知长度时写满后CappedSink中止writeTo，大的请求体也不会被完整复制
+        long limit = binary ? Math.min(maxBytes, CapturedBody.PREVIEW_BYTES) : maxBytes;
+        CappedSink cappedSink = new CappedSink(limit, contentLength >= 0);
+        BufferedSink sink = ChunkedArrayWrites.wrap(Okio.buffer(cappedSink));
+        try {
+            body.writeTo(sink);
+            sink.flush();
+        } catch (CaptureLimitReachedException e) {
+            // 已知长度且已记录足够的字节，提前结束写入
+        }
+        long totalBytes = contentLength >= 0 ? contentLength : cappedSink.totalBytes;
+        byte[] bytes = cappedSink.captured.readByteArray();
+        return new CapturedBody(bytes, totalBytes, bytes.length < totalBytes, mediaType);
+    }
+
+    // 逐个记录multipart的各部分，共享同一个字节上限
+    private static CapturedBody captureMultipart(MultipartBody body, long maxBytes) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        long remaining = maxBytes;
+        boolean truncated = false;
+        for (MultipartBody.Part part : body.parts()) {
+            builder.append("--").append(body.boundary()).append('\n');
+            Headers headers = part.headers();
+            if (headers != null) {
+                builder.append(headers);
+            }
+            RequestBody partBody = part.body();
+            if (partBody.contentType() != null) {
+                builder.append("Content-Type: ").append(partBody.contentType()).append('\n');
+            }
+            builder.append('\n');
+            CapturedBody captured = captureRequestBody(partBody, Math.max(remaining, 0));
+            builder.append(captured.decode()).append('\n');
+            remaining -= captured.getBytes().length;
+            truncated |= captured.isTruncated();
+        }
+        builder.append("--").append(body.boundary()).append("--");
+        return CapturedBody.summary(builder.toString(), body.contentLength(), truncated, body.contentType());
+    }
+
+    // 只保留前limit个字节，其余字节直接丢弃
+    private static final class CappedSink implements Sink {
+        private final long limit;
+        private final boolean stopWhenFull;
+        final Buffer captured = new Buffer();
+        long totalBytes;
+
+        CappedSink(long limit, boolean stopWhenFull) {
+            this.limit = limit;
+            this.stopWhenFull = stopWhenFull;
+        }
+
+        @Override
+        public void write(@NonNull Buffer source, long byteCount) throws IOException {
+            long remaining = limit - captured.size();
+            long keep = Math.min(remaining, byteCount);
+            if (keep > 0) {
+                source.read(captured, keep);
+            }
+            source.skip(byteCount - Math.max(keep, 0));
+            totalBytes += byteCount;
+            if (stopWhenFull && captured.size() >= limit) {
+                throw new CaptureLimitReachedException();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // RealBufferedSink.write(byte[])会先把整个数组复制进缓冲区再交给CappedSink，
+    // 这里把数组按段大小分批写入，写满后CappedSink立即中止，字节数组请求体也只复制预览部分
+    private static final class ChunkedArrayWrites implements InvocationHandler {
+        private static final int CHUNK_SIZE = 8192;
+        private final BufferedSink delegate;
+        private BufferedSink proxy;
+
+        private ChunkedArrayWrites(BufferedSink delegate) {
+            this.delegate = delegate;
+        }
+
+        static BufferedSink wrap(BufferedSink delegate) {
+            ChunkedArrayWrites handler = new ChunkedArrayWrites(delegate);
+            handler.proxy = (BufferedSink) Proxy.newProxyInstance(BufferedSink.class.getClassLoader(),
+                    new Class<?>[]{BufferedSink.class}, handler);
+            return handler.proxy;
+        }
+
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("write") && args != null && args[0] instanceof byte[]) {
+                byte[] source = (byte[]) args[0];
+                int offset = args.length == 3 ? (Integer) args[1] : 0;
+                int byteCount = args.length == 3 ? (Integer) args[2] : source.length;
+                for (int end = offset + byteCount; offset < end; offset += CHUNK_SIZE) {
+                    delegate.write(source, offset, Math.min(CHUNK_SIZE, end - offset));
+                }
+                return proxy;
+            }
+            Object result;
+            try {
+                result = method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return result == delegate ? proxy : result;
+        }
+    }
+
+    // 用于提前结束RequestBody.writeTo，不会传播到拦截器之外
+    private static final class CaptureLimitReachedException extends IOException {
+        CaptureLimitReachedException() {
+            super("capture limit reached");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.jy.networklogmonitor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 把body切分成按行的片段，详情页只渲染可见的片段。超长的行（如压缩过的JSON）按固定字符数再切分，
+// 一个片段不会大到让单个TextView的排版卡住主线程。切分和搜索都在后台线程中执行，创建后不再修改，可跨线程共享。
+// 格式化过的body同时带有语法高亮区间，由适配器按片段截取。
+final class BodyChunks {
+    // 单个片段的最大字符数
+    static final int MAX_SEGMENT_CHARS = 1024;
+    // 搜索结果的最大数量，超过后停止搜索
+    static final int MAX_MATCHES = 10_000;
+
+    private final String text;
+    // 语法高亮，纯文本时为null
+    private final FormattedBody formatted;
+    // starts[i]为第i个片段的起始位置，starts[count]为文本长度
+    private final int[] starts;
+    private final int count;
+
+    private BodyChunks(String text, FormattedBody formatted, int[] starts, int count) {
+        this.text = text;
+        this.formatted = formatted;
+        this.starts = starts;
+        this.count = count;
+    }
+
+    // 切分文本，被取消时返回null
+    static BodyChunks split(String text, AtomicBoolean cancelled) {
+        return split(text, MAX_SEGMENT_CHARS, cancelled);
+    }
+
+    // 切分格式化后的文本并保留其高亮区间，被取消时返回null
+    static BodyChunks split(FormattedBody formatted, AtomicBoolean cancelled) {
+        return split(formatted.text, formatted, MAX_SEGMENT_CHARS, cancelled);
+    }
+
+    static BodyChunks split(String text, int maxSegmentChars, AtomicBoolean cancelled) {
+        return split(text, null, maxSegmentChars, cancelled);
+    }
+
+    private static BodyChunks split(String text, FormattedBody formatted, int maxSegmentChars,
+                                    AtomicBoolean cancelled) {
+        int length = text.length();
+        int[] starts = new int[Math.max(16, length / 64 + 2)];
+        int count = 0;
+        int start = 0;
+        // 空文本也有一个空片段
+        do {
+            if ((count & 1023) == 0 && cancelled != null && cancelled.get()) {
+                return null;
+            }
+            // 只在片段的最大长度内查找换行符，单行的大body不会被反复扫描到末尾
+            int limit = Math.min(length, start + maxSegmentChars);
+            int end = start;
+            while (end < limit && text.charAt(end) != '\n') {
+                end++;
+            }
+            if (end < length && text.charAt(end) == '\n') {
+                // 换行符归属于它所在的行（包括恰好达到最大长度的行）
+                end++;
+            } else if (end < length && Character.isHighSurrogate(text.charAt(end - 1))
+                    && Character.isLowSurrogate(text.charAt(end))) {
+                // 不拆开代理对
+                end--;
+            }
+            if (count + 2 > starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[count++] = start;
+            start = end;
+        } while (start < length);
+        starts[count] = length;
+        return new BodyChunks(text, formatted, starts, count);
+    }
+
+    FormattedBody getFormatted() {
+        return formatted;
+    }
+
+    int getSegmentCount() {
+        return count;
+    }
+
+    int length() {
+        return text.length();
+    }
+
+    int getSegmentStart(int segment) {
+        return starts[segment];
+    }
+
+    // 片段的结束位置，不包括行尾的换行符
+    int getSegmentEnd(int segment) {
+        int end = starts[segment + 1];
+        return end > starts[segment] && text.charAt(end - 1) == '\n' ? end - 1 : end;
+    }
+
+    String getSegmentText(int segment) {
+        return text.substring(getSegmentStart(segment), getSegmentEnd(segment));
+    }
+
+    // 返回包含该字符位置的片段，超出范围时返回最近的片段
+    int segmentAt(int offset) {
+        if (offset <= 0) {
+            return 0;
+        }
+        if (offset >= text.length()) {
+            return count - 1;
+        }
+        int index = Arrays.binarySearch(starts, 0, count, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // 逐个片段查找不区分大小写的匹配位置，跨片段的匹配也能找到；被取消时返回null
+    int[] search(String query, AtomicBoolean cancelled) {
+        int queryLength = query.length();
+        if (queryLength == 0) {
+            return new int[0];
+        }
+        char firstLower = Character.toLowerCase(query.charAt(0));
+        char firstUpper = Character.toUpperCase(query.charAt(0));
+        int lastStart = text.length() - queryLength;
+        int[] matches = new int[16];
+        int matchCount = 0;
+        // 匹配之间不重叠，下一个匹配不早于该位置
+        int next = 0;
+        for (int segment = 0; segment < count && matchCount < MAX_MATCHES; segment++) {
+            if (cancelled != null && cancelled.get()) {
+                return null;
+            }
+            int end = Math.min(starts[segment + 1], lastStart + 1);
+            for (int i = Math.max(starts[segment], next); i < end; i++) {
+                char c = text.charAt(i);
+                if ((c == firstLower || c == firstUpper) && text.regionMatches(true, i, query, 0, queryLength)) {
+                    if (matchCount == matches.length) {
+                        matches = Arrays.copyOf(matches, matchCount * 2);
+                    }
+                    matches[matchCount++] = i;
+                    if (matchCount == MAX_MATCHES) {
+                        break;
+                    }
+                    next = i + queryLength;
+                    i = next - 1;
+                }
+            }
+        }
+        return Arrays.copyOf(matches, matchCount);
+    }
+}
@@ -0,0 +1,254 @@
+package com.jy.networklogmonitor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// 请求体/响应体的内存压缩：用Deflater压缩，同一接口的前几个body训练出预置字典，之后的body带字典压缩。
+// 压缩只在抓包后台线程中进行；解压在读取时进行，最近解压的结果放在LRU缓存中。
+// 压缩格式为4字节原始长度 + zlib数据流，使用的字典由zlib头中的字典校验值确定。
+final class BodyCodec {
+    // 小于该长度的body不压缩
+    static final int MIN_COMPRESS_SIZE = 128;
+    // 字典的最大长度
+    static final int MAX_DICTIONARY_SIZE = 8 * 1024;
+    // 每个样本最多取前面的字节数，JSON的字段名大多出现在开头
+    private static final int MAX_SAMPLE_SIZE = 2 * 1024;
+    // 训练字典需要的样本数
+    private static final int SAMPLES_PER_DICTIONARY = 4;
+    // 最多为多少个接口训练字典，超出后不带字典压缩
+    private static final int MAX_ENDPOINTS = 128;
+    // 解压缓存的条目数和总字符数上限
+    private static final int CACHE_MAX_ENTRIES = 32;
+    private static final int CACHE_MAX_CHARS = 1024 * 1024;
+
+    // 所有训练出的字典，key为字典的adler32校验值，字典训练后不再变化，清空日志时一起清空
+    private static final ConcurrentHashMap<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private static final DecodedCache decodedCache = new DecodedCache();
+    // 每次清空字典加1，后台线程据此丢弃已训练的接口
+    private static volatile int generation;
+
+    // 以下字段只在后台线程中使用
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final Compressor compressor = new Compressor();
+    private int endpointsGeneration;
+    // 统计值只由后台线程写入
+    private volatile long inputBytes;
+    private volatile long outputBytes;
+    private volatile long compressNanos;
+
+    // 压缩body，不值得压缩时返回null；endpointKey相同的body共享字典
+    byte[] compress(String endpointKey, byte[] body) {
+        if (body == null || body.length < MIN_COMPRESS_SIZE) {
+            return null;
+        }
+        long start = System.nanoTime();
+        int current = generation;
+        if (current != endpointsGeneration) {
+            endpoints.clear();
+            endpointsGeneration = current;
+        }
+        Endpoint endpoint = endpointFor(endpointKey);
+        byte[] dictionary = endpoint != null ? endpoint.dictionary : null;
+        int length = compressor.deflate(body, dictionary);
+        // 压缩期间字典被清空时不使用压缩结果，否则之后无法解压
+        byte[] compressed = length >= 0 && (dictionary == null || generation == current)
+                ? Arrays.copyOf(compressor.buffer(), length) : null;
+        if (endpoint != null && !endpoint.isTrained()) {
+            endpoint.addSample(body);
+        }
+        compressNanos += System.nanoTime() - start;
+        inputBytes += body.length;
+        outputBytes += compressed != null ? compressed.length : body.length;
+        return compressed;
+    }
+
+    // 压缩后与压缩前的总字节数之比
+    double getCompressionRatio() {
+        return inputBytes == 0 ? 1 : (double) outputBytes / inputBytes;
+    }
+
+    // 压缩累计耗费的CPU时间（后台线程的墙钟时间）
+    long getCompressNanos() {
+        return compressNanos;
+    }
+
+    private Endpoint endpointFor(String endpointKey) {
+        Endpoint endpoint = endpoints.get(endpointKey);
+        if (endpoint == null && endpoints.size() < MAX_ENDPOINTS) {
+            endpoint = new Endpoint();
+            endpoints.put(endpointKey, endpoint);
+        }
+        return endpoint;
+    }
+
+    // 清空所有字典和解压缓存，清空日志时调用；之后记录的body重新训练字典
+    static void clear() {
+        generation++;
+        dictionaries.clear();
+        decodedCache.clear();
+    }
+
+    // 解压为文本，结果放入LRU缓存，可在任意线程调用
+    static String decompressToString(byte[] compressed) {
+        String cached = decodedCache.get(compressed);
+        if (cached != null) {
+            return cached;
+        }
+        String text;
+        try {
+            text = new String(decompress(compressed), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            return "[failed to decompress body: " + e.getMessage() + "]";
+        }
+        decodedCache.put(compressed, text);
+        return text;
+    }
+
+    static byte[] decompress(byte[] compressed) throws DataFormatException {
+        int length = ((compressed[0] & 0xFF) << 24) | ((compressed[1] & 0xFF) << 16)
+                | ((compressed[2] & 0xFF) << 8) | (compressed[3] & 0xFF);
+        byte[] body = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed, 4, compressed.length - 4);
+            int offset = 0;
+            while (offset < length) {
+                int count = inflater.inflate(body, offset, length - offset);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        byte[] dictionary = dictionaries.get(inflater.getAdler());
+                        if (dictionary == null) {
+                            throw new DataFormatException("missing dictionary");
+                        }
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.finished() || inflater.needsInput()) {
+                        throw new DataFormatException("unexpected end of stream");
+                    }
+                }
+                offset += count;
+            }
+        } finally {
+            inflater.end();
+        }
+        return body;
+    }
+
+    // 一个接口的字典训练状态
+    private static final class Endpoint {
+        private byte[] samples = new byte[0];
+        private int sampleCount;
+        // 训练完成后的字典，训练完成前或字典冲突时为null
+        byte[] dictionary;
+
+        boolean isTrained() {
+            return samples == null;
+        }
+
+        void addSample(byte[] body) {
+            int sampleLength = Math.min(body.length, MAX_SAMPLE_SIZE);
+            int length = Math.min(samples.length + sampleLength, MAX_DICTIONARY_SIZE);
+            byte[] merged = Arrays.copyOf(samples, length);
+            System.arraycopy(body, 0, merged, samples.length, length - samples.length);
+            samples = merged;
+            if (++sampleCount >= SAMPLES_PER_DICTIONARY || samples.length >= MAX_DICTIONARY_SIZE) {
+                dictionary = register(samples);
+                samples = null;
+            }
+        }
+
+        // 登记字典，校验值与已有的不同字典冲突时不使用字典
+        private static byte[] register(byte[] dictionary) {
+            Adler32 adler32 = new Adler32();
+            adler32.update(dictionary, 0, dictionary.length);
+            int key = (int) adler32.getValue();
+            byte[] existing = dictionaries.putIfAbsent(key, dictionary);
+            if (existing != null && !Arrays.equals(existing, dictionary)) {
+                return null;
+            }
+            return existing != null ? existing : dictionary;
+        }
+    }
+
+    // 最近解压结果的LRU缓存，key为压缩数据本身（按引用比较）
+    private static final class DecodedCache {
+        private final LinkedHashMap<byte[], String> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private int totalChars;
+
+        synchronized String get(byte[] compressed) {
+            return entries.get(compressed);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            totalChars = 0;
+        }
+
+        synchronized void put(byte[] compressed, String text) {
+            if (text.length() > CACHE_MAX_CHARS) {
+                return;
+            }
+            String previous = entries.put(compressed, text);
+            if (previous != null) {
+                totalChars -= previous.length();
+            }
+            totalChars += text.length();
+            Iterator<String> iterator = entries.values().iterator();
+            while (iterator.hasNext() && (entries.size() > CACHE_MAX_ENTRIES || totalChars > CACHE_MAX_CHARS)) {
+                totalChars -= iterator.next().length();
+                iterator.remove();
+            }
+        }
+    }
+
+    // 以BodyCodec的格式（4字节原始长度 + zlib数据流）压缩到可复用的缓冲区，只能在一个线程中使用
+    static final class Compressor {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private byte[] buffer = new byte[4096];
+
+        // 压缩body，返回buffer()中有效的字节数；不比原始数据小时返回-1
+        int deflate(byte[] body, byte[] dictionary) {
+            deflater.reset();
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(body);
+            deflater.finish();
+            // 前4字节保存原始长度
+            int length = 4;
+            while (!deflater.finished()) {
+                // 已经不比原始数据小，放弃压缩
+                if (length >= body.length) {
+                    return -1;
+                }
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            if (length >= body.length) {
+                return -1;
+            }
+            buffer[0] = (byte) (body.length >>> 24);
+            buffer[1] = (byte) (body.length >>> 16);
+            buffer[2] = (byte) (body.length >>> 8);
+            buffer[3] = (byte) body.length;
+            return length;
+        }
+
+        byte[] buffer() {
+            return buffer;
+        }
+
+        void end() {
+            deflater.end();
+        }
+    }
+}
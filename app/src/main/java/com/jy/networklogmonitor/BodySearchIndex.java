@@ -0,0 +1,542 @@
+package com.jy.networklogmonitor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// body全文索引：把请求体和响应体切分为词（连续的字母、数字和下划线，不区分大小写），为每个词维护倒排表。
+// 每个body作为一个文档按加入顺序编号，倒排表保存递增的文档号，用变长整数存储相邻文档号之差；
+// 文档号到日志序号的映射单独保存，因此响应体晚于后续请求到达也不影响倒排表有序。
+// 查询词都出现在某条日志的请求体或响应体中时该日志匹配，词尾带"*"时按前缀匹配。
+// 索引占用内存超过预算时丢弃最旧的一半文档，这部分日志在查询时改为从存储中读取body逐条扫描。
+final class BodySearchIndex {
+    // 默认的索引内存预算
+    static final long DEFAULT_MEMORY_BUDGET = 8 * 1024 * 1024;
+    // 超过该长度的词只保留前缀
+    static final int MAX_TERM_LENGTH = 64;
+    // 每个词的估算固定开销：HashMap节点、String对象和倒排表对象
+    private static final int TERM_OVERHEAD_BYTES = 112;
+    // 每隔多少个文档检查一次是否已取消
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    // 分词在单独的后台线程中进行，不占用抓包线程
+    private static final ExecutorService tokenizerExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "NetworkLogMonitor-body-index");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long memoryBudget;
+    private final Map<String, Postings> postings = new HashMap<>();
+    // docSequences[doc - baseDoc]为该文档所属日志的序号
+    private long[] docSequences = new long[1024];
+    private long baseDoc;
+    private long endDoc;
+    // 小于该文档号的文档已被丢弃
+    private long firstDoc;
+    // 小于该序号的日志已被淘汰
+    private long firstSequence;
+    // 小于该序号的日志不在索引中，查询时扫描
+    private long scanBeforeSequence;
+    private long postingBytes;
+    // clear()后递增，丢弃之前提交但尚未执行的分词任务
+    private volatile int generation;
+
+    BodySearchIndex() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    BodySearchIndex(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    // 在分词线程中把body加入索引
+    void addAsync(final long sequence, final byte[] utf8Body) {
+        if (utf8Body == null || utf8Body.length == 0) {
+            return;
+        }
+        final int submittedGeneration = generation;
+        tokenizerExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (submittedGeneration == generation) {
+                    add(sequence, new String(utf8Body, StandardCharsets.UTF_8));
+                }
+            }
+        });
+    }
+
+    // 在分词线程中执行任务（如重建索引），与分词任务按提交顺序执行
+    static void execute(Runnable task) {
+        tokenizerExecutor.execute(task);
+    }
+
+    // 把一个body加入索引，序号可以乱序，已淘汰日志的body会被忽略
+    void add(long sequence, String body) {
+        if (body == null || body.isEmpty()) {
+            return;
+        }
+        String[] terms = tokenize(body, false);
+        lock.writeLock().lock();
+        try {
+            if (sequence < firstSequence) {
+                return;
+            }
+            if (firstDoc == endDoc) {
+                // 索引为空时从头开始
+                baseDoc = endDoc;
+                firstDoc = endDoc;
+                postings.clear();
+                postingBytes = 0;
+                if (docSequences.length > 1024) {
+                    docSequences = new long[1024];
+                }
+            }
+            long doc = endDoc++;
+            ensureCapacity(doc);
+            docSequences[(int) (doc - baseDoc)] = sequence;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    list = new Postings(doc);
+                    postings.put(term, list);
+                    postingBytes += TERM_OVERHEAD_BYTES + 2L * term.length() + list.data.length;
+                }
+                int before = list.data.length;
+                list.add(doc);
+                postingBytes += list.data.length - before;
+            }
+            while (getMemoryUsageLocked() > memoryBudget && firstDoc < endDoc) {
+                dropOldestDocs();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 淘汰序号小于firstSequence的日志，淘汰数量较多时压缩索引
+    void evictBefore(long firstSequence) {
+        lock.writeLock().lock();
+        try {
+            if (firstSequence <= this.firstSequence) {
+                return;
+            }
+            this.firstSequence = firstSequence;
+            long doc = firstDoc;
+            // 文档基本按序号递增，跳过开头已淘汰的文档；夹在中间的旧文档在查询时过滤
+            while (doc < endDoc && docSequences[(int) (doc - baseDoc)] < firstSequence) {
+                doc++;
+            }
+            firstDoc = doc;
+            long live = endDoc - firstDoc;
+            if (firstDoc - baseDoc > Math.max(live, 256)) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            postings.clear();
+            postingBytes = 0;
+            docSequences = new long[1024];
+            baseDoc = 0;
+            endDoc = 0;
+            firstDoc = 0;
+            firstSequence = 0;
+            scanBeforeSequence = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 用存储中现有日志的body重建索引，应在分词线程中调用
+    void rebuild(LogView store) {
+        clear();
+        long end = store.getEndSequence();
+        long first = store.getFirstSequence();
+        evictBefore(first);
+        for (long sequence = first; sequence < end; sequence++) {
+            NetworkLog log = store.get(sequence);
+            if (log != null) {
+                addUtf8(sequence, log.getRequestBodyUtf8());
+                addUtf8(sequence, log.getResponseBodyUtf8());
+            }
+        }
+    }
+
+    private void addUtf8(long sequence, byte[] utf8Body) {
+        if (utf8Body != null && utf8Body.length > 0) {
+            add(sequence, new String(utf8Body, StandardCharsets.UTF_8));
+        }
+    }
+
+    // 索引占用内存的估算值（字节）
+    long getMemoryUsage() {
+        lock.readLock().lock();
+        try {
+            return getMemoryUsageLocked();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 小于该序号的日志因超出内存预算不在索引中
+    long getScanBeforeSequence() {
+        lock.readLock().lock();
+        try {
+            return scanBeforeSequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 返回请求体或响应体包含所有查询词的日志序号，从旧到新排列；cancelled被置为true时返回null。
+    // 超出内存预算被丢弃的部分从store中读取body扫描。尚在分词队列中的body暂时搜不到。
+    long[] search(String query, LogView store, AtomicBoolean cancelled) {
+        String[] terms = tokenize(query, true);
+        if (terms.length == 0) {
+            return new long[0];
+        }
+        long scanFrom;
+        long scanTo;
+        long[] indexed = null;
+        lock.readLock().lock();
+        try {
+            scanFrom = firstSequence;
+            scanTo = scanBeforeSequence;
+            long minSequence = Math.max(firstSequence, scanBeforeSequence);
+            for (String term : terms) {
+                if (cancelled != null && cancelled.get()) {
+                    return null;
+                }
+                long[] sequences = termSequences(term, minSequence);
+                indexed = indexed == null ? sequences : intersect(indexed, sequences);
+                if (indexed.length == 0) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (scanFrom >= scanTo) {
+            return indexed;
+        }
+        long[] scanned = scan(terms, store, Math.max(scanFrom, store.getFirstSequence()), scanTo, cancelled);
+        if (scanned == null) {
+            return null;
+        }
+        long[] result = Arrays.copyOf(scanned, scanned.length + indexed.length);
+        System.arraycopy(indexed, 0, result, scanned.length, indexed.length);
+        return result;
+    }
+
+    // 逐条检查日志的body，用于不在索引中的日志以及没有开启索引时
+    static boolean matches(NetworkLog log, String[] queryTerms) {
+        String[] requestTerms = tokenizeUtf8(log.getRequestBodyUtf8());
+        String[] responseTerms = tokenizeUtf8(log.getResponseBodyUtf8());
+        for (String queryTerm : queryTerms) {
+            if (!containsTerm(requestTerms, queryTerm) && !containsTerm(responseTerms, queryTerm)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] tokenizeUtf8(byte[] utf8Body) {
+        if (utf8Body == null || utf8Body.length == 0) {
+            return new String[0];
+        }
+        return tokenize(new String(utf8Body, StandardCharsets.UTF_8), false);
+    }
+
+    private static boolean containsTerm(String[] sortedTerms, String queryTerm) {
+        if (queryTerm.endsWith("*")) {
+            String prefix = queryTerm.substring(0, queryTerm.length() - 1);
+            int index = Arrays.binarySearch(sortedTerms, prefix);
+            int insertion = index >= 0 ? index : -index - 1;
+            return insertion < sortedTerms.length && sortedTerms[insertion].startsWith(prefix);
+        }
+        return Arrays.binarySearch(sortedTerms, queryTerm) >= 0;
+    }
+
+    private long[] scan(String[] terms, LogView store, long from, long to, AtomicBoolean cancelled) {
+        long[] result = new long[(int) Math.max(0, to - from)];
+        int count = 0;
+        for (long sequence = from; sequence < to; sequence++) {
+            if (((sequence - from) % CANCEL_CHECK_INTERVAL) == 0 && cancelled != null && cancelled.get()) {
+                return null;
+            }
+            NetworkLog log = store.get(sequence);
+            if (log != null && matches(log, terms)) {
+                result[count++] = sequence;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // 包含该词（或该前缀）的日志序号，递增且不重复
+    private long[] termSequences(String term, long minSequence) {
+        List<Postings> lists = new ArrayList<>();
+        if (term.endsWith("*")) {
+            String prefix = term.substring(0, term.length() - 1);
+            for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    lists.add(entry.getValue());
+                }
+            }
+        } else {
+            Postings list = postings.get(term);
+            if (list != null) {
+                lists.add(list);
+            }
+        }
+        int capacity = 0;
+        for (Postings list : lists) {
+            capacity += list.count;
+        }
+        long[] sequences = new long[capacity];
+        int count = 0;
+        for (Postings list : lists) {
+            long doc = list.base;
+            int offset = 0;
+            while (offset < list.length) {
+                // 解码变长整数
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = list.data[offset++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += delta;
+                if (doc >= firstDoc) {
+                    long sequence = docSequences[(int) (doc - baseDoc)];
+                    if (sequence >= minSequence) {
+                        sequences[count++] = sequence;
+                    }
+                }
+            }
+        }
+        // 同一日志的请求体和响应体、或乱序到达的响应体会产生重复或逆序的序号
+        Arrays.sort(sequences, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || sequences[unique - 1] != sequences[i]) {
+                sequences[unique++] = sequences[i];
+            }
+        }
+        return Arrays.copyOf(sequences, unique);
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private long getMemoryUsageLocked() {
+        return postingBytes + docSequences.length * 8L;
+    }
+
+    // 超出内存预算时丢弃最旧的一半文档，对应的日志改为查询时扫描
+    private void dropOldestDocs() {
+        long newFirstDoc = firstDoc + Math.max(1, (endDoc - firstDoc) / 2);
+        long maxDroppedSequence = scanBeforeSequence - 1;
+        for (long doc = firstDoc; doc < newFirstDoc; doc++) {
+            maxDroppedSequence = Math.max(maxDroppedSequence, docSequences[(int) (doc - baseDoc)]);
+        }
+        scanBeforeSequence = maxDroppedSequence + 1;
+        firstDoc = newFirstDoc;
+        compact();
+    }
+
+    // 丢弃已淘汰文档的序号和倒排项
+    private void compact() {
+        int dropped = (int) (firstDoc - baseDoc);
+        int live = (int) (endDoc - firstDoc);
+        long[] sequences = new long[Math.max(1024, Integer.highestOneBit(Math.max(1, live)) << 1)];
+        System.arraycopy(docSequences, dropped, sequences, 0, live);
+        docSequences = sequences;
+        baseDoc = firstDoc;
+        Iterator<Map.Entry<String, Postings>> iterator = postings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Postings> entry = iterator.next();
+            Postings list = entry.getValue();
+            int before = list.data.length;
+            list.removeBefore(firstDoc);
+            if (list.count == 0) {
+                iterator.remove();
+                postingBytes -= TERM_OVERHEAD_BYTES + 2L * entry.getKey().length() + before;
+            } else {
+                postingBytes += list.data.length - before;
+            }
+        }
+    }
+
+    private void ensureCapacity(long doc) {
+        long index = doc - baseDoc;
+        if (index >= docSequences.length) {
+            int length = docSequences.length;
+            while (index >= length) {
+                length *= 2;
+            }
+            docSequences = Arrays.copyOf(docSequences, length);
+        }
+    }
+
+    // 切分为小写的词，去重并排序；query为true时保留词尾的"*"作为前缀查询
+    static String[] tokenize(String text, boolean query) {
+        List<String> terms = new ArrayList<>();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !isTermChar(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && isTermChar(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                String term = text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase(Locale.ROOT);
+                if (query && i < length && text.charAt(i) == '*' && i - start <= MAX_TERM_LENGTH) {
+                    term += "*";
+                }
+                terms.add(term);
+            }
+        }
+        String[] result = terms.toArray(new String[0]);
+        Arrays.sort(result);
+        int unique = 0;
+        for (int j = 0; j < result.length; j++) {
+            if (unique == 0 || !result[unique - 1].equals(result[j])) {
+                result[unique++] = result[j];
+            }
+        }
+        return Arrays.copyOf(result, unique);
+    }
+
+    private static boolean isTermChar(char c) {
+        return c < 0x80 ? (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'
+                : Character.isLetterOrDigit(c);
+    }
+
+    // 一个词的倒排表：base之后依次保存相邻文档号之差的变长整数编码
+    private static final class Postings {
+        byte[] data = new byte[4];
+        int length;
+        int count;
+        // 第一个文档号之前的基准值
+        long base;
+        long lastDoc;
+
+        Postings(long firstDoc) {
+            this.base = firstDoc;
+            this.lastDoc = firstDoc;
+        }
+
+        void add(long doc) {
+            // 同一文档中重复出现的词只记录一次
+            if (count > 0 && lastDoc == doc) {
+                return;
+            }
+            long delta = doc - lastDoc;
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            }
+            while ((delta & ~0x7FL) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            lastDoc = doc;
+            count++;
+        }
+
+        // 删除小于doc的文档号，剩余部分的编码不变，只需移动字节并更新基准值
+        void removeBefore(long doc) {
+            long current = base;
+            int offset = 0;
+            int removed = 0;
+            while (offset < length) {
+                long previous = current;
+                int entryStart = offset;
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                current += delta;
+                if (current >= doc) {
+                    base = previous;
+                    offset = entryStart;
+                    break;
+                }
+                removed++;
+            }
+            if (removed == 0) {
+                return;
+            }
+            if (offset >= length) {
+                length = 0;
+                count = 0;
+                base = lastDoc;
+                data = new byte[4];
+                return;
+            }
+            int remaining = length - offset;
+            byte[] compacted = remaining < data.length / 4 ? new byte[Math.max(4, remaining * 2)] : data;
+            System.arraycopy(data, offset, compacted, 0, remaining);
+            data = compacted;
+            length = remaining;
+            count -= removed;
+        }
+    }
+}
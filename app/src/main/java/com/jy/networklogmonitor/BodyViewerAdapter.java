@@ -0,0 +1,115 @@
+package com.jy.networklogmonitor;
+
+import android.graphics.Color;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.ForegroundColorSpan;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+// 详情页body查看器的适配器：每一行是BodyChunks中的一个片段，只有可见的片段会被排版和绘制，
+// 语法高亮也只为可见的片段创建
+class BodyViewerAdapter extends RecyclerView.Adapter<BodyViewerAdapter.SegmentViewHolder> {
+    private static final int HIGHLIGHT_COLOR = Color.parseColor("#FFD54F");
+    // 按FormattedBody.TYPE_*排列的语法高亮颜色
+    private static final int[] SYNTAX_COLORS = {
+            Color.parseColor("#881391"),
+            Color.parseColor("#C41A16"),
+            Color.parseColor("#1C00CF"),
+            Color.parseColor("#0D22AA")
+    };
+
+    private BodyChunks chunks = BodyChunks.split("", null);
+    // 当前高亮的搜索结果区间，没有时为-1
+    private int highlightStart = -1;
+    private int highlightEnd = -1;
+
+    void setChunks(BodyChunks chunks) {
+        this.chunks = chunks;
+        highlightStart = -1;
+        highlightEnd = -1;
+        notifyDataSetChanged();
+    }
+
+    BodyChunks getChunks() {
+        return chunks;
+    }
+
+    // 高亮[start, end)并重新绑定涉及的片段，start为-1时清除高亮
+    void setHighlight(int start, int end) {
+        int oldStart = highlightStart;
+        int oldEnd = highlightEnd;
+        highlightStart = start;
+        highlightEnd = end;
+        notifySegments(oldStart, oldEnd);
+        notifySegments(start, end);
+    }
+
+    private void notifySegments(int start, int end) {
+        if (start < 0) {
+            return;
+        }
+        int first = chunks.segmentAt(start);
+        int last = chunks.segmentAt(Math.max(start, end - 1));
+        notifyItemRangeChanged(first, last - first + 1);
+    }
+
+    @NonNull
+    @Override
+    public SegmentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.body_segment_item, parent, false);
+        return new SegmentViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SegmentViewHolder holder, int position) {
+        String text = chunks.getSegmentText(position);
+        int segmentStart = chunks.getSegmentStart(position);
+        int segmentEnd = segmentStart + text.length();
+        SpannableString spannable = null;
+        FormattedBody formatted = chunks.getFormatted();
+        if (formatted != null) {
+            for (int i = formatted.firstSpanEndingAfter(segmentStart);
+                 i < formatted.getSpanCount() && formatted.getSpanStart(i) < segmentEnd; i++) {
+                if (spannable == null) {
+                    spannable = new SpannableString(text);
+                }
+                // 超长的字符串可能跨越多个片段，只截取本片段内的部分
+                int start = Math.max(formatted.getSpanStart(i), segmentStart) - segmentStart;
+                int end = Math.min(formatted.getSpanEnd(i), segmentEnd) - segmentStart;
+                spannable.setSpan(new ForegroundColorSpan(SYNTAX_COLORS[formatted.getSpanType(i)]), start, end,
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        int start = Math.max(highlightStart, segmentStart) - segmentStart;
+        int end = Math.min(highlightEnd, segmentEnd) - segmentStart;
+        if (highlightStart >= 0 && start < end) {
+            if (spannable == null) {
+                spannable = new SpannableString(text);
+            }
+            spannable.setSpan(new BackgroundColorSpan(HIGHLIGHT_COLOR), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        holder.segmentText.setText(spannable != null ? spannable : text);
+    }
+
+    @Override
+    public int getItemCount() {
+        return chunks.getSegmentCount();
+    }
+
+    static class SegmentViewHolder extends RecyclerView.ViewHolder {
+        TextView segmentText;
+
+        public SegmentViewHolder(@NonNull View itemView) {
+            super(itemView);
+            segmentText = itemView.findViewById(R.id.segment_text);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.jy.networklogmonitor;
+
+// 一次请求各阶段的System.nanoTime()时间戳，用预分配的long数组保存，0表示该阶段未发生。
+// 时间戳由OkHttp线程写入，界面和导出线程读取：写入数组后再写volatile的markedPhases，读取时先读markedPhases，
+// 只读取已发布的阶段；finish()之后的写入被忽略。
+public class CallTimings {
+    public static final int CALL_START = 0;
+    public static final int DNS_START = 1;
+    public static final int DNS_END = 2;
+    public static final int CONNECT_START = 3;
+    public static final int SECURE_CONNECT_START = 4;
+    public static final int SECURE_CONNECT_END = 5;
+    public static final int CONNECT_END = 6;
+    public static final int CONNECTION_ACQUIRED = 7;
+    public static final int REQUEST_HEADERS_START = 8;
+    public static final int REQUEST_HEADERS_END = 9;
+    public static final int REQUEST_BODY_END = 10;
+    public static final int RESPONSE_HEADERS_START = 11;
+    public static final int RESPONSE_HEADERS_END = 12;
+    public static final int RESPONSE_BODY_END = 13;
+    public static final int CALL_END = 14;
+    static final int PHASE_COUNT = 15;
+
+    // 瀑布图中展示的阶段：DNS、TCP连接、TLS握手、发送请求、等待首字节、接收响应体
+    public static final int SEGMENT_DNS = 0;
+    public static final int SEGMENT_CONNECT = 1;
+    public static final int SEGMENT_TLS = 2;
+    public static final int SEGMENT_REQUEST = 3;
+    public static final int SEGMENT_WAITING = 4;
+    public static final int SEGMENT_DOWNLOAD = 5;
+    public static final int SEGMENT_COUNT = 6;
+    private static final String[] SEGMENT_NAMES = {"DNS", "Connect", "TLS", "Request", "Waiting (TTFB)", "Download"};
+
+    private final long[] timestamps = new long[PHASE_COUNT];
+    // 已写入时间戳的阶段（按位），同一请求的事件依次回调，只有一个线程同时写入
+    private volatile int markedPhases;
+    private volatile boolean connectionReused;
+    // 请求结束（成功或失败）后才置为true，之后时间戳不再变化
+    private volatile boolean finished;
+    // 在CallTimingsTable中登记时对应的Call，用于查找
+    volatile Object call;
+
+    void mark(int phase, long nanoTime) {
+        if (finished) {
+            return;
+        }
+        timestamps[phase] = nanoTime;
+        markedPhases |= 1 << phase;
+    }
+
+    void setConnectionReused(boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
+    void finish() {
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    // 是否复用了连接池中的连接（没有DNS和建连阶段）
+    public boolean isConnectionReused() {
+        return connectionReused;
+    }
+
+    public long getTimestamp(int phase) {
+        return (markedPhases & (1 << phase)) != 0 ? timestamps[phase] : 0;
+    }
+
+    // 阶段相对于请求开始的时间，未发生时返回-1
+    public long getOffsetNanos(int phase) {
+        long start = getTimestamp(CALL_START);
+        long timestamp = getTimestamp(phase);
+        return start == 0 || timestamp == 0 ? -1 : timestamp - start;
+    }
+
+    public long getTotalNanos() {
+        long start = getTimestamp(CALL_START);
+        long end = getTimestamp(CALL_END);
+        if (end == 0) {
+            end = getTimestamp(RESPONSE_BODY_END);
+        }
+        return end == 0 || start == 0 ? -1 : end - start;
+    }
+
+    public static String getSegmentName(int segment) {
+        return SEGMENT_NAMES[segment];
+    }
+
+    // 瀑布图某一段的开始时间（相对请求开始），未发生时返回-1
+    public long getSegmentStartNanos(int segment) {
+        return getOffsetNanos(segmentStartPhase(segment));
+    }
+
+    // 瀑布图某一段的结束时间（相对请求开始），未发生时返回-1
+    public long getSegmentEndNanos(int segment) {
+        long end = getOffsetNanos(segmentEndPhase(segment));
+        if (end < 0 && segment == SEGMENT_REQUEST) {
+            // 没有请求体时以请求头发送完成为结束
+            end = getOffsetNanos(REQUEST_HEADERS_END);
+        }
+        return end;
+    }
+
+    private static int segmentStartPhase(int segment) {
+        switch (segment) {
+            case SEGMENT_DNS:
+                return DNS_START;
+            case SEGMENT_CONNECT:
+                return CONNECT_START;
+            case SEGMENT_TLS:
+                return SECURE_CONNECT_START;
+            case SEGMENT_REQUEST:
+                return REQUEST_HEADERS_START;
+            case SEGMENT_WAITING:
+                return REQUEST_HEADERS_END;
+            default:
+                return RESPONSE_HEADERS_START;
+        }
+    }
+
+    private static int segmentEndPhase(int segment) {
+        switch (segment) {
+            case SEGMENT_DNS:
+                return DNS_END;
+            case SEGMENT_CONNECT:
+                return CONNECT_END;
+            case SEGMENT_TLS:
+                return SECURE_CONNECT_END;
+            case SEGMENT_REQUEST:
+                return REQUEST_BODY_END;
+            case SEGMENT_WAITING:
+                return RESPONSE_HEADERS_START;
+            default:
+                return RESPONSE_BODY_END;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.jy.networklogmonitor;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 进行中请求的计时表：预分配固定槽位、开放寻址，按Call对象的identityHashCode定位，不使用Map
+// 拦截器取走后即释放槽位；表满时放弃记录该请求的分阶段耗时
+final class CallTimingsTable {
+    // 最多向后探测的槽位数
+    private static final int MAX_PROBES = 8;
+
+    private final AtomicReferenceArray<CallTimings> slots;
+    private final int mask;
+
+    CallTimingsTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // 登记请求对应的计时，表中没有空位时返回false
+    boolean put(Object call, CallTimings timings) {
+        timings.call = call;
+        int index = indexFor(call);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            if (slots.compareAndSet((index + i) & mask, null, timings)) {
+                return true;
+            }
+        }
+        timings.call = null;
+        return false;
+    }
+
+    // 取出并释放请求对应的计时，没有登记时返回null
+    CallTimings take(Object call) {
+        int index = indexFor(call);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int slot = (index + i) & mask;
+            CallTimings timings = slots.get(slot);
+            if (timings != null && timings.call == call && slots.compareAndSet(slot, timings, null)) {
+                timings.call = null;
+                return timings;
+            }
+        }
+        return null;
+    }
+
+    // 释放请求对应的槽位，请求结束时调用，避免拦截器没有取走时占用槽位
+    void remove(Object call, CallTimings timings) {
+        int index = indexFor(call);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            if (slots.compareAndSet((index + i) & mask, timings, null)) {
+                timings.call = null;
+                return;
+            }
+        }
+    }
+
+    private int indexFor(Object call) {
+        int hash = System.identityHashCode(call);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,60 @@
+package com.jy.networklogmonitor;
+
+import okhttp3.Headers;
+
+// 拦截器交给后台线程的抓包事件，拦截器线程只做引用拷贝，解码和入库都在后台完成
+final class CaptureEvent {
+    static final int TYPE_CALL = 0;
+    static final int TYPE_RESPONSE_BODY = 1;
+
+    final int type;
+    // 拦截时分配的日志id，TYPE_RESPONSE_BODY事件为-1
+    final long id;
+    final String url;
+    final String method;
+    final Headers requestHeaders;
+    final CapturedBody requestBody;
+    final long startTimeMillis;
+    final long responseTime;
+    final int statusCode;
+    final String errorMessage;
+    // EventListener记录的分阶段耗时，可能为null
+    final CallTimings callTimings;
+    // TYPE_RESPONSE_BODY事件对应的请求事件
+    final CaptureEvent callEvent;
+    final CapturedBody responseBody;
+
+    // 由后台线程创建的日志和写入的存储，只在后台线程中读写
+    NetworkLog log;
+    LogStore store;
+
+    private CaptureEvent(int type, long id, String url, String method, Headers requestHeaders, CapturedBody requestBody,
+                         long startTimeMillis, long responseTime, int statusCode, String errorMessage,
+                         CallTimings callTimings, CaptureEvent callEvent, CapturedBody responseBody) {
+        this.type = type;
+        this.id = id;
+        this.url = url;
+        this.method = method;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = requestBody;
+        this.startTimeMillis = startTimeMillis;
+        this.responseTime = responseTime;
+        this.statusCode = statusCode;
+        this.errorMessage = errorMessage;
+        this.callTimings = callTimings;
+        this.callEvent = callEvent;
+        this.responseBody = responseBody;
+    }
+
+    static CaptureEvent call(long id, String url, String method, Headers requestHeaders, CapturedBody requestBody,
+                             long startTimeMillis, long responseTime, int statusCode, String errorMessage,
+                             CallTimings callTimings) {
+        return new CaptureEvent(TYPE_CALL, id, url, method, requestHeaders, requestBody,
+                startTimeMillis, responseTime, statusCode, errorMessage, callTimings, null, null);
+    }
+
+    static CaptureEvent responseBody(CaptureEvent callEvent, CapturedBody responseBody) {
+        return new CaptureEvent(TYPE_RESPONSE_BODY, -1, null, null, null, null,
+                0, 0, 0, null, null, callEvent, responseBody);
+    }
+}
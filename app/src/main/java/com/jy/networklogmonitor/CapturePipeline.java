@@ -0,0 +1,155 @@
+package com.jy.networklogmonitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 抓包流水线：拦截器线程只把事件放入有界队列，由单个后台线程批量处理
+public class CapturePipeline<E> {
+
+    // 队列满时的处理方式
+    public enum OverflowPolicy {
+        // 丢弃新事件并计数，不影响网络请求
+        DROP,
+        // 阻塞拦截器线程直到队列有空位
+        BLOCK
+    }
+
+    public interface Handler<E> {
+        // 在后台线程中逐个处理事件
+        void onEvent(E event);
+
+        // 一批事件处理完成后调用一次
+        void onBatchEnd(int count);
+    }
+
+    static final int DEFAULT_CAPACITY = 4096;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long BLOCK_BACKOFF_NANOS = 100_000L;
+
+    private final MpscArrayQueue<E> queue;
+    private final Handler<E> handler;
+    private final String threadName;
+    private volatile OverflowPolicy overflowPolicy;
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile Thread worker;
+    private volatile boolean workerParked;
+
+    public CapturePipeline(String threadName, int capacity, OverflowPolicy overflowPolicy, Handler<E> handler) {
+        this.threadName = threadName;
+        this.queue = new MpscArrayQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.handler = handler;
+    }
+
+    // 提交事件，DROP策略下队列已满时返回false
+    public boolean submit(E event) {
+        ensureStarted();
+        while (!queue.offer(event)) {
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            wakeWorker();
+            LockSupport.parkNanos(BLOCK_BACKOFF_NANOS);
+        }
+        acceptedCount.incrementAndGet();
+        wakeWorker();
+        return true;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    // 当前排队等待处理的事件数
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return queue.capacity();
+    }
+
+    // 因队列已满而丢弃的事件数
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    // 处理时抛出异常的次数（单个事件或一批结束时的回调），异常被忽略，后台线程继续处理
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    // 等待已提交的事件全部处理完成，超时返回false
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (processedCount.get() < acceptedCount.get()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private void ensureStarted() {
+        if (worker != null) {
+            return;
+        }
+        synchronized (this) {
+            if (worker == null) {
+                Thread thread = new Thread(this::runWorker, threadName);
+                thread.setDaemon(true);
+                thread.start();
+                worker = thread;
+            }
+        }
+    }
+
+    private void wakeWorker() {
+        if (workerParked) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            int count = 0;
+            E event;
+            while (count < MAX_BATCH_SIZE && (event = queue.poll()) != null) {
+                try {
+                    handler.onEvent(event);
+                } catch (RuntimeException e) {
+                    // 单个事件处理失败不能中断后台线程
+                    failedCount.incrementAndGet();
+                }
+                count++;
+            }
+            if (count > 0) {
+                try {
+                    handler.onBatchEnd(count);
+                } catch (RuntimeException e) {
+                    failedCount.incrementAndGet();
+                }
+                processedCount.addAndGet(count);
+                continue;
+            }
+            workerParked = true;
+            if (queue.isEmpty()) {
+                LockSupport.park(this);
+            }
+            workerParked = false;
+        }
+    }
+}
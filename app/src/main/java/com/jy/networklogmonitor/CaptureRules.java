@@ -0,0 +1,208 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import okhttp3.HttpUrl;
+
+// 抓包规则：在读取任何请求体之前决定是否记录该请求，创建后不可修改
+public final class CaptureRules {
+    // 默认规则：记录所有请求
+    public static final CaptureRules CAPTURE_ALL = new Builder().build();
+
+    private final UrlPatternMatcher<Boolean> includes;
+    private final UrlPatternMatcher<Boolean> excludes;
+    private final UrlPatternMatcher<Double> sampleRates;
+    private final UrlPatternMatcher<RateLimit> rateLimits;
+
+    private CaptureRules(Builder builder) {
+        this.includes = builder.includes;
+        this.excludes = builder.excludes;
+        this.sampleRates = builder.sampleRates;
+        this.rateLimits = builder.rateLimits;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean shouldCapture(HttpUrl url) {
+        return shouldCapture(url.host(), url.encodedPath(), System.nanoTime());
+    }
+
+    boolean shouldCapture(String host, String path, long nowNanos) {
+        // 排除规则优先
+        if (!excludes.isEmpty() && excludes.match(host, path) != null) {
+            return false;
+        }
+        // 设置了包含规则时，只记录命中的请求
+        if (!includes.isEmpty() && includes.match(host, path) == null) {
+            return false;
+        }
+        if (!sampleRates.isEmpty()) {
+            Double rate = sampleRates.match(host, path);
+            if (rate != null && rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) {
+                return false;
+            }
+        }
+        if (!rateLimits.isEmpty()) {
+            RateLimit rateLimit = rateLimits.match(host, path);
+            if (rateLimit != null && !rateLimit.tryAcquire(host, nowNanos)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static final class Builder {
+        private static final int INCLUDE = 0;
+        private static final int EXCLUDE = 1;
+        private static final int SAMPLE = 2;
+        private static final int RATE_LIMIT = 3;
+
+        private final List<RuleSpec> specs = new ArrayList<>();
+        private UrlPatternMatcher<Boolean> includes;
+        private UrlPatternMatcher<Boolean> excludes;
+        private UrlPatternMatcher<Double> sampleRates;
+        private UrlPatternMatcher<RateLimit> rateLimits;
+
+        // 只记录命中的请求，如include("api.example.com", "/v1/**")
+        public Builder include(String hostGlob, String pathGlob) {
+            specs.add(new RuleSpec(INCLUDE, hostGlob, pathGlob, null, Boolean.TRUE));
+            return this;
+        }
+
+        // 正则匹配"host + path"，如"^api\\.example\\.com/v[0-9]+/"
+        public Builder includeRegex(String regex) {
+            specs.add(new RuleSpec(INCLUDE, null, null, regex, Boolean.TRUE));
+            return this;
+        }
+
+        // 不记录命中的请求，如exclude("*", "/heartbeat")
+        public Builder exclude(String hostGlob, String pathGlob) {
+            specs.add(new RuleSpec(EXCLUDE, hostGlob, pathGlob, null, Boolean.TRUE));
+            return this;
+        }
+
+        public Builder excludeRegex(String regex) {
+            specs.add(new RuleSpec(EXCLUDE, null, null, regex, Boolean.TRUE));
+            return this;
+        }
+
+        // 按比例采样，rate取值0~1；多条规则命中时使用最先添加的
+        public Builder sample(String hostGlob, String pathGlob, double rate) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("rate must be in [0, 1]: " + rate);
+            }
+            specs.add(new RuleSpec(SAMPLE, hostGlob, pathGlob, null, rate));
+            return this;
+        }
+
+        // 每个host独立的令牌桶限速：每秒最多permitsPerSecond条，允许burst条突发
+        public Builder rateLimit(String hostGlob, double permitsPerSecond, int burst) {
+            if (permitsPerSecond <= 0 || burst <= 0) {
+                throw new IllegalArgumentException("permitsPerSecond and burst must be > 0");
+            }
+            specs.add(new RuleSpec(RATE_LIMIT, hostGlob, null, null, new double[]{permitsPerSecond, burst}));
+            return this;
+        }
+
+        // 把所有规则编译为匹配器，之后修改Builder不影响已创建的规则
+        public CaptureRules build() {
+            includes = new UrlPatternMatcher<>();
+            excludes = new UrlPatternMatcher<>();
+            sampleRates = new UrlPatternMatcher<>();
+            rateLimits = new UrlPatternMatcher<>();
+            for (RuleSpec spec : specs) {
+                switch (spec.kind) {
+                    case INCLUDE:
+                        addTo(includes, spec, Boolean.TRUE);
+                        break;
+                    case EXCLUDE:
+                        addTo(excludes, spec, Boolean.TRUE);
+                        break;
+                    case SAMPLE:
+                        addTo(sampleRates, spec, (Double) spec.value);
+                        break;
+                    default:
+                        double[] limit = (double[]) spec.value;
+                        addTo(rateLimits, spec, new RateLimit(limit[0], (int) limit[1]));
+                        break;
+                }
+            }
+            return new CaptureRules(this);
+        }
+
+        private static <T> void addTo(UrlPatternMatcher<T> matcher, RuleSpec spec, T value) {
+            if (spec.regex != null) {
+                matcher.addRegex(spec.regex, value);
+            } else {
+                matcher.add(spec.hostGlob, spec.pathGlob, value);
+            }
+        }
+    }
+
+    private static final class RuleSpec {
+        final int kind;
+        final String hostGlob;
+        final String pathGlob;
+        final String regex;
+        final Object value;
+
+        RuleSpec(int kind, String hostGlob, String pathGlob, String regex, Object value) {
+            this.kind = kind;
+            this.hostGlob = hostGlob;
+            this.pathGlob = pathGlob;
+            this.regex = regex;
+            this.value = value;
+        }
+    }
+
+    // 一条限速规则，命中的每个host各有一个令牌桶
+    static final class RateLimit {
+        private final double permitsPerNano;
+        private final int burst;
+        private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        RateLimit(double permitsPerSecond, int burst) {
+            this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+            this.burst = burst;
+        }
+
+        boolean tryAcquire(String host, long nowNanos) {
+            TokenBucket bucket = buckets.get(host);
+            if (bucket == null) {
+                TokenBucket created = new TokenBucket(burst, nowNanos);
+                bucket = buckets.putIfAbsent(host, created);
+                if (bucket == null) {
+                    bucket = created;
+                }
+            }
+            return bucket.tryAcquire(permitsPerNano, burst, nowNanos);
+        }
+    }
+
+    static final class TokenBucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(int burst, long nowNanos) {
+            this.tokens = burst;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        synchronized boolean tryAcquire(double permitsPerNano, int burst, long nowNanos) {
+            if (nowNanos > lastRefillNanos) {
+                tokens = Math.min(burst, tokens + (nowNanos - lastRefillNanos) * permitsPerNano);
+                lastRefillNanos = nowNanos;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+}
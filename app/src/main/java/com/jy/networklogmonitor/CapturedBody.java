@@ -0,0 +1,132 @@
+package com.jy.networklogmonitor;
+
+import java.io.EOFException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.MediaType;
+import okio.Buffer;
+
+// 记录下来的请求体/响应体片段，保存原始字节，需要展示时再解码
+public class CapturedBody {
+    // 二进制内容预览的字节数
+    static final int PREVIEW_BYTES = 64;
+
+    private final byte[] bytes;
+    private final long totalBytes;
+    private final boolean truncated;
+    private final MediaType mediaType;
+    // 不保存原始字节时的文字描述
+    private final String summary;
+
+    public CapturedBody(byte[] bytes, long totalBytes, boolean truncated, MediaType mediaType) {
+        this(bytes, totalBytes, truncated, mediaType, null);
+    }
+
+    private CapturedBody(byte[] bytes, long totalBytes, boolean truncated, MediaType mediaType, String summary) {
+        this.bytes = bytes;
+        this.totalBytes = totalBytes;
+        this.truncated = truncated;
+        this.mediaType = mediaType;
+        this.summary = summary;
+    }
+
+    // 未读取内容的请求体（如一次性、双工或过大的二进制请求体）
+    public static CapturedBody skipped(String reason, long totalBytes, MediaType mediaType) {
+        return new CapturedBody(new byte[0], totalBytes, true, mediaType,
+                "[" + reason + describeSize(totalBytes, mediaType) + "]");
+    }
+
+    // 只保存文字描述的请求体（如multipart各部分的摘要）
+    public static CapturedBody summary(String summary, long totalBytes, boolean truncated, MediaType mediaType) {
+        return new CapturedBody(new byte[0], totalBytes, truncated, mediaType, summary);
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    // 请求体/响应体的总字节数，-1表示未知
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public boolean isText() {
+        if (summary != null) {
+            return false;
+        }
+        Boolean text = BodyCapturePolicy.isTextMediaType(mediaType);
+        return text != null ? text : isProbablyUtf8(bytes);
+    }
+
+    // 解码为展示用的文本：文本内容按字符集解码，二进制内容显示大小和十六进制预览
+    public String decode() {
+        if (summary != null) {
+            return summary;
+        }
+        if (isText()) {
+            Charset charset = mediaType != null ? mediaType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+            return new String(bytes, charset);
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("[binary body").append(describeSize(totalBytes, mediaType)).append("]\n");
+        int previewLength = Math.min(bytes.length, PREVIEW_BYTES);
+        for (int i = 0; i < previewLength; i++) {
+            builder.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(bytes[i] & 0xF, 16));
+            builder.append((i & 15) == 15 ? '\n' : ' ');
+        }
+        if (bytes.length > previewLength || truncated) {
+            builder.append("...");
+        }
+        return builder.toString();
+    }
+
+    // 转换为保存到日志中的UTF-8字节：UTF-8文本直接使用原始字节，不经过解码再编码
+    byte[] toUtf8() {
+        if (isText()) {
+            Charset charset = mediaType != null ? mediaType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                return bytes;
+            }
+        }
+        return decode().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String describeSize(long totalBytes, MediaType mediaType) {
+        StringBuilder builder = new StringBuilder();
+        if (totalBytes >= 0) {
+            builder.append(", ").append(totalBytes).append(" bytes");
+        }
+        if (mediaType != null) {
+            builder.append(", ").append(mediaType);
+        }
+        return builder.toString();
+    }
+
+    // 参考HttpLoggingInterceptor：前16个码点中没有控制字符则认为是文本
+    static boolean isProbablyUtf8(byte[] bytes) {
+        Buffer prefix = new Buffer();
+        prefix.write(bytes, 0, Math.min(bytes.length, PREVIEW_BYTES));
+        try {
+            for (int i = 0; i < 16 && !prefix.exhausted(); i++) {
+                int codePoint = prefix.readUtf8CodePoint();
+                if (Character.isISOControl(codePoint) && !Character.isWhitespace(codePoint)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (EOFException e) {
+            // 截断在多字节字符中间
+            return true;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.jy.networklogmonitor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+// 边读边复制的响应体：字节原样透传给调用方，同时最多复制maxCaptureBytes字节用于日志
+public class CapturingResponseBody extends ResponseBody {
+
+    // 响应体读取结束（读完或被关闭）时回调一次
+    public interface Callback {
+        void onCaptured(Buffer captured, long totalBytes, boolean exhausted);
+    }
+
+    private final ResponseBody delegate;
+    private final long maxCaptureBytes;
+    private final Callback callback;
+    private final Buffer captured = new Buffer();
+    private BufferedSource source;
+    private long totalBytes;
+    private boolean exhausted;
+    private boolean completed;
+
+    public CapturingResponseBody(ResponseBody delegate, long maxCaptureBytes, Callback callback) {
+        this.delegate = delegate;
+        this.maxCaptureBytes = maxCaptureBytes;
+        this.callback = callback;
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return delegate.contentLength();
+    }
+
+    @NonNull
+    @Override
+    public BufferedSource source() {
+        if (source == null) {
+            source = Okio.buffer(new CapturingSource(delegate.source()));
+        }
+        return source;
+    }
+
+    @Override
+    public void close() {
+        try {
+            delegate.close();
+        } finally {
+            complete();
+        }
+    }
+
+    private void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        callback.onCaptured(captured, totalBytes, exhausted);
+    }
+
+    private final class CapturingSource extends ForwardingSource {
+        CapturingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read == -1) {
+                exhausted = true;
+                complete();
+                return -1;
+            }
+            totalBytes += read;
+            long remaining = maxCaptureBytes - captured.size();
+            if (remaining > 0) {
+                // 只复制刚读到的字节，不影响调用方拿到的数据
+                sink.copyTo(captured, sink.size() - read, Math.min(read, remaining));
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                complete();
+            }
+        }
+    }
+}
@@ -4,32 +4,46 @@ import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.Service;
-import android.app.ActivityManager;
-import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.graphics.PixelFormat;
 import android.os.Build;
-import android.os.IBinder;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.WindowManager;
 import android.widget.TextView;
 
 import androidx.core.app.NotificationCompat;
 
-import java.util.List;
-
-public class FloatingService extends Service implements NetworkLogInterceptor.LogChangeListener {
+public class FloatingService extends Service implements NetworkLogInterceptor.LogChangeListener,
+        AppForegroundTracker.Listener {
     private WindowManager windowManager;
     private View floatingView;
+    // 上次打开日志列表以来的错误数
+    private TextView logCountText;
+    private TextView dashboardText;
     private WindowManager.LayoutParams params;
     private boolean isViewAdded = false;
+    // 应用前后台状态，只在切换时回调，不再定时查询
+    private AppForegroundTracker foregroundTracker;
+    // 面板按NetworkLogInterceptor.getDashboardRefreshIntervalMillis()节流刷新；没有请求时不再安排刷新
     private Handler handler;
+    private boolean refreshScheduled;
+    private long lastRefreshUptimeMillis;
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refreshScheduled = false;
+            refreshDashboard();
+        }
+    };
 
     @Override
     public IBinder onBind(Intent intent) {
@@ -39,6 +53,7 @@ public class FloatingService extends Service implements NetworkLogInterceptor.Lo
     @Override
     public void onCreate() {
         super.onCreate();
+        foregroundTracker = AppForegroundTracker.install(getApplication());
         handler = new Handler(Looper.getMainLooper());
 
         // 创建通知渠道（Android 8.0+）
@@ -67,9 +82,9 @@ public class FloatingService extends Service implements NetworkLogInterceptor.Lo
         
         // 注册日志变化监听器
         NetworkLogInterceptor.registerLogChangeListener(this);
-        
-        // 启动应用前后台状态检查
-        startAppStatusCheck();
+
+        // 应用切换到前台时显示悬浮窗，切换到后台时隐藏
+        foregroundTracker.addListener(this);
     }
 
     private void initializeFloatingView() {
@@ -79,6 +94,8 @@ public class FloatingService extends Service implements NetworkLogInterceptor.Lo
         // 加载悬浮窗布局
         LayoutInflater inflater = (LayoutInflater) getSystemService(LAYOUT_INFLATER_SERVICE);
         floatingView = inflater.inflate(R.layout.floating_widget, null);
+        logCountText = floatingView.findViewById(R.id.log_count);
+        dashboardText = floatingView.findViewById(R.id.dashboard_text);
 
         // 设置悬浮窗参数
         params = new WindowManager.LayoutParams(
@@ -96,15 +113,27 @@ public class FloatingService extends Service implements NetworkLogInterceptor.Lo
         params.x = 0;
         params.y = 100;
 
-        // 设置悬浮窗点击事件
-        floatingView.findViewById(R.id.floating_button).setOnClickListener(new View.OnClickListener() {
+        // 设置悬浮窗点击事件，点击按钮或面板都打开日志列表
+        View.OnClickListener openLogList = new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                // 点击悬浮窗，打开日志列表
                 Intent intent = new Intent(FloatingService.this, LogListActivity.class);
                 intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
                 startActivity(intent);
             }
+        };
+        floatingView.findViewById(R.id.floating_button).setOnClickListener(openLogList);
+        dashboardText.setOnClickListener(openLogList);
+
+        // 长按悬浮窗，打开按接口的耗时统计
+        floatingView.findViewById(R.id.floating_button).setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                Intent intent = new Intent(FloatingService.this, StatsActivity.class);
+                intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                startActivity(intent);
+                return true;
+            }
         });
 
         // 设置悬浮窗拖拽事件
@@ -124,8 +153,15 @@ public class FloatingService extends Service implements NetworkLogInterceptor.Lo
                         initialTouchY = event.getRawY();
                         return false;
                     case MotionEvent.ACTION_MOVE:
-                        params.x = initialX + (int) (event.getRawX() - initialTouchX);
-                        params.y = initialY + (int) (event.getRawY() - initialTouchY);
+                        int dx = (int) (event.getRawX() - initialTouchX);
+                        int dy = (int) (event.getRawY() - initialTouchY);
+                        // 拖动时不触发长按
+                        int touchSlop = ViewConfiguration.get(v.getContext()).getScaledTouchSlop();
+                        if (Math.abs(dx) > touchSlop || Math.abs(dy) > touchSlop) {
+                            v.cancelLongPress();
+                        }
+                        params.x = initialX + dx;
+                        params.y = initialY + dy;
                         windowManager.updateViewLayout(floatingView, params);
                         return false;
                     default:
@@ -134,93 +170,110 @@ public class FloatingService extends Service implements NetworkLogInterceptor.Lo
             }
         });
 
-        // 更新日志数量显示
-        updateLogCount();
-        
-        // 检查应用是否在前台，决定是否显示悬浮窗
-        checkAndUpdateFloatingViewVisibility();
+        // 应用已在前台时立即显示悬浮窗
+        updateFloatingViewVisibility(foregroundTracker.isForeground());
     }
 
-    private void updateLogCount() {
-        handler.post(new Runnable() {
-            @Override
-            public void run() {
-                if (floatingView != null) {
-                    TextView logCountText = floatingView.findViewById(R.id.log_count);
-                    int count = NetworkLogInterceptor.getLogList().size();
-                    logCountText.setText(String.valueOf(count));
-                }
-            }
-        });
+    // 在主线程调用；悬浮窗隐藏时不更新，显示时再刷新。数值随时间变化时按间隔继续刷新，直到窗口内没有请求
+    private void refreshDashboard() {
+        if (!isViewAdded) {
+            return;
+        }
+        lastRefreshUptimeMillis = SystemClock.uptimeMillis();
+        LiveMetrics.Snapshot snapshot = NetworkLogInterceptor.getLiveMetrics().snapshot(System.currentTimeMillis());
+        setTextIfChanged(dashboardText, formatDashboard(snapshot));
+        long errors = snapshot.getErrorsSinceLastOpen();
+        logCountText.setVisibility(errors > 0 ? View.VISIBLE : View.GONE);
+        if (errors > 0) {
+            setTextIfChanged(logCountText, errors > 99 ? "99+" : String.valueOf(errors));
+        }
+        if (snapshot.isActive()) {
+            scheduleRefresh();
+        }
     }
-    
-    private void startAppStatusCheck() {
-        // 定时检查应用是否在前台
-        handler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                checkAndUpdateFloatingViewVisibility();
-                // 每1秒检查一次
-                handler.postDelayed(this, 1000);
-            }
-        }, 1000);
+
+    // 距上次刷新不足一个间隔时延后刷新，间隔内的多次变化只刷新一次
+    private void scheduleRefresh() {
+        if (refreshScheduled || !isViewAdded) {
+            return;
+        }
+        refreshScheduled = true;
+        long delay = lastRefreshUptimeMillis + NetworkLogInterceptor.getDashboardRefreshIntervalMillis()
+                - SystemClock.uptimeMillis();
+        handler.postDelayed(refreshRunnable, Math.max(0, delay));
     }
-    
-    private void checkAndUpdateFloatingViewVisibility() {
-        if (isAppInForeground()) {
+
+    // 内容不变时不调用setText，避免重新布局
+    private static void setTextIfChanged(TextView textView, String text) {
+        if (!text.contentEquals(textView.getText())) {
+            textView.setText(text);
+        }
+    }
+
+    static String formatDashboard(LiveMetrics.Snapshot snapshot) {
+        StringBuilder builder = new StringBuilder(40);
+        long tenths = Math.round(snapshot.getRequestsPerSecond() * 10);
+        builder.append(tenths / 10).append('.').append(tenths % 10).append(" req/s\n")
+                .append(snapshot.getInFlightCount()).append(" in flight\n")
+                .append("p95 ");
+        if (snapshot.getRequestCount() > 0) {
+            builder.append(snapshot.getP95Millis()).append(" ms");
+        } else {
+            builder.append('-');
+        }
+        return builder.toString();
+    }
+
+    private void updateFloatingViewVisibility(boolean foreground) {
+        if (foreground) {
             if (!isViewAdded) {
                 // 应用在前台，显示悬浮窗
                 windowManager.addView(floatingView, params);
                 isViewAdded = true;
+                refreshDashboard();
             }
         } else {
             if (isViewAdded) {
                 // 应用在后台，隐藏悬浮窗
                 windowManager.removeView(floatingView);
                 isViewAdded = false;
+                handler.removeCallbacks(refreshRunnable);
+                refreshScheduled = false;
             }
         }
     }
-    
-    private boolean isAppInForeground() {
-        ActivityManager activityManager = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
-        List<ActivityManager.RunningAppProcessInfo> appProcesses = activityManager.getRunningAppProcesses();
-        if (appProcesses == null) {
-            return false;
-        }
-        
-        // 获取当前应用包名
-        String packageName = getPackageName();
-        
-        // 检查当前应用是否在前台运行
-        for (ActivityManager.RunningAppProcessInfo appProcess : appProcesses) {
-            if (appProcess.importance == ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND &&
-                appProcess.processName.equals(packageName)) {
-                return true;
-            }
-        }
-        return false;
+
+    // 悬浮窗是否已添加到窗口中，供测试使用
+    boolean isFloatingViewShown() {
+        return isViewAdded;
+    }
+
+    @Override
+    public void onForegroundChanged(boolean foreground) {
+        updateFloatingViewVisibility(foreground);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        // 取消注册日志变化监听器
+        // 取消注册日志变化监听器和前后台监听器
         NetworkLogInterceptor.unregisterLogChangeListener(this);
+        if (foregroundTracker != null) {
+            foregroundTracker.removeListener(this);
+        }
         // 移除悬浮窗
         if (isViewAdded && floatingView != null) {
             windowManager.removeView(floatingView);
             isViewAdded = false;
         }
-        // 移除所有handler任务
         if (handler != null) {
-            handler.removeCallbacksAndMessages(null);
+            handler.removeCallbacks(refreshRunnable);
         }
     }
     
     @Override
-    public void onLogChanged() {
-        // 日志变化时更新计数显示
-        updateLogCount();
+    public void onLogChanged(LogChangeBatch batch) {
+        // 有请求结束时刷新面板，已在主线程合并回调，再按刷新间隔节流
+        scheduleRefresh();
     }
 }
@@ -0,0 +1,70 @@
+package com.jy.networklogmonitor;
+
+// 格式化后的body文本及其语法高亮区间。区间按起始位置递增且互不重叠，创建后不再修改，可跨线程共享。
+final class FormattedBody {
+    static final byte TYPE_KEY = 0;
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_NUMBER = 2;
+    static final byte TYPE_LITERAL = 3;
+
+    final String text;
+    private final int[] spanStarts;
+    private final int[] spanEnds;
+    private final byte[] spanTypes;
+    private final int spanCount;
+
+    FormattedBody(String text, int[] spanStarts, int[] spanEnds, byte[] spanTypes, int spanCount) {
+        this.text = text;
+        this.spanStarts = spanStarts;
+        this.spanEnds = spanEnds;
+        this.spanTypes = spanTypes;
+        this.spanCount = spanCount;
+    }
+
+    // 没有高亮的纯文本
+    static FormattedBody plain(String text) {
+        return new FormattedBody(text, new int[0], new int[0], new byte[0], 0);
+    }
+
+    int getSpanCount() {
+        return spanCount;
+    }
+
+    int getSpanStart(int index) {
+        return spanStarts[index];
+    }
+
+    int getSpanEnd(int index) {
+        return spanEnds[index];
+    }
+
+    byte getSpanType(int index) {
+        return spanTypes[index];
+    }
+
+    // 第一个结束位置在offset之后的区间，即可能与[offset, ...)重叠的第一个区间
+    int firstSpanEndingAfter(int offset) {
+        int low = 0;
+        int high = spanCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (spanEnds[middle] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // 在文本末尾追加不带高亮的内容，如截断提示
+    FormattedBody append(String suffix) {
+        return new FormattedBody(text + suffix, spanStarts, spanEnds, spanTypes, spanCount);
+    }
+
+    // 估算占用的字符数，用于缓存的容量限制
+    int estimateChars() {
+        // 每个区间9字节，约合4.5个字符
+        return text.length() + spanCount * 5;
+    }
+}
@@ -0,0 +1,67 @@
+package com.jy.networklogmonitor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// 按日志id缓存格式化后的body，按总字符数限制容量并淘汰最久未使用的项。
+// 重新打开详情页或旋转屏幕时直接使用缓存，不再重新格式化。
+final class FormattedBodyCache {
+    static final int DEFAULT_MAX_ENTRIES = 32;
+    static final int DEFAULT_MAX_CHARS = 8 * 1024 * 1024;
+
+    private static final class Entry {
+        final long sourceSize;
+        final FormattedBody body;
+
+        Entry(long sourceSize, FormattedBody body) {
+            this.sourceSize = sourceSize;
+            this.body = body;
+        }
+    }
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final int maxChars;
+    private int totalChars;
+
+    FormattedBodyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_CHARS);
+    }
+
+    FormattedBodyCache(int maxEntries, int maxChars) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+    }
+
+    // sourceSize与缓存时不同说明日志内容已更新，视为未命中
+    synchronized FormattedBody get(long logId, long sourceSize) {
+        Entry entry = entries.get(logId);
+        return entry != null && entry.sourceSize == sourceSize ? entry.body : null;
+    }
+
+    synchronized void put(long logId, long sourceSize, FormattedBody body) {
+        int chars = body.estimateChars();
+        if (logId < 0 || chars > maxChars) {
+            return;
+        }
+        Entry previous = entries.put(logId, new Entry(sourceSize, body));
+        if (previous != null) {
+            totalChars -= previous.body.estimateChars();
+        }
+        totalChars += chars;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && (entries.size() > maxEntries || totalChars > maxChars)) {
+            totalChars -= iterator.next().body.estimateChars();
+            iterator.remove();
+        }
+    }
+
+    synchronized int getTotalChars() {
+        return totalChars;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        totalChars = 0;
+    }
+}
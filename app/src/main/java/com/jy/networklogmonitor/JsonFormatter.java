@@ -0,0 +1,211 @@
+package com.jy.networklogmonitor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 流式的JSON格式化：逐个token读取输入并直接写出缩进后的文本，同时记录键、字符串、数字和字面量的高亮区间。
+// 不建立对象树，除输出外只保存当前的嵌套深度；被截断或不合法的JSON按已读到的内容尽量格式化，不会抛出异常。
+final class JsonFormatter {
+    // 输出达到该字符数时先回调一次，详情页可以先显示第一屏
+    static final int FIRST_SCREEN_CHARS = 8 * 1024;
+    // 缩进最多按该深度计算，嵌套过深时不再继续右移
+    private static final int MAX_INDENT_DEPTH = 32;
+    private static final int CANCEL_CHECK_INTERVAL = 64 * 1024;
+
+    // 第一屏格式化完成时在格式化线程中回调，partial只包含已输出的部分；输出不足一屏时不回调
+    interface Listener {
+        void onFirstScreen(FormattedBody partial);
+    }
+
+    private final String input;
+    private final StringBuilder out;
+    private int[] spanStarts = new int[64];
+    private int[] spanEnds = new int[64];
+    private byte[] spanTypes = new byte[64];
+    private int spanCount;
+    private int depth;
+    // 下一个token之前需要换行缩进
+    private boolean pendingNewline;
+    // 刚输出了左括号，紧接着的右括号不换行，空对象输出为{}
+    private boolean justOpened;
+
+    private JsonFormatter(String input) {
+        this.input = input;
+        this.out = new StringBuilder(input.length() + input.length() / 4);
+    }
+
+    // 第一个非空白字符是{或[时按JSON处理
+    static boolean looksLikeJson(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!isWhitespace(c)) {
+                return c == '{' || c == '[';
+            }
+        }
+        return false;
+    }
+
+    // 格式化json，listener可以为null；被取消时返回null
+    static FormattedBody format(String json, Listener listener, AtomicBoolean cancelled) {
+        return new JsonFormatter(json).run(listener, cancelled);
+    }
+
+    private FormattedBody run(Listener listener, AtomicBoolean cancelled) {
+        int length = input.length();
+        int nextCancelCheck = CANCEL_CHECK_INTERVAL;
+        int i = 0;
+        while (i < length) {
+            if (i >= nextCancelCheck) {
+                if (cancelled != null && cancelled.get()) {
+                    return null;
+                }
+                nextCancelCheck = i + CANCEL_CHECK_INTERVAL;
+            }
+            if (listener != null && out.length() >= FIRST_SCREEN_CHARS) {
+                listener.onFirstScreen(snapshot());
+                listener = null;
+            }
+            char c = input.charAt(i);
+            switch (c) {
+                case '{':
+                case '[':
+                    beginToken();
+                    out.append(c);
+                    depth++;
+                    pendingNewline = true;
+                    justOpened = true;
+                    i++;
+                    break;
+                case '}':
+                case ']':
+                    depth = Math.max(0, depth - 1);
+                    if (!justOpened) {
+                        newline();
+                    }
+                    pendingNewline = false;
+                    justOpened = false;
+                    out.append(c);
+                    i++;
+                    break;
+                case ',':
+                    out.append(',');
+                    pendingNewline = true;
+                    justOpened = false;
+                    i++;
+                    break;
+                case ':':
+                    out.append(": ");
+                    i++;
+                    break;
+                case '"':
+                    i = string(i);
+                    break;
+                default:
+                    if (isWhitespace(c)) {
+                        i++;
+                    } else {
+                        i = bareToken(i);
+                    }
+                    break;
+            }
+        }
+        return snapshot();
+    }
+
+    // 字符串原样输出，包括转义；后面紧跟冒号时作为键高亮。没有结束引号时输出到末尾
+    private int string(int start) {
+        int length = input.length();
+        int end = start + 1;
+        while (end < length) {
+            char c = input.charAt(end);
+            if (c == '\\') {
+                end += 2;
+            } else if (c == '"') {
+                end++;
+                break;
+            } else {
+                end++;
+            }
+        }
+        end = Math.min(end, length);
+        int next = end;
+        while (next < length && isWhitespace(input.charAt(next))) {
+            next++;
+        }
+        boolean key = next < length && input.charAt(next) == ':';
+        emit(start, end, key ? FormattedBody.TYPE_KEY : FormattedBody.TYPE_STRING);
+        return end;
+    }
+
+    // 数字、true/false/null或不合法的内容，读到下一个结构字符、引号或空白为止
+    private int bareToken(int start) {
+        int length = input.length();
+        int end = start;
+        while (end < length) {
+            char c = input.charAt(end);
+            if (isWhitespace(c) || c == '{' || c == '}' || c == '[' || c == ']' || c == ',' || c == ':' || c == '"') {
+                break;
+            }
+            end++;
+        }
+        char first = input.charAt(start);
+        int type = -1;
+        if (first == '-' || (first >= '0' && first <= '9')) {
+            type = FormattedBody.TYPE_NUMBER;
+        } else if (input.startsWith("true", start) || input.startsWith("false", start)
+                || input.startsWith("null", start)) {
+            type = FormattedBody.TYPE_LITERAL;
+        }
+        emit(start, end, type);
+        return end;
+    }
+
+    private void emit(int start, int end, int type) {
+        beginToken();
+        int spanStart = out.length();
+        out.append(input, start, end);
+        if (type >= 0) {
+            if (spanCount == spanStarts.length) {
+                int capacity = spanCount * 2;
+                spanStarts = Arrays.copyOf(spanStarts, capacity);
+                spanEnds = Arrays.copyOf(spanEnds, capacity);
+                spanTypes = Arrays.copyOf(spanTypes, capacity);
+            }
+            spanStarts[spanCount] = spanStart;
+            spanEnds[spanCount] = out.length();
+            spanTypes[spanCount] = (byte) type;
+            spanCount++;
+        }
+    }
+
+    private void beginToken() {
+        // 多个顶层值（如NDJSON）各占一行
+        if (depth == 0 && out.length() > 0) {
+            pendingNewline = true;
+        }
+        if (pendingNewline) {
+            newline();
+            pendingNewline = false;
+        }
+        justOpened = false;
+    }
+
+    private void newline() {
+        // 输出开头不换行
+        if (out.length() > 0) {
+            out.append('\n');
+        }
+        for (int level = Math.min(depth, MAX_INDENT_DEPTH); level > 0; level--) {
+            out.append("  ");
+        }
+    }
+
+    private FormattedBody snapshot() {
+        return new FormattedBody(out.toString(), Arrays.copyOf(spanStarts, spanCount),
+                Arrays.copyOf(spanEnds, spanCount), Arrays.copyOf(spanTypes, spanCount), spanCount);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
@@ -0,0 +1,279 @@
+package com.jy.networklogmonitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// 流式的JSON写出器：直接把UTF-8字节写入固定大小的缓冲区，写满后再写入输出流，不构建对象树也不生成中间字符串。
+// 逗号和冒号按嵌套状态自动添加；顶层可以连续写出多个值，由调用方用newline()分隔（NDJSON）。只在一个线程中使用
+final class JsonStreamWriter implements Closeable {
+    static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_DEPTH = 64;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] TRUE = "true".getBytes();
+    private static final byte[] FALSE = "false".getBytes();
+    private static final byte[] NULL = "null".getBytes();
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    // 每一层是否已经写过元素，用于决定是否需要逗号
+    private final boolean[] hasElement = new boolean[MAX_DEPTH];
+    private int depth;
+    // 刚写完对象的键，下一个值前不加逗号
+    private boolean afterName;
+    private long bytesWritten;
+
+    JsonStreamWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    JsonStreamWriter beginObject() throws IOException {
+        return openScope('{');
+    }
+
+    JsonStreamWriter endObject() throws IOException {
+        return closeScope('}');
+    }
+
+    JsonStreamWriter beginArray() throws IOException {
+        return openScope('[');
+    }
+
+    JsonStreamWriter endArray() throws IOException {
+        return closeScope(']');
+    }
+
+    JsonStreamWriter name(String name) throws IOException {
+        separator();
+        string(name, 0, name.length());
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    // null写出为JSON的null
+    JsonStreamWriter value(CharSequence value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        return value(value, 0, value.length());
+    }
+
+    // 写出value的[start, end)部分，不创建子串
+    JsonStreamWriter value(CharSequence value, int start, int end) throws IOException {
+        separator();
+        string(value, start, end);
+        return this;
+    }
+
+    // 写出UTF-8字节组成的字符串，只转义引号、反斜杠和控制字符，多字节字符原样写出；null写出为JSON的null
+    JsonStreamWriter valueUtf8(byte[] utf8) throws IOException {
+        if (utf8 == null) {
+            return nullValue();
+        }
+        separator();
+        writeByte('"');
+        for (byte b : utf8) {
+            if (b == '"' || b == '\\' || (b >= 0 && b < 0x20)) {
+                escape(b);
+            } else {
+                writeByte(b);
+            }
+        }
+        writeByte('"');
+        return this;
+    }
+
+    JsonStreamWriter value(long value) throws IOException {
+        separator();
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return this;
+        }
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        // 先按位数预留空间，再从低位向前填写
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+        return this;
+    }
+
+    JsonStreamWriter value(boolean value) throws IOException {
+        separator();
+        writeBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    JsonStreamWriter nullValue() throws IOException {
+        separator();
+        writeBytes(NULL);
+        return this;
+    }
+
+    // 顶层值之间的换行，用于NDJSON
+    JsonStreamWriter newline() throws IOException {
+        if (depth != 0) {
+            throw new IllegalStateException("newline inside a value");
+        }
+        writeByte('\n');
+        return this;
+    }
+
+    // 已写出的字节数，包括仍在缓冲区中的部分
+    long getBytesWritten() {
+        return bytesWritten + position;
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private JsonStreamWriter openScope(char bracket) throws IOException {
+        if (depth == MAX_DEPTH - 1) {
+            throw new IllegalStateException("Nesting too deep");
+        }
+        separator();
+        writeByte(bracket);
+        depth++;
+        hasElement[depth] = false;
+        return this;
+    }
+
+    private JsonStreamWriter closeScope(char bracket) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("Nothing to close");
+        }
+        depth--;
+        writeByte(bracket);
+        return this;
+    }
+
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElement[depth]) {
+                writeByte(',');
+            }
+            hasElement[depth] = true;
+        }
+    }
+
+    private void string(CharSequence text, int start, int end) throws IOException {
+        writeByte('"');
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\' || c < 0x20) {
+                    escape((byte) c);
+                } else {
+                    writeByte(c);
+                }
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensureCapacity(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符无法编码为UTF-8
+                writeByte('?');
+            } else {
+                ensureCapacity(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void escape(byte b) throws IOException {
+        ensureCapacity(6);
+        buffer[position++] = '\\';
+        switch (b) {
+            case '"':
+            case '\\':
+                buffer[position++] = b;
+                break;
+            case '\n':
+                buffer[position++] = 'n';
+                break;
+            case '\r':
+                buffer[position++] = 'r';
+                break;
+            case '\t':
+                buffer[position++] = 't';
+                break;
+            default:
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[(b >> 4) & 0xF];
+                buffer[position++] = HEX[b & 0xF];
+                break;
+        }
+    }
+
+    private void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            writeByte(text.charAt(i));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    // 保证缓冲区还能写入count个字节，count不超过缓冲区大小
+    private void ensureCapacity(int count) throws IOException {
+        if (position + count > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.jy.networklogmonitor;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// 固定内存的对数-线性耗时直方图（毫秒）：小于8ms时每毫秒一个桶，之后每个2的幂区间再均分为8个桶，
+// 相对误差不超过12.5%；超过MAX_TRACKABLE_MILLIS的值计入最后一个桶，最大值单独精确记录。
+// 只允许一个线程写入，其他线程可以随时无锁读取；读取期间的写入可能只被部分看到，统计值略有滞后。
+// 记录和合并都不分配对象。
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 能区分的最大耗时约为2^17ms（131秒）
+    private static final int MAX_EXPONENT = 17;
+    static final long MAX_TRACKABLE_MILLIS = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKET_COUNT);
+    // 以下字段只由写入线程修改
+    private volatile long totalCount;
+    private volatile long errorCount;
+    private volatile long maxMillis;
+
+    void record(long millis, boolean error) {
+        millis = Math.max(0, millis);
+        int index = bucketIndex(millis);
+        counts.lazySet(index, counts.get(index) + 1);
+        if (millis > maxMillis) {
+            maxMillis = millis;
+        }
+        if (error) {
+            errorCount = errorCount + 1;
+        }
+        totalCount = totalCount + 1;
+    }
+
+    // 把other的计数累加到当前直方图
+    void add(LatencyHistogram other) {
+        long addedCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            int count = other.counts.get(i);
+            if (count != 0) {
+                counts.lazySet(i, counts.get(i) + count);
+                addedCount += count;
+            }
+        }
+        // 总数按读到的桶计数累加，与百分位保持一致
+        totalCount = totalCount + addedCount;
+        errorCount = errorCount + other.errorCount;
+        maxMillis = Math.max(maxMillis, other.maxMillis);
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.lazySet(i, 0);
+        }
+        totalCount = 0;
+        errorCount = 0;
+        maxMillis = 0;
+    }
+
+    long getCount() {
+        return totalCount;
+    }
+
+    long getErrorCount() {
+        return errorCount;
+    }
+
+    long getMaxMillis() {
+        return maxMillis;
+    }
+
+    // 返回percentile（0到100）对应的耗时，取所在桶的上界且不超过最大值；没有数据时返回0
+    long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                // 最后一个桶没有上界，使用最大值
+                return i == BUCKET_COUNT - 1 ? maxMillis : Math.min(bucketUpperBound(i), maxMillis);
+            }
+        }
+        return maxMillis;
+    }
+
+    static int bucketIndex(long millis) {
+        if (millis < SUB_BUCKETS) {
+            return (int) millis;
+        }
+        if (millis > MAX_TRACKABLE_MILLIS) {
+            return BUCKET_COUNT - 1;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(millis);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((millis >> shift) - SUB_BUCKETS);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
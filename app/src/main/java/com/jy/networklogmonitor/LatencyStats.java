@@ -0,0 +1,206 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 按接口汇总耗时和请求数：每个接口保存整个会话的直方图，以及最近1分钟（6个10秒槽）和5分钟（5个1分钟槽）的滚动直方图。
+// 在抓包后台线程中记录，任意线程无锁查询；接口数超过上限后新的接口计入OTHER_ENDPOINT，内存占用固定。
+public final class LatencyStats {
+    public static final int WINDOW_1_MINUTE = 0;
+    public static final int WINDOW_5_MINUTES = 1;
+    public static final int WINDOW_SESSION = 2;
+
+    // 超过上限后新接口的汇总名称
+    public static final String OTHER_ENDPOINT = "(other)";
+    static final int DEFAULT_MAX_ENDPOINTS = 256;
+
+    private static final long FINE_SLOT_MILLIS = 10_000;
+    private static final int FINE_SLOTS = 6;
+    private static final long COARSE_SLOT_MILLIS = 60_000;
+    private static final int COARSE_SLOTS = 5;
+
+    // 一个接口在某个时间窗口内的统计结果
+    public static final class EndpointStats {
+        private final String endpoint;
+        private final long count;
+        private final long errorCount;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+
+        EndpointStats(String endpoint, LatencyHistogram histogram) {
+            this.endpoint = endpoint;
+            this.count = histogram.getCount();
+            this.errorCount = histogram.getErrorCount();
+            this.p50 = histogram.getPercentile(50);
+            this.p90 = histogram.getPercentile(90);
+            this.p99 = histogram.getPercentile(99);
+            this.max = histogram.getMaxMillis();
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+
+    // 按时间划分的一个直方图槽，epoch为槽对应的时间段编号
+    private static final class Slot {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        volatile long epoch = -1;
+    }
+
+    private static final class Endpoint {
+        final LatencyHistogram session = new LatencyHistogram();
+        final Slot[] fineSlots = newSlots(FINE_SLOTS);
+        final Slot[] coarseSlots = newSlots(COARSE_SLOTS);
+
+        void record(long timeMillis, long latencyMillis, boolean error) {
+            session.record(latencyMillis, error);
+            record(fineSlots, timeMillis / FINE_SLOT_MILLIS, latencyMillis, error);
+            record(coarseSlots, timeMillis / COARSE_SLOT_MILLIS, latencyMillis, error);
+        }
+
+        private static void record(Slot[] slots, long epoch, long latencyMillis, boolean error) {
+            Slot slot = slot(slots, epoch);
+            if (slot != null) {
+                slot.histogram.record(latencyMillis, error);
+            }
+        }
+
+        // 写入线程调用：槽属于更早的时间段时先清空再复用；请求按开始时间记录，耗时很长的请求（如长轮询）
+        // 可能落在已被更新的时间段复用的槽上，这时已超出窗口，返回null，不能清空新的数据
+        private static Slot slot(Slot[] slots, long epoch) {
+            Slot slot = slots[(int) (epoch % slots.length)];
+            if (slot.epoch != epoch) {
+                if (epoch < slot.epoch) {
+                    return null;
+                }
+                // 清空期间读取线程不再合并该槽
+                slot.epoch = -1;
+                slot.histogram.reset();
+                slot.epoch = epoch;
+            }
+            return slot;
+        }
+
+        // 把窗口内的槽合并到target
+        void mergeInto(LatencyHistogram target, int window, long nowMillis) {
+            if (window == WINDOW_SESSION) {
+                target.add(session);
+                return;
+            }
+            Slot[] slots = window == WINDOW_1_MINUTE ? fineSlots : coarseSlots;
+            long current = nowMillis / (window == WINDOW_1_MINUTE ? FINE_SLOT_MILLIS : COARSE_SLOT_MILLIS);
+            for (Slot slot : slots) {
+                long epoch = slot.epoch;
+                if (epoch > current - slots.length && epoch <= current) {
+                    target.add(slot.histogram);
+                }
+            }
+        }
+    }
+
+    private final int maxEndpoints;
+    // 清空时整体替换，写入线程之后的记录进入新的表
+    private volatile ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public LatencyStats() {
+        this(DEFAULT_MAX_ENDPOINTS);
+    }
+
+    LatencyStats(int maxEndpoints) {
+        this.maxEndpoints = maxEndpoints;
+    }
+
+    // 记录一次请求，只能在同一个线程中调用；endpoint通常为"方法 主机+接口模板"
+    void record(String endpoint, long timeMillis, long latencyMillis, boolean error) {
+        ConcurrentHashMap<String, Endpoint> map = endpoints;
+        Endpoint stats = map.get(endpoint);
+        if (stats == null) {
+            if (map.size() >= maxEndpoints) {
+                endpoint = OTHER_ENDPOINT;
+                stats = map.get(endpoint);
+            }
+            if (stats == null) {
+                stats = new Endpoint();
+                map.put(endpoint, stats);
+            }
+        }
+        stats.record(timeMillis, latencyMillis, error);
+    }
+
+    // 查询各接口在时间窗口内的统计，按p99从高到低排列，没有请求的接口不返回
+    public List<EndpointStats> query(int window, long nowMillis) {
+        List<EndpointStats> result = new ArrayList<>();
+        LatencyHistogram merged = new LatencyHistogram();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            merged.reset();
+            entry.getValue().mergeInto(merged, window, nowMillis);
+            if (merged.getCount() > 0) {
+                result.add(new EndpointStats(entry.getKey(), merged));
+            }
+        }
+        Collections.sort(result, new Comparator<EndpointStats>() {
+            @Override
+            public int compare(EndpointStats a, EndpointStats b) {
+                return a.p99 != b.p99 ? Long.compare(b.p99, a.p99) : Long.compare(b.count, a.count);
+            }
+        });
+        return result;
+    }
+
+    // 所有接口合并后的统计
+    public EndpointStats queryTotal(int window, long nowMillis) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (Endpoint endpoint : endpoints.values()) {
+            endpoint.mergeInto(merged, window, nowMillis);
+        }
+        return new EndpointStats("", merged);
+    }
+
+    public void clear() {
+        endpoints = new ConcurrentHashMap<>();
+    }
+
+    // 接口名：方法、主机和接口模板，如"GET api.example.com/users/{id}"
+    static String endpoint(String method, String host, String urlTemplate) {
+        return method + " " + host + urlTemplate;
+    }
+
+    private static Slot[] newSlots(int count) {
+        Slot[] slots = new Slot[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = new Slot();
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,132 @@
+package com.jy.networklogmonitor;
+
+// 悬浮窗实时面板的数据：最近几秒的每秒请求数、正在进行的请求数、最近30秒耗时的p95，以及上次打开日志列表以来的错误数。
+// 请求开始和结束时在发起请求的线程中用分段计数器无锁累加；耗时在抓包后台线程中写入按秒划分的固定大小环形直方图。
+// 任意线程可以随时无锁读取，内存占用固定
+public final class LiveMetrics {
+    // p95统计的时间窗口
+    public static final int LATENCY_WINDOW_SECONDS = 30;
+    // 每秒请求数按最近几个完整的秒计算
+    static final int RATE_WINDOW_SECONDS = 5;
+    private static final long SLOT_MILLIS = 1000;
+
+    // 某一秒结束的请求的耗时直方图，epoch为该秒的编号
+    private static final class Slot {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        volatile long epoch = -1;
+    }
+
+    // 读取时的快照
+    public static final class Snapshot {
+        private final double requestsPerSecond;
+        private final long inFlightCount;
+        private final long requestCount;
+        private final long p95Millis;
+        private final long errorsSinceLastOpen;
+
+        Snapshot(double requestsPerSecond, long inFlightCount, long requestCount, long p95Millis,
+                 long errorsSinceLastOpen) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.inFlightCount = inFlightCount;
+            this.requestCount = requestCount;
+            this.p95Millis = p95Millis;
+            this.errorsSinceLastOpen = errorsSinceLastOpen;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public long getInFlightCount() {
+            return inFlightCount;
+        }
+
+        // 最近30秒内结束的请求数
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        // 最近30秒内结束的请求耗时的p95，没有请求时为0
+        public long getP95Millis() {
+            return p95Millis;
+        }
+
+        public long getErrorsSinceLastOpen() {
+            return errorsSinceLastOpen;
+        }
+
+        // 有请求正在进行或窗口内有请求，数值还会随时间变化
+        public boolean isActive() {
+            return inFlightCount > 0 || requestCount > 0;
+        }
+    }
+
+    private final StripedCounter started = new StripedCounter();
+    private final StripedCounter finished = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
+    // 上次打开日志列表时的错误总数
+    private volatile long errorsSeen;
+    private final Slot[] slots = new Slot[LATENCY_WINDOW_SECONDS];
+
+    LiveMetrics() {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    // 发起请求的线程调用
+    void onRequestStarted() {
+        started.increment();
+    }
+
+    // 发起请求的线程调用，error为请求失败或状态码不小于400
+    void onRequestFinished(boolean error) {
+        if (error) {
+            errors.increment();
+        }
+        finished.increment();
+    }
+
+    // 记录一个请求的耗时，只能在同一个线程（抓包后台线程）中调用；endTimeMillis为请求结束的时间
+    void record(long endTimeMillis, long latencyMillis, boolean error) {
+        long epoch = endTimeMillis / SLOT_MILLIS;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        if (slot.epoch != epoch) {
+            if (epoch < slot.epoch) {
+                // 已经超出窗口的请求
+                return;
+            }
+            // 清空期间读取线程不再合并该槽
+            slot.epoch = -1;
+            slot.histogram.reset();
+            slot.epoch = epoch;
+        }
+        slot.histogram.record(latencyMillis, error);
+    }
+
+    // 打开日志列表时调用，之后的错误数从0开始计算
+    public void markErrorsSeen() {
+        errorsSeen = errors.sum();
+    }
+
+    public Snapshot snapshot(long nowMillis) {
+        long current = nowMillis / SLOT_MILLIS;
+        LatencyHistogram latency = new LatencyHistogram();
+        long recentCount = 0;
+        for (Slot slot : slots) {
+            long epoch = slot.epoch;
+            if (epoch > current - LATENCY_WINDOW_SECONDS && epoch <= current) {
+                latency.add(slot.histogram);
+                // 当前这一秒还没有结束，不计入每秒请求数
+                if (epoch >= current - RATE_WINDOW_SECONDS && epoch < current) {
+                    recentCount += slot.histogram.getCount();
+                }
+            }
+        }
+        // 先读取结束数，正在进行的请求数不会因并发的请求结束而为负
+        long finishedCount = finished.sum();
+        long inFlight = Math.max(0, started.sum() - finishedCount);
+        return new Snapshot((double) recentCount / RATE_WINDOW_SECONDS, inFlight, latency.getCount(),
+                latency.getPercentile(95), Math.max(0, errors.sum() - errorsSeen));
+    }
+}
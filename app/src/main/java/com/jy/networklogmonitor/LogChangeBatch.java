@@ -0,0 +1,74 @@
+package com.jy.networklogmonitor;
+
+// 一次合并通知中的日志变化：新增日志的序号区间、被淘汰的数量和响应体更新的数量及序号区间
+public class LogChangeBatch {
+    private final long fromSequence;
+    private final long toSequence;
+    private final long evictedCount;
+    private final int updatedCount;
+    private final long updatedFromSequence;
+    private final long updatedToSequence;
+    private final boolean reset;
+
+    LogChangeBatch(long fromSequence, long toSequence, long evictedCount, int updatedCount, long updatedFromSequence,
+                   long updatedToSequence, boolean reset) {
+        this.fromSequence = fromSequence;
+        this.toSequence = toSequence;
+        this.evictedCount = evictedCount;
+        this.updatedCount = updatedCount;
+        this.updatedFromSequence = updatedFromSequence;
+        this.updatedToSequence = updatedToSequence;
+        this.reset = reset;
+    }
+
+    // 新增日志的第一个序号
+    public long getFromSequence() {
+        return fromSequence;
+    }
+
+    // 新增日志的结束序号（不包含）
+    public long getToSequence() {
+        return toSequence;
+    }
+
+    public int getAddedCount() {
+        return (int) (toSequence - fromSequence);
+    }
+
+    // 从最旧一端淘汰的日志数
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    // 已有日志内容更新的次数（如响应体读取完成）
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    // 内容更新过的日志都在[getUpdatedFromSequence(), getUpdatedToSequence())内，没有更新时为空区间
+    public long getUpdatedFromSequence() {
+        return updatedFromSequence;
+    }
+
+    public long getUpdatedToSequence() {
+        return updatedToSequence;
+    }
+
+    // 日志被清空或存储被替换，监听器应重新加载全部日志
+    public boolean isReset() {
+        return reset;
+    }
+
+    boolean isEmpty() {
+        return !reset && fromSequence == toSequence && evictedCount == 0 && updatedCount == 0
+                && updatedFromSequence == updatedToSequence;
+    }
+
+    @Override
+    public String toString() {
+        return "LogChangeBatch{added=[" + fromSequence + ", " + toSequence + ")"
+                + ", evicted=" + evictedCount
+                + ", updated=" + updatedCount + " in [" + updatedFromSequence + ", " + updatedToSequence + ")"
+                + ", reset=" + reset + "}";
+    }
+}
@@ -0,0 +1,138 @@
+package com.jy.networklogmonitor;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 合并日志变化通知：任意多次变化在一个间隔内只回调监听器一次，并带上变化的增量
+public class LogChangeDispatcher {
+
+    // 延迟执行任务，Android上默认投递到主线程
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    // 提供当前日志存储的序号区间
+    public interface SequenceSource {
+        long getFirstSequence();
+
+        long getEndSequence();
+    }
+
+    private final CopyOnWriteArrayList<NetworkLogInterceptor.LogChangeListener> listeners =
+            new CopyOnWriteArrayList<>();
+    private final Scheduler scheduler;
+    private final SequenceSource sequenceSource;
+    private volatile long intervalMillis;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean pendingReset = new AtomicBoolean();
+    private final AtomicInteger pendingUpdates = new AtomicInteger();
+    // 内容更新过的日志的序号区间[pendingUpdatedFrom, pendingUpdatedTo)，没有时为空区间
+    private final AtomicLong pendingUpdatedFrom = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong pendingUpdatedTo = new AtomicLong(Long.MIN_VALUE);
+    private final Runnable flushTask = this::flush;
+    // 以下字段只在执行flush的线程中读写
+    private long deliveredFirstSequence;
+    private long deliveredEndSequence;
+
+    public LogChangeDispatcher(Scheduler scheduler, SequenceSource sequenceSource, long intervalMillis) {
+        this.scheduler = scheduler;
+        this.sequenceSource = sequenceSource;
+        this.intervalMillis = intervalMillis;
+        this.deliveredFirstSequence = sequenceSource.getFirstSequence();
+        this.deliveredEndSequence = sequenceSource.getEndSequence();
+    }
+
+    public void addListener(NetworkLogInterceptor.LogChangeListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(NetworkLogInterceptor.LogChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    // 有新日志写入存储
+    public void onLogsAppended() {
+        scheduleFlush();
+    }
+
+    // 序号为sequence的日志内容发生变化
+    public void onLogUpdated(long sequence) {
+        // 先扩大区间再计数：flush先取计数再取区间，区间不会晚于计数送达
+        updateMin(pendingUpdatedFrom, sequence);
+        updateMax(pendingUpdatedTo, sequence + 1);
+        pendingUpdates.incrementAndGet();
+        scheduleFlush();
+    }
+
+    private static void updateMin(AtomicLong value, long candidate) {
+        long current;
+        while (candidate < (current = value.get()) && !value.compareAndSet(current, candidate)) {
+            // 重试
+        }
+    }
+
+    private static void updateMax(AtomicLong value, long candidate) {
+        long current;
+        while (candidate > (current = value.get()) && !value.compareAndSet(current, candidate)) {
+            // 重试
+        }
+    }
+
+    // 日志被清空或存储被替换
+    public void onReset() {
+        pendingReset.set(true);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(flushTask, intervalMillis);
+        }
+    }
+
+    void flush() {
+        // 先清除标记，flush期间发生的变化会触发下一次flush
+        flushScheduled.set(false);
+        long first = sequenceSource.getFirstSequence();
+        long end = sequenceSource.getEndSequence();
+        boolean reset = pendingReset.getAndSet(false);
+        int updated = pendingUpdates.getAndSet(0);
+        long updatedFrom = pendingUpdatedFrom.getAndSet(Long.MAX_VALUE);
+        long updatedTo = pendingUpdatedTo.getAndSet(Long.MIN_VALUE);
+        if (updatedFrom >= updatedTo) {
+            updatedFrom = 0;
+            updatedTo = 0;
+        }
+
+        LogChangeBatch batch;
+        if (reset || first < deliveredFirstSequence || end < deliveredEndSequence) {
+            batch = new LogChangeBatch(first, end, 0, updated, updatedFrom, updatedTo, true);
+        } else {
+            // 监听器持有[deliveredFirst, deliveredEnd)的日志：先从头部移除被淘汰的，再追加新日志
+            // 两次通知之间写入又被淘汰的日志不会出现在新增区间里
+            long evicted = Math.min(first, deliveredEndSequence) - deliveredFirstSequence;
+            batch = new LogChangeBatch(Math.max(first, deliveredEndSequence), end, evicted, updated, updatedFrom,
+                    updatedTo, false);
+        }
+        deliveredFirstSequence = first;
+        deliveredEndSequence = end;
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (NetworkLogInterceptor.LogChangeListener listener : listeners) {
+            listener.onLogChanged(batch);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.jy.networklogmonitor;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.view.Window;
@@ -12,20 +14,27 @@ import android.widget.TextView;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.TimeUnit;
+import java.util.Arrays;
+import java.util.Date;
 
+import okhttp3.Headers;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
 public class LogDetailActivity extends AppCompatActivity {
+    // 要显示的日志id，存储替换或日志淘汰后序号可能失效，id不会
+    static final String EXTRA_LOG_ID = "log_id";
+    // 可选，日志在当前存储中的序号，用于在读取完整日志之前先显示列表摘要
+    static final String EXTRA_LOG_SEQUENCE = "log_sequence";
+
     private TextView methodText;
     private TextView statusCodeText;
     private TextView responseTimeText;
@@ -33,16 +42,45 @@ public class LogDetailActivity extends AppCompatActivity {
     private TextView timestampText;
     private EditText headersText;
     private EditText requestBodyText;
-    private TextView responseBodyText;
+    private RecyclerView responseBodyList;
+    private BodyViewerAdapter bodyViewerAdapter;
+    private EditText bodySearchText;
+    private TextView bodyMatchCountText;
+    private EditText bodyOffsetText;
     private TextView errorMessageText;
+    private TimingWaterfallView timingWaterfall;
     private LinearLayout errorContainer;
     private Button editButton;
     private Button resendButton;
     private boolean isEditing = false;
+    // 在后台线程中读取日志、解码并切分响应体，新的响应体会取消尚未完成的切分
+    private final LogSearcher bodyLoader = new LogSearcher(0);
+    // 在后台线程中逐个片段搜索响应体，输入停顿后才查询
+    private final LogSearcher bodySearcher = new LogSearcher(LogSearcher.DEFAULT_DEBOUNCE_MILLIS);
+    // 每次替换响应体时递增，丢弃旧响应体迟到的结果
+    private int bodyLoadGeneration;
+    // 当前响应体中的搜索结果位置和选中的结果
+    private int[] bodyMatches = new int[0];
+    private int currentBodyMatch = -1;
+    private int bodyMatchLength;
 
     private NetworkLog currentLog;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    private OkHttpClient client = new OkHttpClient();
+
+    // 在后台线程中读取的日志和解码好的文本，主线程只需设置到视图；日志已被淘汰或清除时log为null
+    private static final class LoadedLog {
+        final NetworkLog log;
+        final String headers;
+        final String requestBody;
+
+        LoadedLog(NetworkLog log) {
+            this.log = log;
+            Headers logHeaders = log != null ? log.getHeaders() : null;
+            this.headers = logHeaders != null ? logHeaders.toString() : "No headers";
+            String body = log != null ? log.getRequestBody() : null;
+            this.requestBody = body != null ? body : "No request body";
+        }
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,63 +96,83 @@ public class LogDetailActivity extends AppCompatActivity {
         timestampText = findViewById(R.id.timestamp_text);
         headersText = findViewById(R.id.headers_text);
         requestBodyText = findViewById(R.id.request_body_text);
-        responseBodyText = findViewById(R.id.response_body_text);
+        responseBodyList = findViewById(R.id.response_body_list);
+        bodySearchText = findViewById(R.id.body_search_text);
+        bodyMatchCountText = findViewById(R.id.body_match_count_text);
+        bodyOffsetText = findViewById(R.id.body_offset_text);
         errorMessageText = findViewById(R.id.error_message_text);
+        timingWaterfall = findViewById(R.id.timing_waterfall);
         errorContainer = findViewById(R.id.error_container);
         editButton = findViewById(R.id.edit_button);
         resendButton = findViewById(R.id.resend_button);
 
-        // 获取日志位置
-        int logPosition = getIntent().getIntExtra("log_position", -1);
-        if (logPosition == -1) {
+        // 响应体只渲染可见的片段
+        bodyViewerAdapter = new BodyViewerAdapter();
+        responseBodyList.setAdapter(bodyViewerAdapter);
+        setupBodySearch();
+
+        // 获取日志id
+        long logId = getIntent().getLongExtra(EXTRA_LOG_ID, -1);
+        if (logId == -1) {
             finish();
             return;
         }
 
-        // 获取日志列表并显示详情
-        CopyOnWriteArrayList<NetworkLog> logList = NetworkLogInterceptor.getLogList();
-        if (logPosition < logList.size()) {
-            currentLog = logList.get(logPosition);
-            displayLogDetails(currentLog);
+        // 先显示列表摘要；完整的日志（含请求头和body）可能需要从文件读取并解压，在后台线程中通过id索引读取
+        long sequence = getIntent().getLongExtra(EXTRA_LOG_SEQUENCE, -1);
+        LogRow row = sequence >= 0 ? NetworkLogInterceptor.getLogStore().getRow(sequence) : null;
+        if (row != null && row.getId() == logId) {
+            bindSummary(row.getMethod(), row.getStatusCode(), row.getResponseTime(), row.getUrl(),
+                    row.getTimestampMillis());
         }
+        headersText.setText("Loading...");
+        requestBodyText.setText("Loading...");
+        showBodyMessage("Loading...");
+        editButton.setEnabled(false);
+        resendButton.setEnabled(false);
+        loadLog(logId);
 
         // 设置编辑按钮点击事件
         editButton.setOnClickListener(v -> toggleEditMode());
 
         // 设置重新发送按钮点击事件
         resendButton.setOnClickListener(v -> resendRequest());
+    }
 
-
-
-        if (NetworkLogInterceptor.getEncryptionInterceptor()!=null){
-            OkHttpClient.Builder builder=new OkHttpClient.Builder()
-                    .retryOnConnectionFailure(true)//失败重连
-                    .connectTimeout(10, TimeUnit.SECONDS)
-                    .readTimeout(10, TimeUnit.SECONDS)
-                    .callTimeout(10, TimeUnit.SECONDS);
-
-            builder.addInterceptor(NetworkLogInterceptor.getEncryptionInterceptor());
-            client=builder.build();
-        }
-
+    private void loadLog(final long logId) {
+        final int generation = bodyLoadGeneration;
+        bodyLoader.submit(cancelled -> new LoadedLog(NetworkLogInterceptor.getLogById(logId)),
+                loaded -> runOnUiThread(() -> {
+                    if (generation != bodyLoadGeneration || isFinishing()) {
+                        return;
+                    }
+                    if (loaded.log == null) {
+                        // 日志已被淘汰或清除
+                        finish();
+                        return;
+                    }
+                    currentLog = loaded.log;
+                    displayLogDetails(loaded);
+                    editButton.setEnabled(true);
+                    resendButton.setEnabled(true);
+                }));
     }
 
-    private void displayLogDetails(NetworkLog log) {
-        // 设置基本信息
-        methodText.setText(log.getMethod());
-        statusCodeText.setText(String.valueOf(log.getStatusCode()));
-        responseTimeText.setText(log.getResponseTime() + "ms");
-        urlText.setText(log.getUrl());
-        timestampText.setText(dateFormat.format(log.getTimestamp()));
+    // 显示日志详情，请求头和请求体已在后台线程中解码
+    private void displayLogDetails(LoadedLog loaded) {
+        NetworkLog log = loaded.log;
+        bindSummary(log.getMethod(), log.getStatusCode(), log.getResponseTime(), log.getUrl(),
+                log.getTimestampNanos() / 1_000_000L);
 
-        // 设置请求头
-        headersText.setText(log.getHeaders() != null ? log.getHeaders().toString() : "No headers");
+        // 设置分阶段耗时
+        timingWaterfall.setTimings(log.getCallTimings());
 
-        // 设置请求体
-        requestBodyText.setText(log.getRequestBody() != null ? log.getRequestBody() : "No request body");
+        // 设置请求头和请求体
+        headersText.setText(loaded.headers);
+        requestBodyText.setText(loaded.requestBody);
 
-        // 设置响应体
-        responseBodyText.setText(log.getResponseBody() != null ? log.getResponseBody() : "No response body");
+        // 设置响应体，解码和切分在后台线程中完成，不阻塞首帧
+        showResponseBody(log);
 
         // 设置错误信息
         if (log.getErrorMessage() != null) {
@@ -123,15 +181,24 @@ public class LogDetailActivity extends AppCompatActivity {
         } else {
             errorContainer.setVisibility(View.GONE);
         }
+    }
+
+    // 设置列表摘要中也有的基本信息
+    private void bindSummary(String method, int statusCode, long responseTime, String url, long timestampMillis) {
+        methodText.setText(method);
+        statusCodeText.setText(String.valueOf(statusCode));
+        responseTimeText.setText(responseTime + "ms");
+        urlText.setText(url);
+        timestampText.setText(dateFormat.format(new Date(timestampMillis)));
 
         // 根据状态码设置不同颜色
-        if (log.getStatusCode() >= 200 && log.getStatusCode() < 300) {
+        if (statusCode >= 200 && statusCode < 300) {
             statusCodeText.setBackgroundResource(R.drawable.status_success_background);
-        } else if (log.getStatusCode() >= 300 && log.getStatusCode() < 400) {
+        } else if (statusCode >= 300 && statusCode < 400) {
             statusCodeText.setBackgroundResource(R.drawable.status_redirect_background);
-        } else if (log.getStatusCode() >= 400 && log.getStatusCode() < 500) {
+        } else if (statusCode >= 400 && statusCode < 500) {
             statusCodeText.setBackgroundResource(R.drawable.status_client_error_background);
-        } else if (log.getStatusCode() == 0) {
+        } else if (statusCode == 0) {
             // 请求失败
             statusCodeText.setBackgroundResource(R.drawable.status_server_error_background);
             statusCodeText.setText("ERROR");
@@ -140,7 +207,7 @@ public class LogDetailActivity extends AppCompatActivity {
         }
 
         // 根据请求方法设置不同颜色
-        switch (log.getMethod()) {
+        switch (method) {
             case "GET":
                 methodText.setBackgroundResource(R.drawable.method_get_background);
                 break;
@@ -205,7 +272,7 @@ public class LogDetailActivity extends AppCompatActivity {
         resendButton.setEnabled(false);
         
         // 显示加载状态
-        responseBodyText.setText("Sending request...");
+        showBodyMessage("Sending request...");
         errorContainer.setVisibility(View.GONE);
         
         // 创建新的请求
@@ -213,10 +280,12 @@ public class LogDetailActivity extends AppCompatActivity {
         String method = currentLog.getMethod();
         String body = requestBodyText.getText().toString();
         
+        Headers headers = currentLog.getHeaders();
+
         // 构建请求
         Request.Builder requestBuilder = new Request.Builder()
                 .url(url);
-        requestBuilder.headers(currentLog.getHeaders());
+        requestBuilder.headers(headers);
 
         // 准备请求体，不进行加密
         String finalRequestBody = body;
@@ -234,8 +303,8 @@ public class LogDetailActivity extends AppCompatActivity {
         // 记录请求开始时间
         long startTime = System.currentTimeMillis();
         
-        // 发送请求
-        new Thread(() -> {
+        // 在重放共用的线程池中发送，使用共享的OkHttpClient（包括加密处理器）
+        RequestReplayer.execute(() -> {
             try {
                 // 应用URL加密（如果存在加密处理器）
                 String encryptedUrl = url;
@@ -247,7 +316,7 @@ public class LogDetailActivity extends AppCompatActivity {
                         .build();
                 
                 // 发送请求并获取响应
-                Response response = client.newCall(encryptedRequest).execute();
+                Response response = RequestReplayer.getSharedClient().newCall(encryptedRequest).execute();
                 
                 // 记录请求结束时间
                 long endTime = System.currentTimeMillis();
@@ -263,21 +332,22 @@ public class LogDetailActivity extends AppCompatActivity {
                 }
                 final String finalResponseBody = responseBody;
                 
+                // 创建新的NetworkLog对象，在当前线程中解码好要显示的文本
+                NetworkLog newLog = new NetworkLog(url, method);
+                newLog.setStatusCode(statusCode);
+                newLog.setResponseTime(finalResponseTime);
+                newLog.setRequestBody(finalRequestBody); // 显示加密前的请求体
+                newLog.setResponseBody(finalResponseBody); // 显示解密后的响应体
+                newLog.setHeaders(headers);
+                LoadedLog loaded = new LoadedLog(newLog);
+
                 // 处理响应
                 runOnUiThread(() -> {
-                    // 创建新的NetworkLog对象
-                    NetworkLog newLog = new NetworkLog(url, method);
-                    newLog.setStatusCode(statusCode);
-                    newLog.setResponseTime(finalResponseTime);
-                    newLog.setRequestBody(finalRequestBody); // 显示加密前的请求体
-                    newLog.setResponseBody(finalResponseBody); // 显示解密后的响应体
-                    newLog.setHeaders(currentLog.getHeaders());
-                    
                     // 更新当前日志
                     currentLog = newLog;
                     
                     // 更新界面显示
-                    displayLogDetails(currentLog);
+                    displayLogDetails(loaded);
                     
                     // 恢复按钮状态
                     resendButton.setEnabled(true);
@@ -288,27 +358,174 @@ public class LogDetailActivity extends AppCompatActivity {
                 final long finalResponseTime = endTime - startTime;
                 final String errorMessage = e.getMessage();
                 
+                // 创建新的NetworkLog对象记录错误
+                NetworkLog newLog = new NetworkLog(url, method);
+                newLog.setStatusCode(0);
+                newLog.setResponseTime(finalResponseTime);
+                newLog.setRequestBody(finalRequestBody); // 显示加密前的请求体
+                newLog.setResponseBody("Request failed: " + errorMessage);
+                newLog.setErrorMessage(errorMessage);
+                newLog.setHeaders(headers);
+                LoadedLog loaded = new LoadedLog(newLog);
+
                 runOnUiThread(() -> {
-                    // 创建新的NetworkLog对象记录错误
-                    NetworkLog newLog = new NetworkLog(url, method);
-                    newLog.setStatusCode(0);
-                    newLog.setResponseTime(finalResponseTime);
-                    newLog.setRequestBody(finalRequestBody); // 显示加密前的请求体
-                    newLog.setResponseBody("Request failed: " + errorMessage);
-                    newLog.setErrorMessage(errorMessage);
-                    newLog.setHeaders(currentLog.getHeaders());
-                    
                     // 更新当前日志
                     currentLog = newLog;
                     
                     // 更新界面显示
-                    displayLogDetails(currentLog);
+                    displayLogDetails(loaded);
                     
                     // 恢复按钮状态
                     resendButton.setEnabled(true);
                 });
             }
-        }).start();
+        });
+    }
+
+    private void setupBodySearch() {
+        bodySearchText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                // 不处理
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                searchBody(s.toString());
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                // 不处理
+            }
+        });
+        findViewById(R.id.body_previous_match_button).setOnClickListener(v -> {
+            if (bodyMatches.length > 0) {
+                selectBodyMatch((currentBodyMatch - 1 + bodyMatches.length) % bodyMatches.length);
+            }
+        });
+        findViewById(R.id.body_next_match_button).setOnClickListener(v -> {
+            if (bodyMatches.length > 0) {
+                selectBodyMatch((currentBodyMatch + 1) % bodyMatches.length);
+            }
+        });
+        findViewById(R.id.body_jump_button).setOnClickListener(v -> {
+            try {
+                scrollBodyToOffset(Integer.parseInt(bodyOffsetText.getText().toString().trim()));
+                bodyOffsetText.setError(null);
+            } catch (NumberFormatException e) {
+                bodyOffsetText.setError("0 - " + bodyViewerAdapter.getChunks().length());
+            }
+        });
+    }
+
+    private void showResponseBody(final NetworkLog log) {
+        showBodyMessage("Loading...");
+        final int generation = bodyLoadGeneration;
+        final long logId = log.getId();
+        final long bodySize = log.getResponseBodySize();
+        bodyLoader.submit(cancelled -> {
+            // 格式化后的JSON响应体按日志id缓存，重新打开或旋转屏幕时不再重新格式化
+            FormattedBody cached = NetworkLogInterceptor.getFormattedBodyCache().get(logId, bodySize);
+            if (cached != null) {
+                return BodyChunks.split(cached, cancelled);
+            }
+            // 解压和解码响应体也可能较慢，一并放在后台线程
+            String responseBody = log.getResponseBody() != null ? log.getResponseBody() : "No response body";
+            String truncatedNote = log.isResponseBodyTruncated()
+                    ? "\n\n... (truncated, " + log.getResponseBodySize() + " bytes received)" : "";
+            if (!JsonFormatter.looksLikeJson(responseBody)) {
+                return BodyChunks.split(responseBody + truncatedNote, cancelled);
+            }
+            // 第一屏格式化完成后先显示，全部完成后再替换
+            FormattedBody formatted = JsonFormatter.format(responseBody, partial -> {
+                BodyChunks firstScreen = BodyChunks.split(partial, cancelled);
+                if (firstScreen != null) {
+                    runOnUiThread(() -> applyBodyChunks(generation, firstScreen, false));
+                }
+            }, cancelled);
+            if (formatted == null) {
+                return null;
+            }
+            formatted = formatted.append(truncatedNote);
+            NetworkLogInterceptor.getFormattedBodyCache().put(logId, bodySize, formatted);
+            return BodyChunks.split(formatted, cancelled);
+        }, chunks -> runOnUiThread(() -> applyBodyChunks(generation, chunks, true)));
+    }
+
+    private void applyBodyChunks(int generation, BodyChunks chunks, boolean complete) {
+        if (generation != bodyLoadGeneration) {
+            return;
+        }
+        bodyViewerAdapter.setChunks(chunks);
+        if (complete) {
+            searchBody(bodySearchText.getText().toString());
+        }
+    }
+
+    // 显示一段简短的提示代替响应体
+    private void showBodyMessage(String message) {
+        bodyLoader.cancel();
+        bodyLoadGeneration++;
+        bodyViewerAdapter.setChunks(BodyChunks.split(message, null));
+        searchBody("");
+    }
+
+    private void searchBody(final String query) {
+        bodyMatches = new int[0];
+        currentBodyMatch = -1;
+        bodyViewerAdapter.setHighlight(-1, -1);
+        if (query.isEmpty()) {
+            bodySearcher.cancel();
+            bodyMatchCountText.setText("");
+            return;
+        }
+        final BodyChunks chunks = bodyViewerAdapter.getChunks();
+        bodySearcher.submit(cancelled -> chunks.search(query, cancelled), matches -> runOnUiThread(() -> {
+            // 搜索期间响应体可能已被替换
+            if (chunks != bodyViewerAdapter.getChunks()) {
+                return;
+            }
+            bodyMatches = matches;
+            bodyMatchLength = query.length();
+            if (matches.length == 0) {
+                bodyMatchCountText.setText("0");
+                return;
+            }
+            // 从当前可见的位置开始选中第一个结果
+            int firstVisibleOffset = 0;
+            LinearLayoutManager layoutManager = (LinearLayoutManager) responseBodyList.getLayoutManager();
+            if (layoutManager != null && layoutManager.findFirstVisibleItemPosition() >= 0) {
+                firstVisibleOffset = chunks.getSegmentStart(layoutManager.findFirstVisibleItemPosition());
+            }
+            int index = Arrays.binarySearch(matches, firstVisibleOffset);
+            index = index >= 0 ? index : -index - 1;
+            selectBodyMatch(index < matches.length ? index : 0);
+        }));
+    }
+
+    private void selectBodyMatch(int index) {
+        currentBodyMatch = index;
+        int offset = bodyMatches[index];
+        String more = bodyMatches.length >= BodyChunks.MAX_MATCHES ? "+" : "";
+        bodyMatchCountText.setText((index + 1) + "/" + bodyMatches.length + more);
+        bodyViewerAdapter.setHighlight(offset, offset + bodyMatchLength);
+        scrollBodyToOffset(offset);
+    }
+
+    // 滚动到包含该字符位置的片段
+    private void scrollBodyToOffset(int offset) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) responseBodyList.getLayoutManager();
+        if (layoutManager != null) {
+            layoutManager.scrollToPositionWithOffset(bodyViewerAdapter.getChunks().segmentAt(offset), 0);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        bodyLoader.cancel();
+        bodySearcher.cancel();
     }
 
     @Override
@@ -0,0 +1,425 @@
+package com.jy.networklogmonitor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okio.Okio;
+import okio.Sink;
+
+// 把日志逐条流式导出为HAR 1.2或NDJSON（每行一个JSON对象），用于在电脑上分析抓到的流量。
+// 按序号逐条读取存储并直接写出，不复制日志列表也不在内存中拼接文档，导出10万条日志时内存占用也基本不变。
+// 可以用与日志列表相同的查询条件过滤；在单独的导出线程中执行，支持进度回调和取消
+public final class LogExporter {
+    public static final int FORMAT_HAR = 0;
+    public static final int FORMAT_NDJSON = 1;
+
+    // 每扫描这么多条日志回调一次进度并检查是否已取消
+    static final int PROGRESS_INTERVAL = 256;
+    private static final String HTTP_VERSION = "HTTP/1.1";
+    // HAR中记录的导出工具版本，与库的versionName一致
+    private static final String CREATOR_VERSION = "1.0.2";
+
+    private static final ExecutorService exportExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "NetworkLogMonitor-export");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // 在导出线程中执行其他读取整个存储的任务（如保存会话快照），与导出依次执行
+    static void execute(Runnable task) {
+        exportExecutor.execute(task);
+    }
+
+    // 在导出线程中回调
+    public interface Listener {
+        // exported为已写出的日志数，scanned为已检查的日志数，total为开始时存储中的日志数
+        void onProgress(int exported, long scanned, long total);
+
+        // 导出结束或被取消；取消时输出的内容不完整，导出到文件时文件已被删除
+        void onComplete(int exported, boolean cancelled);
+
+        void onError(IOException e);
+    }
+
+    // 一次正在进行的导出
+    public static final class Task {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        public void cancel() {
+            cancelled.set(true);
+        }
+    }
+
+    private final JsonStreamWriter writer;
+    private final int format;
+    // 复用的时间格式化缓冲
+    private final StringBuilder dateBuilder = new StringBuilder(24);
+
+    private LogExporter(OutputStream out, int format) {
+        if (format != FORMAT_HAR && format != FORMAT_NDJSON) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        this.writer = new JsonStreamWriter(out);
+        this.format = format;
+    }
+
+    // 在后台导出当前存储中匹配query的日志到文件，query为null时导出全部
+    public static Task start(final File file, int format, LogQuery query, final Listener listener) {
+        return start(new OutputOpener() {
+            @Override
+            public OutputStream open() throws IOException {
+                return new FileOutputStream(file);
+            }
+
+            @Override
+            public void discard() {
+                file.delete();
+            }
+        }, format, query, listener);
+    }
+
+    // 导出到输出流，结束后关闭输出流
+    public static Task start(final OutputStream out, int format, LogQuery query, Listener listener) {
+        return start(new OutputOpener() {
+            @Override
+            public OutputStream open() {
+                return out;
+            }
+
+            @Override
+            public void discard() {
+            }
+        }, format, query, listener);
+    }
+
+    // 导出到okio的Sink，结束后关闭Sink
+    public static Task start(final Sink sink, int format, LogQuery query, Listener listener) {
+        return start(new OutputOpener() {
+            @Override
+            public OutputStream open() {
+                return Okio.buffer(sink).outputStream();
+            }
+
+            @Override
+            public void discard() {
+            }
+        }, format, query, listener);
+    }
+
+    private interface OutputOpener {
+        OutputStream open() throws IOException;
+
+        // 被取消或失败时丢弃不完整的输出
+        void discard();
+    }
+
+    private static Task start(final OutputOpener opener, final int format, final LogQuery query,
+                              final Listener listener) {
+        final Task task = new Task();
+        exportExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                LogView store = NetworkLogInterceptor.getLogStore();
+                int exported;
+                try (OutputStream out = opener.open()) {
+                    if (query != null && !query.prepare(NetworkLogInterceptor.getUrlSearchIndex(),
+                            NetworkLogInterceptor.getBodySearchIndex(), store, task.cancelled)) {
+                        exported = -1;
+                    } else {
+                        exported = export(store, query, format, out, listener, task.cancelled);
+                    }
+                } catch (IOException e) {
+                    opener.discard();
+                    listener.onError(e);
+                    return;
+                }
+                if (exported < 0) {
+                    opener.discard();
+                    listener.onComplete(0, true);
+                } else {
+                    listener.onComplete(exported, false);
+                }
+            }
+        });
+        return task;
+    }
+
+    // 在当前线程中导出store中匹配query的日志，query需要已经prepare过，为null时导出全部；
+    // 返回导出的条数，被取消时返回-1。只刷新不关闭out
+    static int export(LogView store, LogQuery query, int format, OutputStream out, Listener listener,
+                      AtomicBoolean cancelled) throws IOException {
+        return new LogExporter(out, format).run(store, query, listener, cancelled);
+    }
+
+    private int run(LogView store, LogQuery query, Listener listener, AtomicBoolean cancelled) throws IOException {
+        long first = store.getFirstSequence();
+        long end = store.getEndSequence();
+        long total = end - first;
+        if (format == FORMAT_HAR) {
+            writer.beginObject().name("log").beginObject();
+            writer.name("version").value("1.2");
+            writer.name("creator").beginObject()
+                    .name("name").value("NetworkLogMonitor")
+                    .name("version").value(CREATOR_VERSION)
+                    .endObject();
+            writer.name("entries").beginArray();
+        }
+        int exported = 0;
+        // 开始之后新写入的日志不导出，结果对应开始时的存储
+        for (long sequence = first; sequence < end; sequence++) {
+            long scanned = sequence - first;
+            if (scanned % PROGRESS_INTERVAL == 0 && scanned > 0) {
+                if (cancelled != null && cancelled.get()) {
+                    return -1;
+                }
+                if (listener != null) {
+                    listener.onProgress(exported, scanned, total);
+                }
+            }
+            // 已被淘汰的日志跳过
+            NetworkLog log = store.get(sequence);
+            if (log == null || (query != null && !query.matches(log))) {
+                continue;
+            }
+            if (format == FORMAT_HAR) {
+                writeHarEntry(log);
+            } else {
+                writeNdjsonLine(log);
+            }
+            exported++;
+        }
+        if (format == FORMAT_HAR) {
+            writer.endArray().endObject().endObject();
+        }
+        writer.flush();
+        if (listener != null) {
+            listener.onProgress(exported, total, total);
+        }
+        return exported;
+    }
+
+    private void writeHarEntry(NetworkLog log) throws IOException {
+        writer.beginObject();
+        writer.name("startedDateTime").value(formatIsoDate(log.getTimestampNanos() / 1_000_000L));
+        writer.name("time").value(log.getResponseTime());
+
+        String url = log.getUrl();
+        writer.name("request").beginObject();
+        writer.name("method").value(log.getMethod());
+        writer.name("url").value(url);
+        writer.name("httpVersion").value(HTTP_VERSION);
+        writer.name("cookies").beginArray().endArray();
+        writer.name("headers");
+        writeHeaders(log);
+        writer.name("queryString");
+        writeQueryString(url);
+        byte[] requestBody = log.getRequestBodyUtf8();
+        if (requestBody != null) {
+            String contentType = findHeader(log, "Content-Type");
+            writer.name("postData").beginObject()
+                    .name("mimeType").value(contentType != null ? contentType : "")
+                    .name("text").valueUtf8(requestBody)
+                    .endObject();
+        }
+        writer.name("headersSize").value(-1);
+        writer.name("bodySize").value(log.getRequestBodySize());
+        writer.endObject();
+
+        // 没有记录响应头，响应头相关的字段为空
+        writer.name("response").beginObject();
+        writer.name("status").value(log.getStatusCode());
+        writer.name("statusText").value("");
+        writer.name("httpVersion").value(HTTP_VERSION);
+        writer.name("cookies").beginArray().endArray();
+        writer.name("headers").beginArray().endArray();
+        byte[] responseBody = log.getResponseBodyUtf8();
+        long responseSize = log.getResponseBodySize();
+        writer.name("content").beginObject()
+                .name("size").value(responseSize >= 0 ? responseSize : responseBody != null ? responseBody.length : 0)
+                .name("mimeType").value("");
+        if (responseBody != null) {
+            writer.name("text").valueUtf8(responseBody);
+        }
+        writer.endObject();
+        writer.name("redirectURL").value("");
+        writer.name("headersSize").value(-1);
+        writer.name("bodySize").value(responseSize);
+        writer.endObject();
+
+        writer.name("cache").beginObject().endObject();
+        writeHarTimings(log);
+        // 以下划线开头的是HAR允许的自定义字段
+        writer.name("_id").value(log.getId());
+        if (log.getErrorMessage() != null) {
+            writer.name("_error").value(log.getErrorMessage());
+        }
+        if (log.isRequestBodyTruncated()) {
+            writer.name("_requestBodyTruncated").value(true);
+        }
+        if (log.isResponseBodyTruncated()) {
+            writer.name("_responseBodyTruncated").value(true);
+        }
+        writer.endObject();
+    }
+
+    // HAR的timings：没有分阶段耗时时把整个响应时间计为wait
+    private void writeHarTimings(NetworkLog log) throws IOException {
+        CallTimings timings = log.getCallTimings();
+        writer.name("timings").beginObject();
+        if (timings == null) {
+            writer.name("send").value(0);
+            writer.name("wait").value(log.getResponseTime());
+            writer.name("receive").value(0);
+        } else {
+            writer.name("dns").value(segmentMillis(timings, CallTimings.SEGMENT_DNS));
+            writer.name("connect").value(segmentMillis(timings, CallTimings.SEGMENT_CONNECT));
+            writer.name("ssl").value(segmentMillis(timings, CallTimings.SEGMENT_TLS));
+            writer.name("send").value(Math.max(0, segmentMillis(timings, CallTimings.SEGMENT_REQUEST)));
+            writer.name("wait").value(Math.max(0, segmentMillis(timings, CallTimings.SEGMENT_WAITING)));
+            writer.name("receive").value(Math.max(0, segmentMillis(timings, CallTimings.SEGMENT_DOWNLOAD)));
+        }
+        writer.endObject();
+    }
+
+    private void writeNdjsonLine(NetworkLog log) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(log.getId());
+        writer.name("timestamp").value(log.getTimestampNanos() / 1_000_000L);
+        writer.name("method").value(log.getMethod());
+        writer.name("url").value(log.getUrl());
+        writer.name("endpoint").value(log.getUrlTemplate());
+        writer.name("status").value(log.getStatusCode());
+        writer.name("responseTime").value(log.getResponseTime());
+        if (log.getErrorMessage() != null) {
+            writer.name("error").value(log.getErrorMessage());
+        }
+        writer.name("requestHeaders");
+        writeHeaders(log);
+        writer.name("requestBody").valueUtf8(log.getRequestBodyUtf8());
+        writer.name("requestBodySize").value(log.getRequestBodySize());
+        writer.name("requestBodyTruncated").value(log.isRequestBodyTruncated());
+        writer.name("responseBody").valueUtf8(log.getResponseBodyUtf8());
+        writer.name("responseBodySize").value(log.getResponseBodySize());
+        writer.name("responseBodyTruncated").value(log.isResponseBodyTruncated());
+        CallTimings timings = log.getCallTimings();
+        if (timings != null) {
+            // 各阶段耗时（毫秒），未发生的阶段为-1
+            writer.name("timings").beginObject();
+            for (int segment = 0; segment < CallTimings.SEGMENT_COUNT; segment++) {
+                writer.name(CallTimings.getSegmentName(segment)).value(segmentMillis(timings, segment));
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.newline();
+    }
+
+    private void writeHeaders(NetworkLog log) throws IOException {
+        writer.beginArray();
+        String[] headers = log.getHeaderNamesAndValues();
+        if (headers != null) {
+            for (int i = 0; i < headers.length; i += 2) {
+                writer.beginObject().name("name").value(headers[i]).name("value").value(headers[i + 1]).endObject();
+            }
+        }
+        writer.endArray();
+    }
+
+    // 按原样写出query参数，不做URL解码，也不创建子串
+    private void writeQueryString(String url) throws IOException {
+        writer.beginArray();
+        int queryStart = url.indexOf('?');
+        if (queryStart >= 0) {
+            int end = url.indexOf('#', queryStart);
+            if (end < 0) {
+                end = url.length();
+            }
+            int start = queryStart + 1;
+            while (start < end) {
+                int pairEnd = url.indexOf('&', start);
+                if (pairEnd < 0 || pairEnd > end) {
+                    pairEnd = end;
+                }
+                int equals = url.indexOf('=', start);
+                if (equals < 0 || equals > pairEnd) {
+                    equals = pairEnd;
+                }
+                if (pairEnd > start) {
+                    writer.beginObject()
+                            .name("name").value(url, start, equals)
+                            .name("value").value(url, Math.min(equals + 1, pairEnd), pairEnd)
+                            .endObject();
+                }
+                start = pairEnd + 1;
+            }
+        }
+        writer.endArray();
+    }
+
+    private static String findHeader(NetworkLog log, String name) {
+        String[] headers = log.getHeaderNamesAndValues();
+        if (headers != null) {
+            for (int i = 0; i < headers.length; i += 2) {
+                if (headers[i].equalsIgnoreCase(name)) {
+                    return headers[i + 1];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long segmentMillis(CallTimings timings, int segment) {
+        long start = timings.getSegmentStartNanos(segment);
+        long end = timings.getSegmentEndNanos(segment);
+        if (start < 0 || end < start) {
+            return -1;
+        }
+        return (end - start) / 1_000_000L;
+    }
+
+    // UTC的ISO 8601时间，如"2024-05-01T08:30:15.123Z"；按纪元日换算年月日，不使用Calendar。只支持1970年之后的时间
+    CharSequence formatIsoDate(long epochMillis) {
+        epochMillis = Math.max(0, epochMillis);
+        long days = epochMillis / 86_400_000L;
+        long millisOfDay = epochMillis % 86_400_000L;
+        // 公历日期换算，以3月1日为一年的开始
+        long z = days + 719_468;
+        long era = z / 146_097;
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        StringBuilder builder = dateBuilder;
+        builder.setLength(0);
+        appendPadded(builder, year, 4).append('-');
+        appendPadded(builder, month, 2).append('-');
+        appendPadded(builder, day, 2).append('T');
+        appendPadded(builder, millisOfDay / 3_600_000L, 2).append(':');
+        appendPadded(builder, millisOfDay / 60_000L % 60, 2).append(':');
+        appendPadded(builder, millisOfDay / 1000 % 60, 2).append('.');
+        appendPadded(builder, millisOfDay % 1000, 3).append('Z');
+        return builder;
+    }
+
+    private static StringBuilder appendPadded(StringBuilder builder, long value, int width) {
+        for (long limit = 10; width > 1; width--, limit *= 10) {
+            if (value < limit) {
+                builder.append('0');
+            }
+        }
+        return builder.append(value);
+    }
+}
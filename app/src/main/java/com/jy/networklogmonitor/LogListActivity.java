@@ -1,5 +1,7 @@
 package com.jy.networklogmonitor;
 
+import android.content.DialogInterface;
+import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -7,21 +9,37 @@ import android.view.View;
 import android.view.Window;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.appbar.MaterialToolbar;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class LogListActivity extends AppCompatActivity {
+public class LogListActivity extends AppCompatActivity implements NetworkLogInterceptor.LogChangeListener {
+    private MaterialToolbar toolbar;
     private RecyclerView logRecyclerView;
     private LogListAdapter logListAdapter;
-    private CopyOnWriteArrayList<NetworkLog> logList;
-    private List<NetworkLog> filteredLogList;
     private Button clearLogsButton;
     private EditText searchEditText;
+    private Button exportButton;
+    // 正在进行的导出，再次点击导出按钮时取消
+    private LogExporter.Task exportTask;
+    // 在后台线程中执行搜索，输入停顿后才查询
+    private final LogSearcher logSearcher = new LogSearcher(LogSearcher.DEFAULT_DEBOUNCE_MILLIS);
+    // 列表数据模型，只在搜索线程中访问
+    private final LogListModel logListModel = new LogListModel();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -30,24 +48,61 @@ public class LogListActivity extends AppCompatActivity {
         setContentView(R.layout.activity_log_list);
 
         // 初始化视图
+        toolbar = findViewById(R.id.topAppBar);
         logRecyclerView = findViewById(R.id.log_recycler_view);
         clearLogsButton = findViewById(R.id.clear_logs_button);
         searchEditText = findViewById(R.id.search_edit_text);
 
-        // 获取日志列表
-        logList = NetworkLogInterceptor.getLogList();
-        filteredLogList = new ArrayList<>(logList);
-
         // 初始化适配器
-        logListAdapter = new LogListAdapter(this, filteredLogList);
+        logListAdapter = new LogListAdapter(this);
         logRecyclerView.setAdapter(logListAdapter);
+        // 日志每秒可能新增上百条，关闭增删动画避免动画堆积
+        logRecyclerView.setItemAnimator(null);
+        // 滚动时按可见区域分页加载行摘要，并沿滚动方向预取
+        logRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                onVisibleRangeChanged(dy);
+            }
+        });
 
-        // 设置清除日志按钮点击事件
+        // 设置清除日志按钮点击事件，清除后通过日志变化通知刷新列表
         clearLogsButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 NetworkLogInterceptor.clearLogs();
-                filterLogs("", logList);
+                updateTitle();
+            }
+        });
+
+        // 打开批量重放页面，重放当前搜索条件匹配的请求
+        findViewById(R.id.replay_button).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Intent intent = new Intent(LogListActivity.this, ReplayActivity.class);
+                intent.putExtra(ReplayActivity.EXTRA_QUERY, searchEditText.getText().toString());
+                startActivity(intent);
+            }
+        });
+
+        // 保存当前会话，或打开之前保存的会话快照查看
+        findViewById(R.id.session_button).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showSessionDialog();
+            }
+        });
+
+        // 导出当前搜索条件匹配的日志，导出期间按钮显示进度，再次点击取消
+        exportButton = findViewById(R.id.export_button);
+        exportButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (exportTask != null) {
+                    exportTask.cancel();
+                } else {
+                    exportLogs();
+                }
             }
         });
 
@@ -61,7 +116,7 @@ public class LogListActivity extends AppCompatActivity {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 // 搜索文本变化时，过滤日志列表
-                filterLogs(s.toString(), logList);
+                filterLogs(s.toString());
             }
 
             @Override
@@ -71,31 +126,270 @@ public class LogListActivity extends AppCompatActivity {
         });
     }
 
-    private void filterLogs(String searchText, List<NetworkLog> originalList) {
-        filteredLogList.clear();
-        
-        if (searchText.isEmpty()) {
-            // 如果搜索文本为空，显示所有日志
-            filteredLogList.addAll(originalList);
+    private void filterLogs(final String searchText) {
+        final LogQuery query;
+        try {
+            // 查询只在输入变化时解析一次，后台线程中直接使用编译好的条件树
+            query = LogQuery.parse(searchText);
+        } catch (IllegalArgumentException e) {
+            logSearcher.cancel();
+            searchEditText.setError(e.getMessage());
+            return;
+        }
+        searchEditText.setError(null);
+        // 在后台线程中过滤出符合查询条件的日志，URL和body条件先通过索引得到候选，再计算与当前列表的差异
+        logSearcher.submit(new LogSearcher.Query<LogListModel.Snapshot>() {
+            @Override
+            public LogListModel.Snapshot run(AtomicBoolean cancelled) {
+                return loadLogs(query, cancelled);
+            }
+        }, new LogSearcher.Callback<LogListModel.Snapshot>() {
+            @Override
+            public void onResult(LogListModel.Snapshot snapshot) {
+                // 回调与日志变化的处理都在搜索线程中依次执行，模型不会被并发修改
+                postUpdate(logListModel.replace(query, snapshot), false);
+            }
+        });
+    }
+
+    private void exportLogs() {
+        LogQuery query;
+        try {
+            query = LogQuery.parse(searchEditText.getText().toString());
+        } catch (IllegalArgumentException e) {
+            searchEditText.setError(e.getMessage());
+            return;
+        }
+        final File file = new File(getExternalFilesDir("exports"),
+                "network-logs-" + System.currentTimeMillis() + ".har");
+        exportTask = LogExporter.start(file, LogExporter.FORMAT_HAR, query.isEmpty() ? null : query,
+                new LogExporter.Listener() {
+                    @Override
+                    public void onProgress(final int exported, final long scanned, final long total) {
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (exportTask != null && total > 0) {
+                                    exportButton.setText("Export " + scanned * 100 / total + "%");
+                                }
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onComplete(final int exported, final boolean cancelled) {
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                finishExport(cancelled ? "Export cancelled"
+                                        : "Exported " + exported + " logs to " + file.getAbsolutePath());
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onError(final IOException e) {
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                finishExport("Export failed: " + e.getMessage());
+                            }
+                        });
+                    }
+                });
+    }
+
+    private void finishExport(String message) {
+        exportTask = null;
+        exportButton.setText("Export");
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+    }
+
+    private void showSessionDialog() {
+        final List<String> items = new ArrayList<>();
+        final List<File> files = new ArrayList<>();
+        if (NetworkLogInterceptor.isViewingSession()) {
+            items.add("Back to live logs");
+            files.add(null);
         } else {
-            // 否则，过滤出URL包含搜索文本的日志
-            for (NetworkLog log : originalList) {
-                if (log.getUrl().toLowerCase().contains(searchText.toLowerCase())) {
-                    filteredLogList.add(log);
+            items.add("Save current session");
+            files.add(null);
+        }
+        // 保存的会话从新到旧排列
+        File[] saved = getSessionDirectory().listFiles();
+        if (saved != null) {
+            Arrays.sort(saved, new Comparator<File>() {
+                @Override
+                public int compare(File a, File b) {
+                    return Long.compare(b.lastModified(), a.lastModified());
+                }
+            });
+            for (File file : saved) {
+                if (file.getName().endsWith(SessionSnapshot.FILE_SUFFIX)) {
+                    items.add("Open " + file.getName());
+                    files.add(file);
                 }
             }
         }
-        
-        // 刷新适配器
-        logListAdapter.notifyDataSetChanged();
+        new AlertDialog.Builder(this)
+                .setTitle("Session")
+                .setItems(items.toArray(new String[0]), new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        File file = files.get(which);
+                        if (file != null) {
+                            openSession(file);
+                        } else if (NetworkLogInterceptor.isViewingSession()) {
+                            NetworkLogInterceptor.closeSession();
+                            updateTitle();
+                        } else {
+                            saveSession();
+                        }
+                    }
+                })
+                .show();
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // 刷新日志列表
-        if (logListAdapter != null) {
-            filterLogs(searchEditText.getText().toString(), logList);
+    private File getSessionDirectory() {
+        return getExternalFilesDir("sessions");
+    }
+
+    // 在导出线程中保存会话快照
+    private void saveSession() {
+        final File file = new File(getSessionDirectory(),
+                "session-" + System.currentTimeMillis() + SessionSnapshot.FILE_SUFFIX);
+        LogExporter.execute(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                try {
+                    int count = NetworkLogInterceptor.saveSession(file);
+                    message = "Saved " + count + " logs to " + file.getAbsolutePath();
+                } catch (IOException e) {
+                    message = "Save failed: " + e.getMessage();
+                }
+                showToast(message);
+            }
+        });
+    }
+
+    // 打开会话快照只映射文件，列表随后通过存储替换通知重新加载
+    private void openSession(final File file) {
+        LogExporter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    NetworkLogInterceptor.openSession(file);
+                } catch (IOException e) {
+                    showToast("Open failed: " + e.getMessage());
+                    return;
+                }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        updateTitle();
+                    }
+                });
+            }
+        });
+    }
+
+    private void showToast(final String message) {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Toast.makeText(LogListActivity.this, message, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    // 查看会话快照时在标题中显示文件名
+    private void updateTitle() {
+        LogView store = NetworkLogInterceptor.getLogStore();
+        toolbar.setTitle(store instanceof SessionSnapshot
+                ? "Session " + ((SessionSnapshot) store).getFile().getName() : "Network Logs");
+    }
+
+    private static LogListModel.Snapshot loadLogs(LogQuery query, AtomicBoolean cancelled) {
+        LogView store = NetworkLogInterceptor.getLogStore();
+        if (!query.prepare(NetworkLogInterceptor.getUrlSearchIndex(),
+                NetworkLogInterceptor.getBodySearchIndex(), store, cancelled)) {
+            return null;
         }
+        return LogListModel.load(query, store, cancelled);
+    }
+
+    // 在主线程中按计算顺序应用增量更新
+    private void postUpdate(final LogListModel.Update update, final boolean reset) {
+        if (update.isEmpty() && !reset) {
+            return;
+        }
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                // 已经滚动到底部时跟随新日志，否则保持当前可见的行不动
+                boolean following = !logRecyclerView.canScrollVertically(1);
+                logListAdapter.applyUpdate(update, reset);
+                if (following && logListAdapter.getItemCount() > 0) {
+                    logRecyclerView.scrollToPosition(logListAdapter.getItemCount() - 1);
+                }
+                onVisibleRangeChanged(0);
+            }
+        });
+    }
+
+    private void onVisibleRangeChanged(int direction) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) logRecyclerView.getLayoutManager();
+        if (layoutManager != null) {
+            logListAdapter.onVisibleRangeChanged(layoutManager.findFirstVisibleItemPosition(),
+                    layoutManager.findLastVisibleItemPosition(), direction);
+        }
+    }
+
+    // 日志变化通知（主线程），在搜索线程中计算列表的增量
+    @Override
+    public void onLogChanged(final LogChangeBatch batch) {
+        LogSearcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                LogQuery query = logListModel.getQuery();
+                LogView store = NetworkLogInterceptor.getLogStore();
+                if (batch.isReset()) {
+                    // 日志被清空或存储被替换时重新过滤
+                    LogListModel.Snapshot snapshot = loadLogs(query, new AtomicBoolean());
+                    postUpdate(logListModel.replace(query, snapshot), true);
+                    return;
+                }
+                if (query.dependsOnResponseBody() && batch.getUpdatedToSequence() > batch.getUpdatedFromSequence()) {
+                    // 响应体更新后body和size条件的结果可能变化，只重新判断更新过的日志
+                    postUpdate(logListModel.refresh(store, batch.getUpdatedFromSequence(),
+                            batch.getUpdatedToSequence()), false);
+                }
+                postUpdate(logListModel.append(store), false);
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // 页面可见时实时接收日志变化，并重新过滤一次以包含不可见期间的变化
+        NetworkLogInterceptor.registerLogChangeListener(this);
+        filterLogs(searchEditText.getText().toString());
+        updateTitle();
+        // 打开日志列表即视为已查看错误，悬浮窗角标从0重新计数
+        NetworkLogInterceptor.getLiveMetrics().markErrorsSeen();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        NetworkLogInterceptor.unregisterLogChangeListener(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        logSearcher.cancel();
     }
 }
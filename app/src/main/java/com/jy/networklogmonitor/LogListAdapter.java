@@ -11,16 +11,70 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.SimpleDateFormat;
-import java.util.List;
+import java.util.Date;
 
 public class LogListAdapter extends RecyclerView.Adapter<LogListAdapter.LogViewHolder> {
     private final Context context;
-    private final List<NetworkLog> logList;
+    // 列表每一行的日志序号，只在主线程中通过applyUpdate()修改，与搜索线程中的LogListModel保持一致
+    private final SequenceList sequences = new SequenceList();
+    // 按需加载可见区域附近的行摘要
+    private final LogRowPager rowPager;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    // 把列表的区间变化转换为局部刷新，只重新绑定变化的行
+    private final LogListModel.UpdateCallback notifyCallback = new LogListModel.UpdateCallback() {
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            notifyItemRangeInserted(position, count);
+        }
+    };
 
-    public LogListAdapter(Context context, List<NetworkLog> logList) {
+    public LogListAdapter(Context context) {
         this.context = context;
-        this.logList = logList;
+        // 日志序号不会变化，RecyclerView可以据此保持滚动位置和复用行
+        setHasStableIds(true);
+        rowPager = new LogRowPager(sequences, new LogRowPager.RowLoader() {
+            @Override
+            public LogRow[] load(long[] pageSequences) {
+                LogView store = NetworkLogInterceptor.getLogStore();
+                LogRow[] rows = new LogRow[pageSequences.length];
+                for (int i = 0; i < pageSequences.length; i++) {
+                    rows[i] = store.getRow(pageSequences[i]);
+                }
+                return rows;
+            }
+        }, new MainThreadScheduler(), new LogRowPager.Listener() {
+            @Override
+            public void onRowsLoaded(int position, int count) {
+                notifyItemRangeChanged(position, count);
+            }
+        });
+    }
+
+    // 应用LogListModel计算出的增量更新；reset为true时丢弃已加载的行摘要
+    void applyUpdate(LogListModel.Update update, boolean reset) {
+        if (reset) {
+            rowPager.invalidate();
+        }
+        update.applyTo(sequences, notifyCallback);
+        if (reset) {
+            // 保留下来的行在新存储中可能对应不同的日志，重新绑定
+            notifyItemRangeChanged(0, sequences.size());
+        }
+    }
+
+    // 可见区域变化时加载附近的页并丢弃较远的页
+    void onVisibleRangeChanged(int first, int last, int direction) {
+        rowPager.onVisibleRangeChanged(first, last, direction);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return sequences.get(position);
     }
 
     @NonNull
@@ -33,27 +87,39 @@ public class LogListAdapter extends RecyclerView.Adapter<LogListAdapter.LogViewH
 
     @Override
     public void onBindViewHolder(@NonNull LogViewHolder holder, int position) {
-        NetworkLog log = logList.get(position);
+        LogRow row = rowPager.getRow(position);
+        if (row == null) {
+            // 行摘要加载完成后会再次绑定
+            holder.methodText.setText("");
+            holder.methodText.setBackgroundResource(R.drawable.method_background);
+            holder.statusCodeText.setText("");
+            holder.statusCodeText.setBackgroundResource(R.drawable.status_redirect_background);
+            holder.responseTimeText.setText("");
+            holder.urlText.setText("...");
+            holder.timestampText.setText("");
+            holder.itemView.setOnClickListener(null);
+            return;
+        }
 
-        holder.methodText.setText(log.getMethod());
-        holder.statusCodeText.setText(String.valueOf(log.getStatusCode()));
-        holder.responseTimeText.setText(log.getResponseTime() + "ms");
-        holder.urlText.setText(log.getUrl());
-        holder.timestampText.setText(dateFormat.format(log.getTimestamp()));
+        holder.methodText.setText(row.getMethod());
+        holder.statusCodeText.setText(String.valueOf(row.getStatusCode()));
+        holder.responseTimeText.setText(row.getResponseTime() + "ms");
+        holder.urlText.setText(row.getUrl());
+        holder.timestampText.setText(dateFormat.format(new Date(row.getTimestampMillis())));
 
         // 根据状态码设置不同颜色
-        if (log.getStatusCode() >= 200 && log.getStatusCode() < 300) {
+        if (row.getStatusCode() >= 200 && row.getStatusCode() < 300) {
             holder.statusCodeText.setBackgroundResource(R.drawable.status_success_background);
-        } else if (log.getStatusCode() >= 300 && log.getStatusCode() < 400) {
+        } else if (row.getStatusCode() >= 300 && row.getStatusCode() < 400) {
             holder.statusCodeText.setBackgroundResource(R.drawable.status_redirect_background);
-        } else if (log.getStatusCode() >= 400 && log.getStatusCode() < 500) {
+        } else if (row.getStatusCode() >= 400 && row.getStatusCode() < 500) {
             holder.statusCodeText.setBackgroundResource(R.drawable.status_client_error_background);
         } else {
             holder.statusCodeText.setBackgroundResource(R.drawable.status_server_error_background);
         }
 
         // 根据请求方法设置不同颜色
-        switch (log.getMethod()) {
+        switch (row.getMethod()) {
             case "GET":
                 holder.methodText.setBackgroundResource(R.drawable.method_get_background);
                 break;
@@ -71,20 +137,20 @@ public class LogListAdapter extends RecyclerView.Adapter<LogListAdapter.LogViewH
                 break;
         }
 
-        // 设置点击事件
+        // 设置点击事件，详情页按日志id读取完整的日志，先用序号读取摘要显示
+        final long logId = row.getId();
+        final long sequence = row.getSequence();
         holder.itemView.setOnClickListener(v -> {
-            // 查找原始列表中的真实位置
-            int originalPosition = NetworkLogInterceptor.getLogList().indexOf(log);
-            
             Intent intent = new Intent(context, LogDetailActivity.class);
-            intent.putExtra("log_position", originalPosition);
+            intent.putExtra(LogDetailActivity.EXTRA_LOG_ID, logId);
+            intent.putExtra(LogDetailActivity.EXTRA_LOG_SEQUENCE, sequence);
             context.startActivity(intent);
         });
     }
 
     @Override
     public int getItemCount() {
-        return logList.size();
+        return sequences.size();
     }
 
     static class LogViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,203 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 日志列表的数据模型，只在搜索线程中使用：根据日志变化和过滤条件计算出列表的增量更新，
+// 由主线程把同样的更新按顺序应用到适配器，两边的列表因此始终一致。
+// 列表只保存递增且不重复的日志序号，行内容由LogRowPager按需加载；新旧列表的差异通过一次归并即可算出。
+final class LogListModel {
+
+    // 接收列表的区间变化，对应RecyclerView.Adapter的notifyItemRange*
+    interface UpdateCallback {
+        void onRemoved(int position, int count);
+
+        void onInserted(int position, int count);
+    }
+
+    // 按顺序执行的区间删除和插入
+    static final class Update {
+        private final List<Operation> operations = new ArrayList<>();
+
+        boolean isEmpty() {
+            return operations.isEmpty();
+        }
+
+        // 依次修改列表并通知回调
+        void applyTo(SequenceList sequences, UpdateCallback callback) {
+            for (Operation operation : operations) {
+                if (operation.inserted == null) {
+                    sequences.remove(operation.position, operation.count);
+                    if (callback != null) {
+                        callback.onRemoved(operation.position, operation.count);
+                    }
+                } else {
+                    sequences.insert(operation.position, operation.inserted, operation.count);
+                    if (callback != null) {
+                        callback.onInserted(operation.position, operation.count);
+                    }
+                }
+            }
+        }
+
+        private void remove(int position, int count) {
+            Operation last = operations.isEmpty() ? null : operations.get(operations.size() - 1);
+            // 连续删除同一位置的行合并为一次区间删除
+            if (last != null && last.inserted == null && last.position == position) {
+                last.count += count;
+            } else {
+                operations.add(new Operation(position, count, null));
+            }
+        }
+
+        private void insert(int position, long sequence) {
+            Operation last = operations.isEmpty() ? null : operations.get(operations.size() - 1);
+            if (last == null || last.inserted == null || last.position + last.count != position) {
+                last = new Operation(position, 0, new long[4]);
+                operations.add(last);
+            } else if (last.count == last.inserted.length) {
+                last.inserted = Arrays.copyOf(last.inserted, last.count * 2);
+            }
+            last.inserted[last.count++] = sequence;
+        }
+    }
+
+    private static final class Operation {
+        final int position;
+        int count;
+        // 为null时表示删除
+        long[] inserted;
+
+        Operation(int position, int count, long[] inserted) {
+            this.position = position;
+            this.count = count;
+            this.inserted = inserted;
+        }
+    }
+
+    // 过滤后的日志序号，只包含小于endSequence的序号
+    static final class Snapshot {
+        final long[] sequences;
+        final long endSequence;
+
+        Snapshot(long[] sequences, long endSequence) {
+            this.sequences = sequences;
+            this.endSequence = endSequence;
+        }
+    }
+
+    private final SequenceList sequences = new SequenceList();
+    private LogQuery query = LogQuery.parse("");
+    // 序号小于该值的日志都已经过过滤
+    private long endSequence;
+
+    long[] getSequences() {
+        return sequences.toArray();
+    }
+
+    LogQuery getQuery() {
+        return query;
+    }
+
+    // 计算过滤结果，不修改模型；被取消时返回null。没有过滤条件时直接使用序号区间，不读取日志内容；
+    // 有过滤条件时按序号逐条判断，只检查索引给出的候选，并尽量只用列表摘要判断，不把所有日志读入内存
+    static Snapshot load(LogQuery query, LogView store, AtomicBoolean cancelled) {
+        // 先确定序号上界，之后写入的日志由append()处理，不会重复也不会遗漏
+        long end = store.getEndSequence();
+        if (query.isEmpty()) {
+            long first = Math.min(store.getFirstSequence(), end);
+            long[] result = new long[(int) (end - first)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = first + i;
+            }
+            return new Snapshot(result, end);
+        }
+        long first = Math.min(store.getFirstSequence(), end);
+        long[] result = LogQueryEvaluator.filter(query, store, first, end, cancelled);
+        return result != null ? new Snapshot(result, end) : null;
+    }
+
+    // 替换为新的过滤结果，返回从当前列表到新列表的增量
+    Update replace(LogQuery query, Snapshot snapshot) {
+        this.query = query;
+        Update update = new Update();
+        long[] target = snapshot.sequences;
+        int position = 0;
+        int oldIndex = 0;
+        int newIndex = 0;
+        int oldSize = sequences.size();
+        // 两个列表都按序号递增，归并时序号相同的行保留，只在旧列表中的删除，只在新列表中的插入
+        while (oldIndex < oldSize || newIndex < target.length) {
+            long oldSequence = oldIndex < oldSize ? sequences.get(oldIndex) : Long.MAX_VALUE;
+            long newSequence = newIndex < target.length ? target[newIndex] : Long.MAX_VALUE;
+            if (oldSequence == newSequence) {
+                position++;
+                oldIndex++;
+                newIndex++;
+            } else if (oldSequence < newSequence) {
+                update.remove(position, 1);
+                oldIndex++;
+            } else {
+                update.insert(position++, target[newIndex++]);
+            }
+        }
+        update.applyTo(sequences, null);
+        endSequence = snapshot.endSequence;
+        return update;
+    }
+
+    // 应用存储中的新增和淘汰：从头部删除已淘汰的日志，在尾部追加符合条件的新日志
+    Update append(LogView store) {
+        Update update = new Update();
+        long first = store.getFirstSequence();
+        long end = store.getEndSequence();
+        int evicted = 0;
+        while (evicted < sequences.size() && sequences.get(evicted) < first) {
+            evicted++;
+        }
+        if (evicted > 0) {
+            update.remove(0, evicted);
+        }
+        int position = sequences.size() - evicted;
+        boolean matchAll = query.isEmpty();
+        for (long sequence = Math.max(first, endSequence); sequence < end; sequence++) {
+            if (matchAll) {
+                update.insert(position++, sequence);
+            } else if (LogQueryEvaluator.matches(query, store, sequence, false)) {
+                update.insert(position++, sequence);
+            }
+        }
+        update.applyTo(sequences, null);
+        endSequence = Math.max(endSequence, end);
+        return update;
+    }
+
+    // 内容更新过的日志（序号在[from, to)内）重新判断是否符合条件，只在结果变化时插入或删除对应的行
+    Update refresh(LogView store, long from, long to) {
+        Update update = new Update();
+        if (query.isEmpty()) {
+            return update;
+        }
+        // 之前的删除和插入都在更小的位置上，原列表中的位置加上offset即为当前位置
+        int offset = 0;
+        for (long sequence = Math.max(from, store.getFirstSequence()); sequence < Math.min(to, endSequence);
+             sequence++) {
+            int index = sequences.indexOf(sequence);
+            boolean listed = index >= 0;
+            if (LogQueryEvaluator.matches(query, store, sequence, true) == listed) {
+                continue;
+            }
+            if (listed) {
+                update.remove(index + offset, 1);
+                offset--;
+            } else {
+                update.insert(-index - 1 + offset, sequence);
+                offset++;
+            }
+        }
+        update.applyTo(sequences, null);
+        return update;
+    }
+}
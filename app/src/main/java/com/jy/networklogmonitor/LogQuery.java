@@ -0,0 +1,805 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 日志过滤查询，如 "status:5xx method:POST host:api.* latency>800 size>1mb error:true"。
+// 多个条件之间为"且"，可以用 OR、括号和前缀"-"（取反）组合；不带字段名的词按URL包含（不区分大小写）匹配。
+// 支持的字段：
+//   status   状态码，如 status:200、status:5xx、status>=400
+//   method   请求方法，如 method:POST
+//   host     host通配，如 host:api.*、host:*.example.com
+//   endpoint 接口模板通配，如 endpoint:/users/{id}/orders、endpoint:/users/*；不带"?"时只比较路径部分
+//   latency  响应时间（毫秒），可带ms/s单位，如 latency>800、latency<=1.5s
+//   size     响应体字节数，可带b/kb/mb/gb单位，如 size>1mb
+//   error    请求是否失败，如 error:true
+//   url      URL包含，如 url:"/v1/orders"
+//   body     请求体或响应体包含所有词（按词匹配，词尾带*时按前缀），如 body:"orderId 98231"
+// 查询解析一次后编译为条件树。status、method、latency、size、error和URL包含的逐行判断不分配对象；
+// host对列表摘要需要从URL解析host，endpoint需要按模板归一化URL，body需要读取（可能先解压）请求体和响应体，
+// 这几类条件会分配临时对象。
+public final class LogQuery {
+    private static final int FIELD_STATUS = 0;
+    private static final int FIELD_LATENCY = 1;
+    private static final int FIELD_SIZE = 2;
+
+    // matchesRow()的结果：只凭列表摘要无法判断时为ROW_UNKNOWN，需要读取完整日志再判断
+    static final int ROW_NO_MATCH = 0;
+    static final int ROW_MATCH = 1;
+    static final int ROW_UNKNOWN = 2;
+
+    // 索引算出的候选序号：序号小于end的日志中只有sequences（递增）可能匹配
+    static final class Candidates {
+        final long[] sequences;
+        final long end;
+
+        Candidates(long[] sequences, long end) {
+            this.sequences = sequences;
+            this.end = end;
+        }
+    }
+
+    private final String text;
+    private final Node root;
+    private final List<UrlContains> urlTerms;
+    private final List<BodyContains> bodyTerms;
+    private final boolean hasSizeTerms;
+
+    private LogQuery(String text, Node root, List<UrlContains> urlTerms, List<BodyContains> bodyTerms,
+                     boolean hasSizeTerms) {
+        this.text = text;
+        this.root = root;
+        this.urlTerms = urlTerms;
+        this.bodyTerms = bodyTerms;
+        this.hasSizeTerms = hasSizeTerms;
+    }
+
+    // 解析查询，语法错误时抛出IllegalArgumentException
+    public static LogQuery parse(String text) {
+        Parser parser = new Parser(text);
+        Node root = parser.parse();
+        return new LogQuery(text, root, parser.urlTerms, parser.bodyTerms, parser.hasSizeTerms);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    // 没有任何条件时匹配所有日志
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public boolean matches(NetworkLog log) {
+        return root == null || root.matches(log, false);
+    }
+
+    // 判断内容更新过的日志（如响应体读取完成）：body条件不使用prepare()时算出的候选，直接检查body
+    boolean matchesUpdated(NetworkLog log) {
+        return root == null || root.matches(log, true);
+    }
+
+    // 只用列表摘要判断，用于在读取完整日志之前尽早排除
+    int matchesRow(LogRow row) {
+        return root == null ? ROW_MATCH : root.matchesRow(row);
+    }
+
+    // 查询必须满足的已准备好候选的条件（根条件本身或根条件"且"的直接子条件）中候选最少的一个；没有时返回null
+    Candidates getRequiredCandidates() {
+        Node[] required = root instanceof And ? ((And) root).children : new Node[]{root};
+        Candidates best = null;
+        for (Node node : required) {
+            if (node instanceof IndexedTerm) {
+                Candidates candidates = ((IndexedTerm) node).candidates;
+                if (candidates != null && (best == null || candidates.sequences.length < best.sequences.length)) {
+                    best = candidates;
+                }
+            }
+        }
+        return best;
+    }
+
+    // 用URL搜索索引预先算出URL条件的候选序号，之后逐行判断只需二分查找；被取消时返回false
+    boolean prepare(UrlSearchIndex index, AtomicBoolean cancelled) {
+        return prepare(index, null, null, cancelled);
+    }
+
+    // 同时用body索引算出body条件的候选序号；bodyIndex为null（未开启body索引）时body条件逐条检查
+    boolean prepare(UrlSearchIndex urlIndex, BodySearchIndex bodyIndex, LogView store, AtomicBoolean cancelled) {
+        for (UrlContains term : urlTerms) {
+            // 查询之后才写入索引的日志不在候选中，改为直接比较
+            long candidatesEnd = urlIndex.getEndSequence();
+            long[] sequences = urlIndex.search(term.lowerText, cancelled);
+            if (sequences == null) {
+                return false;
+            }
+            term.setCandidates(sequences, candidatesEnd);
+        }
+        if (bodyIndex != null) {
+            for (BodyContains term : bodyTerms) {
+                long candidatesEnd = store.getEndSequence();
+                long[] sequences = bodyIndex.search(term.text, store, cancelled);
+                if (sequences == null) {
+                    return false;
+                }
+                term.setCandidates(sequences, candidatesEnd);
+            }
+        }
+        return true;
+    }
+
+    // 是否有依赖响应体的条件（body和size）：响应体晚于日志写入，这些条件的结果会随响应体更新而变化，
+    // 更新过的日志需要重新判断
+    boolean dependsOnResponseBody() {
+        return !bodyTerms.isEmpty() || hasSizeTerms;
+    }
+
+    @Override
+    public String toString() {
+        return root == null ? "*" : root.toString();
+    }
+
+    private abstract static class Node {
+        // updated为true时日志内容在prepare()之后更新过，body条件的候选可能已经过时
+        abstract boolean matches(NetworkLog log, boolean updated);
+
+        abstract int matchesRow(LogRow row);
+    }
+
+    private static final class And extends Node {
+        private final Node[] children;
+
+        And(Node[] children) {
+            this.children = children;
+        }
+
+        @Override
+        boolean matches(NetworkLog log, boolean updated) {
+            for (Node child : children) {
+                if (!child.matches(log, updated)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            int result = ROW_MATCH;
+            for (Node child : children) {
+                int childResult = child.matchesRow(row);
+                if (childResult == ROW_NO_MATCH) {
+                    return ROW_NO_MATCH;
+                }
+                if (childResult == ROW_UNKNOWN) {
+                    result = ROW_UNKNOWN;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "and" + Arrays.toString(children);
+        }
+    }
+
+    private static final class Or extends Node {
+        private final Node[] children;
+
+        Or(Node[] children) {
+            this.children = children;
+        }
+
+        @Override
+        boolean matches(NetworkLog log, boolean updated) {
+            for (Node child : children) {
+                if (child.matches(log, updated)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            int result = ROW_NO_MATCH;
+            for (Node child : children) {
+                int childResult = child.matchesRow(row);
+                if (childResult == ROW_MATCH) {
+                    return ROW_MATCH;
+                }
+                if (childResult == ROW_UNKNOWN) {
+                    result = ROW_UNKNOWN;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "or" + Arrays.toString(children);
+        }
+    }
+
+    private static final class Not extends Node {
+        private final Node child;
+
+        Not(Node child) {
+            this.child = child;
+        }
+
+        @Override
+        boolean matches(NetworkLog log, boolean updated) {
+            return !child.matches(log, updated);
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            int result = child.matchesRow(row);
+            return result == ROW_UNKNOWN ? ROW_UNKNOWN : result == ROW_MATCH ? ROW_NO_MATCH : ROW_MATCH;
+        }
+
+        @Override
+        public String toString() {
+            return "not(" + child + ")";
+        }
+    }
+
+    // 数值字段落在[min, max]内，所有比较运算都转换为闭区间
+    private static final class Range extends Node {
+        private final int field;
+        private final long min;
+        private final long max;
+
+        Range(int field, long min, long max) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        boolean matches(NetworkLog log, boolean updated) {
+            long value;
+            switch (field) {
+                case FIELD_STATUS:
+                    value = log.getStatusCode();
+                    break;
+                case FIELD_LATENCY:
+                    value = log.getResponseTime();
+                    break;
+                default:
+                    value = log.getResponseBodySize();
+                    break;
+            }
+            return value >= min && value <= max;
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            long value;
+            switch (field) {
+                case FIELD_STATUS:
+                    value = row.getStatusCode();
+                    break;
+                case FIELD_LATENCY:
+                    value = row.getResponseTime();
+                    break;
+                default:
+                    // 摘要中没有响应体大小
+                    return ROW_UNKNOWN;
+            }
+            return value >= min && value <= max ? ROW_MATCH : ROW_NO_MATCH;
+        }
+
+        @Override
+        public String toString() {
+            return new String[]{"status", "latency", "size"}[field] + "[" + min + ", " + max + "]";
+        }
+    }
+
+    private static final class MethodIs extends Node {
+        private final String method;
+
+        MethodIs(String method) {
+            this.method = method;
+        }
+
+        @Override
+        boolean matches(NetworkLog log, boolean updated) {
+            return method.equalsIgnoreCase(log.getMethod());
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            return method.equalsIgnoreCase(row.getMethod()) ? ROW_MATCH : ROW_NO_MATCH;
+        }
+
+        @Override
+        public String toString() {
+            return "method=" + method;
+        }
+    }
+
+    private static final class HostMatches extends Node {
+        private final String pattern;
+        private final boolean glob;
+
+        HostMatches(String pattern) {
+            this.pattern = pattern.toLowerCase(Locale.ROOT);
+            this.glob = pattern.indexOf('*') >= 0;
+        }
+
+        @Override
+        boolean matches(NetworkLog log, boolean updated) {
+            return matches(log.getHost());
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            String url = row.getUrl();
+            return url != null && matches(NetworkLog.parseHost(url)) ? ROW_MATCH : ROW_NO_MATCH;
+        }
+
+        private boolean matches(String host) {
+            if (host == null) {
+                return false;
+            }
+            return glob ? UrlPatternMatcher.globMatches(pattern, host, 0, host.length()) : pattern.equals(host);
+        }
+
+        @Override
+        public String toString() {
+            return "host=" + pattern;
+        }
+    }
+
+    private static final class EndpointMatches extends Node {
+        private final String pattern;
+        private final boolean withQuery;
+
+        EndpointMatches(String pattern) {
+            this.pattern = pattern;
+            this.withQuery = pattern.indexOf('?') >= 0;
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            return ROW_UNKNOWN;
+        }
+
+        @Override
+        boolean matches(NetworkLog log, boolean updated) {
+            String template = log.getUrlTemplate();
+            if (template == null) {
+                // 从文件存储读回的日志不保存模板，按当前的归一化规则重新计算，查询不参与学习
+                String url = log.getUrl();
+                if (url == null) {
+                    return false;
+                }
+                template = NetworkLogInterceptor.getUrlTemplateNormalizer().normalizeReadOnly(url);
+            }
+            int end = withQuery ? -1 : template.indexOf('?');
+            return UrlPatternMatcher.globMatches(pattern, template, 0, end < 0 ? template.length() : end);
+        }
+
+        @Override
+        public String toString() {
+            return "endpoint=" + pattern;
+        }
+    }
+
+    private static final class ErrorIs extends Node {
+        private final boolean error;
+
+        ErrorIs(boolean error) {
+            this.error = error;
+        }
+
+        @Override
+        boolean matches(NetworkLog log, boolean updated) {
+            boolean failed = log.getStatusCode() == 0 || log.getErrorMessage() != null;
+            return failed == error;
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            // 有状态码时是否失败取决于摘要中没有的错误信息
+            if (row.getStatusCode() == 0) {
+                return error ? ROW_MATCH : ROW_NO_MATCH;
+            }
+            return ROW_UNKNOWN;
+        }
+
+        @Override
+        public String toString() {
+            return "error=" + error;
+        }
+    }
+
+    // 可以用索引预先算出候选序号的条件
+    private abstract static class IndexedTerm extends Node {
+        // prepare()算出的候选序号，为null时逐条检查；序号不小于candidates.end的日志不在候选范围内，也逐条检查
+        private volatile Candidates candidates;
+
+        void setCandidates(long[] sequences, long candidatesEnd) {
+            this.candidates = new Candidates(sequences, candidatesEnd);
+        }
+
+        @Override
+        final boolean matches(NetworkLog log, boolean updated) {
+            int result = matchesCandidates(log.getSequence(), updated);
+            return result != ROW_UNKNOWN ? result == ROW_MATCH : matchesDirectly(log);
+        }
+
+        // 候选之外的日志由子类判断
+        final int matchesCandidates(long sequence, boolean updated) {
+            Candidates current = candidates;
+            if (current != null && sequence < current.end && !(updated && isMutable())) {
+                return Arrays.binarySearch(current.sequences, sequence) >= 0 ? ROW_MATCH : ROW_NO_MATCH;
+            }
+            return ROW_UNKNOWN;
+        }
+
+        // 条件依赖的内容在日志写入后是否还会变化
+        abstract boolean isMutable();
+
+        abstract boolean matchesDirectly(NetworkLog log);
+    }
+
+    private static final class UrlContains extends IndexedTerm {
+        final String lowerText;
+
+        UrlContains(String text) {
+            this.lowerText = text.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        boolean isMutable() {
+            return false;
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            int result = matchesCandidates(row.getSequence(), false);
+            if (result != ROW_UNKNOWN) {
+                return result;
+            }
+            return contains(row.getUrl()) ? ROW_MATCH : ROW_NO_MATCH;
+        }
+
+        @Override
+        boolean matchesDirectly(NetworkLog log) {
+            return contains(log.getUrl());
+        }
+
+        // 逐个位置不区分大小写比较，不为每行创建小写副本
+        private boolean contains(String url) {
+            if (url == null) {
+                return false;
+            }
+            int length = lowerText.length();
+            for (int start = 0, last = url.length() - length; start <= last; start++) {
+                if (url.regionMatches(true, start, lowerText, 0, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "url~" + lowerText;
+        }
+    }
+
+    private static final class BodyContains extends IndexedTerm {
+        final String text;
+        private final String[] terms;
+
+        BodyContains(String text, String[] terms) {
+            this.text = text;
+            this.terms = terms;
+        }
+
+        @Override
+        boolean isMutable() {
+            return true;
+        }
+
+        @Override
+        int matchesRow(LogRow row) {
+            // 候选之外的日志需要读取body
+            return matchesCandidates(row.getSequence(), false);
+        }
+
+        @Override
+        boolean matchesDirectly(NetworkLog log) {
+            return BodySearchIndex.matches(log, terms);
+        }
+
+        @Override
+        public String toString() {
+            return "body~" + Arrays.toString(terms);
+        }
+    }
+
+    // 递归下降解析：expr := and (OR and)*；and := unary+；unary := "-" unary | "(" expr ")" | term
+    private static final class Parser {
+        private final List<String> tokens;
+        private final List<UrlContains> urlTerms = new ArrayList<>();
+        private final List<BodyContains> bodyTerms = new ArrayList<>();
+        private boolean hasSizeTerms;
+        private int position;
+
+        Parser(String text) {
+            this.tokens = tokenize(text);
+        }
+
+        Node parse() {
+            if (tokens.isEmpty()) {
+                return null;
+            }
+            Node node = parseOr();
+            if (position < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected '" + tokens.get(position) + "'");
+            }
+            return node;
+        }
+
+        private Node parseOr() {
+            List<Node> children = new ArrayList<>();
+            children.add(parseAnd());
+            while (position < tokens.size() && tokens.get(position).equals("OR")) {
+                position++;
+                children.add(parseAnd());
+            }
+            return children.size() == 1 ? children.get(0) : new Or(children.toArray(new Node[0]));
+        }
+
+        private Node parseAnd() {
+            List<Node> children = new ArrayList<>();
+            while (position < tokens.size()) {
+                String token = tokens.get(position);
+                if (token.equals("OR") || token.equals(")")) {
+                    break;
+                }
+                children.add(parseUnary());
+            }
+            if (children.isEmpty()) {
+                throw new IllegalArgumentException(position < tokens.size()
+                        ? "Unexpected '" + tokens.get(position) + "'" : "Unexpected end of query");
+            }
+            return children.size() == 1 ? children.get(0) : new And(children.toArray(new Node[0]));
+        }
+
+        private Node parseUnary() {
+            String token = tokens.get(position++);
+            if (token.equals("-")) {
+                if (position >= tokens.size()) {
+                    throw new IllegalArgumentException("Nothing to negate after '-'");
+                }
+                return new Not(parseUnary());
+            }
+            if (token.equals("(")) {
+                Node node = parseOr();
+                if (position >= tokens.size() || !tokens.get(position).equals(")")) {
+                    throw new IllegalArgumentException("Missing ')'");
+                }
+                position++;
+                return node;
+            }
+            if (token.equals(")")) {
+                throw new IllegalArgumentException("Unexpected ')'");
+            }
+            return parseTerm(token);
+        }
+
+        private Node parseTerm(String token) {
+            int fieldEnd = 0;
+            while (fieldEnd < token.length() && Character.isLetter(token.charAt(fieldEnd))) {
+                fieldEnd++;
+            }
+            String field = token.substring(0, fieldEnd).toLowerCase(Locale.ROOT);
+            String rest = token.substring(fieldEnd);
+            String operator = null;
+            for (String candidate : new String[]{">=", "<=", ":", ">", "<", "="}) {
+                if (rest.startsWith(candidate)) {
+                    operator = candidate;
+                    break;
+                }
+            }
+            if (operator == null || !isField(field)) {
+                return urlTerm(unquote(token));
+            }
+            String value = unquote(rest.substring(operator.length()));
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("Missing value for " + field);
+            }
+            switch (field) {
+                case "status":
+                    return parseStatus(operator, value);
+                case "latency":
+                    return range(FIELD_LATENCY, operator, parseDuration(value));
+                case "size":
+                    hasSizeTerms = true;
+                    return range(FIELD_SIZE, operator, parseSize(value));
+                case "method":
+                    requireEquals(field, operator);
+                    return new MethodIs(value);
+                case "host":
+                    requireEquals(field, operator);
+                    return new HostMatches(value);
+                case "endpoint":
+                    requireEquals(field, operator);
+                    return new EndpointMatches(value);
+                case "error":
+                    requireEquals(field, operator);
+                    if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                        throw new IllegalArgumentException("error must be true or false: " + value);
+                    }
+                    return new ErrorIs(Boolean.parseBoolean(value.toLowerCase(Locale.ROOT)));
+                case "body":
+                    requireEquals(field, operator);
+                    return bodyTerm(value);
+                default:
+                    requireEquals(field, operator);
+                    return urlTerm(value);
+            }
+        }
+
+        private Node urlTerm(String text) {
+            UrlContains term = new UrlContains(text);
+            urlTerms.add(term);
+            return term;
+        }
+
+        private Node bodyTerm(String text) {
+            String[] terms = BodySearchIndex.tokenize(text, true);
+            if (terms.length == 0) {
+                throw new IllegalArgumentException("body needs at least one word: " + text);
+            }
+            BodyContains term = new BodyContains(text, terms);
+            bodyTerms.add(term);
+            return term;
+        }
+
+        private static boolean isField(String field) {
+            switch (field) {
+                case "status":
+                case "latency":
+                case "size":
+                case "method":
+                case "host":
+                case "endpoint":
+                case "error":
+                case "url":
+                case "body":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private static void requireEquals(String field, String operator) {
+            if (!operator.equals(":") && !operator.equals("=")) {
+                throw new IllegalArgumentException(field + " only supports ':'");
+            }
+        }
+
+        private static Node parseStatus(String operator, String value) {
+            String lower = value.toLowerCase(Locale.ROOT);
+            if (lower.length() == 3 && lower.endsWith("xx") && Character.isDigit(lower.charAt(0))) {
+                requireEquals("status class", operator);
+                int hundreds = (lower.charAt(0) - '0') * 100;
+                return new Range(FIELD_STATUS, hundreds, hundreds + 99);
+            }
+            try {
+                return range(FIELD_STATUS, operator, Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid status: " + value);
+            }
+        }
+
+        private static Node range(int field, String operator, long value) {
+            switch (operator) {
+                case ">":
+                    return new Range(field, value + 1, Long.MAX_VALUE);
+                case ">=":
+                    return new Range(field, value, Long.MAX_VALUE);
+                case "<":
+                    return new Range(field, Long.MIN_VALUE, value - 1);
+                case "<=":
+                    return new Range(field, Long.MIN_VALUE, value);
+                default:
+                    return new Range(field, value, value);
+            }
+        }
+
+        // 毫秒，支持ms和s单位
+        private static long parseDuration(String value) {
+            String lower = value.toLowerCase(Locale.ROOT);
+            double multiplier = 1;
+            if (lower.endsWith("ms")) {
+                lower = lower.substring(0, lower.length() - 2);
+            } else if (lower.endsWith("s")) {
+                lower = lower.substring(0, lower.length() - 1);
+                multiplier = 1000;
+            }
+            return (long) (parseNumber(lower, value) * multiplier);
+        }
+
+        // 字节数，支持b、k/kb、m/mb、g/gb单位（1024进制）
+        private static long parseSize(String value) {
+            String lower = value.toLowerCase(Locale.ROOT);
+            if (lower.endsWith("b")) {
+                lower = lower.substring(0, lower.length() - 1);
+            }
+            double multiplier = 1;
+            if (lower.endsWith("k")) {
+                multiplier = 1024;
+            } else if (lower.endsWith("m")) {
+                multiplier = 1024 * 1024;
+            } else if (lower.endsWith("g")) {
+                multiplier = 1024 * 1024 * 1024;
+            }
+            if (multiplier > 1) {
+                lower = lower.substring(0, lower.length() - 1);
+            }
+            return (long) (parseNumber(lower, value) * multiplier);
+        }
+
+        private static double parseNumber(String number, String original) {
+            try {
+                return Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number: " + original);
+            }
+        }
+
+        private static String unquote(String value) {
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                return value.substring(1, value.length() - 1);
+            }
+            return value;
+        }
+
+        // 按空白和括号切分，双引号内的内容不切分；词首的"-"单独作为取反
+        private static List<String> tokenize(String text) {
+            List<String> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else if (c == '-' && i + 1 < text.length() && !Character.isWhitespace(text.charAt(i + 1))) {
+                    tokens.add("-");
+                    i++;
+                } else {
+                    int start = i;
+                    boolean quoted = false;
+                    while (i < text.length()) {
+                        char current = text.charAt(i);
+                        if (current == '"') {
+                            quoted = !quoted;
+                        } else if (!quoted && (Character.isWhitespace(current) || current == '(' || current == ')')) {
+                            break;
+                        }
+                        i++;
+                    }
+                    if (quoted) {
+                        throw new IllegalArgumentException("Missing closing quote");
+                    }
+                    tokens.add(text.substring(start, i));
+                }
+            }
+            return tokens;
+        }
+    }
+}
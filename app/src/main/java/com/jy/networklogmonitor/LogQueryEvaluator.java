@@ -0,0 +1,145 @@
+package com.jy.networklogmonitor;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 对日志存储执行LogQuery：日志较多时拆分成块并行判断，结果按序号顺序（即日志记录顺序）合并
+final class LogQueryEvaluator {
+    // 每个任务判断的日志条数，少于此数时直接在当前线程判断
+    static final int CHUNK_SIZE = 2048;
+
+    private static final ForkJoinPool pool =
+            new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    private LogQueryEvaluator() {
+    }
+
+    // 按序号在存储中执行查询，返回[first, end)内匹配的序号，被取消时返回null。
+    // 先用prepare()算出的候选序号缩小范围；逐条判断时先看列表摘要，只有摘要无法判断时才读取完整日志（含body）
+    static long[] filter(LogQuery query, LogView store, long first, long end, AtomicBoolean cancelled) {
+        SequenceRange range = new SequenceRange(query.getRequiredCandidates(), first, end);
+        int size = range.size();
+        boolean[] matched = new boolean[size];
+        if (size > CHUNK_SIZE) {
+            pool.invoke(new StoreMatchTask(query, store, range, matched, 0, size, cancelled));
+        } else {
+            match(query, store, range, matched, 0, size, cancelled);
+        }
+        if (cancelled.get()) {
+            return null;
+        }
+        int count = 0;
+        for (boolean value : matched) {
+            if (value) {
+                count++;
+            }
+        }
+        long[] result = new long[count];
+        count = 0;
+        for (int i = 0; i < size; i++) {
+            if (matched[i]) {
+                result[count++] = range.get(i);
+            }
+        }
+        return result;
+    }
+
+    // 判断存储中的一条日志；updated为true时日志内容在prepare()之后更新过
+    static boolean matches(LogQuery query, LogView store, long sequence, boolean updated) {
+        LogRow row = store.getRow(sequence);
+        if (row == null) {
+            return false;
+        }
+        if (!updated) {
+            int result = query.matchesRow(row);
+            if (result != LogQuery.ROW_UNKNOWN) {
+                return result == LogQuery.ROW_MATCH;
+            }
+        }
+        NetworkLog log = store.get(sequence);
+        return log != null && (updated ? query.matchesUpdated(log) : query.matches(log));
+    }
+
+    private static void match(LogQuery query, LogView store, SequenceRange range, boolean[] matched, int start,
+                              int end, AtomicBoolean cancelled) {
+        for (int i = start; i < end; i++) {
+            if ((i & 0xFF) == 0 && cancelled.get()) {
+                return;
+            }
+            matched[i] = matches(query, store, range.get(i), false);
+        }
+    }
+
+    // 需要检查的序号：[first, end)内的候选序号，加上候选范围之后的所有序号
+    private static final class SequenceRange {
+        private final long[] candidates;
+        private final int candidatesFrom;
+        private final int candidatesTo;
+        private final long tailStart;
+        private final long end;
+
+        SequenceRange(LogQuery.Candidates candidates, long first, long end) {
+            if (candidates == null) {
+                this.candidates = null;
+                this.candidatesFrom = 0;
+                this.candidatesTo = 0;
+                this.tailStart = first;
+            } else {
+                long candidatesEnd = Math.min(candidates.end, end);
+                this.candidates = candidates.sequences;
+                this.candidatesFrom = insertionPoint(candidates.sequences, first);
+                this.candidatesTo = Math.max(candidatesFrom, insertionPoint(candidates.sequences, candidatesEnd));
+                this.tailStart = Math.max(first, candidatesEnd);
+            }
+            this.end = end;
+        }
+
+        int size() {
+            return candidatesTo - candidatesFrom + (int) Math.max(0, end - tailStart);
+        }
+
+        long get(int index) {
+            int candidateCount = candidatesTo - candidatesFrom;
+            return index < candidateCount ? candidates[candidatesFrom + index] : tailStart + index - candidateCount;
+        }
+
+        private static int insertionPoint(long[] sequences, long sequence) {
+            int index = Arrays.binarySearch(sequences, sequence);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    private static final class StoreMatchTask extends RecursiveAction {
+        private final LogQuery query;
+        private final LogView store;
+        private final SequenceRange range;
+        private final boolean[] matched;
+        private final int start;
+        private final int end;
+        private final AtomicBoolean cancelled;
+
+        StoreMatchTask(LogQuery query, LogView store, SequenceRange range, boolean[] matched, int start, int end,
+                       AtomicBoolean cancelled) {
+            this.query = query;
+            this.store = store;
+            this.range = range;
+            this.matched = matched;
+            this.start = start;
+            this.end = end;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= CHUNK_SIZE || cancelled.get()) {
+                match(query, store, range, matched, start, end, cancelled);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new StoreMatchTask(query, store, range, matched, start, middle, cancelled),
+                    new StoreMatchTask(query, store, range, matched, middle, end, cancelled));
+        }
+    }
+}
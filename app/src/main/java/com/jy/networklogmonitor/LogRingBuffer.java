@@ -0,0 +1,181 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 固定容量的多生产者环形缓冲区，写满后覆盖最旧的日志
+public class LogRingBuffer implements LogStore {
+    // id索引中的空项
+    private static final long NO_SEQUENCE = -1;
+    // id索引最多探测的项数，超出时覆盖其中最旧的一项
+    private static final int MAX_ID_PROBES = 32;
+
+    private final int capacity;
+    private final AtomicReferenceArray<NetworkLog> slots;
+    // 下一条日志的序号，每次追加时原子递增
+    private final AtomicLong writeSequence = new AtomicLong();
+    // 小于该序号的日志视为已清除
+    private volatile long clearedSequence = 0;
+    // id到序号的无锁索引：按id的哈希线性探测，每项只保存序号，id由该序号对应槽位中的日志确认。
+    // 日志被覆盖或清除后对应的项即失效，写入时直接复用，不需要删除；容量至少为缓冲区容量的2倍，探测链很短
+    private final AtomicLongArray idIndex;
+    private final int idIndexMask;
+
+    public LogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        int indexSize = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+        this.idIndex = new AtomicLongArray(indexSize);
+        for (int i = 0; i < indexSize; i++) {
+            idIndex.set(i, NO_SEQUENCE);
+        }
+        this.idIndexMask = indexSize - 1;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // 追加日志，O(1)，可被多个线程同时调用，返回分配的序号
+    @Override
+    public long append(NetworkLog log) {
+        long sequence = writeSequence.getAndIncrement();
+        log.setSequence(sequence);
+        int index = indexOf(sequence);
+        while (true) {
+            NetworkLog current = slots.get(index);
+            if (current != null && current.getSequence() > sequence) {
+                // 同一槽位已经被更新的日志占用，说明这条日志在写入前就已过期
+                return sequence;
+            }
+            if (slots.compareAndSet(index, current, log)) {
+                indexId(log);
+                return sequence;
+            }
+        }
+    }
+
+    // 在日志写入槽位之后登记id，可被多个线程同时调用
+    private void indexId(NetworkLog log) {
+        long id = log.getId();
+        if (id < 0) {
+            return;
+        }
+        int home = idSlot(id);
+        int oldest = home;
+        for (int probe = 0; probe < MAX_ID_PROBES; probe++) {
+            int index = (home + probe) & idIndexMask;
+            long current = idIndex.get(index);
+            // 空项或已失效的项都可以复用；CAS失败说明被其他线程占用，继续向后探测
+            if ((current == NO_SEQUENCE || get(current) == null)
+                    && idIndex.compareAndSet(index, current, log.getSequence())) {
+                return;
+            }
+            if (idIndex.get(index) < idIndex.get(oldest)) {
+                oldest = index;
+            }
+        }
+        // 探测范围内全部有效（实际几乎不会发生）时覆盖最旧的一项，被覆盖的日志无法再按id查到
+        idIndex.set(oldest, log.getSequence());
+    }
+
+    private int idSlot(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & idIndexMask;
+    }
+
+    // 日志对象本身保存在内存中，内容变化不需要额外处理
+    @Override
+    public void update(NetworkLog log) {
+    }
+
+    @Override
+    public NetworkLog get(long sequence) {
+        if (sequence < getFirstSequence() || sequence >= writeSequence.get()) {
+            return null;
+        }
+        NetworkLog log = slots.get(indexOf(sequence));
+        return log != null && log.getSequence() == sequence ? log : null;
+    }
+
+    // 不加锁：沿探测链读取序号，用槽位中的日志确认id，遇到空项即可结束
+    @Override
+    public NetworkLog getById(long id) {
+        if (id < 0) {
+            return null;
+        }
+        int home = idSlot(id);
+        for (int probe = 0; probe < MAX_ID_PROBES; probe++) {
+            long sequence = idIndex.get((home + probe) & idIndexMask);
+            if (sequence == NO_SEQUENCE) {
+                return null;
+            }
+            NetworkLog log = get(sequence);
+            if (log != null && log.getId() == id) {
+                return log;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public LogRow getRow(long sequence) {
+        NetworkLog log = get(sequence);
+        return log != null ? LogRow.of(log) : null;
+    }
+
+    @Override
+    public long getFirstSequence() {
+        return Math.max(clearedSequence, writeSequence.get() - capacity);
+    }
+
+    @Override
+    public long getEndSequence() {
+        return writeSequence.get();
+    }
+
+    @Override
+    public int size() {
+        return (int) (getEndSequence() - getFirstSequence());
+    }
+
+    // 按从旧到新的顺序复制当前所有日志的引用，仅复制引用不复制日志
+    @Override
+    public List<NetworkLog> snapshot() {
+        long end = writeSequence.get();
+        long start = Math.max(clearedSequence, end - capacity);
+        List<NetworkLog> result = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            NetworkLog log = slots.get(indexOf(sequence));
+            // 跳过尚未写入完成或已被覆盖的槽位
+            if (log != null && log.getSequence() == sequence) {
+                result.add(log);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        long end = writeSequence.get();
+        clearedSequence = end;
+        // 释放已清除日志的引用，不影响清除之后新写入的日志
+        for (int i = 0; i < capacity; i++) {
+            NetworkLog log = slots.get(i);
+            // 对应的id索引项随之失效
+            if (log != null && log.getSequence() < end) {
+                slots.compareAndSet(i, log, null);
+            }
+        }
+    }
+
+    private int indexOf(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
@@ -0,0 +1,56 @@
+package com.jy.networklogmonitor;
+
+// 日志列表中一行显示的摘要，不包含请求头和body，分页加载时只读取这些字段
+public final class LogRow {
+    private final long sequence;
+    private final long id;
+    private final String method;
+    private final int statusCode;
+    private final long responseTime;
+    private final String url;
+    private final long timestampMillis;
+
+    LogRow(long sequence, long id, String method, int statusCode, long responseTime, String url, long timestampMillis) {
+        this.sequence = sequence;
+        this.id = id;
+        this.method = method;
+        this.statusCode = statusCode;
+        this.responseTime = responseTime;
+        this.url = url;
+        this.timestampMillis = timestampMillis;
+    }
+
+    static LogRow of(NetworkLog log) {
+        return new LogRow(log.getSequence(), log.getId(), log.getMethod(), log.getStatusCode(), log.getResponseTime(),
+                log.getUrl(), log.getTimestampNanos() / 1_000_000L);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // 拦截时分配的日志id，用于打开详情页
+    public long getId() {
+        return id;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getResponseTime() {
+        return responseTime;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+}
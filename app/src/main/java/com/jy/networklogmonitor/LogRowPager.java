@@ -0,0 +1,195 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// 日志列表的分页数据源：列表只保存序号，按固定大小的页在后台线程中加载可见区域附近的行摘要，
+// 沿滚动方向预取，离可见区域较远的行被丢弃。除加载外都在主线程中调用。
+final class LogRowPager {
+    // 每页的行数
+    static final int PAGE_SIZE = 50;
+    // 沿滚动方向预取的页数
+    static final int PREFETCH_PAGES = 2;
+    // 距离可见区域超过该页数的行被丢弃
+    static final int RETAIN_PAGES = 4;
+
+    // 在后台线程中读取行摘要，不存在的序号返回null
+    interface RowLoader {
+        LogRow[] load(long[] sequences);
+    }
+
+    // 一段位置上的行加载完成，在主线程中回调
+    interface Listener {
+        void onRowsLoaded(int position, int count);
+    }
+
+    private static final Executor defaultLoadExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "NetworkLogMonitor-rows");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final SequenceList sequences;
+    private final RowLoader loader;
+    private final Executor loadExecutor;
+    private final LogChangeDispatcher.Scheduler mainScheduler;
+    private final Listener listener;
+    private final Map<Long, LogRow> rows = new HashMap<>();
+    // 正在加载的序号，避免重复加载
+    private final Set<Long> loading = new HashSet<>();
+    // invalidate()后递增，丢弃之前发出的加载结果
+    private int generation;
+    private int firstVisible;
+    private int lastVisible = -1;
+
+    LogRowPager(SequenceList sequences, RowLoader loader, LogChangeDispatcher.Scheduler mainScheduler,
+                Listener listener) {
+        this(sequences, loader, defaultLoadExecutor, mainScheduler, listener);
+    }
+
+    LogRowPager(SequenceList sequences, RowLoader loader, Executor loadExecutor,
+                LogChangeDispatcher.Scheduler mainScheduler, Listener listener) {
+        this.sequences = sequences;
+        this.loader = loader;
+        this.loadExecutor = loadExecutor;
+        this.mainScheduler = mainScheduler;
+        this.listener = listener;
+    }
+
+    // 返回该位置的行摘要，尚未加载时发起加载并返回null
+    LogRow getRow(int position) {
+        LogRow row = rows.get(sequences.get(position));
+        if (row == null) {
+            loadPages(position / PAGE_SIZE, position / PAGE_SIZE);
+        }
+        return row;
+    }
+
+    // 可见区域变化；direction大于0表示向列表末尾滚动，小于0表示向开头滚动
+    void onVisibleRangeChanged(int first, int last, int direction) {
+        if (last < first || sequences.size() == 0) {
+            return;
+        }
+        firstVisible = first;
+        lastVisible = Math.min(last, sequences.size() - 1);
+        int firstPage = firstVisible / PAGE_SIZE;
+        int lastPage = lastVisible / PAGE_SIZE;
+        // 沿滚动方向预取，静止时两边各预取一页
+        if (direction > 0) {
+            lastPage += PREFETCH_PAGES;
+        } else if (direction < 0) {
+            firstPage -= PREFETCH_PAGES;
+        } else {
+            firstPage--;
+            lastPage++;
+        }
+        loadPages(Math.max(0, firstPage), lastPage);
+        dropFarRows();
+    }
+
+    // 日志被清空或存储被替换时丢弃所有已加载的行
+    void invalidate() {
+        generation++;
+        rows.clear();
+        loading.clear();
+    }
+
+    int getLoadedRowCount() {
+        return rows.size();
+    }
+
+    private void loadPages(int firstPage, int lastPage) {
+        int end = Math.min(sequences.size(), (lastPage + 1) * PAGE_SIZE);
+        for (int page = firstPage; page * PAGE_SIZE < end; page++) {
+            int pageEnd = Math.min(end, (page + 1) * PAGE_SIZE);
+            long[] missing = new long[pageEnd - page * PAGE_SIZE];
+            int count = 0;
+            for (int position = page * PAGE_SIZE; position < pageEnd; position++) {
+                Long sequence = sequences.get(position);
+                if (!rows.containsKey(sequence) && loading.add(sequence)) {
+                    missing[count++] = sequence;
+                }
+            }
+            if (count > 0) {
+                load(Arrays.copyOf(missing, count));
+            }
+        }
+    }
+
+    private void load(final long[] pageSequences) {
+        final int requestGeneration = generation;
+        loadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final LogRow[] loaded = loader.load(pageSequences);
+                mainScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(requestGeneration, pageSequences, loaded);
+                    }
+                }, 0);
+            }
+        });
+    }
+
+    private void onLoaded(int requestGeneration, long[] pageSequences, LogRow[] loaded) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        List<Integer> positions = new ArrayList<>(pageSequences.length);
+        for (int i = 0; i < pageSequences.length; i++) {
+            loading.remove(pageSequences[i]);
+            if (loaded[i] == null) {
+                continue;
+            }
+            // 加载期间列表可能已变化，按序号重新查找位置
+            int position = sequences.indexOf(pageSequences[i]);
+            if (position >= 0) {
+                rows.put(pageSequences[i], loaded[i]);
+                positions.add(position);
+            }
+        }
+        // 相邻位置合并为一次回调
+        int rangeStart = -1;
+        int rangeCount = 0;
+        for (int position : positions) {
+            if (rangeStart >= 0 && position == rangeStart + rangeCount) {
+                rangeCount++;
+                continue;
+            }
+            if (rangeStart >= 0) {
+                listener.onRowsLoaded(rangeStart, rangeCount);
+            }
+            rangeStart = position;
+            rangeCount = 1;
+        }
+        if (rangeStart >= 0) {
+            listener.onRowsLoaded(rangeStart, rangeCount);
+        }
+    }
+
+    private void dropFarRows() {
+        int retainFrom = (firstVisible / PAGE_SIZE - RETAIN_PAGES) * PAGE_SIZE;
+        int retainTo = (lastVisible / PAGE_SIZE + RETAIN_PAGES + 1) * PAGE_SIZE;
+        Iterator<Map.Entry<Long, LogRow>> iterator = rows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            int position = sequences.indexOf(iterator.next().getKey());
+            // 已不在列表中的行也一并丢弃
+            if (position < 0 || position < retainFrom || position >= retainTo) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.jy.networklogmonitor;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 在后台线程中执行日志搜索：输入停顿debounceMillis后才开始查询，新的查询会取消尚未完成的旧查询
+final class LogSearcher {
+    // 默认的输入防抖间隔
+    static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+
+    // 所有搜索共用一个后台线程，同一时间只有一个查询在执行
+    private static final ScheduledExecutorService searchExecutor =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "NetworkLogMonitor-search");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    // 查询逻辑，在搜索线程中执行；cancelled被置为true时应尽快返回null
+    interface Query<T> {
+        T run(AtomicBoolean cancelled);
+    }
+
+    // 查询结果回调，在搜索线程中执行，被取消的查询不会回调
+    interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private final long debounceMillis;
+    private ScheduledFuture<?> pendingFuture;
+    private AtomicBoolean pendingCancelled;
+
+    LogSearcher(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    // 提交查询并取消之前的查询
+    synchronized <T> void submit(final Query<T> query, final Callback<T> callback) {
+        cancel();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        pendingCancelled = cancelled;
+        pendingFuture = searchExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled.get()) {
+                    return;
+                }
+                T result = query.run(cancelled);
+                if (result != null && !cancelled.get()) {
+                    callback.onResult(result);
+                }
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 取消尚未完成的查询
+    synchronized void cancel() {
+        if (pendingCancelled != null) {
+            pendingCancelled.set(true);
+            pendingFuture.cancel(false);
+            pendingCancelled = null;
+            pendingFuture = null;
+        }
+    }
+
+    // 在搜索线程中执行一次性的后台任务（如重建索引）
+    static void execute(Runnable task) {
+        searchExecutor.execute(task);
+    }
+}
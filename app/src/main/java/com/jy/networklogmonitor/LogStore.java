@@ -0,0 +1,12 @@
+package com.jy.networklogmonitor;
+
+// 可写的日志存储：每条日志按追加顺序分配递增的序号
+public interface LogStore extends LogView {
+    // 追加日志并返回分配的序号，同时写入log.getSequence()
+    long append(NetworkLog log);
+
+    // 已追加的日志内容发生变化（如响应体读取完成）
+    void update(NetworkLog log);
+
+    void clear();
+}
@@ -0,0 +1,27 @@
+package com.jy.networklogmonitor;
+
+import java.util.List;
+
+// 只读的日志视图：序号在[getFirstSequence(), getEndSequence())内的日志可以读取。
+// 列表、搜索和导出只需要读取日志，既可以读取抓包写入的LogStore，也可以读取导入的SessionSnapshot
+public interface LogView {
+    // 按序号获取日志，已被淘汰或清除时返回null
+    NetworkLog get(long sequence);
+
+    // 按拦截时分配的id（NetworkLog.getId()）获取日志，O(1)；已被淘汰或清除时返回null
+    NetworkLog getById(long id);
+
+    // 按序号获取列表显示用的摘要，不读取请求头和body；已被淘汰或清除时返回null
+    LogRow getRow(long sequence);
+
+    // 仍保留的最旧序号
+    long getFirstSequence();
+
+    // 下一条日志将使用的序号
+    long getEndSequence();
+
+    int size();
+
+    // 按从旧到新的顺序返回当前所有日志
+    List<NetworkLog> snapshot();
+}
@@ -0,0 +1,159 @@
+package com.jy.networklogmonitor;
+
+import java.util.Arrays;
+
+// long到long的开放寻址哈希表（线性探测），键和值保存在基本类型数组中，不装箱。
+// 删除时把后面同一探测链上的元素前移，不留删除标记，频繁增删后查找仍为O(1)。不是线程安全的。
+final class LongIndexMap {
+    // 表示键不存在的返回值
+    static final long MISSING = Long.MIN_VALUE;
+    // 空槽位的键，该键本身不能使用
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    // 容量减一，容量为2的幂
+    private int mask;
+
+    LongIndexMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongIndexMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    // 返回键对应的值，不存在时返回MISSING
+    long get(long key) {
+        int index = slot(key);
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return values[index];
+            }
+            if (current == EMPTY_KEY) {
+                return MISSING;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    void put(long key, long value) {
+        if (key == EMPTY_KEY) {
+            throw new IllegalArgumentException("Reserved key: " + key);
+        }
+        int index = slot(key);
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                values[index] = value;
+                return;
+            }
+            if (current == EMPTY_KEY) {
+                keys[index] = key;
+                values[index] = value;
+                // 装载因子超过3/4时扩容
+                if (++size > (mask + 1) / 4 * 3) {
+                    rehash((mask + 1) * 2);
+                }
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    // 删除键并返回原来的值，不存在时返回MISSING
+    long remove(long key) {
+        int index = slot(key);
+        while (true) {
+            long current = keys[index];
+            if (current == EMPTY_KEY) {
+                return MISSING;
+            }
+            if (current == key) {
+                long value = values[index];
+                shiftBack(index);
+                size--;
+                // 删除较多后缩容，避免清空的表一直占用大数组
+                if (mask + 1 > MIN_CAPACITY && size < (mask + 1) / 8) {
+                    rehash((mask + 1) / 2);
+                }
+                return value;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    void clear() {
+        if (mask + 1 > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(keys, EMPTY_KEY);
+        }
+        size = 0;
+    }
+
+    // 把空出的槽位之后、探测起点不在(空槽位, 当前位置]区间内的元素前移，保持探测链连续
+    private void shiftBack(int free) {
+        int index = free;
+        while (true) {
+            index = (index + 1) & mask;
+            long key = keys[index];
+            if (key == EMPTY_KEY) {
+                break;
+            }
+            int home = slot(key);
+            boolean reachable = free <= index ? (home > free && home <= index) : (home > free || home <= index);
+            if (!reachable) {
+                keys[free] = key;
+                values[free] = values[index];
+                free = index;
+            }
+        }
+        keys[free] = EMPTY_KEY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                int index = slot(key);
+                while (keys[index] != EMPTY_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        mask = capacity - 1;
+    }
+
+    // 连续的id会落在相邻的槽位上，先打散再取低位
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,21 @@
+package com.jy.networklogmonitor;
+
+import android.os.Handler;
+import android.os.Looper;
+
+// 把任务投递到主线程执行
+class MainThreadScheduler implements LogChangeDispatcher.Scheduler {
+    private Handler handler;
+
+    @Override
+    public void schedule(Runnable task, long delayMillis) {
+        getHandler().postDelayed(task, delayMillis);
+    }
+
+    private synchronized Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,493 @@
+package com.jy.networklogmonitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+// 持久化的日志存储：日志以长度前缀的二进制记录追加写入固定大小的分段文件，通过MappedByteBuffer读写，
+// 进程崩溃后已写入的记录仍然保留在文件中。
+// 分段文件开头为魔数、版本号和该分段创建时的下一个序号；每条记录为 长度(4) + CRC32(4) + 日志数据，长度最后写入，
+// 打开时从头扫描所有分段重建序号到文件位置的索引，遇到长度为0或校验失败的记录即认为该分段到此结束。
+// 日志的响应体读取完成时只追加一条相同序号的响应体记录，读取时合并到最新的完整记录上，整条日志不重复写入。
+// 另外维护日志id到序号的哈希索引。
+// 超出总大小或最后写入时间超过保留时长的最旧分段会被删除，其中的日志一并淘汰。
+public class MappedFileLogStore implements LogStore, Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    public static final long DEFAULT_MAX_TOTAL_SIZE = 64L * 1024 * 1024;
+    public static final long DEFAULT_MAX_AGE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    private static final int MAGIC = 0x4E4C4D31;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // 索引中表示没有记录
+    private static final long NO_LOCATION = -1;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long maxTotalSize;
+    private final long maxAgeMillis;
+    private final CRC32 crc32 = new CRC32();
+    // 恢复时计算校验值用的缓冲区
+    private byte[] scratch = new byte[4096];
+
+    // 从旧到新排列，分段编号连续，最后一个为当前写入的分段
+    private final List<Segment> segments = new ArrayList<>();
+    // 序号到记录位置的索引：locations[sequence - indexBase]，位置为 分段编号 << 32 | 分段内偏移
+    private long[] locations = new long[1024];
+    // 序号到最新响应体记录位置的索引，没有比完整记录更新的响应体记录时为NO_LOCATION
+    private long[] responseLocations = new long[1024];
+    private long indexBase;
+    // ids[sequence - indexBase]为该序号日志的id，淘汰日志时据此删除id索引项
+    private long[] ids = new long[1024];
+    // 日志id到序号的索引
+    private final LongIndexMap idIndex = new LongIndexMap();
+    private long firstSequence;
+    private long endSequence;
+
+    public MappedFileLogStore(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_TOTAL_SIZE, DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    // 构造时扫描并校验所有已有分段、恢复写入位置，耗时与文件大小成正比，不要在主线程中创建
+    public MappedFileLogStore(File directory, int segmentSize, long maxTotalSize, long maxAgeMillis) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxTotalSize = maxTotalSize;
+        this.maxAgeMillis = maxAgeMillis;
+        Arrays.fill(locations, NO_LOCATION);
+        Arrays.fill(responseLocations, NO_LOCATION);
+        Arrays.fill(ids, -1);
+        recover();
+    }
+
+    // 扫描目录中已有的分段，重建索引
+    private void recover() throws IOException {
+        File[] files = directory.listFiles();
+        List<Long> ids = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        ids.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException ignored) {
+                        // 不是分段文件
+                    }
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (long id : ids) {
+            File file = segmentFile(id);
+            Segment segment = Segment.open(file, id, segmentSize);
+            if (segment == null) {
+                // 文件头损坏，之前的分段无法与之后的衔接，一并丢弃
+                deleteFile(file);
+                deleteAll();
+                continue;
+            }
+            if (!segments.isEmpty() && id != activeSegment().id + 1) {
+                deleteAll();
+            }
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.add(Segment.create(segmentFile(0), 0, segmentSize, 0));
+        }
+        firstSequence = segments.get(0).baseSequence;
+        indexBase = firstSequence;
+        endSequence = segments.get(segments.size() - 1).baseSequence;
+        for (Segment segment : segments) {
+            scan(segment);
+        }
+        // 清空当前分段写入位置之后的残留数据，避免下次恢复时读到之前未写完的记录
+        Segment active = activeSegment();
+        byte[] zeros = new byte[8192];
+        active.buffer.position(active.writePosition);
+        while (active.buffer.hasRemaining()) {
+            active.buffer.put(zeros, 0, Math.min(zeros.length, active.buffer.remaining()));
+        }
+        applyRetention();
+    }
+
+    private void scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int position = SEGMENT_HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > segmentSize
+                    || buffer.getInt(position + 4) != checksum(buffer, position + RECORD_HEADER_SIZE, length)) {
+                break;
+            }
+            int payload = position + RECORD_HEADER_SIZE;
+            long sequence = buffer.getLong(payload + NetworkLogSerializer.SEQUENCE_OFFSET);
+            segment.newestTimestampMillis = Math.max(segment.newestTimestampMillis,
+                    buffer.getLong(payload + NetworkLogSerializer.TIMESTAMP_OFFSET) / 1_000_000L);
+            if (sequence >= firstSequence) {
+                if (!NetworkLogSerializer.isResponseBodyRecord(buffer, payload)) {
+                    setLocation(sequence, location(segment.id, position), NetworkLogSerializer.readId(buffer, payload));
+                } else if (hasLocation(sequence)) {
+                    responseLocations[(int) (sequence - indexBase)] = location(segment.id, position);
+                }
+                endSequence = Math.max(endSequence, sequence + 1);
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        segment.writePosition = position;
+    }
+
+    @Override
+    public synchronized long append(NetworkLog log) {
+        long sequence = endSequence++;
+        log.setSequence(sequence);
+        write(log);
+        return sequence;
+    }
+
+    // 只追加响应体记录，日志的其余字段在追加后不会变化
+    @Override
+    public synchronized void update(NetworkLog log) {
+        long sequence = log.getSequence();
+        if (sequence >= firstSequence && sequence < endSequence && hasLocation(sequence)) {
+            byte[] payload = NetworkLogSerializer.serializeResponseBody(log, true);
+            if (payload.length > maxPayload()) {
+                payload = NetworkLogSerializer.serializeResponseBody(log, false);
+            }
+            long location = write(log, payload);
+            // 写入时可能开始新的分段并淘汰旧日志，需要重新检查
+            if (sequence >= firstSequence && hasLocation(sequence)) {
+                responseLocations[(int) (sequence - indexBase)] = location;
+            }
+        }
+    }
+
+    private void write(NetworkLog log) {
+        byte[] payload = NetworkLogSerializer.serialize(log, true);
+        if (payload.length > maxPayload()) {
+            // 单条记录放不进一个分段时不保存body
+            payload = NetworkLogSerializer.serialize(log, false);
+            if (payload.length > maxPayload()) {
+                return;
+            }
+        }
+        setLocation(log.getSequence(), write(log, payload), log.getId());
+    }
+
+    private int maxPayload() {
+        return segmentSize - SEGMENT_HEADER_SIZE - RECORD_HEADER_SIZE;
+    }
+
+    // 追加一条记录，返回记录的位置
+    private long write(NetworkLog log, byte[] payload) {
+        try {
+            Segment segment = activeSegment();
+            if (segment.writePosition + RECORD_HEADER_SIZE + payload.length > segmentSize) {
+                segment = roll();
+            }
+            int position = segment.writePosition;
+            ByteBuffer buffer = segment.buffer;
+            buffer.position(position + RECORD_HEADER_SIZE);
+            buffer.put(payload);
+            crc32.reset();
+            crc32.update(payload, 0, payload.length);
+            buffer.putInt(position + 4, (int) crc32.getValue());
+            // 长度最后写入，写入中途进程退出时这条记录在恢复时会被忽略
+            buffer.putInt(position, payload.length);
+            segment.writePosition = position + RECORD_HEADER_SIZE + payload.length;
+            segment.newestTimestampMillis = Math.max(segment.newestTimestampMillis,
+                    log.getTimestampNanos() / 1_000_000L);
+            return location(segment.id, position);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write log record", e);
+        }
+    }
+
+    // 开始新的分段，并按大小和时间淘汰最旧的分段
+    private Segment roll() throws IOException {
+        Segment previous = activeSegment();
+        previous.buffer.force();
+        long id = previous.id + 1;
+        Segment segment = Segment.create(segmentFile(id), id, segmentSize, endSequence);
+        segments.add(segment);
+        applyRetention();
+        return segment;
+    }
+
+    private void applyRetention() {
+        long now = System.currentTimeMillis();
+        while (segments.size() > 1) {
+            Segment oldest = segments.get(0);
+            boolean tooLarge = (long) segments.size() * segmentSize > maxTotalSize;
+            boolean tooOld = oldest.newestTimestampMillis < now - maxAgeMillis;
+            if (!tooLarge && !tooOld) {
+                break;
+            }
+            segments.remove(0);
+            oldest.buffer = null;
+            deleteFile(oldest.file);
+            // 比下一个分段起始序号小的日志都可能写在被删除的分段中，一并淘汰
+            advanceFirstSequence(segments.get(0).baseSequence);
+        }
+    }
+
+    private void advanceFirstSequence(long sequence) {
+        if (sequence <= firstSequence) {
+            return;
+        }
+        long newFirstSequence = Math.min(sequence, endSequence);
+        // 删除被淘汰日志的id索引项
+        for (long evicted = firstSequence; evicted < newFirstSequence; evicted++) {
+            long index = evicted - indexBase;
+            if (index < ids.length && ids[(int) index] >= 0) {
+                idIndex.remove(ids[(int) index]);
+            }
+        }
+        firstSequence = newFirstSequence;
+        // 索引前部空出一半以上时整体前移
+        int dropped = (int) (firstSequence - indexBase);
+        if (dropped > locations.length / 2) {
+            System.arraycopy(locations, dropped, locations, 0, locations.length - dropped);
+            Arrays.fill(locations, locations.length - dropped, locations.length, NO_LOCATION);
+            System.arraycopy(responseLocations, dropped, responseLocations, 0, responseLocations.length - dropped);
+            Arrays.fill(responseLocations, responseLocations.length - dropped, responseLocations.length, NO_LOCATION);
+            System.arraycopy(ids, dropped, ids, 0, ids.length - dropped);
+            Arrays.fill(ids, ids.length - dropped, ids.length, -1);
+            indexBase = firstSequence;
+        }
+    }
+
+    @Override
+    public synchronized NetworkLog get(long sequence) {
+        if (sequence < firstSequence || sequence >= endSequence) {
+            return null;
+        }
+        return read(sequence);
+    }
+
+    @Override
+    public synchronized NetworkLog getById(long id) {
+        long sequence = idIndex.get(id);
+        return sequence != LongIndexMap.MISSING ? get(sequence) : null;
+    }
+
+    // 只读取记录开头的摘要字段，跳过body和请求头；摘要字段不在响应体记录中
+    @Override
+    public synchronized LogRow getRow(long sequence) {
+        if (sequence < firstSequence || sequence >= endSequence || !hasLocation(sequence)) {
+            return null;
+        }
+        return NetworkLogSerializer.deserializeRow(payload(locations[(int) (sequence - indexBase)]));
+    }
+
+    private NetworkLog read(long sequence) {
+        if (!hasLocation(sequence)) {
+            return null;
+        }
+        int index = (int) (sequence - indexBase);
+        NetworkLog log = NetworkLogSerializer.deserialize(payload(locations[index]));
+        if (responseLocations[index] != NO_LOCATION) {
+            NetworkLogSerializer.applyResponseBody(payload(responseLocations[index]), log);
+        }
+        return log;
+    }
+
+    private boolean hasLocation(long sequence) {
+        long index = sequence - indexBase;
+        return index < locations.length && locations[(int) index] != NO_LOCATION;
+    }
+
+    private ByteBuffer payload(long location) {
+        Segment segment = segments.get((int) ((location >>> 32) - segments.get(0).id));
+        int position = (int) location;
+        int length = segment.buffer.getInt(position);
+        ByteBuffer payload = segment.buffer.duplicate();
+        payload.limit(position + RECORD_HEADER_SIZE + length);
+        payload.position(position + RECORD_HEADER_SIZE);
+        return payload;
+    }
+
+    @Override
+    public synchronized long getFirstSequence() {
+        return firstSequence;
+    }
+
+    @Override
+    public synchronized long getEndSequence() {
+        return endSequence;
+    }
+
+    @Override
+    public synchronized int size() {
+        return (int) (endSequence - firstSequence);
+    }
+
+    // 每次调用都从文件中重新读取日志
+    @Override
+    public synchronized List<NetworkLog> snapshot() {
+        List<NetworkLog> result = new ArrayList<>((int) (endSequence - firstSequence));
+        for (long sequence = firstSequence; sequence < endSequence; sequence++) {
+            NetworkLog log = read(sequence);
+            if (log != null) {
+                result.add(log);
+            }
+        }
+        return result;
+    }
+
+    // 删除所有分段，序号继续递增
+    @Override
+    public synchronized void clear() {
+        long nextId = activeSegment().id + 1;
+        deleteAll();
+        try {
+            segments.add(Segment.create(segmentFile(nextId), nextId, segmentSize, endSequence));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create log segment", e);
+        }
+        firstSequence = endSequence;
+        indexBase = endSequence;
+        Arrays.fill(locations, NO_LOCATION);
+        Arrays.fill(responseLocations, NO_LOCATION);
+        Arrays.fill(ids, -1);
+        idIndex.clear();
+    }
+
+    // 把已写入的记录刷到磁盘
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+    }
+
+    // 当前所有分段文件占用的字节数
+    public synchronized long getDiskUsage() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    private Segment activeSegment() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private void setLocation(long sequence, long location, long id) {
+        long index = sequence - indexBase;
+        if (index >= locations.length) {
+            int length = locations.length;
+            while (index >= length) {
+                length *= 2;
+            }
+            int oldLength = locations.length;
+            locations = Arrays.copyOf(locations, length);
+            Arrays.fill(locations, oldLength, length, NO_LOCATION);
+            responseLocations = Arrays.copyOf(responseLocations, length);
+            Arrays.fill(responseLocations, oldLength, length, NO_LOCATION);
+            ids = Arrays.copyOf(ids, length);
+            Arrays.fill(ids, oldLength, length, -1);
+        }
+        locations[(int) index] = location;
+        // 完整记录已包含当时的响应体，之前的响应体记录不再适用
+        responseLocations[(int) index] = NO_LOCATION;
+        if (id >= 0) {
+            ids[(int) index] = id;
+            idIndex.put(id, sequence);
+        }
+    }
+
+    private void deleteAll() {
+        for (Segment segment : segments) {
+            segment.buffer = null;
+            deleteFile(segment.file);
+        }
+        segments.clear();
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format(Locale.US, "%012d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static long location(long segmentId, int position) {
+        return (segmentId << 32) | position;
+    }
+
+    private int checksum(ByteBuffer buffer, int position, int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(scratch, 0, length);
+        crc32.reset();
+        crc32.update(scratch, 0, length);
+        return (int) crc32.getValue();
+    }
+
+    private static final class Segment {
+        final File file;
+        final long id;
+        // 创建该分段时的下一个序号
+        final long baseSequence;
+        MappedByteBuffer buffer;
+        int writePosition = SEGMENT_HEADER_SIZE;
+        // 分段中最新一条日志的时间，用于按时间淘汰
+        long newestTimestampMillis;
+
+        private Segment(File file, long id, long baseSequence, MappedByteBuffer buffer) {
+            this.file = file;
+            this.id = id;
+            this.baseSequence = baseSequence;
+            this.buffer = buffer;
+        }
+
+        static Segment create(File file, long id, int size, long baseSequence) throws IOException {
+            MappedByteBuffer buffer = map(file, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, baseSequence);
+            return new Segment(file, id, baseSequence, buffer);
+        }
+
+        // 打开已有的分段，文件头无效时返回null
+        static Segment open(File file, long id, int size) throws IOException {
+            if (file.length() != size) {
+                return null;
+            }
+            MappedByteBuffer buffer = map(file, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            return new Segment(file, id, buffer.getLong(8), buffer);
+        }
+
+        private static MappedByteBuffer map(File file, int size) throws IOException {
+            // 映射建立后即可关闭文件，映射在缓冲区被回收前一直有效
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                FileChannel channel = randomAccessFile.getChannel();
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+    }
+}
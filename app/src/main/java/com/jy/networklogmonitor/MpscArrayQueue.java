@@ -0,0 +1,75 @@
+package com.jy.networklogmonitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 有界的多生产者单消费者无锁队列，每个槽位用序号标记是否可写/可读
+final class MpscArrayQueue<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerIndex = new AtomicLong();
+    // 只由消费者线程写入
+    private volatile long consumerIndex;
+
+    MpscArrayQueue(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        buffer = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    // 队列已满时返回false，可被多个线程同时调用
+    boolean offer(E element) {
+        while (true) {
+            long index = producerIndex.get();
+            int offset = (int) (index & mask);
+            long difference = sequences.get(offset) - index;
+            if (difference == 0) {
+                if (producerIndex.compareAndSet(index, index + 1)) {
+                    buffer.lazySet(offset, element);
+                    // 写入序号后消费者才能看到该元素
+                    sequences.set(offset, index + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // 其他生产者已占用该位置，重试
+        }
+    }
+
+    // 队列为空时返回null，只能由消费者线程调用
+    E poll() {
+        long index = consumerIndex;
+        int offset = (int) (index & mask);
+        if (sequences.get(offset) != index + 1) {
+            return null;
+        }
+        E element = buffer.get(offset);
+        buffer.lazySet(offset, null);
+        sequences.set(offset, index + mask + 1);
+        consumerIndex = index + 1;
+        return element;
+    }
+
+    int size() {
+        long size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -1,33 +1,156 @@
 package com.jy.networklogmonitor;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
 
 import okhttp3.Headers;
 
+// 一条网络请求日志。为了在大量日志常驻内存时节省空间：
+// 方法名、请求头名、少数取值有限的请求头值和URL前缀（scheme、host和最后一个"/"之前的路径）在所有日志间共享，清空日志时一起清空，URL其余部分、请求体和响应体以UTF-8字节保存，
+// 状态码和标记位合并在一个int中，时间戳为纪元纳秒。getter在调用时才解码，开启body压缩时body以压缩形式保存。
 public class NetworkLog {
-    private String url;
+    private static final StringPool methodPool = new StringPool(64);
+    private static final StringPool urlPrefixPool = new StringPool(4096);
+    private static final StringPool hostPool = new StringPool(1024);
+    private static final StringPool headerPool = new StringPool(4096);
+    private static final StringPool templatePool = new StringPool(4096);
+    // 超过该长度的请求头名和值不放入共享池
+    private static final int MAX_POOLED_HEADER_LENGTH = 256;
+    // 只共享这些请求头的值：取值种类少，重复率高。Authorization、Cookie、token等值各不相同且不应在清空日志后仍留在内存中
+    private static final Set<String> POOLED_HEADER_VALUES = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        String[] names = {"Accept", "Accept-Encoding", "Accept-Language", "Accept-Ranges", "Cache-Control",
+                "Connection", "Content-Encoding", "Content-Type", "Pragma", "Server", "Transfer-Encoding",
+                "User-Agent", "Vary", "X-Requested-With"};
+        for (String name : names) {
+            POOLED_HEADER_VALUES.add(name);
+        }
+    }
+
+    private static final int STATUS_CODE_MASK = 0xFFFF;
+    private static final int FLAG_REQUEST_BODY_TRUNCATED = 1 << 16;
+    private static final int FLAG_REQUEST_BODY_COMPRESSED = 1 << 18;
+    // 保存的请求体不是原始内容，而是二进制内容的十六进制预览或multipart摘要
+    private static final int FLAG_REQUEST_BODY_NOT_RAW = 1 << 20;
+
     private String method;
-    private int statusCode;
+    // 共享的URL前缀，URL前缀池已满时为null，此时urlSuffix保存完整URL
+    private String urlPrefix;
+    private byte[] urlSuffix;
+    // 共享的小写host，用于过滤和统计时不必解码URL
+    private String host;
+    // 共享的接口模板，如"/users/{id}"，由拦截器在入库前归一化；未设置时为null
+    private String urlTemplate;
+    // 低16位为状态码，高位为标记位
+    private int statusAndFlags;
     private long responseTime;
-    private String requestBody;
-    private String responseBody;
-    private Headers headers;
+    private byte[] requestBody;
+    // 请求体的总字节数，-1表示未知
+    private long requestBodySize = -1;
+    // 响应体在日志写入存储之后才由抓包线程补上，此时列表、搜索、导出和详情线程可能正在读取：
+    // 内容、大小和标记放在一个不可变对象中，通过volatile字段一次发布，读取方不会看到新旧混合的状态
+    private volatile ResponseBodyState responseBodyState = ResponseBodyState.EMPTY;
+    // 请求头，依次为name、value，可共享的字符串取自共享池
+    private String[] headers;
     private String errorMessage;
-    private Date timestamp;
+    private long timestampNanos;
+    // 在日志存储中的序号，由LogStore分配
+    private long sequence = -1;
+    // 拦截时分配的唯一id，-1表示没有id
+    private long id = -1;
+    // 分阶段耗时，未配置NetworkLogEventListener时为null
+    private CallTimings callTimings;
 
     public NetworkLog(String url, String method) {
-        this.url = url;
-        this.method = method;
-        this.timestamp = new Date();
+        setUrl(url);
+        setMethod(method);
+        this.timestampNanos = System.currentTimeMillis() * 1_000_000L;
     }
 
     // Getters and setters
     public String getUrl() {
-        return url;
+        if (urlSuffix == null) {
+            return urlPrefix;
+        }
+        String suffix = new String(urlSuffix, StandardCharsets.UTF_8);
+        return urlPrefix != null ? urlPrefix + suffix : suffix;
     }
 
     public void setUrl(String url) {
-        this.url = url;
+        if (url == null) {
+            urlPrefix = null;
+            urlSuffix = null;
+            host = null;
+            return;
+        }
+        String parsedHost = parseHost(url);
+        String pooledHost = hostPool.intern(parsedHost);
+        host = pooledHost != null ? pooledHost : parsedHost;
+        int prefixEnd = urlPrefixEnd(url);
+        String prefix = prefixEnd > 0 ? urlPrefixPool.intern(url.substring(0, prefixEnd)) : null;
+        urlPrefix = prefix;
+        urlSuffix = (prefix != null ? url.substring(prefixEnd) : url).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 小写的host，URL无法解析时为空字符串
+    public String getHost() {
+        return host;
+    }
+
+    // 接口模板：路径中的id等变量替换为占位符，query只保留参数名；未归一化过时为null
+    public String getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    void setUrlTemplate(String urlTemplate) {
+        String pooled = templatePool.intern(urlTemplate);
+        this.urlTemplate = pooled != null ? pooled : urlTemplate;
+    }
+
+    static String parseHost(String url) {
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd < 0) {
+            return "";
+        }
+        int start = schemeEnd + 3;
+        int end = start;
+        if (start < url.length() && url.charAt(start) == '[') {
+            // IPv6地址
+            int bracket = url.indexOf(']', start);
+            end = bracket < 0 ? url.length() : bracket + 1;
+        }
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == ':' || c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        return url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    // URL前缀的结束位置：query之前最后一个"/"之后，没有路径时返回0
+    static int urlPrefixEnd(String url) {
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd < 0) {
+            return 0;
+        }
+        int pathStart = url.indexOf('/', schemeEnd + 3);
+        if (pathStart < 0) {
+            return 0;
+        }
+        int queryStart = url.indexOf('?', pathStart);
+        int fragmentStart = url.indexOf('#', pathStart);
+        int end = queryStart < 0 ? url.length() : queryStart;
+        if (fragmentStart >= 0 && fragmentStart < end) {
+            end = fragmentStart;
+        }
+        return url.lastIndexOf('/', end - 1) + 1;
     }
 
     public String getMethod() {
@@ -35,15 +158,16 @@ public class NetworkLog {
     }
 
     public void setMethod(String method) {
-        this.method = method;
+        String interned = methodPool.intern(method);
+        this.method = interned != null ? interned : method;
     }
 
     public int getStatusCode() {
-        return statusCode;
+        return statusAndFlags & STATUS_CODE_MASK;
     }
 
     public void setStatusCode(int statusCode) {
-        this.statusCode = statusCode;
+        statusAndFlags = (statusAndFlags & ~STATUS_CODE_MASK) | (statusCode & STATUS_CODE_MASK);
     }
 
     public long getResponseTime() {
@@ -55,27 +179,198 @@ public class NetworkLog {
     }
 
     public String getRequestBody() {
-        return requestBody;
+        return decodeBody(requestBody, FLAG_REQUEST_BODY_COMPRESSED);
     }
 
     public void setRequestBody(String requestBody) {
+        setRequestBodyUtf8(requestBody != null ? requestBody.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    // 直接保存UTF-8编码的请求体，不再复制
+    void setRequestBodyUtf8(byte[] requestBody) {
         this.requestBody = requestBody;
+        setFlag(FLAG_REQUEST_BODY_COMPRESSED, false);
+    }
+
+    // 保存BodyCodec压缩后的请求体
+    void setRequestBodyCompressed(byte[] compressed) {
+        setFlag(FLAG_REQUEST_BODY_COMPRESSED, true);
+        this.requestBody = compressed;
+    }
+
+    public long getRequestBodySize() {
+        return requestBodySize;
+    }
+
+    public void setRequestBodySize(long requestBodySize) {
+        this.requestBodySize = requestBodySize;
+    }
+
+    public boolean isRequestBodyTruncated() {
+        return (statusAndFlags & FLAG_REQUEST_BODY_TRUNCATED) != 0;
+    }
+
+    public void setRequestBodyTruncated(boolean requestBodyTruncated) {
+        setFlag(FLAG_REQUEST_BODY_TRUNCATED, requestBodyTruncated);
+    }
+
+    // 请求体是否为原始文本内容，可以原样重新发送
+    public boolean isRequestBodyRaw() {
+        return (statusAndFlags & FLAG_REQUEST_BODY_NOT_RAW) == 0;
+    }
+
+    public void setRequestBodyRaw(boolean requestBodyRaw) {
+        setFlag(FLAG_REQUEST_BODY_NOT_RAW, !requestBodyRaw);
     }
 
     public String getResponseBody() {
-        return responseBody;
+        ResponseBodyState state = responseBodyState;
+        if (state.body == null) {
+            return null;
+        }
+        return state.compressed ? BodyCodec.decompressToString(state.body)
+                : new String(state.body, StandardCharsets.UTF_8);
     }
 
     public void setResponseBody(String responseBody) {
-        this.responseBody = responseBody;
+        setResponseBodyUtf8(responseBody != null ? responseBody.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    // 直接保存UTF-8编码的响应体，不再复制
+    void setResponseBodyUtf8(byte[] responseBody) {
+        ResponseBodyState state = responseBodyState;
+        responseBodyState = new ResponseBodyState(responseBody, false, state.size, state.truncated);
+    }
+
+    // 保存BodyCodec压缩后的响应体
+    void setResponseBodyCompressed(byte[] compressed) {
+        ResponseBodyState state = responseBodyState;
+        responseBodyState = new ResponseBodyState(compressed, true, state.size, state.truncated);
+    }
+
+    // 一次设置响应体的全部状态；日志已写入存储时必须用这个方法，其他线程看到的状态总是完整的
+    void setResponseBodyState(byte[] body, boolean compressed, long size, boolean truncated) {
+        responseBodyState = new ResponseBodyState(body, compressed, size, truncated);
+    }
+
+    // 请求体的UTF-8字节，压缩保存时先解压
+    byte[] getRequestBodyUtf8() {
+        return bodyBytes(requestBody, FLAG_REQUEST_BODY_COMPRESSED);
+    }
+
+    // 响应体的UTF-8字节，压缩保存时先解压
+    byte[] getResponseBodyUtf8() {
+        ResponseBodyState state = responseBodyState;
+        return state.compressed ? decompress(state.body) : state.body;
+    }
+
+    private byte[] bodyBytes(byte[] body, int compressedFlag) {
+        if ((statusAndFlags & compressedFlag) == 0) {
+            return body;
+        }
+        return decompress(body);
+    }
+
+    private static byte[] decompress(byte[] body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return BodyCodec.decompress(body);
+        } catch (DataFormatException e) {
+            return ("[failed to decompress body: " + e.getMessage() + "]").getBytes(StandardCharsets.UTF_8);
+        }
     }
 
+    private String decodeBody(byte[] body, int compressedFlag) {
+        if (body == null) {
+            return null;
+        }
+        if ((statusAndFlags & compressedFlag) != 0) {
+            return BodyCodec.decompressToString(body);
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    public long getResponseBodySize() {
+        return responseBodyState.size;
+    }
+
+    public void setResponseBodySize(long responseBodySize) {
+        ResponseBodyState state = responseBodyState;
+        responseBodyState = new ResponseBodyState(state.body, state.compressed, responseBodySize, state.truncated);
+    }
+
+    public boolean isResponseBodyTruncated() {
+        return responseBodyState.truncated;
+    }
+
+    public void setResponseBodyTruncated(boolean responseBodyTruncated) {
+        ResponseBodyState state = responseBodyState;
+        responseBodyState = new ResponseBodyState(state.body, state.compressed, state.size, responseBodyTruncated);
+    }
+
+    private void setFlag(int flag, boolean value) {
+        statusAndFlags = value ? statusAndFlags | flag : statusAndFlags & ~flag;
+    }
+
+    // 每次调用都会重新创建Headers对象
     public Headers getHeaders() {
-        return headers;
+        if (headers == null) {
+            return null;
+        }
+        Headers.Builder builder = new Headers.Builder();
+        for (int i = 0; i < headers.length; i += 2) {
+            builder.addUnsafeNonAscii(headers[i], headers[i + 1]);
+        }
+        return builder.build();
     }
 
     public void setHeaders(Headers headers) {
-        this.headers = headers;
+        if (headers == null) {
+            this.headers = null;
+            return;
+        }
+        String[] namesAndValues = new String[headers.size() * 2];
+        for (int i = 0; i < headers.size(); i++) {
+            String name = poolHeader(headers.name(i));
+            namesAndValues[i * 2] = name;
+            namesAndValues[i * 2 + 1] = poolHeaderValue(name, headers.value(i));
+        }
+        this.headers = namesAndValues;
+    }
+
+    // 请求头的name、value数组，不要修改
+    String[] getHeaderNamesAndValues() {
+        return headers;
+    }
+
+    void setHeaderNamesAndValues(String[] namesAndValues) {
+        if (namesAndValues != null) {
+            for (int i = 0; i < namesAndValues.length; i += 2) {
+                namesAndValues[i] = poolHeader(namesAndValues[i]);
+                namesAndValues[i + 1] = poolHeaderValue(namesAndValues[i], namesAndValues[i + 1]);
+            }
+        }
+        this.headers = namesAndValues;
+    }
+
+    private static String poolHeader(String value) {
+        String pooled = value.length() <= MAX_POOLED_HEADER_LENGTH ? headerPool.intern(value) : null;
+        return pooled != null ? pooled : value;
+    }
+
+    private static String poolHeaderValue(String name, String value) {
+        return POOLED_HEADER_VALUES.contains(name) ? poolHeader(value) : value;
+    }
+
+    // 清空所有共享池，与清空日志一起调用
+    static void clearPools() {
+        methodPool.clear();
+        urlPrefixPool.clear();
+        hostPool.clear();
+        headerPool.clear();
+        templatePool.clear();
     }
 
     public String getErrorMessage() {
@@ -86,11 +381,65 @@ public class NetworkLog {
         this.errorMessage = errorMessage;
     }
 
+    // 每次调用都会创建新的Date对象
     public Date getTimestamp() {
-        return timestamp;
+        return new Date(timestampNanos / 1_000_000L);
     }
 
     public void setTimestamp(Date timestamp) {
-        this.timestamp = timestamp;
+        this.timestampNanos = timestamp.getTime() * 1_000_000L;
+    }
+
+    // 请求开始时间，纪元纳秒
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public void setTimestampNanos(long timestampNanos) {
+        this.timestampNanos = timestampNanos;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    // 拦截时分配的唯一id，单调递增，日志被淘汰或清除后也不会重复使用；可以通过LogStore.getById()查找
+    public long getId() {
+        return id;
+    }
+
+    void setId(long id) {
+        this.id = id;
+    }
+
+    public CallTimings getCallTimings() {
+        return callTimings;
+    }
+
+    public void setCallTimings(CallTimings callTimings) {
+        this.callTimings = callTimings;
+    }
+
+    // 响应体的完整状态，创建后不再修改
+    private static final class ResponseBodyState {
+        static final ResponseBodyState EMPTY = new ResponseBodyState(null, false, -1, false);
+
+        final byte[] body;
+        // body是否为BodyCodec压缩后的数据
+        final boolean compressed;
+        // 响应体实际传输的字节数，-1表示未知
+        final long size;
+        final boolean truncated;
+
+        ResponseBodyState(byte[] body, boolean compressed, long size, boolean truncated) {
+            this.body = body;
+            this.compressed = compressed;
+            this.size = size;
+            this.truncated = truncated;
+        }
     }
 }
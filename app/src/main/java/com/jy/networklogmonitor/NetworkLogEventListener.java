@@ -0,0 +1,134 @@
+package com.jy.networklogmonitor;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// 记录请求各阶段耗时的EventListener，每个请求一个实例，时间戳写入预分配的CallTimings
+// 需要和NetworkLogInterceptor一起使用：OkHttpClient.Builder().eventListenerFactory(NetworkLogEventListener.FACTORY)
+public class NetworkLogEventListener extends EventListener {
+    public static final EventListener.Factory FACTORY = new EventListener.Factory() {
+        @Override
+        public EventListener create(Call call) {
+            return new NetworkLogEventListener();
+        }
+    };
+
+    // 同时进行中的请求数超过该值时，多出的请求不记录分阶段耗时
+    private static final CallTimingsTable pendingTimings = new CallTimingsTable(256);
+
+    private final CallTimings timings = new CallTimings();
+    // 当前连接是否由本请求新建，用于判断连接复用
+    private boolean connecting;
+    private boolean registered;
+
+    // 拦截器取走请求对应的计时，listener继续写入后续阶段
+    static CallTimings takeTimings(Call call) {
+        return pendingTimings.take(call);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        timings.mark(CallTimings.CALL_START, System.nanoTime());
+        registered = pendingTimings.put(call, timings);
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        timings.mark(CallTimings.DNS_START, System.nanoTime());
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        timings.mark(CallTimings.DNS_END, System.nanoTime());
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connecting = true;
+        timings.mark(CallTimings.CONNECT_START, System.nanoTime());
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        timings.mark(CallTimings.SECURE_CONNECT_START, System.nanoTime());
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        timings.mark(CallTimings.SECURE_CONNECT_END, System.nanoTime());
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        timings.mark(CallTimings.CONNECT_END, System.nanoTime());
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        timings.mark(CallTimings.CONNECTION_ACQUIRED, System.nanoTime());
+        // 没有经过connectStart就拿到连接，说明复用了连接池中的连接
+        timings.setConnectionReused(!connecting);
+        connecting = false;
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        timings.mark(CallTimings.REQUEST_HEADERS_START, System.nanoTime());
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        timings.mark(CallTimings.REQUEST_HEADERS_END, System.nanoTime());
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        timings.mark(CallTimings.REQUEST_BODY_END, System.nanoTime());
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        timings.mark(CallTimings.RESPONSE_HEADERS_START, System.nanoTime());
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        timings.mark(CallTimings.RESPONSE_HEADERS_END, System.nanoTime());
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        timings.mark(CallTimings.RESPONSE_BODY_END, System.nanoTime());
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        timings.mark(CallTimings.CALL_END, System.nanoTime());
+        finish(call);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        timings.mark(CallTimings.CALL_END, System.nanoTime());
+        finish(call);
+    }
+
+    private void finish(Call call) {
+        if (registered) {
+            registered = false;
+            pendingTimings.remove(call, timings);
+        }
+        timings.finish();
+    }
+}
@@ -2,8 +2,10 @@ package com.jy.networklogmonitor;
 
 import androidx.annotation.NonNull;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
@@ -12,15 +14,84 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
-import okio.Buffer;
 
 public class NetworkLogInterceptor implements Interceptor {
-    private static final CopyOnWriteArrayList<NetworkLog> logList = new CopyOnWriteArrayList<>();
-    private static final CopyOnWriteArrayList<LogChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // 默认最多保留的日志条数
+    public static final int DEFAULT_MAX_LOG_COUNT = 2000;
 
-    // 日志变化监听器接口
+    // 默认的日志变化通知间隔，约为一帧
+    public static final long DEFAULT_NOTIFY_INTERVAL_MILLIS = 16;
+
+    // 默认的悬浮窗实时面板刷新间隔
+    public static final long DEFAULT_DASHBOARD_REFRESH_INTERVAL_MILLIS = 500;
+
+    // 默认每个响应体最多记录的字节数
+    public static final long DEFAULT_MAX_RESPONSE_BODY_SIZE = 256 * 1024;
+    // 默认每个请求体最多记录的字节数
+    public static final long DEFAULT_MAX_REQUEST_BODY_SIZE = 64 * 1024;
+
+    private static volatile long maxResponseBodySize = DEFAULT_MAX_RESPONSE_BODY_SIZE;
+    private static volatile long maxRequestBodySize = DEFAULT_MAX_REQUEST_BODY_SIZE;
+    private static volatile CaptureRules captureRules = CaptureRules.CAPTURE_ALL;
+    private static volatile boolean bodyCompressionEnabled;
+    // URL搜索索引，在抓包后台线程中随日志写入更新
+    private static final UrlSearchIndex urlSearchIndex = new UrlSearchIndex();
+    // body全文索引，开启后在单独的分词线程中更新
+    private static final BodySearchIndex bodySearchIndex = new BodySearchIndex();
+    private static volatile boolean bodyIndexEnabled;
+    // body压缩器，只在抓包后台线程中使用
+    private static final BodyCodec bodyCodec = new BodyCodec();
+    // 详情页格式化后的JSON响应体，按日志id缓存，随日志一起清空
+    private static final FormattedBodyCache formattedBodyCache = new FormattedBodyCache();
+    // 抓包写入的存储
+    private static volatile LogStore captureStore = new LogRingBuffer(DEFAULT_MAX_LOG_COUNT);
+    // 日志列表等页面读取的日志，通常与captureStore相同；查看会话快照时为只读的快照，新的请求仍写入captureStore
+    private static volatile LogView logStore = captureStore;
+    // 下一个日志id。以启动时的毫秒时间左移20位作为起点，进程重启后id仍然大于持久化存储中已有的id
+    //（每毫秒不超过约100万次请求即可保证）
+    private static final AtomicLong nextLogId = new AtomicLong(System.currentTimeMillis() << 20);
+    // 按接口汇总的耗时直方图和请求数，在抓包后台线程中更新
+    private static final LatencyStats latencyStats = new LatencyStats();
+    // 悬浮窗实时面板的每秒请求数、进行中的请求数、p95和错误数
+    private static final LiveMetrics liveMetrics = new LiveMetrics();
+    private static volatile long dashboardRefreshIntervalMillis = DEFAULT_DASHBOARD_REFRESH_INTERVAL_MILLIS;
+    // 把URL归一化为接口模板，用于耗时统计分组和按接口搜索
+    private static final UrlTemplateNormalizer urlTemplateNormalizer = new UrlTemplateNormalizer();
+    // 后台抓包流水线：解码、入库和通知监听器都在后台线程批量完成
+    private static final CapturePipeline<CaptureEvent> capturePipeline = new CapturePipeline<>(
+            "NetworkLogMonitor-capture", CapturePipeline.DEFAULT_CAPACITY, CapturePipeline.OverflowPolicy.DROP,
+            new CapturePipeline.Handler<CaptureEvent>() {
+                @Override
+                public void onEvent(CaptureEvent event) {
+                    handleCaptureEvent(event);
+                }
+
+                @Override
+                public void onBatchEnd(int count) {
+                    urlSearchIndex.evictBefore(logStore.getFirstSequence());
+                    if (bodyIndexEnabled) {
+                        bodySearchIndex.evictBefore(logStore.getFirstSequence());
+                    }
+                    changeDispatcher.onLogsAppended();
+                }
+            });
+    // 合并日志变化通知，默认每帧最多通知一次
+    private static final LogChangeDispatcher changeDispatcher = new LogChangeDispatcher(new MainThreadScheduler(),
+            new LogChangeDispatcher.SequenceSource() {
+                @Override
+                public long getFirstSequence() {
+                    return logStore.getFirstSequence();
+                }
+
+                @Override
+                public long getEndSequence() {
+                    return logStore.getEndSequence();
+                }
+            }, DEFAULT_NOTIFY_INTERVAL_MILLIS);
+
+    // 日志变化监听器接口，在主线程回调，多次变化会合并为一次
     public interface LogChangeListener {
-        void onLogChanged();
+        void onLogChanged(LogChangeBatch batch);
     }
     
 
@@ -35,101 +106,440 @@ public class NetworkLogInterceptor implements Interceptor {
         NetworkLogInterceptor.encryptionInterceptor = encryptionInterceptor;
     }
 
+    public static long getMaxResponseBodySize() {
+        return maxResponseBodySize;
+    }
+
+    // 设置每个响应体最多记录的字节数，超出部分只透传不记录
+    public static void setMaxResponseBodySize(long maxResponseBodySize) {
+        NetworkLogInterceptor.maxResponseBodySize = maxResponseBodySize;
+    }
+
+    public static long getMaxRequestBodySize() {
+        return maxRequestBodySize;
+    }
+
+    // 设置每个文本请求体最多记录的字节数，二进制请求体只记录大小和预览
+    public static void setMaxRequestBodySize(long maxRequestBodySize) {
+        NetworkLogInterceptor.maxRequestBodySize = maxRequestBodySize;
+    }
+
+    public static CaptureRules getCaptureRules() {
+        return captureRules;
+    }
+
+    // 设置抓包规则，在读取请求体之前生效
+    public static void setCaptureRules(CaptureRules captureRules) {
+        NetworkLogInterceptor.captureRules = captureRules != null ? captureRules : CaptureRules.CAPTURE_ALL;
+    }
+
     @NonNull
     @Override
     public Response intercept(@NonNull Chain chain) throws IOException {
         Request request = chain.request();
+        // 取走EventListener记录的分阶段耗时，没有配置NetworkLogEventListener时为null
+        CallTimings callTimings = NetworkLogEventListener.takeTimings(chain.call());
+        // 不需要记录的请求直接放行，不读取请求体和响应体
+        if (!captureRules.shouldCapture(request.url())) {
+            return chain.proceed(request);
+        }
+        // 在拦截时分配id，与日志何时写入存储无关
+        long logId = nextLogId.getAndIncrement();
         long startTime = System.currentTimeMillis();
+        // 耗时用单调时钟计算，不受系统时间调整影响
+        long startNanos = System.nanoTime();
 
-        // 创建日志对象
-        NetworkLog log = new NetworkLog(request.url().toString(), request.method());
-
-        // 记录请求体
+        // 记录请求体：只在当前线程读取原始字节，解码交给后台线程
         RequestBody requestBody = request.body();
-        String requestBodyString = null;
+        CapturedBody capturedRequestBody = null;
         if (requestBody != null) {
-            Buffer buffer = new Buffer();
-            requestBody.writeTo(buffer);
-            requestBodyString = buffer.readUtf8();
-            // 直接记录原始请求体，不进行加密处理
-            log.setRequestBody(requestBodyString);
+            try {
+                capturedRequestBody = BodyCapturePolicy.captureRequestBody(requestBody, maxRequestBodySize);
+            } catch (IOException e) {
+                // 记录失败不影响实际请求
+                capturedRequestBody = CapturedBody.summary(
+                        "[failed to capture request body: " + e.getMessage() + "]", -1, false, null);
+            }
         }
 
-        // 记录请求头
-        log.setHeaders(request.headers());
-
         // 执行请求并处理可能的错误
         Response response = null;
+        String errorMessage = null;
+        CaptureEvent callEvent;
+        liveMetrics.onRequestStarted();
         try {
             // 执行请求
             response = chain.proceed(request);
-            long endTime = System.currentTimeMillis();
-
-            // 记录响应信息
-            log.setResponseTime(endTime - startTime);
-            log.setStatusCode(response.code());
-
-            // 记录响应体
-            ResponseBody responseBody = response.body();
-            if (responseBody != null) {
-                MediaType mediaType = responseBody.contentType();
-                String bodyString = responseBody.string();
-                // 直接记录原始响应体，不进行解密处理
-                log.setResponseBody(bodyString);
-                // 重新构建响应体，因为它只能被读取一次
-                response = response.newBuilder()
-                        .body(ResponseBody.create(mediaType, bodyString))
-                        .build();
-            }
         } catch (IOException e) {
             // 处理请求失败情况
-            long endTime = System.currentTimeMillis();
-            log.setResponseTime(endTime - startTime);
-            log.setStatusCode(0); // 使用0表示请求失败
-            log.setErrorMessage(e.getMessage());
-            log.setResponseBody("Request failed: " + e.getMessage());
-            
+            errorMessage = e.getMessage();
             // 重新抛出异常，确保调用者能感知到错误
             throw e;
         } finally {
-            // 添加到日志列表（无论成功或失败）
-            logList.add(log);
-            
-            // 通知所有监听器日志变化
-            notifyLogChanged();
+            // 无论成功或失败都提交给后台线程记录，失败时状态码为0
+            long responseTime = (System.nanoTime() - startNanos) / 1_000_000;
+            liveMetrics.onRequestFinished(response == null || response.code() >= 400);
+            callEvent = CaptureEvent.call(logId, request.url().toString(), request.method(), request.headers(),
+                    capturedRequestBody, startTime, responseTime,
+                    response != null ? response.code() : 0, errorMessage, callTimings);
+            capturePipeline.submit(callEvent);
+        }
+
+        // 记录响应体：边读边复制，不提前读取整个响应体
+        ResponseBody responseBody = response.body();
+        if (responseBody != null) {
+            final MediaType mediaType = responseBody.contentType();
+            final long contentLength = responseBody.contentLength();
+            final CaptureEvent finalCallEvent = callEvent;
+            response = response.newBuilder()
+                    .body(new CapturingResponseBody(responseBody, maxResponseBodySize,
+                            (captured, totalBytes, exhausted) -> {
+                                boolean readFully = exhausted || contentLength == totalBytes;
+                                byte[] bytes = captured.readByteArray();
+                                capturePipeline.submit(CaptureEvent.responseBody(finalCallEvent,
+                                        new CapturedBody(bytes, totalBytes,
+                                                !readFully || bytes.length < totalBytes, mediaType)));
+                            }))
+                    .build();
         }
 
         return response;
     }
 
-    // 获取日志列表
-    public static CopyOnWriteArrayList<NetworkLog> getLogList() {
-        return logList;
+    // 在后台线程中把抓包事件转换为日志
+    private static void handleCaptureEvent(CaptureEvent event) {
+        if (event.type == CaptureEvent.TYPE_CALL) {
+            NetworkLog log = new NetworkLog(event.url, event.method);
+            log.setId(event.id);
+            log.setTimestampNanos(event.startTimeMillis * 1_000_000L);
+            log.setHeaders(event.requestHeaders);
+            byte[] requestBody = null;
+            // 先归一化出接口模板，body按模板区分压缩字典
+            log.setUrlTemplate(urlTemplateNormalizer.normalize(event.url));
+            if (event.requestBody != null) {
+                // 直接记录原始请求体，不进行加密处理
+                requestBody = event.requestBody.toUtf8();
+                byte[] compressed = compressBody("> ", log, requestBody);
+                if (compressed != null) {
+                    log.setRequestBodyCompressed(compressed);
+                } else {
+                    log.setRequestBodyUtf8(requestBody);
+                }
+                log.setRequestBodySize(event.requestBody.getTotalBytes());
+                log.setRequestBodyTruncated(event.requestBody.isTruncated());
+                // 二进制内容和multipart只保存了预览或摘要
+                log.setRequestBodyRaw(event.requestBody.isText());
+            }
+            log.setResponseTime(event.responseTime);
+            log.setStatusCode(event.statusCode);
+            log.setCallTimings(event.callTimings);
+            if (event.statusCode == 0) {
+                log.setErrorMessage(event.errorMessage);
+                log.setResponseBody("Request failed: " + event.errorMessage);
+            }
+            event.log = log;
+            event.store = captureStore;
+            event.store.append(log);
+            boolean error = event.statusCode == 0 || event.statusCode >= 400;
+            latencyStats.record(LatencyStats.endpoint(event.method, log.getHost(), log.getUrlTemplate()),
+                    event.startTimeMillis, event.responseTime, error);
+            liveMetrics.record(event.startTimeMillis + event.responseTime, event.responseTime, error);
+            // 索引只对应列表显示的存储，查看会话快照期间的日志在回到实时日志时重建索引
+            if (event.store == logStore) {
+                urlSearchIndex.add(log.getSequence(), event.url);
+                if (bodyIndexEnabled && requestBody != null && event.requestBody.isText()) {
+                    bodySearchIndex.addAsync(log.getSequence(), requestBody);
+                }
+            }
+        } else if (event.callEvent.log != null) {
+            // 对应的请求事件被丢弃时忽略响应体
+            NetworkLog log = event.callEvent.log;
+            // 直接记录原始响应体，不进行解密处理；日志已在存储中，响应体的状态一次发布
+            byte[] responseBody = event.responseBody.toUtf8();
+            byte[] compressed = compressBody("< ", log, responseBody);
+            log.setResponseBodyState(compressed != null ? compressed : responseBody, compressed != null,
+                    event.responseBody.getTotalBytes(), event.responseBody.isTruncated());
+            event.callEvent.store.update(log);
+            if (bodyIndexEnabled && event.responseBody.isText() && event.callEvent.store == logStore) {
+                bodySearchIndex.addAsync(log.getSequence(), responseBody);
+            }
+            // 查看会话快照期间实时日志的更新不影响列表
+            if (event.callEvent.store == logStore) {
+                changeDispatcher.onLogUpdated(log.getSequence());
+            }
+        }
+    }
+
+    // 在后台线程中压缩body，请求体和响应体按方法、host和接口模板的路径部分分别训练字典；不压缩时返回null
+    private static byte[] compressBody(String direction, NetworkLog log, byte[] body) {
+        if (!bodyCompressionEnabled) {
+            return null;
+        }
+        return bodyCodec.compress(direction + LatencyStats.endpoint(log.getMethod(), log.getHost(),
+                templatePath(log.getUrlTemplate())), body);
+    }
+
+    // 去掉模板中的query，同一路径不同参数组合的body共享字典
+    private static String templatePath(String template) {
+        if (template == null) {
+            return "";
+        }
+        int query = template.indexOf('?');
+        return query < 0 ? template : template.substring(0, query);
+    }
+
+    public static boolean isBodyCompressionEnabled() {
+        return bodyCompressionEnabled;
     }
 
-    // 清除日志列表
-    public static void clearLogs() {
-        logList.clear();
+    // 开启后body在内存中以压缩形式保存，查看时再解压；只影响之后记录的日志
+    public static void setBodyCompressionEnabled(boolean bodyCompressionEnabled) {
+        NetworkLogInterceptor.bodyCompressionEnabled = bodyCompressionEnabled;
+    }
+
+    // 已压缩body的压缩后/压缩前字节数之比
+    public static double getBodyCompressionRatio() {
+        return bodyCodec.getCompressionRatio();
+    }
+
+    public static boolean isBodyIndexEnabled() {
+        return bodyIndexEnabled;
+    }
+
+    // 开启后在后台线程中为请求体和响应体建立全文索引，可以在日志列表中用body:搜索；开启时为已有日志建立索引
+    public static synchronized void setBodyIndexEnabled(boolean bodyIndexEnabled) {
+        if (NetworkLogInterceptor.bodyIndexEnabled == bodyIndexEnabled) {
+            return;
+        }
+        NetworkLogInterceptor.bodyIndexEnabled = bodyIndexEnabled;
+        if (bodyIndexEnabled) {
+            rebuildBodyIndex(logStore);
+        } else {
+            bodySearchIndex.clear();
+        }
+    }
+
+    // body索引占用内存的估算值（字节）
+    public static long getBodyIndexMemoryUsage() {
+        return bodySearchIndex.getMemoryUsage();
+    }
+
+    // 抓包队列中等待处理的事件数
+    public static int getCaptureQueueDepth() {
+        return capturePipeline.getQueueDepth();
+    }
+
+    // 因抓包队列已满而丢弃的事件数
+    public static long getDroppedCaptureCount() {
+        return capturePipeline.getDroppedCount();
+    }
+
+    // 后台线程处理抓包事件时出错的次数
+    public static long getFailedCaptureCount() {
+        return capturePipeline.getFailedCount();
+    }
+
+    public static CapturePipeline.OverflowPolicy getCaptureOverflowPolicy() {
+        return capturePipeline.getOverflowPolicy();
+    }
+
+    // 设置抓包队列已满时的处理方式，默认丢弃
+    public static void setCaptureOverflowPolicy(CapturePipeline.OverflowPolicy overflowPolicy) {
+        capturePipeline.setOverflowPolicy(overflowPolicy);
+    }
+
+    // 等待已提交的抓包事件全部入库，超时返回false
+    public static boolean awaitCaptureIdle(long timeoutMillis) throws InterruptedException {
+        return capturePipeline.awaitIdle(timeoutMillis);
+    }
+
+    // 获取日志列表快照（从旧到新）
+    public static List<NetworkLog> getLogList() {
+        return logStore.snapshot();
+    }
+
+    // 按拦截时分配的id查找日志，已被淘汰或清除时返回null
+    public static NetworkLog getLogById(long id) {
+        return logStore.getById(id);
+    }
+
+    // 按接口汇总的耗时统计，请求失败或状态码不小于400时计为错误；清除日志时一并清空
+    public static LatencyStats getLatencyStats() {
+        return latencyStats;
+    }
+
+    // 注册明确的接口模板，如 "/users/{name}/repos"，{xxx}匹配任意一段；只影响之后抓到的请求
+    public static void addUrlTemplate(String template) {
+        urlTemplateNormalizer.addTemplate(template);
+    }
+
+    public static UrlTemplateNormalizer getUrlTemplateNormalizer() {
+        return urlTemplateNormalizer;
+    }
+
+    // 悬浮窗实时面板的数据
+    public static LiveMetrics getLiveMetrics() {
+        return liveMetrics;
+    }
+
+    public static long getDashboardRefreshIntervalMillis() {
+        return dashboardRefreshIntervalMillis;
+    }
+
+    // 设置悬浮窗实时面板的最短刷新间隔；没有请求时面板不刷新
+    public static void setDashboardRefreshIntervalMillis(long intervalMillis) {
+        dashboardRefreshIntervalMillis = intervalMillis;
+    }
+
+    // 获取列表显示的日志；查看会话快照时为只读的快照
+    public static LogView getLogStore() {
+        return logStore;
+    }
+
+    // 替换日志存储，如使用MappedFileLogStore把日志持久化到文件；之前存储中的日志不会迁移，正在查看的会话快照被关闭
+    public static synchronized void setLogStore(LogStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("store == null");
+        }
+        closeSessionStore();
+        captureStore = store;
+        showStore(store);
+    }
+
+    // 把当前列表中的全部日志保存为会话快照文件，返回保存的条数；耗时与日志条数成正比，应在后台线程调用
+    public static int saveSession(File file) throws IOException {
+        return SessionSnapshot.write(logStore, file);
+    }
+
+    // 打开会话快照并在日志列表中显示，之后抓到的请求仍写入原来的存储，closeSession()后重新显示
+    public static synchronized void openSession(File file) throws IOException {
+        SessionSnapshot snapshot = SessionSnapshot.open(file);
+        closeSessionStore();
+        showStore(snapshot);
+    }
+
+    // 关闭正在查看的会话快照，回到实时日志
+    public static synchronized void closeSession() {
+        if (closeSessionStore()) {
+            showStore(captureStore);
+        }
+    }
+
+    // 是否正在查看导入的会话快照
+    public static boolean isViewingSession() {
+        return logStore instanceof SessionSnapshot;
+    }
+
+    private static boolean closeSessionStore() {
+        if (!(logStore instanceof SessionSnapshot)) {
+            return false;
+        }
+        ((SessionSnapshot) logStore).close();
+        logStore = captureStore;
+        return true;
+    }
+
+    private static void showStore(LogView store) {
+        logStore = store;
+        rebuildSearchIndex(store);
+        rebuildBodyIndex(store);
+        changeDispatcher.onReset();
+    }
+
+    // 获取当前日志数量
+    public static int getLogCount() {
+        return logStore.size();
+    }
+
+    // 设置最多保留的日志条数，超出后淘汰最旧的日志；只适用于内存存储
+    public static synchronized void setMaxLogCount(int maxLogCount) {
+        if (!(captureStore instanceof LogRingBuffer)) {
+            throw new IllegalStateException("setMaxLogCount() only applies to the in-memory log store");
+        }
+        LogRingBuffer oldStore = (LogRingBuffer) captureStore;
+        if (oldStore.getCapacity() == maxLogCount) {
+            return;
+        }
+        LogRingBuffer newStore = new LogRingBuffer(maxLogCount);
+        List<NetworkLog> logs = oldStore.snapshot();
+        // 只迁移最新的日志；迁移期间并发写入旧存储的少量日志可能丢失
+        for (int i = Math.max(0, logs.size() - maxLogCount); i < logs.size(); i++) {
+            newStore.append(logs.get(i));
+        }
+        captureStore = newStore;
+        if (logStore == oldStore) {
+            showStore(newStore);
+        }
+    }
+
+    // 清除日志列表；正在查看会话快照时关闭快照并清除实时日志
+    public static synchronized void clearLogs() {
+        closeSessionStore();
+        captureStore.clear();
+        urlSearchIndex.clear();
+        bodySearchIndex.clear();
+        bodySearchIndex.evictBefore(logStore.getFirstSequence());
+        latencyStats.clear();
+        NetworkLog.clearPools();
+        BodyCodec.clear();
+        formattedBodyCache.clear();
         // 通知所有监听器日志变化
-        notifyLogChanged();
+        changeDispatcher.onReset();
     }
     
+    // 日志存储被替换后在搜索线程中重建索引
+    private static void rebuildSearchIndex(final LogView store) {
+        LogSearcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                // 期间存储又被替换时由新的任务重建
+                if (store == logStore) {
+                    urlSearchIndex.rebuild(store);
+                }
+            }
+        });
+    }
+
+    // 在分词线程中为存储中的日志重新建立body索引
+    private static void rebuildBodyIndex(final LogView store) {
+        if (!bodyIndexEnabled) {
+            return;
+        }
+        BodySearchIndex.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (store == logStore && bodyIndexEnabled) {
+                    bodySearchIndex.rebuild(store);
+                }
+            }
+        });
+    }
+
+    static FormattedBodyCache getFormattedBodyCache() {
+        return formattedBodyCache;
+    }
+
+    static UrlSearchIndex getUrlSearchIndex() {
+        return urlSearchIndex;
+    }
+
+    // 未开启body索引时返回null
+    static BodySearchIndex getBodySearchIndex() {
+        return bodyIndexEnabled ? bodySearchIndex : null;
+    }
+
     // 注册日志变化监听器
     public static void registerLogChangeListener(LogChangeListener listener) {
-        if (listener != null && !listeners.contains(listener)) {
-            listeners.add(listener);
-        }
+        changeDispatcher.addListener(listener);
     }
     
     // 取消注册日志变化监听器
     public static void unregisterLogChangeListener(LogChangeListener listener) {
-        listeners.remove(listener);
+        changeDispatcher.removeListener(listener);
     }
-    
-    // 通知所有监听器日志变化
-    private static void notifyLogChanged() {
-        for (LogChangeListener listener : listeners) {
-            listener.onLogChanged();
-        }
+
+    // 设置日志变化通知的最小间隔，间隔内的多次变化合并为一次通知
+    public static void setNotifyIntervalMillis(long intervalMillis) {
+        changeDispatcher.setIntervalMillis(intervalMillis);
     }
 }
@@ -1,20 +1,39 @@
 package com.jy.networklogmonitor;
 
 import android.app.Activity;
+import android.app.Application;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.Settings;
 
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.EventListener;
+
 public class NetworkLogMonitor {
     private static boolean isInitialized = false;
 
+    // 持久化存储打开完成后在主线程回调，error为null表示已切换到持久化存储
+    public interface PersistentLogsCallback {
+        void onComplete(IOException error);
+    }
+
     public static void initialize(Context context) {
         if (isInitialized) {
             return;
         }
 
+        // 尽早开始记录Activity的启动和停止，悬浮窗据此在前后台切换时显示或隐藏
+        Context applicationContext = context.getApplicationContext();
+        if (applicationContext instanceof Application) {
+            AppForegroundTracker.install((Application) applicationContext);
+        }
+
         // 检查并请求悬浮窗权限
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && !Settings.canDrawOverlays(context)) {
             Intent intent = new Intent(Settings.ACTION_MANAGE_OVERLAY_PERMISSION,
@@ -44,6 +63,54 @@ public class NetworkLogMonitor {
         return new NetworkLogInterceptor();
     }
 
+    // 记录DNS、建连、TLS、首字节等分阶段耗时，需要设置到OkHttpClient.Builder().eventListenerFactory()
+    public static EventListener.Factory getEventListenerFactory() {
+        return NetworkLogEventListener.FACTORY;
+    }
+
+    // 设置抓包规则（包含/排除、采样、限速），可在运行时随时替换
+    public static void setCaptureRules(CaptureRules captureRules) {
+        NetworkLogInterceptor.setCaptureRules(captureRules);
+    }
+
+    public static CaptureRules getCaptureRules() {
+        return NetworkLogInterceptor.getCaptureRules();
+    }
+
+    // 把日志持久化到应用私有目录，进程崩溃或被杀后重新启动仍可查看之前的日志
+    public static void enablePersistentLogs(Context context) {
+        enablePersistentLogs(context, null);
+    }
+
+    // 打开存储时要校验并恢复已有的分段文件，耗时与文件大小成正比，因此在后台线程中打开，完成后再替换当前存储；
+    // 打开期间的日志仍写入内存存储，替换后不会迁移。callback可以为null
+    public static void enablePersistentLogs(Context context, final PersistentLogsCallback callback) {
+        final File directory = new File(context.getFilesDir(), "network_logs");
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                IOException error = null;
+                try {
+                    NetworkLogInterceptor.setLogStore(new MappedFileLogStore(directory));
+                } catch (IOException e) {
+                    error = e;
+                }
+                if (callback != null) {
+                    final IOException result = error;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onComplete(result);
+                        }
+                    });
+                }
+            }
+        }, "NetworkLogMonitor-open-logs");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     public static void stop(Context context) {
         Intent serviceIntent = new Intent(context, FloatingService.class);
         context.stopService(serviceIntent);
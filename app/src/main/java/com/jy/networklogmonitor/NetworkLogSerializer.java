@@ -0,0 +1,202 @@
+package com.jy.networklogmonitor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// 日志的二进制格式，供持久化存储使用。字符串和body都以长度前缀加UTF-8字节保存，长度-1表示null
+final class NetworkLogSerializer {
+    // 版本2在时间戳之后增加了日志id，仍可读取版本1的记录（id为-1）
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_ID = 1;
+    // 响应体记录：日志追加后读取完成的响应体，只包含固定部分、截断标记、响应体大小和响应体
+    private static final int RESPONSE_BODY_RECORD = 3;
+    // 记录开头的固定部分：版本号(1) + 序号(8) + 时间戳(8) + id(8，版本2起)
+    static final int SEQUENCE_OFFSET = 1;
+    static final int TIMESTAMP_OFFSET = 9;
+    static final int ID_OFFSET = 17;
+
+    private static final int FLAG_REQUEST_BODY_TRUNCATED = 1;
+    private static final int FLAG_RESPONSE_BODY_TRUNCATED = 1 << 1;
+    private static final int FLAG_HAS_TIMINGS = 1 << 2;
+    private static final int FLAG_CONNECTION_REUSED = 1 << 3;
+    private static final int FLAG_REQUEST_BODY_NOT_RAW = 1 << 4;
+
+    private NetworkLogSerializer() {
+    }
+
+    // includeBodies为false时不保存请求体和响应体（用于超出单条记录上限的日志）
+    static byte[] serialize(NetworkLog log, boolean includeBodies) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            out.writeLong(log.getSequence());
+            out.writeLong(log.getTimestampNanos());
+            out.writeLong(log.getId());
+            writeString(out, log.getMethod());
+            writeString(out, log.getUrl());
+            CallTimings timings = log.getCallTimings();
+            int flags = (log.isRequestBodyTruncated() || !includeBodies ? FLAG_REQUEST_BODY_TRUNCATED : 0)
+                    | (log.isResponseBodyTruncated() || !includeBodies ? FLAG_RESPONSE_BODY_TRUNCATED : 0)
+                    | (timings != null ? FLAG_HAS_TIMINGS : 0)
+                    | (timings != null && timings.isConnectionReused() ? FLAG_CONNECTION_REUSED : 0)
+                    | (log.isRequestBodyRaw() ? 0 : FLAG_REQUEST_BODY_NOT_RAW);
+            out.writeByte(flags);
+            out.writeShort(log.getStatusCode());
+            out.writeLong(log.getResponseTime());
+            out.writeLong(log.getRequestBodySize());
+            out.writeLong(log.getResponseBodySize());
+            writeBytes(out, includeBodies ? log.getRequestBodyUtf8() : null);
+            writeBytes(out, includeBodies ? log.getResponseBodyUtf8() : null);
+            String[] headers = log.getHeaderNamesAndValues();
+            out.writeInt(headers != null ? headers.length : -1);
+            if (headers != null) {
+                for (String header : headers) {
+                    writeString(out, header);
+                }
+            }
+            writeString(out, log.getErrorMessage());
+            if (timings != null) {
+                for (int phase = 0; phase < CallTimings.PHASE_COUNT; phase++) {
+                    out.writeLong(timings.getTimestamp(phase));
+                }
+            }
+        } catch (IOException e) {
+            // 写入内存不会失败
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // 只保存响应体相关的字段，用于日志追加后响应体读取完成时的更新；includeBody为false时不保存响应体
+    static byte[] serializeResponseBody(NetworkLog log, boolean includeBody) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(RESPONSE_BODY_RECORD);
+            out.writeLong(log.getSequence());
+            out.writeLong(log.getTimestampNanos());
+            out.writeLong(log.getId());
+            out.writeByte(log.isResponseBodyTruncated() || !includeBody ? FLAG_RESPONSE_BODY_TRUNCATED : 0);
+            out.writeLong(log.getResponseBodySize());
+            writeBytes(out, includeBody ? log.getResponseBodyUtf8() : null);
+        } catch (IOException e) {
+            // 写入内存不会失败
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // 记录是否为serializeResponseBody写入的响应体记录，buffer从记录开头开始
+    static boolean isResponseBodyRecord(ByteBuffer buffer, int recordStart) {
+        return buffer.get(recordStart) == RESPONSE_BODY_RECORD;
+    }
+
+    // 从buffer的当前位置读取响应体记录，替换log的响应体状态
+    static void applyResponseBody(ByteBuffer buffer, NetworkLog log) {
+        buffer.position(buffer.position() + ID_OFFSET + 8);
+        boolean truncated = (buffer.get() & FLAG_RESPONSE_BODY_TRUNCATED) != 0;
+        long size = buffer.getLong();
+        log.setResponseBodyState(readBytes(buffer), false, size, truncated);
+    }
+
+    // 读取记录中的日志id，buffer从记录开头开始；版本1的记录返回-1
+    static long readId(ByteBuffer buffer, int recordStart) {
+        return buffer.get(recordStart) == VERSION_WITHOUT_ID ? -1 : buffer.getLong(recordStart + ID_OFFSET);
+    }
+
+    // 从buffer的当前位置读取一条日志
+    static NetworkLog deserialize(ByteBuffer buffer) {
+        int version = readVersion(buffer);
+        long sequence = buffer.getLong();
+        long timestampNanos = buffer.getLong();
+        long id = version == VERSION_WITHOUT_ID ? -1 : buffer.getLong();
+        String method = readString(buffer);
+        NetworkLog log = new NetworkLog(readString(buffer), method);
+        log.setSequence(sequence);
+        log.setId(id);
+        log.setTimestampNanos(timestampNanos);
+        int flags = buffer.get();
+        log.setRequestBodyTruncated((flags & FLAG_REQUEST_BODY_TRUNCATED) != 0);
+        log.setResponseBodyTruncated((flags & FLAG_RESPONSE_BODY_TRUNCATED) != 0);
+        log.setRequestBodyRaw((flags & FLAG_REQUEST_BODY_NOT_RAW) == 0);
+        log.setStatusCode(buffer.getShort() & 0xFFFF);
+        log.setResponseTime(buffer.getLong());
+        log.setRequestBodySize(buffer.getLong());
+        log.setResponseBodySize(buffer.getLong());
+        log.setRequestBodyUtf8(readBytes(buffer));
+        log.setResponseBodyUtf8(readBytes(buffer));
+        int headerCount = buffer.getInt();
+        if (headerCount >= 0) {
+            String[] headers = new String[headerCount];
+            for (int i = 0; i < headerCount; i++) {
+                headers[i] = readString(buffer);
+            }
+            log.setHeaderNamesAndValues(headers);
+        }
+        log.setErrorMessage(readString(buffer));
+        if ((flags & FLAG_HAS_TIMINGS) != 0) {
+            CallTimings timings = new CallTimings();
+            for (int phase = 0; phase < CallTimings.PHASE_COUNT; phase++) {
+                timings.mark(phase, buffer.getLong());
+            }
+            timings.setConnectionReused((flags & FLAG_CONNECTION_REUSED) != 0);
+            timings.finish();
+            log.setCallTimings(timings);
+        }
+        return log;
+    }
+
+    // 只读取列表显示用的摘要字段，摘要字段都在body之前
+    static LogRow deserializeRow(ByteBuffer buffer) {
+        int version = readVersion(buffer);
+        long sequence = buffer.getLong();
+        long timestampNanos = buffer.getLong();
+        long id = version == VERSION_WITHOUT_ID ? -1 : buffer.getLong();
+        String method = readString(buffer);
+        String url = readString(buffer);
+        buffer.get();
+        int statusCode = buffer.getShort() & 0xFFFF;
+        long responseTime = buffer.getLong();
+        return new LogRow(sequence, id, method, statusCode, responseTime, url, timestampNanos / 1_000_000L);
+    }
+
+    private static int readVersion(ByteBuffer buffer) {
+        int version = buffer.get();
+        if (version != VERSION && version != VERSION_WITHOUT_ID) {
+            throw new IllegalArgumentException("Unsupported log record version: " + version);
+        }
+        return version;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = readBytes(buffer);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
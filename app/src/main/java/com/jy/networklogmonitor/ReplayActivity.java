@@ -0,0 +1,177 @@
+package com.jy.networklogmonitor;
+
+import android.os.Bundle;
+import android.view.Window;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 批量重放页面：重放日志列表当前搜索条件匹配的请求，可设置并发数、重复次数和爬坡时间，结束后按接口显示结果
+public class ReplayActivity extends AppCompatActivity {
+    public static final String EXTRA_QUERY = "query";
+    // 一次最多重放的日志条数
+    static final int MAX_REPLAY_LOGS = 1000;
+
+    private TextView selectionText;
+    private EditText concurrencyText;
+    private EditText repeatText;
+    private EditText rampUpText;
+    private Button startButton;
+    private TextView progressText;
+    private TextView reportText;
+
+    private List<NetworkLog> logs = new ArrayList<>();
+    private RequestReplayer.Run currentRun;
+    // 已提交但尚未执行的进度刷新，避免每个请求都向主线程post一次
+    private final AtomicBoolean progressPosted = new AtomicBoolean();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        supportRequestWindowFeature(Window.FEATURE_NO_TITLE);
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_replay);
+
+        selectionText = findViewById(R.id.selection_text);
+        concurrencyText = findViewById(R.id.concurrency_text);
+        repeatText = findViewById(R.id.repeat_text);
+        rampUpText = findViewById(R.id.ramp_up_text);
+        startButton = findViewById(R.id.start_button);
+        progressText = findViewById(R.id.progress_text);
+        reportText = findViewById(R.id.report_text);
+
+        startButton.setOnClickListener(v -> {
+            if (currentRun != null) {
+                currentRun.cancel();
+            } else {
+                startReplay();
+            }
+        });
+
+        String queryText = getIntent().getStringExtra(EXTRA_QUERY);
+        loadLogs(queryText != null ? queryText : "");
+    }
+
+    // 在搜索线程中取出匹配的日志
+    private void loadLogs(final String queryText) {
+        final LogQuery query;
+        try {
+            query = LogQuery.parse(queryText);
+        } catch (IllegalArgumentException e) {
+            selectionText.setText("Invalid query: " + e.getMessage());
+            return;
+        }
+        LogSearcher.execute(() -> {
+            LogView store = NetworkLogInterceptor.getLogStore();
+            List<NetworkLog> matched = new ArrayList<>();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            if (query.prepare(NetworkLogInterceptor.getUrlSearchIndex(),
+                    NetworkLogInterceptor.getBodySearchIndex(), store, cancelled)) {
+                long end = store.getEndSequence();
+                for (long sequence = store.getFirstSequence(); sequence < end; sequence++) {
+                    NetworkLog log = store.get(sequence);
+                    if (log != null && query.matches(log)) {
+                        matched.add(log);
+                        if (matched.size() >= MAX_REPLAY_LOGS) {
+                            break;
+                        }
+                    }
+                }
+            }
+            runOnUiThread(() -> {
+                logs = matched;
+                String filter = queryText.trim().isEmpty() ? "all logs" : "\"" + queryText.trim() + "\"";
+                selectionText.setText(matched.size() + " requests from " + filter
+                        + (matched.size() >= MAX_REPLAY_LOGS ? " (limited to " + MAX_REPLAY_LOGS + ")" : ""));
+                startButton.setEnabled(!matched.isEmpty());
+            });
+        });
+    }
+
+    private void startReplay() {
+        RequestReplayer.Options options;
+        try {
+            options = new RequestReplayer.Options(parseInt(concurrencyText), parseInt(repeatText),
+                    parseInt(rampUpText) * 1000L);
+        } catch (IllegalArgumentException e) {
+            progressText.setText(e.getMessage());
+            return;
+        }
+        reportText.setText("");
+        progressText.setText("Starting...");
+        startButton.setText("Cancel");
+        currentRun = new RequestReplayer().start(logs, options, new RequestReplayer.Listener() {
+            @Override
+            public void onProgress(final int completed, final int total) {
+                if (progressPosted.compareAndSet(false, true)) {
+                    runOnUiThread(() -> {
+                        progressPosted.set(false);
+                        if (currentRun != null) {
+                            progressText.setText(completed + " / " + total + " requests");
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public void onComplete(final ReplayReport report) {
+                runOnUiThread(() -> {
+                    currentRun = null;
+                    startButton.setText("Start");
+                    progressText.setText(report.isCancelled() ? "Cancelled" : "Done");
+                    reportText.setText(formatReport(report));
+                });
+            }
+        });
+    }
+
+    private static int parseInt(EditText text) {
+        try {
+            return Integer.parseInt(text.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + text.getText());
+        }
+    }
+
+    static String formatReport(ReplayReport report) {
+        StringBuilder builder = new StringBuilder();
+        ReplayReport.EndpointReport total = report.getTotal();
+        builder.append(String.format(Locale.ROOT, "%d requests in %.1fs, %.1f req/s, %d errors%n",
+                total.getCount(), report.getDurationMillis() / 1000.0, report.getThroughput(),
+                total.getErrorCount()));
+        if (report.getSkippedCount() > 0) {
+            builder.append(report.getSkippedCount()).append(" skipped (request body truncated or not captured as text)\n");
+        }
+        appendEndpoint(builder, total);
+        for (ReplayReport.EndpointReport endpoint : report.getEndpoints()) {
+            builder.append('\n').append(endpoint.getEndpoint()).append('\n');
+            appendEndpoint(builder, endpoint);
+        }
+        return builder.toString();
+    }
+
+    private static void appendEndpoint(StringBuilder builder, ReplayReport.EndpointReport endpoint) {
+        builder.append("  p50 ").append(endpoint.getP50()).append("ms  p90 ").append(endpoint.getP90())
+                .append("ms  p99 ").append(endpoint.getP99()).append("ms  max ").append(endpoint.getMax())
+                .append("ms\n  ").append(endpoint.getCount()).append(" requests, ")
+                .append(endpoint.getErrorCount()).append(" errors\n");
+        for (Map.Entry<String, Integer> error : endpoint.getErrors().entrySet()) {
+            builder.append("    ").append(error.getKey()).append(": ").append(error.getValue()).append('\n');
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (currentRun != null) {
+            currentRun.cancel();
+        }
+    }
+}
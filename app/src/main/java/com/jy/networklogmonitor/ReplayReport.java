@@ -0,0 +1,196 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 批量重放的结果：总吞吐量、合并后的耗时百分位，以及每个接口的耗时百分位和按原因分类的错误数。
+// 由重放线程在全部请求结束后创建，之后不再修改
+public final class ReplayReport {
+
+    // 一个接口的重放结果
+    public static final class EndpointReport {
+        private final String endpoint;
+        private final long count;
+        private final long errorCount;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+        private final Map<String, Integer> errors;
+
+        EndpointReport(String endpoint, LatencyHistogram histogram, Map<String, Integer> errors) {
+            this.endpoint = endpoint;
+            this.count = histogram.getCount();
+            this.errorCount = histogram.getErrorCount();
+            this.p50 = histogram.getPercentile(50);
+            this.p90 = histogram.getPercentile(90);
+            this.p99 = histogram.getPercentile(99);
+            this.max = histogram.getMaxMillis();
+            this.errors = Collections.unmodifiableMap(errors);
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        // 错误原因到次数，原因为"HTTP 503"这样的状态码或异常类名，如"SocketTimeoutException"
+        public Map<String, Integer> getErrors() {
+            return errors;
+        }
+    }
+
+    // 一个重放线程记录的结果，只由该线程写入，结束后再合并
+    static final class Recorder {
+        final Map<String, LatencyHistogram> histograms = new HashMap<>();
+        final Map<String, Map<String, Integer>> errors = new HashMap<>();
+        long responseBytes;
+
+        // error为null表示成功
+        void record(String endpoint, long latencyMillis, String error) {
+            LatencyHistogram histogram = histograms.get(endpoint);
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                histograms.put(endpoint, histogram);
+            }
+            histogram.record(latencyMillis, error != null);
+            if (error != null) {
+                Map<String, Integer> reasons = errors.get(endpoint);
+                if (reasons == null) {
+                    reasons = new HashMap<>();
+                    errors.put(endpoint, reasons);
+                }
+                Integer count = reasons.get(error);
+                reasons.put(error, count == null ? 1 : count + 1);
+            }
+        }
+    }
+
+    private final long durationMillis;
+    private final long responseBytes;
+    private final int skippedCount;
+    private final boolean cancelled;
+    private final EndpointReport total;
+    private final List<EndpointReport> endpoints;
+
+    private ReplayReport(long durationMillis, long responseBytes, int skippedCount, boolean cancelled,
+                         EndpointReport total, List<EndpointReport> endpoints) {
+        this.durationMillis = durationMillis;
+        this.responseBytes = responseBytes;
+        this.skippedCount = skippedCount;
+        this.cancelled = cancelled;
+        this.total = total;
+        this.endpoints = Collections.unmodifiableList(endpoints);
+    }
+
+    // 合并各线程的记录，接口按p99从高到低排列
+    static ReplayReport merge(List<Recorder> recorders, long durationMillis, int skippedCount, boolean cancelled) {
+        Map<String, LatencyHistogram> histograms = new HashMap<>();
+        Map<String, Map<String, Integer>> errors = new HashMap<>();
+        LatencyHistogram totalHistogram = new LatencyHistogram();
+        Map<String, Integer> totalErrors = new HashMap<>();
+        long responseBytes = 0;
+        for (Recorder recorder : recorders) {
+            responseBytes += recorder.responseBytes;
+            for (Map.Entry<String, LatencyHistogram> entry : recorder.histograms.entrySet()) {
+                LatencyHistogram merged = histograms.get(entry.getKey());
+                if (merged == null) {
+                    merged = new LatencyHistogram();
+                    histograms.put(entry.getKey(), merged);
+                }
+                merged.add(entry.getValue());
+                totalHistogram.add(entry.getValue());
+            }
+            for (Map.Entry<String, Map<String, Integer>> entry : recorder.errors.entrySet()) {
+                Map<String, Integer> merged = errors.get(entry.getKey());
+                if (merged == null) {
+                    merged = new HashMap<>();
+                    errors.put(entry.getKey(), merged);
+                }
+                addCounts(merged, entry.getValue());
+                addCounts(totalErrors, entry.getValue());
+            }
+        }
+        List<EndpointReport> endpoints = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            Map<String, Integer> reasons = errors.get(entry.getKey());
+            endpoints.add(new EndpointReport(entry.getKey(), entry.getValue(),
+                    reasons != null ? reasons : new HashMap<String, Integer>()));
+        }
+        Collections.sort(endpoints, new Comparator<EndpointReport>() {
+            @Override
+            public int compare(EndpointReport a, EndpointReport b) {
+                return a.p99 != b.p99 ? Long.compare(b.p99, a.p99) : Long.compare(b.count, a.count);
+            }
+        });
+        return new ReplayReport(durationMillis, responseBytes, skippedCount, cancelled,
+                new EndpointReport("", totalHistogram, totalErrors), endpoints);
+    }
+
+    private static void addCounts(Map<String, Integer> target, Map<String, Integer> source) {
+        for (Map.Entry<String, Integer> entry : source.entrySet()) {
+            Integer count = target.get(entry.getKey());
+            target.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+        }
+    }
+
+    // 从第一个请求开始到最后一个请求结束的时间
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    // 每秒完成的请求数
+    public double getThroughput() {
+        return durationMillis > 0 ? total.count * 1000.0 / durationMillis : 0;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    // 因请求体被截断而没有重放的日志数
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    // 是否被中途取消，取消时只包含已完成的请求
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // 所有接口合并后的结果，接口名为空字符串
+    public EndpointReport getTotal() {
+        return total;
+    }
+
+    public List<EndpointReport> getEndpoints() {
+        return endpoints;
+    }
+}
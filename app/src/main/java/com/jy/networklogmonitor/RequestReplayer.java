@@ -0,0 +1,321 @@
+package com.jy.networklogmonitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// 按抓到的请求批量重放，用于复现性能问题：指定并发数、重复次数和爬坡时间，结束后按接口汇总吞吐量、耗时百分位和错误原因。
+// 所有重放（包括详情页的单次重发）共用一个有界线程池和一个OkHttpClient，连接池和线程数都有上限
+public final class RequestReplayer {
+    // 最大并发数，也是共享线程池的线程数
+    public static final int MAX_CONCURRENCY = 16;
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final MediaType DEFAULT_MEDIA_TYPE = MediaType.parse("application/json");
+
+    private static final ThreadPoolExecutor sharedExecutor = new ThreadPoolExecutor(MAX_CONCURRENCY,
+            MAX_CONCURRENCY, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "NetworkLogMonitor-replay-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    // 爬坡期间按时把各线程的任务提交到sharedExecutor，等待开始的线程不占用线程池
+    private static final ScheduledThreadPoolExecutor rampUpScheduler = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "NetworkLogMonitor-replay-ramp-up");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        // 空闲时不保留线程
+        sharedExecutor.allowCoreThreadTimeOut(true);
+        rampUpScheduler.setKeepAliveTime(30, TimeUnit.SECONDS);
+        rampUpScheduler.allowCoreThreadTimeOut(true);
+        // 取消的定时任务立即移出队列
+        rampUpScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    private static OkHttpClient sharedClient;
+    // 构建sharedClient时使用的加密处理器，变化后重新构建
+    private static Interceptor sharedClientInterceptor;
+
+    // 重放参数
+    public static final class Options {
+        final int concurrency;
+        final int repeatCount;
+        final long rampUpMillis;
+
+        // concurrency个线程同时发送，每条请求重复repeatCount次；各线程在rampUpMillis内均匀地依次开始
+        public Options(int concurrency, int repeatCount, long rampUpMillis) {
+            if (concurrency < 1 || concurrency > MAX_CONCURRENCY) {
+                throw new IllegalArgumentException("concurrency must be between 1 and " + MAX_CONCURRENCY);
+            }
+            if (repeatCount < 1) {
+                throw new IllegalArgumentException("repeatCount must be positive");
+            }
+            if (rampUpMillis < 0) {
+                throw new IllegalArgumentException("rampUpMillis must not be negative");
+            }
+            this.concurrency = concurrency;
+            this.repeatCount = repeatCount;
+            this.rampUpMillis = rampUpMillis;
+        }
+    }
+
+    // 在重放线程中回调
+    public interface Listener {
+        // 每完成一个请求回调一次，调用方需要自行节流界面刷新
+        void onProgress(int completed, int total);
+
+        // 全部结束或被取消后回调一次
+        void onComplete(ReplayReport report);
+    }
+
+    // 一次正在进行的重放
+    public static final class Run {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        // 爬坡中等待开始的线程
+        private final List<DelayedStart> delayedStarts = new ArrayList<>();
+
+        // 取消尚未发送的请求，已发出的请求会等待完成；等待开始的线程立即开始并直接结束
+        public void cancel() {
+            cancelled.set(true);
+            synchronized (delayedStarts) {
+                for (DelayedStart start : delayedStarts) {
+                    start.future.cancel(false);
+                    start.run();
+                }
+                delayedStarts.clear();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    // 爬坡时间到达或重放被取消时把线程的任务提交到线程池，只提交一次
+    private static final class DelayedStart implements Runnable {
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final Executor executor;
+        private final Runnable worker;
+        ScheduledFuture<?> future;
+
+        DelayedStart(Executor executor, Runnable worker) {
+            this.executor = executor;
+            this.worker = worker;
+        }
+
+        @Override
+        public void run() {
+            if (started.compareAndSet(false, true)) {
+                executor.execute(worker);
+            }
+        }
+    }
+
+    // 重放前复制的请求内容，日志被淘汰后仍可重放
+    private static final class ReplayRequest {
+        final String endpoint;
+        final Request request;
+
+        ReplayRequest(String endpoint, Request request) {
+            this.endpoint = endpoint;
+            this.request = request;
+        }
+    }
+
+    private final OkHttpClient client;
+    private final Executor executor;
+
+    // 使用共享的线程池和OkHttpClient
+    public RequestReplayer() {
+        this(getSharedClient(), sharedExecutor);
+    }
+
+    RequestReplayer(OkHttpClient client, Executor executor) {
+        this.client = client;
+        this.executor = executor;
+    }
+
+    // 共享的OkHttpClient：连接池按最大并发数保留空闲连接，关闭失败重试以便如实统计错误；
+    // 设置了加密处理器时一并加入，不经过NetworkLogInterceptor，重放的请求不会再次被记录
+    public static synchronized OkHttpClient getSharedClient() {
+        Interceptor interceptor = NetworkLogInterceptor.getEncryptionInterceptor();
+        if (sharedClient == null || interceptor != sharedClientInterceptor) {
+            OkHttpClient.Builder builder;
+            if (sharedClient == null) {
+                builder = new OkHttpClient.Builder()
+                        .connectionPool(new ConnectionPool(MAX_CONCURRENCY, 5, TimeUnit.MINUTES))
+                        .retryOnConnectionFailure(false)
+                        .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                        .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                        .callTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } else {
+                // 沿用原有的连接池和线程
+                builder = sharedClient.newBuilder();
+                builder.interceptors().remove(sharedClientInterceptor);
+            }
+            if (interceptor != null) {
+                builder.addInterceptor(interceptor);
+            }
+            sharedClient = builder.build();
+            sharedClientInterceptor = interceptor;
+        }
+        return sharedClient;
+    }
+
+    // 在共享线程池中执行一次性的发送任务，如详情页的单次重发
+    public static void execute(Runnable task) {
+        sharedExecutor.execute(task);
+    }
+
+    // 把日志还原为请求；请求体被截断或只保存了预览/摘要（二进制内容、multipart）的日志无法如实重放，返回null
+    static Request toRequest(NetworkLog log) {
+        if (log.isRequestBodyTruncated() || !log.isRequestBodyRaw()) {
+            return null;
+        }
+        Headers headers = log.getHeaders();
+        Request.Builder builder = new Request.Builder().url(log.getUrl());
+        if (headers != null) {
+            // 长度和分块编码由OkHttp按实际请求体重新计算
+            builder.headers(headers.newBuilder().removeAll("Content-Length").removeAll("Transfer-Encoding").build());
+        }
+        String method = log.getMethod();
+        String body = log.getRequestBody();
+        if (method.equals("GET") || method.equals("HEAD")) {
+            builder.method(method, null);
+        } else {
+            String contentType = headers != null ? headers.get("Content-Type") : null;
+            MediaType mediaType = contentType != null ? MediaType.parse(contentType) : DEFAULT_MEDIA_TYPE;
+            builder.method(method, RequestBody.create(mediaType, body != null ? body : ""));
+        }
+        return builder.build();
+    }
+
+    // 开始重放logs，每条请求重复options.repeatCount次；立即返回，结果通过listener回调
+    public Run start(List<NetworkLog> logs, Options options, final Listener listener) {
+        final List<ReplayRequest> requests = new ArrayList<>(logs.size());
+        UrlTemplateNormalizer normalizer = NetworkLogInterceptor.getUrlTemplateNormalizer();
+        for (NetworkLog log : logs) {
+            Request request = toRequest(log);
+            if (request != null) {
+                String template = log.getUrlTemplate() != null ? log.getUrlTemplate() : normalizer.normalize(log.getUrl());
+                requests.add(new ReplayRequest(LatencyStats.endpoint(log.getMethod(), log.getHost(), template),
+                        request));
+            }
+        }
+        final int skippedCount = logs.size() - requests.size();
+        final int total = requests.size() * options.repeatCount;
+        final Run run = new Run();
+        final int workerCount = Math.max(1, Math.min(options.concurrency, total));
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger remainingWorkers = new AtomicInteger(workerCount);
+        final List<ReplayReport.Recorder> recorders = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            recorders.add(new ReplayReport.Recorder());
+        }
+        final long startNanos = System.nanoTime();
+        for (int i = 0; i < workerCount; i++) {
+            final ReplayReport.Recorder recorder = recorders.get(i);
+            long delayNanos = TimeUnit.MILLISECONDS.toNanos(options.rampUpMillis) * i / workerCount;
+            Runnable worker = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (!run.isCancelled()) {
+                            work(requests, total, nextIndex, completed, recorder, run, listener);
+                        }
+                    } finally {
+                        // 最后一个结束的线程合并结果，各线程的记录此时都已完成
+                        if (remainingWorkers.decrementAndGet() == 0) {
+                            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                            listener.onComplete(ReplayReport.merge(recorders, durationMillis, skippedCount,
+                                    run.isCancelled()));
+                        }
+                    }
+                }
+            };
+            if (delayNanos == 0) {
+                executor.execute(worker);
+            } else {
+                // 由定时线程在开始时间提交，不在线程池中等待
+                DelayedStart start = new DelayedStart(executor, worker);
+                synchronized (run.delayedStarts) {
+                    run.delayedStarts.add(start);
+                    start.future = rampUpScheduler.schedule(start, delayNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        return run;
+    }
+
+    private void work(List<ReplayRequest> requests, int total, AtomicInteger nextIndex, AtomicInteger completed,
+                      ReplayReport.Recorder recorder, Run run, Listener listener) {
+        byte[] buffer = new byte[8192];
+        while (!run.isCancelled()) {
+            int index = nextIndex.getAndIncrement();
+            if (index >= total) {
+                return;
+            }
+            // 按轮次依次发送：先把所有请求发一遍，再开始下一轮
+            ReplayRequest replay = requests.get(index % requests.size());
+            long start = System.nanoTime();
+            String error = null;
+            try (Response response = client.newCall(replay.request).execute()) {
+                recorder.responseBytes += drain(response.body(), buffer);
+                if (response.code() >= 400) {
+                    error = "HTTP " + response.code();
+                }
+            } catch (IOException e) {
+                error = e.getClass().getSimpleName();
+            }
+            recorder.record(replay.endpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), error);
+            listener.onProgress(completed.incrementAndGet(), total);
+        }
+    }
+
+    // 读完并丢弃响应体，耗时包括下载时间；返回读到的字节数
+    private static long drain(ResponseBody body, byte[] buffer) throws IOException {
+        if (body == null) {
+            return 0;
+        }
+        long bytes = 0;
+        InputStream in = body.byteStream();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes += read;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,65 @@
+package com.jy.networklogmonitor;
+
+import java.util.Arrays;
+
+// 递增的日志序号列表，列表的每一行只保存序号，行内容按需分页加载
+final class SequenceList {
+    private long[] sequences;
+    private int size;
+
+    SequenceList() {
+        this(16);
+    }
+
+    SequenceList(int capacity) {
+        sequences = new long[Math.max(1, capacity)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        return sequences[position];
+    }
+
+    void add(long sequence) {
+        ensureCapacity(size + 1);
+        sequences[size++] = sequence;
+    }
+
+    // 在position处插入一段序号
+    void insert(int position, long[] values, int count) {
+        ensureCapacity(size + count);
+        System.arraycopy(sequences, position, sequences, position + count, size - position);
+        System.arraycopy(values, 0, sequences, position, count);
+        size += count;
+    }
+
+    void remove(int position, int count) {
+        System.arraycopy(sequences, position + count, sequences, position, size - position - count);
+        size -= count;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    // 序号所在的位置，不存在时返回负数（与Arrays.binarySearch相同）
+    int indexOf(long sequence) {
+        return Arrays.binarySearch(sequences, 0, size, sequence);
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(sequences, size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > sequences.length) {
+            sequences = Arrays.copyOf(sequences, Math.max(capacity, sequences.length * 2));
+        }
+    }
+}
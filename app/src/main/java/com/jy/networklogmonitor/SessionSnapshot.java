@@ -0,0 +1,650 @@
+package com.jy.networklogmonitor;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 会话快照：把一次抓包会话的全部日志保存为一个按列存放的二进制文件，之后可以只读地重新打开查看。
+// 文件开头为魔数和版本号，之后依次是各个分区，末尾为日志条数、字符串条数、分区表(偏移, 长度)和魔数。
+// id、时间戳、耗时、状态码等字段各自连续保存为基本类型数组；方法名、URL前缀、请求头、接口模板和错误信息
+// 放在字符串字典中按下标引用；body单独放在一个分区中，较大的body以BodyCodec的格式（不带字典）压缩保存。
+// 打开时映射文件，检查分区表和各列中的偏移、引用都在范围内（损坏的文件在打开时即抛出IOException），
+// 日志在读取时才按行组装，压缩的body在显示时才解压。
+public final class SessionSnapshot implements LogView, Closeable {
+    public static final String FILE_SUFFIX = ".nls";
+
+    private static final int MAGIC = 0x4E4C5353;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+
+    // 分区编号
+    private static final int SECTION_ID = 0;
+    private static final int SECTION_TIMESTAMP = 1;
+    private static final int SECTION_RESPONSE_TIME = 2;
+    private static final int SECTION_STATUS = 3;
+    private static final int SECTION_REQUEST_BODY_SIZE = 4;
+    private static final int SECTION_RESPONSE_BODY_SIZE = 5;
+    private static final int SECTION_METHOD = 6;
+    private static final int SECTION_URL_PREFIX = 7;
+    private static final int SECTION_URL_OFFSETS = 8;
+    private static final int SECTION_URL_DATA = 9;
+    private static final int SECTION_TEMPLATE = 10;
+    private static final int SECTION_ERROR = 11;
+    private static final int SECTION_HEADER_OFFSETS = 12;
+    private static final int SECTION_HEADER_REFS = 13;
+    private static final int SECTION_TIMINGS = 14;
+    private static final int SECTION_TIMING_DATA = 15;
+    private static final int SECTION_STRING_OFFSETS = 16;
+    private static final int SECTION_STRING_DATA = 17;
+    private static final int SECTION_BODY_OFFSETS = 18;
+    private static final int SECTION_BODY_DATA = 19;
+    private static final int SECTION_COUNT = 20;
+    // 文件末尾的固定部分：日志条数(4) + 字符串条数(4) + 分区表 + 魔数(4)
+    private static final int TRAILER_SIZE = 12 + SECTION_COUNT * 8;
+
+    // 状态码列的低16位为状态码，高位为标记位
+    private static final int STATUS_CODE_MASK = 0xFFFF;
+    private static final int FLAG_REQUEST_BODY_TRUNCATED = 1 << 16;
+    private static final int FLAG_RESPONSE_BODY_TRUNCATED = 1 << 17;
+    private static final int FLAG_REQUEST_BODY_COMPRESSED = 1 << 18;
+    private static final int FLAG_RESPONSE_BODY_COMPRESSED = 1 << 19;
+    private static final int FLAG_HAS_REQUEST_BODY = 1 << 20;
+    private static final int FLAG_HAS_RESPONSE_BODY = 1 << 21;
+    private static final int FLAG_HAS_HEADERS = 1 << 22;
+    private static final int FLAG_CONNECTION_REUSED = 1 << 23;
+    private static final int FLAG_REQUEST_BODY_NOT_RAW = 1 << 24;
+    // 字符串引用列中表示null
+    private static final int NO_STRING = -1;
+
+    private final File file;
+    private final int count;
+    private final LongBuffer ids;
+    private final LongBuffer timestamps;
+    private final LongBuffer responseTimes;
+    private final IntBuffer statuses;
+    private final LongBuffer requestBodySizes;
+    private final LongBuffer responseBodySizes;
+    private final IntBuffer methods;
+    private final IntBuffer urlPrefixes;
+    private final IntBuffer urlOffsets;
+    private final ByteBuffer urlData;
+    private final IntBuffer templates;
+    private final IntBuffer errors;
+    private final IntBuffer headerOffsets;
+    private final IntBuffer headerRefs;
+    private final IntBuffer timings;
+    private final LongBuffer timingData;
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer stringData;
+    // 每条日志的请求体和响应体依次相邻，第i条日志的请求体为[offsets[2i], offsets[2i+1])
+    private final IntBuffer bodyOffsets;
+    private final ByteBuffer bodyData;
+    // 已解码的字典字符串，首次使用时解码；并发解码同一下标时结果相同，不需要同步
+    private final String[] strings;
+    // 日志id到行号的索引，打开时建立
+    private final LongIndexMap idIndex = new LongIndexMap();
+    private volatile boolean closed;
+
+    private SessionSnapshot(File file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        int size = buffer.capacity();
+        if (size < FILE_HEADER_SIZE + TRAILER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a session snapshot: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported session snapshot version: " + buffer.getInt(4));
+        }
+        int trailer = size - TRAILER_SIZE;
+        count = buffer.getInt(trailer);
+        int stringCount = buffer.getInt(trailer + 4);
+        if (count < 0 || stringCount < 0) {
+            throw corrupt();
+        }
+        ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+        for (int section = 0; section < SECTION_COUNT; section++) {
+            int offset = buffer.getInt(trailer + 8 + section * 8);
+            int length = buffer.getInt(trailer + 12 + section * 8);
+            if (offset < FILE_HEADER_SIZE || length < 0 || offset > trailer - length) {
+                throw corrupt();
+            }
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(offset);
+            slice.limit(offset + length);
+            sections[section] = slice.slice();
+        }
+        ids = longs(sections[SECTION_ID], count);
+        timestamps = longs(sections[SECTION_TIMESTAMP], count);
+        responseTimes = longs(sections[SECTION_RESPONSE_TIME], count);
+        statuses = ints(sections[SECTION_STATUS], count);
+        requestBodySizes = longs(sections[SECTION_REQUEST_BODY_SIZE], count);
+        responseBodySizes = longs(sections[SECTION_RESPONSE_BODY_SIZE], count);
+        methods = ints(sections[SECTION_METHOD], count);
+        urlPrefixes = ints(sections[SECTION_URL_PREFIX], count);
+        urlOffsets = ints(sections[SECTION_URL_OFFSETS], count + 1);
+        urlData = sections[SECTION_URL_DATA];
+        templates = ints(sections[SECTION_TEMPLATE], count);
+        errors = ints(sections[SECTION_ERROR], count);
+        headerOffsets = ints(sections[SECTION_HEADER_OFFSETS], count + 1);
+        headerRefs = ints(sections[SECTION_HEADER_REFS], sections[SECTION_HEADER_REFS].capacity() / 4);
+        timings = ints(sections[SECTION_TIMINGS], count);
+        timingData = longs(sections[SECTION_TIMING_DATA], sections[SECTION_TIMING_DATA].capacity() / 8);
+        stringOffsets = ints(sections[SECTION_STRING_OFFSETS], stringCount + 1);
+        stringData = sections[SECTION_STRING_DATA];
+        bodyOffsets = ints(sections[SECTION_BODY_OFFSETS], count * 2 + 1);
+        bodyData = sections[SECTION_BODY_DATA];
+        strings = new String[stringCount];
+        // 逐项检查偏移和引用，读取时不必再检查
+        checkOffsets(urlOffsets, urlData.capacity());
+        checkOffsets(headerOffsets, headerRefs.capacity());
+        checkOffsets(stringOffsets, stringData.capacity());
+        checkOffsets(bodyOffsets, bodyData.capacity());
+        checkRefs(methods, NO_STRING, stringCount);
+        checkRefs(urlPrefixes, NO_STRING, stringCount);
+        checkRefs(templates, NO_STRING, stringCount);
+        checkRefs(errors, NO_STRING, stringCount);
+        checkRefs(headerRefs, 0, stringCount);
+        // -1表示没有分阶段耗时
+        checkRefs(timings, -1, timingData.capacity() / CallTimings.PHASE_COUNT);
+        for (int row = 0; row < count; row++) {
+            long id = ids.get(row);
+            // -1表示没有id
+            if (id >= 0) {
+                idIndex.put(id, row);
+            }
+        }
+    }
+
+    // 打开会话快照文件，文件以只读方式映射到内存
+    public static SessionSnapshot open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Session snapshot too large: " + file);
+            }
+            // 映射在关闭文件后仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SessionSnapshot(file, buffer);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    // 把存储中当前的全部日志写入会话快照文件，返回写入的条数。先写入临时文件，完成后再替换目标文件
+    public static int write(LogView store, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        Writer writer = new Writer();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024));
+        boolean success = false;
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            long end = store.getEndSequence();
+            for (long sequence = store.getFirstSequence(); sequence < end; sequence++) {
+                NetworkLog log = store.get(sequence);
+                if (log != null) {
+                    writer.add(log, out);
+                }
+            }
+            writer.finish(out);
+            out.close();
+            success = true;
+        } finally {
+            if (!success) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    // 保留原来的异常
+                }
+                temp.delete();
+            }
+        }
+        if (!temp.renameTo(file)) {
+            // 部分文件系统不能覆盖已有文件
+            if (!file.delete() || !temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Cannot write " + file);
+            }
+        }
+        return writer.count;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public NetworkLog get(long sequence) {
+        if (closed || sequence < 0 || sequence >= count) {
+            return null;
+        }
+        int row = (int) sequence;
+        NetworkLog log = new NetworkLog(url(row), string(methods.get(row)));
+        log.setSequence(sequence);
+        log.setId(ids.get(row));
+        log.setTimestampNanos(timestamps.get(row));
+        int status = statuses.get(row);
+        log.setStatusCode(status & STATUS_CODE_MASK);
+        log.setRequestBodyTruncated((status & FLAG_REQUEST_BODY_TRUNCATED) != 0);
+        log.setResponseBodyTruncated((status & FLAG_RESPONSE_BODY_TRUNCATED) != 0);
+        log.setRequestBodyRaw((status & FLAG_REQUEST_BODY_NOT_RAW) == 0);
+        log.setResponseTime(responseTimes.get(row));
+        log.setRequestBodySize(requestBodySizes.get(row));
+        log.setResponseBodySize(responseBodySizes.get(row));
+        if ((status & FLAG_HAS_REQUEST_BODY) != 0) {
+            byte[] body = body(row * 2);
+            if ((status & FLAG_REQUEST_BODY_COMPRESSED) != 0) {
+                log.setRequestBodyCompressed(body);
+            } else {
+                log.setRequestBodyUtf8(body);
+            }
+        }
+        if ((status & FLAG_HAS_RESPONSE_BODY) != 0) {
+            byte[] body = body(row * 2 + 1);
+            if ((status & FLAG_RESPONSE_BODY_COMPRESSED) != 0) {
+                log.setResponseBodyCompressed(body);
+            } else {
+                log.setResponseBodyUtf8(body);
+            }
+        }
+        if ((status & FLAG_HAS_HEADERS) != 0) {
+            int start = headerOffsets.get(row);
+            String[] headers = new String[headerOffsets.get(row + 1) - start];
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = string(headerRefs.get(start + i));
+            }
+            log.setHeaderNamesAndValues(headers);
+        }
+        String template = string(templates.get(row));
+        if (template != null) {
+            log.setUrlTemplate(template);
+        }
+        log.setErrorMessage(string(errors.get(row)));
+        int timingRow = timings.get(row);
+        if (timingRow >= 0) {
+            CallTimings callTimings = new CallTimings();
+            for (int phase = 0; phase < CallTimings.PHASE_COUNT; phase++) {
+                callTimings.mark(phase, timingData.get(timingRow * CallTimings.PHASE_COUNT + phase));
+            }
+            callTimings.setConnectionReused((status & FLAG_CONNECTION_REUSED) != 0);
+            callTimings.finish();
+            log.setCallTimings(callTimings);
+        }
+        return log;
+    }
+
+    @Override
+    public NetworkLog getById(long id) {
+        long row = idIndex.get(id);
+        return row == LongIndexMap.MISSING ? null : get(row);
+    }
+
+    // 只读取摘要所需的列
+    @Override
+    public LogRow getRow(long sequence) {
+        if (closed || sequence < 0 || sequence >= count) {
+            return null;
+        }
+        int row = (int) sequence;
+        return new LogRow(sequence, ids.get(row), string(methods.get(row)), statuses.get(row) & STATUS_CODE_MASK,
+                responseTimes.get(row), url(row), timestamps.get(row) / 1_000_000L);
+    }
+
+    @Override
+    public long getFirstSequence() {
+        return 0;
+    }
+
+    @Override
+    public long getEndSequence() {
+        return count;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public List<NetworkLog> snapshot() {
+        List<NetworkLog> logs = new ArrayList<>(count);
+        for (int row = 0; row < count; row++) {
+            NetworkLog log = get(row);
+            if (log != null) {
+                logs.add(log);
+            }
+        }
+        return logs;
+    }
+
+    // 关闭后不再返回日志，映射的内存在缓冲区被回收时释放
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private String url(int row) {
+        int start = urlOffsets.get(row);
+        String suffix = utf8(urlData, start, urlOffsets.get(row + 1) - start);
+        String prefix = string(urlPrefixes.get(row));
+        return prefix != null ? prefix + suffix : suffix;
+    }
+
+    private String string(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+        String value = strings[index];
+        if (value == null) {
+            int start = stringOffsets.get(index);
+            value = utf8(stringData, start, stringOffsets.get(index + 1) - start);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    private byte[] body(int index) {
+        int start = bodyOffsets.get(index);
+        return bytes(bodyData, start, bodyOffsets.get(index + 1) - start);
+    }
+
+    private static String utf8(ByteBuffer buffer, int offset, int length) {
+        return new String(bytes(buffer, offset, length), StandardCharsets.UTF_8);
+    }
+
+    // 复制出缓冲区中的一段字节，可在多个线程中同时调用
+    private static byte[] bytes(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private static LongBuffer longs(ByteBuffer section, int length) throws IOException {
+        if (section.capacity() != (long) length * 8) {
+            throw corrupt();
+        }
+        return section.asLongBuffer();
+    }
+
+    private static IntBuffer ints(ByteBuffer section, int length) throws IOException {
+        if (section.capacity() != (long) length * 4) {
+            throw corrupt();
+        }
+        return section.asIntBuffer();
+    }
+
+    // 变长数据的偏移从0开始不减，且不超出数据所在的分区
+    private static void checkOffsets(IntBuffer offsets, int dataLength) throws IOException {
+        int previous = 0;
+        for (int i = 0; i < offsets.capacity(); i++) {
+            int offset = offsets.get(i);
+            if (offset < previous || offset > dataLength) {
+                throw corrupt();
+            }
+            previous = offset;
+        }
+    }
+
+    // 引用列的每个值都在[min, end)内
+    private static void checkRefs(IntBuffer refs, int min, int end) throws IOException {
+        for (int i = 0; i < refs.capacity(); i++) {
+            int ref = refs.get(i);
+            if (ref < min || ref >= end) {
+                throw corrupt();
+            }
+        }
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Corrupt session snapshot");
+    }
+
+    // 写入时按列收集字段：body直接写入文件，其余各列在最后依次写出。只在一个线程中使用
+    private static final class Writer {
+        int count;
+        private long[] ids = new long[1024];
+        private long[] timestamps = new long[1024];
+        private long[] responseTimes = new long[1024];
+        private int[] statuses = new int[1024];
+        private long[] requestBodySizes = new long[1024];
+        private long[] responseBodySizes = new long[1024];
+        private int[] methods = new int[1024];
+        private int[] urlPrefixes = new int[1024];
+        private int[] urlOffsets = new int[1025];
+        private final ByteArrayBuilder urlData = new ByteArrayBuilder();
+        private int[] templates = new int[1024];
+        private int[] errors = new int[1024];
+        private int[] headerOffsets = new int[1025];
+        private int[] headerRefs = new int[1024];
+        private int headerRefCount;
+        private int[] timings = new int[1024];
+        private long[] timingData = new long[CallTimings.PHASE_COUNT * 64];
+        private int timingCount;
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        // body分区紧接在文件头之后，边收集其余各列边写入
+        private int[] bodyOffsets = new int[2049];
+        private int bodyLength;
+        private final BodyCodec.Compressor compressor = new BodyCodec.Compressor();
+
+        void add(NetworkLog log, DataOutputStream out) throws IOException {
+            if (count == ids.length) {
+                grow();
+            }
+            int row = count;
+            ids[row] = log.getId();
+            timestamps[row] = log.getTimestampNanos();
+            responseTimes[row] = log.getResponseTime();
+            requestBodySizes[row] = log.getRequestBodySize();
+            responseBodySizes[row] = log.getResponseBodySize();
+            methods[row] = stringIndex(log.getMethod());
+            String url = log.getUrl();
+            int prefixEnd = NetworkLog.urlPrefixEnd(url);
+            urlPrefixes[row] = prefixEnd > 0 ? stringIndex(url.substring(0, prefixEnd)) : NO_STRING;
+            urlData.append(url.substring(prefixEnd).getBytes(StandardCharsets.UTF_8));
+            urlOffsets[row + 1] = urlData.length;
+            templates[row] = stringIndex(log.getUrlTemplate());
+            errors[row] = stringIndex(log.getErrorMessage());
+
+            int status = log.getStatusCode() & STATUS_CODE_MASK;
+            if (log.isRequestBodyTruncated()) {
+                status |= FLAG_REQUEST_BODY_TRUNCATED;
+            }
+            if (log.isResponseBodyTruncated()) {
+                status |= FLAG_RESPONSE_BODY_TRUNCATED;
+            }
+            if (!log.isRequestBodyRaw()) {
+                status |= FLAG_REQUEST_BODY_NOT_RAW;
+            }
+            status |= writeBody(log.getRequestBodyUtf8(), FLAG_HAS_REQUEST_BODY, FLAG_REQUEST_BODY_COMPRESSED, out);
+            bodyOffsets[row * 2 + 1] = bodyLength;
+            status |= writeBody(log.getResponseBodyUtf8(), FLAG_HAS_RESPONSE_BODY, FLAG_RESPONSE_BODY_COMPRESSED, out);
+            bodyOffsets[row * 2 + 2] = bodyLength;
+
+            String[] headers = log.getHeaderNamesAndValues();
+            if (headers != null) {
+                status |= FLAG_HAS_HEADERS;
+                if (headerRefCount + headers.length > headerRefs.length) {
+                    headerRefs = Arrays.copyOf(headerRefs, Math.max(headerRefs.length * 2,
+                            headerRefCount + headers.length));
+                }
+                for (String header : headers) {
+                    headerRefs[headerRefCount++] = stringIndex(header);
+                }
+            }
+            headerOffsets[row + 1] = headerRefCount;
+
+            CallTimings callTimings = log.getCallTimings();
+            if (callTimings != null) {
+                if (callTimings.isConnectionReused()) {
+                    status |= FLAG_CONNECTION_REUSED;
+                }
+                if ((timingCount + 1) * CallTimings.PHASE_COUNT > timingData.length) {
+                    timingData = Arrays.copyOf(timingData, timingData.length * 2);
+                }
+                for (int phase = 0; phase < CallTimings.PHASE_COUNT; phase++) {
+                    timingData[timingCount * CallTimings.PHASE_COUNT + phase] = callTimings.getTimestamp(phase);
+                }
+                timings[row] = timingCount++;
+            } else {
+                timings[row] = -1;
+            }
+            statuses[row] = status;
+            count++;
+        }
+
+        // 写出body，返回对应的标记位；不小于BodyCodec.MIN_COMPRESS_SIZE且压缩后更小的body压缩保存
+        private int writeBody(byte[] body, int presentFlag, int compressedFlag, DataOutputStream out)
+                throws IOException {
+            if (body == null) {
+                return 0;
+            }
+            int compressedLength = body.length >= BodyCodec.MIN_COMPRESS_SIZE
+                    ? compressor.deflate(body, null) : -1;
+            int length = compressedLength >= 0 ? compressedLength : body.length;
+            if (length > Integer.MAX_VALUE - FILE_HEADER_SIZE - bodyLength) {
+                throw new IOException("Session snapshot too large");
+            }
+            if (compressedLength >= 0) {
+                out.write(compressor.buffer(), 0, compressedLength);
+            } else {
+                out.write(body);
+            }
+            bodyLength += length;
+            return compressedLength >= 0 ? presentFlag | compressedFlag : presentFlag;
+        }
+
+        private int stringIndex(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer index = stringIndexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                stringIndexes.put(value, index);
+                strings.add(value);
+            }
+            return index;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            responseTimes = Arrays.copyOf(responseTimes, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            requestBodySizes = Arrays.copyOf(requestBodySizes, capacity);
+            responseBodySizes = Arrays.copyOf(responseBodySizes, capacity);
+            methods = Arrays.copyOf(methods, capacity);
+            urlPrefixes = Arrays.copyOf(urlPrefixes, capacity);
+            urlOffsets = Arrays.copyOf(urlOffsets, capacity + 1);
+            templates = Arrays.copyOf(templates, capacity);
+            errors = Arrays.copyOf(errors, capacity);
+            headerOffsets = Arrays.copyOf(headerOffsets, capacity + 1);
+            timings = Arrays.copyOf(timings, capacity);
+            bodyOffsets = Arrays.copyOf(bodyOffsets, capacity * 2 + 1);
+        }
+
+        // 在body分区之后写出其余分区和文件尾
+        void finish(DataOutputStream out) throws IOException {
+            compressor.end();
+            int[] offsets = new int[SECTION_COUNT];
+            int[] lengths = new int[SECTION_COUNT];
+            offsets[SECTION_BODY_DATA] = FILE_HEADER_SIZE;
+            lengths[SECTION_BODY_DATA] = bodyLength;
+            writeLongs(out, SECTION_ID, ids, count, offsets, lengths);
+            writeLongs(out, SECTION_TIMESTAMP, timestamps, count, offsets, lengths);
+            writeLongs(out, SECTION_RESPONSE_TIME, responseTimes, count, offsets, lengths);
+            writeInts(out, SECTION_STATUS, statuses, count, offsets, lengths);
+            writeLongs(out, SECTION_REQUEST_BODY_SIZE, requestBodySizes, count, offsets, lengths);
+            writeLongs(out, SECTION_RESPONSE_BODY_SIZE, responseBodySizes, count, offsets, lengths);
+            writeInts(out, SECTION_METHOD, methods, count, offsets, lengths);
+            writeInts(out, SECTION_URL_PREFIX, urlPrefixes, count, offsets, lengths);
+            writeInts(out, SECTION_URL_OFFSETS, urlOffsets, count + 1, offsets, lengths);
+            offsets[SECTION_URL_DATA] = out.size();
+            out.write(urlData.bytes, 0, urlData.length);
+            lengths[SECTION_URL_DATA] = urlData.length;
+            writeInts(out, SECTION_TEMPLATE, templates, count, offsets, lengths);
+            writeInts(out, SECTION_ERROR, errors, count, offsets, lengths);
+            writeInts(out, SECTION_HEADER_OFFSETS, headerOffsets, count + 1, offsets, lengths);
+            writeInts(out, SECTION_HEADER_REFS, headerRefs, headerRefCount, offsets, lengths);
+            writeInts(out, SECTION_TIMINGS, timings, count, offsets, lengths);
+            writeLongs(out, SECTION_TIMING_DATA, timingData, timingCount * CallTimings.PHASE_COUNT, offsets, lengths);
+            int[] stringOffsets = new int[strings.size() + 1];
+            ByteArrayBuilder stringData = new ByteArrayBuilder();
+            for (int i = 0; i < strings.size(); i++) {
+                stringData.append(strings.get(i).getBytes(StandardCharsets.UTF_8));
+                stringOffsets[i + 1] = stringData.length;
+            }
+            writeInts(out, SECTION_STRING_OFFSETS, stringOffsets, stringOffsets.length, offsets, lengths);
+            offsets[SECTION_STRING_DATA] = out.size();
+            out.write(stringData.bytes, 0, stringData.length);
+            lengths[SECTION_STRING_DATA] = stringData.length;
+            writeInts(out, SECTION_BODY_OFFSETS, bodyOffsets, count * 2 + 1, offsets, lengths);
+            if (out.size() > Integer.MAX_VALUE - TRAILER_SIZE) {
+                // DataOutputStream的计数超过int范围后会停在Integer.MAX_VALUE
+                throw new IOException("Session snapshot too large");
+            }
+
+            out.writeInt(count);
+            out.writeInt(strings.size());
+            for (int section = 0; section < SECTION_COUNT; section++) {
+                out.writeInt(offsets[section]);
+                out.writeInt(lengths[section]);
+            }
+            out.writeInt(MAGIC);
+        }
+
+        private static void writeLongs(DataOutputStream out, int section, long[] values, int length,
+                                       int[] offsets, int[] lengths) throws IOException {
+            offsets[section] = out.size();
+            for (int i = 0; i < length; i++) {
+                out.writeLong(values[i]);
+            }
+            lengths[section] = length * 8;
+        }
+
+        private static void writeInts(DataOutputStream out, int section, int[] values, int length,
+                                      int[] offsets, int[] lengths) throws IOException {
+            offsets[section] = out.size();
+            for (int i = 0; i < length; i++) {
+                out.writeInt(values[i]);
+            }
+            lengths[section] = length * 4;
+        }
+    }
+
+    // 可增长的字节数组，避免ByteArrayOutputStream.toByteArray()的额外复制
+    private static final class ByteArrayBuilder {
+        byte[] bytes = new byte[4096];
+        int length;
+
+        void append(byte[] data) throws IOException {
+            if (data.length > Integer.MAX_VALUE - 8 - length) {
+                throw new IOException("Session snapshot too large");
+            }
+            if (length + data.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + data.length));
+            }
+            System.arraycopy(data, 0, bytes, length, data.length);
+            length += data.length;
+        }
+    }
+}
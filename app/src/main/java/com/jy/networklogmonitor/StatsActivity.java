@@ -0,0 +1,134 @@
+package com.jy.networklogmonitor;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 按接口显示耗时百分位、请求数和错误数，可切换1分钟、5分钟和整个会话的时间窗口。
+// 统计由抓包线程实时更新，页面可见时每秒无锁读取一次
+public class StatsActivity extends AppCompatActivity {
+    private static final long REFRESH_INTERVAL_MILLIS = 1000;
+
+    private TextView totalText;
+    private final StatsAdapter statsAdapter = new StatsAdapter();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private int window = LatencyStats.WINDOW_1_MINUTE;
+
+    private final Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+            handler.postDelayed(this, REFRESH_INTERVAL_MILLIS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        supportRequestWindowFeature(Window.FEATURE_NO_TITLE);
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stats);
+
+        totalText = findViewById(R.id.total_text);
+        RecyclerView statsRecyclerView = findViewById(R.id.stats_recycler_view);
+        statsRecyclerView.setAdapter(statsAdapter);
+        // 每秒刷新一次，关闭动画避免闪烁
+        statsRecyclerView.setItemAnimator(null);
+
+        RadioGroup windowGroup = findViewById(R.id.window_group);
+        windowGroup.setOnCheckedChangeListener((group, checkedId) -> {
+            if (checkedId == R.id.window_5m) {
+                window = LatencyStats.WINDOW_5_MINUTES;
+            } else if (checkedId == R.id.window_session) {
+                window = LatencyStats.WINDOW_SESSION;
+            } else {
+                window = LatencyStats.WINDOW_1_MINUTE;
+            }
+            refresh();
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        handler.post(refreshTask);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        handler.removeCallbacks(refreshTask);
+    }
+
+    private void refresh() {
+        LatencyStats stats = NetworkLogInterceptor.getLatencyStats();
+        long now = System.currentTimeMillis();
+        LatencyStats.EndpointStats total = stats.queryTotal(window, now);
+        totalText.setText("All endpoints: " + formatPercentiles(total) + "\n" + formatCounts(total));
+        statsAdapter.setStats(stats.query(window, now));
+    }
+
+    static String formatPercentiles(LatencyStats.EndpointStats stats) {
+        return "p50 " + stats.getP50() + "ms  p90 " + stats.getP90() + "ms  p99 " + stats.getP99()
+                + "ms  max " + stats.getMax() + "ms";
+    }
+
+    static String formatCounts(LatencyStats.EndpointStats stats) {
+        return stats.getCount() + " requests, " + stats.getErrorCount() + " errors";
+    }
+
+    static class StatsAdapter extends RecyclerView.Adapter<StatsAdapter.StatsViewHolder> {
+        private List<LatencyStats.EndpointStats> stats = new ArrayList<>();
+
+        void setStats(List<LatencyStats.EndpointStats> stats) {
+            this.stats = stats;
+            notifyDataSetChanged();
+        }
+
+        @NonNull
+        @Override
+        public StatsViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.stats_item, parent, false);
+            return new StatsViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull StatsViewHolder holder, int position) {
+            LatencyStats.EndpointStats item = stats.get(position);
+            holder.endpointText.setText(item.getEndpoint());
+            holder.percentilesText.setText(formatPercentiles(item));
+            holder.countText.setText(formatCounts(item));
+            holder.countText.setTextColor(item.getErrorCount() > 0 ? 0xFFF44336 : 0xFF999999);
+        }
+
+        @Override
+        public int getItemCount() {
+            return stats.size();
+        }
+
+        static class StatsViewHolder extends RecyclerView.ViewHolder {
+            TextView endpointText;
+            TextView percentilesText;
+            TextView countText;
+
+            StatsViewHolder(@NonNull View itemView) {
+                super(itemView);
+                endpointText = itemView.findViewById(R.id.endpoint_text);
+                percentilesText = itemView.findViewById(R.id.percentiles_text);
+                countText = itemView.findViewById(R.id.count_text);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.jy.networklogmonitor;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// 有上限的字符串常量池：相同内容的字符串在所有日志间共享同一个实例
+final class StringPool {
+    private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    StringPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // 返回池中的共享实例；池已满且没有相同内容时返回null，由调用方自行保存
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = strings.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (strings.size() >= maxSize) {
+            return null;
+        }
+        existing = strings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    // 清空后已有的日志仍持有原来的实例，之后的日志重新共享
+    void clear() {
+        strings.clear();
+    }
+
+    int size() {
+        return strings.size();
+    }
+}
@@ -0,0 +1,37 @@
+package com.jy.networklogmonitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 分段的long计数器：每个线程按线程id固定累加到其中一段，多个线程同时累加时很少竞争同一个值；读取时把各段相加。
+// 各段之间间隔一个缓存行，避免伪共享。作用与LongAdder相同（LongAdder需要API 24）
+final class StripedCounter {
+    // 段数，为2的幂
+    private static final int STRIPES = 16;
+    // 每段占用的long数，8个long为64字节
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    void increment() {
+        add(1);
+    }
+
+    void add(long delta) {
+        cells.getAndAdd(stripe() * PADDING, delta);
+    }
+
+    // 各段之和；与并发的累加没有先后保证
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private static int stripe() {
+        // 打散连续的线程id
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 60) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,132 @@
+package com.jy.networklogmonitor;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.util.Locale;
+
+// 以瀑布图展示一次请求的分阶段耗时：每个阶段一行，横条的位置和长度按请求总耗时缩放
+public class TimingWaterfallView extends View {
+    private static final int[] SEGMENT_COLORS = {
+            0xFF26A69A, 0xFFFFA726, 0xFFAB47BC, 0xFF42A5F5, 0xFF66BB6A, 0xFF29B6F6
+    };
+
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint barPaint = new Paint();
+    private final Paint trackPaint = new Paint();
+    private final float density;
+    private final float rowHeight;
+    private final float labelWidth;
+    private final float durationWidth;
+
+    private CallTimings timings;
+    // 有数据的阶段，按SEGMENT_*顺序；起止时间和文字在setTimings()中算好，onDraw()不再分配对象
+    private final int[] visibleSegments = new int[CallTimings.SEGMENT_COUNT];
+    private final long[] segmentStarts = new long[CallTimings.SEGMENT_COUNT];
+    private final long[] segmentEnds = new long[CallTimings.SEGMENT_COUNT];
+    private final String[] durationLabels = new String[CallTimings.SEGMENT_COUNT];
+    private int visibleCount;
+    private long totalNanos;
+    private String summary;
+
+    public TimingWaterfallView(Context context) {
+        this(context, null);
+    }
+
+    public TimingWaterfallView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        density = getResources().getDisplayMetrics().density;
+        rowHeight = 22 * density;
+        labelWidth = 96 * density;
+        durationWidth = 64 * density;
+        labelPaint.setColor(0xFF666666);
+        labelPaint.setTextSize(12 * getResources().getDisplayMetrics().scaledDensity);
+        trackPaint.setColor(0xFFF5F5F5);
+    }
+
+    public void setTimings(CallTimings timings) {
+        this.timings = timings;
+        visibleCount = 0;
+        totalNanos = timings != null ? timings.getTotalNanos() : -1;
+        if (timings != null) {
+            for (int segment = 0; segment < CallTimings.SEGMENT_COUNT; segment++) {
+                long start = timings.getSegmentStartNanos(segment);
+                long end = timings.getSegmentEndNanos(segment);
+                if (start >= 0 && end >= start) {
+                    visibleSegments[visibleCount] = segment;
+                    segmentStarts[visibleCount] = start;
+                    segmentEnds[visibleCount] = end;
+                    durationLabels[visibleCount] = formatNanos(end - start);
+                    visibleCount++;
+                    totalNanos = Math.max(totalNanos, end);
+                }
+            }
+            totalNanos = Math.max(totalNanos, 1);
+            summary = "Total " + formatNanos(totalNanos)
+                    + (timings.isConnectionReused() ? "  ·  connection reused" : "")
+                    + (timings.isFinished() ? "" : "  ·  in progress");
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // 各阶段一行，再加一行总耗时和连接复用情况
+        int rows = visibleCount + 1;
+        int height = (int) Math.ceil(rows * rowHeight) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float baselineOffset = (rowHeight - labelPaint.ascent() - labelPaint.descent()) / 2;
+        if (timings == null) {
+            canvas.drawText("No timing data (add NetworkLogEventListener.FACTORY to OkHttpClient)",
+                    left, top + baselineOffset, labelPaint);
+            return;
+        }
+        float barLeft = left + labelWidth;
+        float barRight = getWidth() - getPaddingRight() - durationWidth;
+        float barWidth = Math.max(1, barRight - barLeft);
+        float barInset = 5 * density;
+        for (int row = 0; row < visibleCount; row++) {
+            int segment = visibleSegments[row];
+            float rowTop = top + row * rowHeight;
+            long start = segmentStarts[row];
+            long end = segmentEnds[row];
+            canvas.drawText(CallTimings.getSegmentName(segment), left, rowTop + baselineOffset, labelPaint);
+            canvas.drawRect(barLeft, rowTop + barInset, barRight, rowTop + rowHeight - barInset, trackPaint);
+            float startX = barLeft + barWidth * start / totalNanos;
+            // 极短的阶段也至少画出1dp
+            float endX = Math.max(startX + density, barLeft + barWidth * end / totalNanos);
+            barPaint.setColor(SEGMENT_COLORS[segment]);
+            canvas.drawRect(startX, rowTop + barInset, endX, rowTop + rowHeight - barInset, barPaint);
+            canvas.drawText(durationLabels[row], barRight + 4 * density, rowTop + baselineOffset, labelPaint);
+        }
+        labelPaint.setColor(Color.DKGRAY);
+        canvas.drawText(summary, left, top + visibleCount * rowHeight + baselineOffset, labelPaint);
+        labelPaint.setColor(0xFF666666);
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos < 0) {
+            return "-";
+        }
+        if (nanos < 1_000_000) {
+            return String.format(Locale.US, "%.2fms", nanos / 1_000_000d);
+        }
+        if (nanos < 10_000_000_000L) {
+            return String.format(Locale.US, "%.1fms", nanos / 1_000_000d);
+        }
+        return String.format(Locale.US, "%.1fs", nanos / 1_000_000_000d);
+    }
+}
@@ -0,0 +1,276 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// 预编译的host/path匹配器：host用哈希表查找，path用按段组织的前缀树匹配，多条规则命中时取最先添加的。
+// 查找时直接按字符串中的一段[start, end)计算哈希和比较，匹配过程不截取子串（正则规则除外）。
+final class UrlPatternMatcher<T> {
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    // key为精确host
+    private final SegmentMap<Node> hostTries = new SegmentMap<>();
+    // "*.后缀"的规则，key为去掉"*"的后缀，如".example.com"
+    private final SegmentMap<Node> suffixHostTries = new SegmentMap<>();
+    // host为"*"的规则
+    private Node anyHostTrie;
+    private final List<Pattern> regexPatterns = new ArrayList<>();
+    private final List<Integer> regexIndexes = new ArrayList<>();
+    private final List<T> values = new ArrayList<>();
+
+    boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    // hostGlob支持"example.com"、"*.example.com"和"*"；pathGlob按"/"分段，"*"匹配一段，"**"匹配任意多段，段内可用"*"通配
+    void add(String hostGlob, String pathGlob, T value) {
+        String host = hostGlob == null || hostGlob.isEmpty() ? "*" : hostGlob.toLowerCase(Locale.US);
+        Node node;
+        if (host.equals("*")) {
+            if (anyHostTrie == null) {
+                anyHostTrie = new Node();
+            }
+            node = anyHostTrie;
+        } else if (host.startsWith("*.") && host.indexOf('*', 1) < 0) {
+            node = root(suffixHostTries, host.substring(1));
+        } else if (host.indexOf('*') >= 0) {
+            throw new IllegalArgumentException("Unsupported host pattern: " + hostGlob);
+        } else {
+            node = root(hostTries, host);
+        }
+        String path = pathGlob == null || pathGlob.isEmpty() ? "/**" : pathGlob;
+        int start = path.startsWith("/") ? 1 : 0;
+        while (true) {
+            int slash = path.indexOf('/', start);
+            String segment = slash < 0 ? path.substring(start) : path.substring(start, slash);
+            node = node.child(segment);
+            if (slash < 0) {
+                break;
+            }
+            start = slash + 1;
+        }
+        int index = values.size();
+        values.add(value);
+        node.terminalIndex = Math.min(node.terminalIndex, index);
+    }
+
+    private static Node root(SegmentMap<Node> tries, String key) {
+        Node node = tries.get(key, 0, key.length());
+        if (node == null) {
+            node = new Node();
+            tries.put(key, node);
+        }
+        return node;
+    }
+
+    // 正则匹配"host + path"，只在无法用通配符表达时使用
+    void addRegex(String regex, T value) {
+        regexPatterns.add(Pattern.compile(regex));
+        regexIndexes.add(values.size());
+        values.add(value);
+    }
+
+    // 返回最先添加的命中规则的值，没有命中时返回null
+    T match(String host, String path) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        int segmentStart = path.startsWith("/") ? 1 : 0;
+        int best = matchHost(hostTries.get(host, 0, host.length()), path, segmentStart, NO_MATCH);
+        if (!suffixHostTries.isEmpty()) {
+            for (int dot = host.indexOf('.'); dot >= 0; dot = host.indexOf('.', dot + 1)) {
+                best = matchHost(suffixHostTries.get(host, dot, host.length()), path, segmentStart, best);
+            }
+        }
+        best = matchHost(anyHostTrie, path, segmentStart, best);
+        if (!regexPatterns.isEmpty()) {
+            String url = host + path;
+            for (int i = 0; i < regexPatterns.size(); i++) {
+                int index = regexIndexes.get(i);
+                if (index < best && regexPatterns.get(i).matcher(url).find()) {
+                    best = index;
+                }
+            }
+        }
+        return best == NO_MATCH ? null : values.get(best);
+    }
+
+    private static int matchHost(Node root, String path, int segmentStart, int best) {
+        return root == null ? best : Math.min(best, match(root, path, segmentStart));
+    }
+
+    // segmentStart为当前段的起始位置，-1表示路径已经匹配完
+    private static int match(Node node, String path, int segmentStart) {
+        int best = NO_MATCH;
+        if (node.anyPath != null) {
+            // "**"可以吞掉零个或多个段
+            int position = segmentStart;
+            while (true) {
+                best = Math.min(best, match(node.anyPath, path, position));
+                if (position < 0) {
+                    break;
+                }
+                int slash = path.indexOf('/', position);
+                position = slash < 0 ? -1 : slash + 1;
+            }
+        }
+        if (segmentStart < 0) {
+            return Math.min(best, node.terminalIndex);
+        }
+        int slash = path.indexOf('/', segmentStart);
+        int segmentEnd = slash < 0 ? path.length() : slash;
+        int next = slash < 0 ? -1 : slash + 1;
+        if (node.children != null) {
+            Node child = node.children.get(path, segmentStart, segmentEnd);
+            if (child != null) {
+                best = Math.min(best, match(child, path, next));
+            }
+        }
+        if (node.anySegment != null) {
+            best = Math.min(best, match(node.anySegment, path, next));
+        }
+        if (node.globPatterns != null) {
+            for (int i = 0; i < node.globPatterns.size(); i++) {
+                if (globMatches(node.globPatterns.get(i), path, segmentStart, segmentEnd)) {
+                    best = Math.min(best, match(node.globChildren.get(i), path, next));
+                }
+            }
+        }
+        return best;
+    }
+
+    // 段内通配：只支持"*"，如"*.png"、"v*"
+    static boolean globMatches(String pattern, String text, int start, int end) {
+        int p = 0;
+        int t = start;
+        int starP = -1;
+        int starT = -1;
+        while (t < end) {
+            if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starP = p++;
+                starT = t;
+            } else if (p < pattern.length() && pattern.charAt(p) == text.charAt(t)) {
+                p++;
+                t++;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                t = ++starT;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static final class Node {
+        SegmentMap<Node> children;
+        Node anySegment;
+        Node anyPath;
+        List<String> globPatterns;
+        List<Node> globChildren;
+        int terminalIndex = NO_MATCH;
+
+        Node child(String segment) {
+            if (segment.equals("**")) {
+                if (anyPath == null) {
+                    anyPath = new Node();
+                }
+                return anyPath;
+            }
+            if (segment.equals("*")) {
+                if (anySegment == null) {
+                    anySegment = new Node();
+                }
+                return anySegment;
+            }
+            if (segment.indexOf('*') >= 0) {
+                if (globPatterns == null) {
+                    globPatterns = new ArrayList<>();
+                    globChildren = new ArrayList<>();
+                }
+                int existing = globPatterns.indexOf(segment);
+                if (existing >= 0) {
+                    return globChildren.get(existing);
+                }
+                Node node = new Node();
+                globPatterns.add(segment);
+                globChildren.add(node);
+                return node;
+            }
+            if (children == null) {
+                children = new SegmentMap<>();
+            }
+            Node node = children.get(segment, 0, segment.length());
+            if (node == null) {
+                node = new Node();
+                children.put(segment, node);
+            }
+            return node;
+        }
+    }
+
+    // 以字符串为key的开放寻址哈希表，可以用另一个字符串中的一段[start, end)查找而不截取子串；只在构建时写入
+    private static final class SegmentMap<V> {
+        private String[] keys = new String[4];
+        private Object[] values = new Object[4];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(String text, int start, int end) {
+            int length = end - start;
+            int mask = keys.length - 1;
+            for (int i = hash(text, start, end) & mask; keys[i] != null; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key.length() == length && key.regionMatches(0, text, start, length)) {
+                    return (V) values[i];
+                }
+            }
+            return null;
+        }
+
+        // 调用方保证key不存在
+        void put(String key, V value) {
+            if ((size + 1) * 2 > keys.length) {
+                String[] oldKeys = keys;
+                Object[] oldValues = values;
+                keys = new String[oldKeys.length * 2];
+                values = new Object[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(key, value);
+            size++;
+        }
+
+        private void insert(String key, Object value) {
+            int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        // 与String.hashCode()相同的算法，再把高位混入低位
+        private static int hash(String text, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + text.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.jy.networklogmonitor;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// URL搜索索引：保存小写后的URL，并为每个三字符片段（trigram）维护按序号递增的倒排表。
+// 查询时取查询词中最短的倒排表作为候选，再逐个确认URL包含查询词；少于3个字符的查询直接扫描小写URL。
+// 日志追加时在抓包后台线程中更新，查询在搜索线程中进行；重建时在锁外建立新的索引，完成后整体替换。
+final class UrlSearchIndex {
+    // 每隔多少个候选检查一次是否已取消
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 访问时持有lock
+    private Data data = new Data();
+
+    // 添加日志的URL，序号必须递增，重复或更小的序号会被忽略
+    void add(long sequence, String url) {
+        if (url == null) {
+            return;
+        }
+        String lowerUrl = url.toLowerCase(Locale.ROOT);
+        lock.writeLock().lock();
+        try {
+            data.add(sequence, lowerUrl);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 淘汰序号小于firstSequence的日志，淘汰数量较多时压缩索引
+    void evictBefore(long firstSequence) {
+        lock.writeLock().lock();
+        try {
+            data.evictBefore(firstSequence);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            data = new Data();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 用存储中现有的日志重建索引，只读取行摘要，不读取请求头和body。
+    // 新索引在锁外建立，期间查询和抓包线程的写入仍使用旧索引；替换时补上重建期间追加的日志
+    void rebuild(LogView store) {
+        Data rebuilt = new Data();
+        long end = store.getEndSequence();
+        addRows(rebuilt, store, store.getFirstSequence(), end);
+        lock.writeLock().lock();
+        try {
+            addRows(rebuilt, store, end, store.getEndSequence());
+            rebuilt.evictBefore(store.getFirstSequence());
+            data = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addRows(Data target, LogView store, long from, long to) {
+        for (long sequence = from; sequence < to; sequence++) {
+            LogRow row = store.getRow(sequence);
+            if (row != null && row.getUrl() != null) {
+                target.add(sequence, row.getUrl().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    // 下一条写入的序号，小于它的日志都已在索引中
+    long getEndSequence() {
+        lock.readLock().lock();
+        try {
+            return data.endSequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return (int) (data.endSequence - data.firstSequence);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 返回URL包含query（不区分大小写）的日志序号，从旧到新排列；cancelled被置为true时返回null
+    long[] search(String query, AtomicBoolean cancelled) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            Data data = this.data;
+            if (lowerQuery.length() < 3) {
+                return data.scan(lowerQuery, cancelled);
+            }
+            // 取最短的倒排表作为候选
+            Postings shortest = null;
+            for (int i = 0; i + 3 <= lowerQuery.length(); i++) {
+                Postings list = data.postings(trigram(lowerQuery, i));
+                if (list == null) {
+                    return new long[0];
+                }
+                if (shortest == null || list.size < shortest.size) {
+                    shortest = list;
+                }
+            }
+            long[] result = new long[Math.min(shortest.size, (int) (data.endSequence - data.firstSequence))];
+            int count = 0;
+            for (int i = shortest.lowerBound(data.firstSequence); i < shortest.size; i++) {
+                if ((i & (CANCEL_CHECK_INTERVAL - 1)) == 0 && cancelled != null && cancelled.get()) {
+                    return null;
+                }
+                long sequence = shortest.sequences[i];
+                if (data.lowerUrls[(int) (sequence - data.baseSequence)].contains(lowerQuery)) {
+                    result[count++] = sequence;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    // 索引的全部内容，重建时整体替换
+    private static final class Data {
+        // trigram到postingLists下标的索引，trigram不超过48位，不会与LongIndexMap的保留键冲突
+        private LongIndexMap trigrams = new LongIndexMap();
+        private Postings[] postingLists = new Postings[64];
+        private int postingListCount;
+        // lowerUrls[sequence - baseSequence]为该序号的小写URL，没有记录时为null
+        private String[] lowerUrls = new String[1024];
+        private long baseSequence;
+        private long endSequence;
+        // 小于该序号的日志已被淘汰
+        private long firstSequence;
+
+        void add(long sequence, String lowerUrl) {
+            if (sequence < endSequence) {
+                return;
+            }
+            if (firstSequence == endSequence) {
+                // 索引为空时从该序号开始
+                baseSequence = sequence;
+                firstSequence = sequence;
+                trigrams.clear();
+                Arrays.fill(postingLists, 0, postingListCount, null);
+                postingListCount = 0;
+                if (lowerUrls.length > 1024) {
+                    lowerUrls = new String[1024];
+                } else {
+                    Arrays.fill(lowerUrls, null);
+                }
+            }
+            ensureCapacity(sequence);
+            lowerUrls[(int) (sequence - baseSequence)] = lowerUrl;
+            endSequence = sequence + 1;
+            for (int i = 0; i + 3 <= lowerUrl.length(); i++) {
+                long trigram = trigram(lowerUrl, i);
+                long slot = trigrams.get(trigram);
+                Postings list;
+                if (slot == LongIndexMap.MISSING) {
+                    list = new Postings(trigram);
+                    if (postingListCount == postingLists.length) {
+                        postingLists = Arrays.copyOf(postingLists, postingListCount * 2);
+                    }
+                    trigrams.put(trigram, postingListCount);
+                    postingLists[postingListCount++] = list;
+                } else {
+                    list = postingLists[(int) slot];
+                }
+                list.add(sequence);
+            }
+        }
+
+        Postings postings(long trigram) {
+            long slot = trigrams.get(trigram);
+            return slot != LongIndexMap.MISSING ? postingLists[(int) slot] : null;
+        }
+
+        void evictBefore(long firstSequence) {
+            if (firstSequence <= this.firstSequence) {
+                return;
+            }
+            this.firstSequence = Math.min(firstSequence, endSequence);
+            long live = endSequence - this.firstSequence;
+            if (this.firstSequence - baseSequence > Math.max(live, 256)) {
+                compact();
+            }
+        }
+
+        long[] scan(String lowerQuery, AtomicBoolean cancelled) {
+            long[] result = new long[(int) (endSequence - firstSequence)];
+            int count = 0;
+            for (long sequence = firstSequence; sequence < endSequence; sequence++) {
+                if (((sequence - firstSequence) & (CANCEL_CHECK_INTERVAL - 1)) == 0
+                        && cancelled != null && cancelled.get()) {
+                    return null;
+                }
+                String lowerUrl = lowerUrls[(int) (sequence - baseSequence)];
+                if (lowerUrl != null && lowerUrl.contains(lowerQuery)) {
+                    result[count++] = sequence;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        // 丢弃已淘汰日志的URL和倒排项，清空的倒排表从trigram索引中删除
+        private void compact() {
+            int dropped = (int) (firstSequence - baseSequence);
+            int live = (int) (endSequence - firstSequence);
+            String[] urls = new String[Math.max(1024, Integer.highestOneBit(Math.max(1, live)) << 1)];
+            System.arraycopy(lowerUrls, dropped, urls, 0, live);
+            lowerUrls = urls;
+            baseSequence = firstSequence;
+            LongIndexMap compactedTrigrams = new LongIndexMap(trigrams.size());
+            int count = 0;
+            for (int i = 0; i < postingListCount; i++) {
+                Postings list = postingLists[i];
+                list.removeBefore(firstSequence);
+                if (list.size > 0) {
+                    compactedTrigrams.put(list.trigram, count);
+                    postingLists[count++] = list;
+                }
+            }
+            Arrays.fill(postingLists, count, postingListCount, null);
+            postingListCount = count;
+            trigrams = compactedTrigrams;
+        }
+
+        private void ensureCapacity(long sequence) {
+            long index = sequence - baseSequence;
+            if (index >= lowerUrls.length) {
+                int length = lowerUrls.length;
+                while (index >= length) {
+                    length *= 2;
+                }
+                lowerUrls = Arrays.copyOf(lowerUrls, length);
+            }
+        }
+    }
+
+    // 一个trigram的倒排表，序号递增
+    private static final class Postings {
+        // 压缩时据此重建trigram索引
+        final long trigram;
+        long[] sequences = new long[4];
+        int size;
+
+        Postings(long trigram) {
+            this.trigram = trigram;
+        }
+
+        void add(long sequence) {
+            // 同一URL中重复出现的trigram只记录一次
+            if (size > 0 && sequences[size - 1] == sequence) {
+                return;
+            }
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            sequences[size++] = sequence;
+        }
+
+        // 第一个不小于sequence的位置
+        int lowerBound(long sequence) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sequences[mid] < sequence) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void removeBefore(long sequence) {
+            int start = lowerBound(sequence);
+            if (start > 0) {
+                System.arraycopy(sequences, start, sequences, 0, size - start);
+                size -= start;
+            }
+            if (size < sequences.length / 4 && sequences.length > 4) {
+                sequences = Arrays.copyOf(sequences, Math.max(4, size * 2));
+            }
+        }
+    }
+}
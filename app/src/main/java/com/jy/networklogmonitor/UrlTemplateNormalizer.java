@@ -0,0 +1,313 @@
+package com.jy.networklogmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+// 把URL归一化为接口模板，用于按接口分组和搜索，如 https://api.example.com/users/123/orders?page=2 -> /users/{id}/orders?page。
+// 逐段扫描路径，不使用正则：纯数字段替换为{id}，UUID替换为{uuid}，较长的十六进制串替换为{hash}，
+// 较长的字母数字混合串替换为{token}；query只保留排序后的参数名。
+// 同一位置出现过多不同取值的段（如用户名）会被学习为{var}；也可以注册明确的模板，优先于自动归一化。
+// 结果按"host+路径"缓存，缓存有上限；所有方法都是线程安全的。
+public final class UrlTemplateNormalizer {
+    static final int DEFAULT_CACHE_SIZE = 1024;
+    // 同一位置出现超过该数量的不同取值后视为变量
+    static final int LEARN_THRESHOLD = 50;
+    // 最多跟踪的位置数，超过后淘汰最久未用到的位置
+    static final int MAX_LEARNED_POSITIONS = 512;
+    private static final int MIN_HEX_LENGTH = 16;
+    private static final int MIN_TOKEN_LENGTH = 24;
+
+    // 某个位置（host加上之前的模板）出现过的取值，超过阈值后标记为变量并丢弃取值
+    private static final class Position {
+        Set<String> values = new HashSet<>();
+        boolean variable;
+    }
+
+    private final int cacheSize;
+    private final LinkedHashMap<String, String> cache;
+    // 按访问顺序排列，用于淘汰最久未用到的位置
+    private final LinkedHashMap<String, Position> positions = new LinkedHashMap<>(16, 0.75f, true);
+    // 明确注册的模板，按段保存，{xxx}匹配任意一段
+    private final List<String[]> templates = new ArrayList<>();
+    private final List<String> templateTexts = new ArrayList<>();
+
+    public UrlTemplateNormalizer() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    UrlTemplateNormalizer(int cacheSize) {
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // 注册明确的模板，如 "/users/{name}/repos"；路径段数相同且每个非变量段都相同的URL归一化为该模板
+    public synchronized void addTemplate(String template) {
+        if (!template.startsWith("/")) {
+            throw new IllegalArgumentException("Template must start with '/': " + template);
+        }
+        List<String> segments = splitPath(template, 0, template.length());
+        templates.add(segments.toArray(new String[0]));
+        templateTexts.add(join(segments));
+        cache.clear();
+    }
+
+    public synchronized void clearTemplates() {
+        templates.clear();
+        templateTexts.clear();
+        cache.clear();
+    }
+
+    // 返回URL的接口模板：路径模板加上排序后的query参数名
+    public String normalize(String url) {
+        return normalize(url, true);
+    }
+
+    // 与normalize()相同，但只使用已学到的变量位置，不记录新取值也不写入缓存；用于查询等不应影响学习结果的场景
+    String normalizeReadOnly(String url) {
+        return normalize(url, false);
+    }
+
+    private String normalize(String url, boolean learn) {
+        int schemeEnd = url.indexOf("://");
+        int hostStart = schemeEnd < 0 ? 0 : schemeEnd + 3;
+        int pathStart = url.length();
+        int pathEnd = url.length();
+        for (int i = hostStart; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '/' && pathStart == url.length()) {
+                pathStart = i;
+            } else if (c == '?' || c == '#') {
+                pathStart = Math.min(pathStart, i);
+                pathEnd = i;
+                break;
+            }
+        }
+        String pathTemplate = pathTemplate(url.substring(hostStart, pathEnd), pathStart - hostStart, learn);
+        if (pathEnd < url.length() && url.charAt(pathEnd) == '?') {
+            return pathTemplate + queryNames(url, pathEnd + 1);
+        }
+        return pathTemplate;
+    }
+
+    private synchronized String pathTemplate(String hostAndPath, int hostLength, boolean learn) {
+        String template = cache.get(hostAndPath);
+        if (template != null) {
+            return template;
+        }
+        List<String> segments = splitPath(hostAndPath, hostLength, hostAndPath.length());
+        template = matchTemplate(segments);
+        if (template == null) {
+            template = buildTemplate(hostAndPath.substring(0, hostLength), segments, learn);
+        }
+        if (!learn) {
+            return template;
+        }
+        cache.put(hostAndPath, template);
+        if (cache.size() > cacheSize) {
+            cache.remove(cache.keySet().iterator().next());
+        }
+        return template;
+    }
+
+    private String matchTemplate(List<String> segments) {
+        for (int t = 0; t < templates.size(); t++) {
+            String[] candidate = templates.get(t);
+            if (candidate.length != segments.size()) {
+                continue;
+            }
+            boolean matched = true;
+            for (int i = 0; i < candidate.length && matched; i++) {
+                matched = isVariable(candidate[i]) || candidate[i].equals(segments.get(i));
+            }
+            if (matched) {
+                return templateTexts.get(t);
+            }
+        }
+        return null;
+    }
+
+    private String buildTemplate(String host, List<String> segments, boolean learn) {
+        StringBuilder template = new StringBuilder();
+        for (String segment : segments) {
+            String placeholder = classify(segment);
+            if (placeholder == null) {
+                placeholder = learn ? learn(host + template, segment) : learned(host + template);
+            }
+            template.append('/').append(placeholder != null ? placeholder : segment);
+        }
+        return template.length() == 0 ? "/" : template.toString();
+    }
+
+    // 记录该位置出现的取值，位置已是变量时返回{var}
+    private String learn(String positionKey, String segment) {
+        Position position = positions.get(positionKey);
+        if (position == null) {
+            position = new Position();
+            positions.put(positionKey, position);
+            if (positions.size() > MAX_LEARNED_POSITIONS) {
+                positions.remove(positions.keySet().iterator().next());
+            }
+        }
+        if (position.variable) {
+            return "{var}";
+        }
+        if (position.values.add(segment) && position.values.size() > LEARN_THRESHOLD) {
+            position.variable = true;
+            position.values = null;
+            removeConcreteChildren(positionKey);
+            // 之前缓存的模板中该位置还是具体取值
+            cache.clear();
+            return "{var}";
+        }
+        return null;
+    }
+
+    // 位置变为{var}后，之后的位置都以{var}为前缀，以具体取值为前缀的位置不会再用到
+    private void removeConcreteChildren(String positionKey) {
+        String prefix = positionKey + "/";
+        Iterator<String> iterator = positions.keySet().iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            // 以占位符开头的段没有经过学习，仍然有效
+            if (key.startsWith(prefix) && !key.startsWith("{", prefix.length())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // 该位置已被学习为变量时返回{var}，不记录取值
+    private String learned(String positionKey) {
+        Position position = positions.get(positionKey);
+        return position != null && position.variable ? "{var}" : null;
+    }
+
+    synchronized int getCachedCount() {
+        return cache.size();
+    }
+
+    synchronized int getLearnedPositionCount() {
+        return positions.size();
+    }
+
+    // 按字符扫描判断段的类型，返回占位符；普通的段返回null
+    static String classify(String segment) {
+        int length = segment.length();
+        if (length == 0) {
+            return null;
+        }
+        boolean allDigits = true;
+        boolean allHex = true;
+        boolean tokenChars = true;
+        boolean hasDigit = false;
+        boolean hasLetter = false;
+        for (int i = 0; i < length; i++) {
+            char c = segment.charAt(i);
+            boolean digit = c >= '0' && c <= '9';
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            boolean hex = digit || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            hasDigit |= digit;
+            hasLetter |= letter;
+            allDigits &= digit;
+            allHex &= hex;
+            tokenChars &= digit || letter || c == '-' || c == '_';
+        }
+        if (allDigits) {
+            return "{id}";
+        }
+        if (length == 36 && isUuid(segment)) {
+            return "{uuid}";
+        }
+        if (allHex && hasDigit && length >= MIN_HEX_LENGTH) {
+            return "{hash}";
+        }
+        if (tokenChars && hasDigit && hasLetter && length >= MIN_TOKEN_LENGTH) {
+            return "{token}";
+        }
+        return null;
+    }
+
+    private static boolean isUuid(String segment) {
+        for (int i = 0; i < 36; i++) {
+            char c = segment.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 排序去重后的query参数名，如 "?page&q"
+    private static String queryNames(String url, int start) {
+        int end = url.indexOf('#', start);
+        if (end < 0) {
+            end = url.length();
+        }
+        List<String> names = new ArrayList<>();
+        int nameStart = start;
+        while (nameStart < end) {
+            int pairEnd = url.indexOf('&', nameStart);
+            if (pairEnd < 0 || pairEnd > end) {
+                pairEnd = end;
+            }
+            int nameEnd = url.indexOf('=', nameStart);
+            if (nameEnd < 0 || nameEnd > pairEnd) {
+                nameEnd = pairEnd;
+            }
+            if (nameEnd > nameStart) {
+                names.add(url.substring(nameStart, nameEnd));
+            }
+            nameStart = pairEnd + 1;
+        }
+        if (names.isEmpty()) {
+            return "";
+        }
+        String[] sorted = names.toArray(new String[0]);
+        Arrays.sort(sorted);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < sorted.length; i++) {
+            if (i > 0 && sorted[i].equals(sorted[i - 1])) {
+                continue;
+            }
+            builder.append(builder.length() == 0 ? '?' : '&').append(sorted[i]);
+        }
+        return builder.toString();
+    }
+
+    private static List<String> splitPath(String path, int start, int end) {
+        List<String> segments = new ArrayList<>();
+        int segmentStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || path.charAt(i) == '/') {
+                if (i > segmentStart) {
+                    segments.add(path.substring(segmentStart, i));
+                }
+                segmentStart = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() >= 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    private static String join(List<String> segments) {
+        if (segments.isEmpty()) {
+            return "/";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String segment : segments) {
+            builder.append('/').append(segment);
+        }
+        return builder.toString();
+    }
+}
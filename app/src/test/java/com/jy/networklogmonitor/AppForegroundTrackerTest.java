@@ -0,0 +1,90 @@
+package com.jy.networklogmonitor;
+
+import android.app.Activity;
+import android.app.Application;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppForegroundTrackerTest {
+    private AppForegroundTracker tracker;
+    private final List<Boolean> changes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Application application = RuntimeEnvironment.getApplication();
+        tracker = AppForegroundTracker.install(application);
+        tracker.addListener(new AppForegroundTracker.Listener() {
+            @Override
+            public void onForegroundChanged(boolean foreground) {
+                changes.add(foreground);
+            }
+        });
+    }
+
+    @Test
+    public void startAndStop_notifyOnlyOnTransitions() {
+        ActivityController<Activity> first = Robolectric.buildActivity(Activity.class).setup();
+        assertTrue(tracker.isForeground());
+
+        // 在应用内跳转：新的Activity先启动，旧的再停止，不算切换到后台
+        ActivityController<Activity> second = Robolectric.buildActivity(Activity.class).setup();
+        first.pause().stop();
+        assertTrue(tracker.isForeground());
+
+        second.pause().stop();
+        assertFalse(tracker.isForeground());
+        assertEquals(Arrays.asList(true, false), changes);
+    }
+
+    @Test
+    public void stopOfActivityStartedBeforeInstall_isIgnored() {
+        // 注册之前已启动的Activity没有被记录，它停止时不影响其他Activity
+        Activity untracked = Robolectric.buildActivity(Activity.class).get();
+        ActivityController<Activity> tracked = Robolectric.buildActivity(Activity.class).setup();
+        tracker.onActivityStopped(untracked);
+        assertTrue(tracker.isForeground());
+
+        tracked.pause().stop();
+        assertFalse(tracker.isForeground());
+    }
+
+    @Test
+    public void recreate_doesNotReportBackground() {
+        ActivityController<ChangingActivity> controller = Robolectric.buildActivity(ChangingActivity.class).setup();
+        controller.get().changing = true;
+        controller.pause().stop();
+        assertTrue(tracker.isForeground());
+
+        Robolectric.buildActivity(ChangingActivity.class).setup();
+        controller.destroy();
+        assertTrue(tracker.isForeground());
+        assertEquals(Arrays.asList(true), changes);
+    }
+
+    @Test
+    public void install_returnsSameInstance() {
+        assertSame(tracker, AppForegroundTracker.install(RuntimeEnvironment.getApplication()));
+    }
+
+    public static class ChangingActivity extends Activity {
+        boolean changing;
+
+        @Override
+        public boolean isChangingConfigurations() {
+            return changing;
+        }
+    }
+}
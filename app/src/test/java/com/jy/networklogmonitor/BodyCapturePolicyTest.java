@@ -0,0 +1,132 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+import static org.junit.Assert.*;
+
+public class BodyCapturePolicyTest {
+
+    @Test
+    public void textBody_isCappedAtLimit() throws Exception {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i).append(',');
+        }
+        json.append("0]}");
+        RequestBody body = RequestBody.create(json.toString(), MediaType.get("application/json; charset=utf-8"));
+
+        CapturedBody captured = BodyCapturePolicy.captureRequestBody(body, 16);
+
+        assertTrue(captured.isText());
+        assertTrue(captured.isTruncated());
+        assertEquals(json.length(), captured.getTotalBytes());
+        assertEquals(json.substring(0, 16), captured.decode());
+    }
+
+    @Test
+    public void binaryBody_recordsSizeAndHexPreview() throws Exception {
+        byte[] png = new byte[4096];
+        png[0] = (byte) 0x89;
+        png[1] = 'P';
+        RequestBody body = RequestBody.create(png, MediaType.get("image/png"));
+
+        CapturedBody captured = BodyCapturePolicy.captureRequestBody(body, 64 * 1024);
+
+        assertFalse(captured.isText());
+        assertEquals(CapturedBody.PREVIEW_BYTES, captured.getBytes().length);
+        String text = captured.decode();
+        assertTrue(text.startsWith("[binary body, 4096 bytes, image/png]\n89 50 00"));
+    }
+
+    @Test
+    public void largeBinaryBody_recordsSizeAndHexPreview() throws Exception {
+        byte[] video = new byte[1024 * 1024];
+        video[0] = 0x1A;
+        video[1] = 0x45;
+        RequestBody body = RequestBody.create(video, MediaType.get("video/webm"));
+
+        CapturedBody captured = BodyCapturePolicy.captureRequestBody(body, 64 * 1024);
+
+        assertFalse(captured.isText());
+        assertTrue(captured.isTruncated());
+        assertEquals(video.length, captured.getTotalBytes());
+        assertEquals(CapturedBody.PREVIEW_BYTES, captured.getBytes().length);
+        assertTrue(captured.decode().startsWith("[binary body, 1048576 bytes, video/webm]\n1a 45 00"));
+    }
+
+    @Test
+    public void oneShotBody_isNotConsumed() throws Exception {
+        final int[] writes = {0};
+        RequestBody body = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return MediaType.get("text/plain");
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) {
+                writes[0]++;
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return true;
+            }
+        };
+
+        CapturedBody captured = BodyCapturePolicy.captureRequestBody(body, 1024);
+
+        assertEquals(0, writes[0]);
+        assertTrue(captured.decode().startsWith("[one-shot body, not captured"));
+    }
+
+    // 对比10MB multipart上传：旧实现完整复制并解码，新实现只记录各部分的大小
+    @Test
+    public void multipartUpload_allocatesFarLessThanFullCopy() throws Exception {
+        byte[] image = new byte[10 * 1024 * 1024];
+        RequestBody body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("file", "photo.jpg", RequestBody.create(image, MediaType.get("image/jpeg")))
+                .build();
+        // 预热，排除类加载的影响
+        BodyCapturePolicy.captureRequestBody(body, NetworkLogInterceptor.DEFAULT_MAX_REQUEST_BODY_SIZE);
+        fullCopy(body);
+
+        long before = allocatedBytes();
+        fullCopy(body);
+        long fullCopyBytes = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        CapturedBody captured = BodyCapturePolicy.captureRequestBody(body,
+                NetworkLogInterceptor.DEFAULT_MAX_REQUEST_BODY_SIZE);
+        long capturedBytes = allocatedBytes() - before;
+
+        assertFalse(captured.isText());
+        assertTrue(fullCopyBytes > image.length);
+        assertTrue(capturedBytes < 256 * 1024);
+    }
+
+    // 旧实现：写入完整Buffer后按UTF-8解码
+    private static String fullCopy(RequestBody body) throws Exception {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return buffer.readString(StandardCharsets.UTF_8);
+    }
+
+    private static long allocatedBytes() throws Exception {
+        Object threadBean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean").invoke(null);
+        Method method = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+        return (Long) method.invoke(threadBean, Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,25 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+// 5MB单行body的分段和搜索耗时；手动运行
+@Ignore("benchmark")
+public class BodyChunksBenchmark {
+
+    @Test
+    public void largeBodySplitAndSearch() {
+        String text = BodyChunksTest.singleLineJson(5 * 1024 * 1024);
+
+        long start = System.nanoTime();
+        BodyChunks chunks = BodyChunks.split(text, null);
+        long splitNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        int[] matches = chunks.search("NEEDLE", null);
+        long searchNanos = System.nanoTime() - start;
+
+        System.out.println("BodyChunks 5MB single line: split " + splitNanos / 1_000_000 + " ms, "
+                + chunks.getSegmentCount() + " segments, search " + searchNanos / 1_000_000 + " ms ("
+                + matches.length + " matches)");
+    }
+}
@@ -0,0 +1,108 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class BodyChunksTest {
+
+    @Test
+    public void split_byLinesAndLongLines() {
+        BodyChunks chunks = BodyChunks.split("{\n  \"a\": 1\n}\n" + repeat('x', 25), 10, null);
+        assertEquals(6, chunks.getSegmentCount());
+        assertEquals("{", chunks.getSegmentText(0));
+        assertEquals("  \"a\": 1", chunks.getSegmentText(1));
+        assertEquals("}", chunks.getSegmentText(2));
+        assertEquals(repeat('x', 10), chunks.getSegmentText(3));
+        assertEquals(repeat('x', 5), chunks.getSegmentText(5));
+        assertEquals(13, chunks.getSegmentStart(3));
+    }
+
+    @Test
+    public void split_lineOfMaxLengthKeepsItsNewline() {
+        BodyChunks chunks = BodyChunks.split("abcd\nef", 4, null);
+        assertEquals(2, chunks.getSegmentCount());
+        assertEquals("abcd", chunks.getSegmentText(0));
+        assertEquals("ef", chunks.getSegmentText(1));
+    }
+
+    @Test
+    public void split_emptyTextHasOneSegment() {
+        BodyChunks chunks = BodyChunks.split("", null);
+        assertEquals(1, chunks.getSegmentCount());
+        assertEquals("", chunks.getSegmentText(0));
+        assertEquals(0, chunks.segmentAt(5));
+    }
+
+    @Test
+    public void split_keepsSurrogatePairsTogether() {
+        String text = "abc😀def";
+        BodyChunks chunks = BodyChunks.split(text, 4, null);
+        assertEquals("abc", chunks.getSegmentText(0));
+        assertEquals("😀de", chunks.getSegmentText(1));
+        assertEquals("f", chunks.getSegmentText(2));
+    }
+
+    @Test
+    public void segmentAt_findsContainingSegment() {
+        BodyChunks chunks = BodyChunks.split("ab\ncd\nef", null);
+        assertEquals(0, chunks.segmentAt(0));
+        assertEquals(0, chunks.segmentAt(2));
+        assertEquals(1, chunks.segmentAt(3));
+        assertEquals(2, chunks.segmentAt(7));
+        assertEquals(2, chunks.segmentAt(100));
+        assertEquals(0, chunks.segmentAt(-1));
+    }
+
+    @Test
+    public void search_isCaseInsensitiveAndCrossesSegments() {
+        BodyChunks chunks = BodyChunks.split("Token=abc; tokEN=def; xxtoken", 12, null);
+        assertArrayEquals(new int[]{0, 11, 24}, chunks.search("token", null));
+        // "c; t" 跨越第一个片段的末尾
+        assertArrayEquals(new int[]{8}, chunks.search("c; t", null));
+        assertArrayEquals(new int[0], chunks.search("missing", null));
+        assertArrayEquals(new int[0], chunks.search("", null));
+        // 匹配之间不重叠
+        assertArrayEquals(new int[]{0, 2}, BodyChunks.split("aaaaa", 2, null).search("aa", null));
+    }
+
+    @Test
+    public void search_stopsAtMaxMatchesAndWhenCancelled() {
+        String text = repeat('a', BodyChunks.MAX_MATCHES + 100);
+        BodyChunks chunks = BodyChunks.split(text, null);
+        assertEquals(BodyChunks.MAX_MATCHES, chunks.search("a", null).length);
+        assertNull(chunks.search("a", new AtomicBoolean(true)));
+        assertNull(BodyChunks.split(text, new AtomicBoolean(true)));
+    }
+
+    @Test
+    public void largeBody_splitsIntoSegmentsAndFindsMatch() {
+        String text = singleLineJson(5 * 1024 * 1024);
+
+        BodyChunks chunks = BodyChunks.split(text, null);
+        int[] matches = chunks.search("NEEDLE", null);
+
+        assertArrayEquals(new int[]{text.length() - 7}, matches);
+        assertEquals(text.length() / BodyChunks.MAX_SEGMENT_CHARS + 1, chunks.getSegmentCount());
+    }
+
+    // 没有换行的大JSON，以"needle"结尾
+    static String singleLineJson(int length) {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append("{\"id\":").append(builder.length()).append(",\"name\":\"item\",\"tags\":[\"a\",\"b\"]},");
+        }
+        builder.append("\"needle\"");
+        return builder.toString();
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+// body压缩的压缩率和CPU耗时，对比带字典与不带字典；手动运行
+@Ignore("benchmark")
+public class BodyCodecBenchmark {
+
+    @Test
+    public void ratioAndCpuCost() throws Exception {
+        int count = 2000;
+        byte[][] bodies = new byte[count][];
+        long rawBytes = 0;
+        Random random = new Random(4);
+        for (int i = 0; i < count; i++) {
+            bodies[i] = BodyCodecTest.orderJson(random, i).getBytes(StandardCharsets.UTF_8);
+            rawBytes += bodies[i].length;
+        }
+
+        BodyCodec withDictionary = new BodyCodec();
+        BodyCodec withoutDictionary = new BodyCodec();
+        long compressedBytes = 0;
+        byte[][] compressed = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            compressed[i] = withDictionary.compress("< GET api.example.com/v1/orders/{id}", bodies[i]);
+            compressedBytes += compressed[i] != null ? compressed[i].length : bodies[i].length;
+            // 每个接口只出现一次，不会训练出字典
+            withoutDictionary.compress("< GET api.example.com/v1/orders/" + i, bodies[i]);
+        }
+
+        long start = System.nanoTime();
+        for (byte[] data : compressed) {
+            if (data != null) {
+                BodyCodec.decompress(data);
+            }
+        }
+        long decompressNanos = System.nanoTime() - start;
+
+        System.out.println(String.format(Locale.US, "BodyCodec: %d bodies, %d -> %d bytes, ratio %.3f "
+                        + "(no dictionary %.3f), compress %.1f us/body, decompress %.1f us/body",
+                count, rawBytes, compressedBytes, withDictionary.getCompressionRatio(),
+                withoutDictionary.getCompressionRatio(),
+                withDictionary.getCompressNanos() / 1000d / count, decompressNanos / 1000d / count));
+    }
+}
@@ -0,0 +1,138 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BodyCodecTest {
+
+    @Test
+    public void smallBodies_areNotCompressed() {
+        BodyCodec codec = new BodyCodec();
+        assertNull(codec.compress("< GET /", new byte[BodyCodec.MIN_COMPRESS_SIZE - 1]));
+        assertNull(codec.compress("< GET /", null));
+    }
+
+    @Test
+    public void roundTrip_withTrainedDictionary() throws Exception {
+        BodyCodec codec = new BodyCodec();
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            byte[] body = orderJson(random, i).getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = codec.compress("< GET api.example.com/v1/orders/{id}", body);
+            assertNotNull(compressed);
+            assertArrayEquals(body, BodyCodec.decompress(compressed));
+        }
+    }
+
+    @Test
+    public void clear_dropsDictionariesAndRetrains() throws Exception {
+        BodyCodec codec = new BodyCodec();
+        Random random = new Random(6);
+        for (int i = 0; i < 10; i++) {
+            codec.compress("< GET api.example.com/v1/orders/{id}", orderJson(random, i).getBytes(StandardCharsets.UTF_8));
+        }
+
+        BodyCodec.clear();
+
+        // 清空后旧字典不再可用，之后的body重新训练字典并且都能解压
+        for (int i = 10; i < 30; i++) {
+            byte[] body = orderJson(random, i).getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = codec.compress("< GET api.example.com/v1/orders/{id}", body);
+            assertNotNull(compressed);
+            assertArrayEquals(body, BodyCodec.decompress(compressed));
+        }
+    }
+
+    @Test
+    public void incompressibleBodies_areKeptAsIs() {
+        BodyCodec codec = new BodyCodec();
+        byte[] body = new byte[4096];
+        new Random(2).nextBytes(body);
+        assertNull(codec.compress("< GET cdn.example.com/image/{id}", body));
+    }
+
+    @Test
+    public void networkLog_decompressesLazily() {
+        BodyCodec codec = new BodyCodec();
+        String json = orderJson(new Random(3), 7);
+        NetworkLog log = new NetworkLog("https://api.example.com/v1/orders/7", "GET");
+        log.setResponseBodyCompressed(codec.compress("< GET api.example.com/v1/users/{id}", json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(json, log.getResponseBody());
+        // 第二次读取命中缓存
+        assertSame(log.getResponseBody(), log.getResponseBody());
+
+        log.setResponseBody("plain");
+        assertEquals("plain", log.getResponseBody());
+    }
+
+    @Test
+    public void networkLog_responseBodyStateIsReplacedAsAWhole() {
+        BodyCodec codec = new BodyCodec();
+        String json = orderJson(new Random(5), 9);
+        byte[] raw = json.getBytes(StandardCharsets.UTF_8);
+        NetworkLog log = new NetworkLog("https://api.example.com/v1/orders/9", "GET");
+        log.setResponseBodyState(raw, false, raw.length, false);
+        assertEquals(json, log.getResponseBody());
+
+        // 已发布的日志整体替换为压缩形式，大小和截断标记同时生效
+        log.setResponseBodyState(codec.compress("< GET api.example.com/v1/orders/{id}", raw), true, 123_456, true);
+        assertEquals(json, log.getResponseBody());
+        assertArrayEquals(raw, log.getResponseBodyUtf8());
+        assertEquals(123_456, log.getResponseBodySize());
+        assertTrue(log.isResponseBodyTruncated());
+    }
+
+    @Test
+    public void dictionary_improvesCompressionRatio() throws Exception {
+        int count = 2000;
+        byte[][] bodies = new byte[count][];
+        Random random = new Random(4);
+        for (int i = 0; i < count; i++) {
+            bodies[i] = orderJson(random, i).getBytes(StandardCharsets.UTF_8);
+        }
+
+        BodyCodec withDictionary = new BodyCodec();
+        BodyCodec withoutDictionary = new BodyCodec();
+        byte[][] compressed = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            compressed[i] = withDictionary.compress("< GET api.example.com/v1/orders/{id}", bodies[i]);
+            // 每个接口只出现一次，不会训练出字典
+            withoutDictionary.compress("< GET api.example.com/v1/orders/" + i, bodies[i]);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (compressed[i] != null) {
+                assertArrayEquals(bodies[i], BodyCodec.decompress(compressed[i]));
+            }
+        }
+        assertTrue(withDictionary.getCompressionRatio() < withoutDictionary.getCompressionRatio());
+        assertTrue(withDictionary.getCompressionRatio() < 0.4);
+    }
+
+    // 生成字段相同、取值不同的订单JSON
+    static String orderJson(Random random, int id) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"code\":0,\"message\":\"success\",\"data\":{\"orderId\":").append(100000 + id)
+                .append(",\"status\":\"").append(random.nextBoolean() ? "PAID" : "SHIPPED")
+                .append("\",\"createdAt\":\"2024-0").append(1 + random.nextInt(9)).append("-1")
+                .append(random.nextInt(10)).append("T08:00:00Z\",\"items\":[");
+        int items = 1 + random.nextInt(5);
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"sku\":\"SKU-").append(random.nextInt(10000))
+                    .append("\",\"name\":\"商品").append(random.nextInt(100))
+                    .append("\",\"price\":").append(random.nextInt(100000) / 100d)
+                    .append(",\"quantity\":").append(1 + random.nextInt(3)).append('}');
+        }
+        builder.append("],\"shippingAddress\":{\"city\":\"上海\",\"district\":\"浦东新区\",\"zipCode\":\"2000")
+                .append(random.nextInt(10)).append("\"}}}");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Locale;
+
+// body全文搜索：1万条响应体下索引查询与逐条扫描的耗时，以及索引的内存占用；手动运行
+@Ignore("benchmark")
+public class BodySearchIndexBenchmark {
+
+    @Test
+    public void indexedVsScan() {
+        int count = 10000;
+        LogStore store = new LogRingBuffer(count);
+        BodySearchIndex index = BodySearchIndexTest.appendOrders(store, count);
+        String[] terms = BodySearchIndex.tokenize("orderId 98231", true);
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            found += index.search("orderId 98231", store, null).length;
+        }
+        long indexedNanos = (System.nanoTime() - start) / 20;
+        start = System.nanoTime();
+        for (long sequence = 0; sequence < count; sequence++) {
+            if (BodySearchIndex.matches(store.get(sequence), terms)) {
+                found++;
+            }
+        }
+        long scanNanos = System.nanoTime() - start;
+
+        System.out.println(String.format(Locale.ROOT,
+                "BodySearchIndex %d bodies: %.1f MB, indexed %.3f ms/query, scan %.1f ms/query (%d matches)",
+                count, index.getMemoryUsage() / 1048576.0, indexedNanos / 1e6, scanNanos / 1e6, found));
+    }
+}
@@ -0,0 +1,144 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class BodySearchIndexTest {
+
+    private static NetworkLog append(LogStore store, String requestBody, String responseBody) {
+        NetworkLog log = new NetworkLog("https://api.example.com/orders", "POST");
+        log.setRequestBody(requestBody);
+        log.setResponseBody(responseBody);
+        store.append(log);
+        return log;
+    }
+
+    @Test
+    public void search_matchesAllTermsAcrossRequestAndResponse() {
+        LogStore store = new LogRingBuffer(16);
+        BodySearchIndex index = new BodySearchIndex();
+        String[][] bodies = {
+                {"{\"userId\":7}", "{\"orderId\":98231,\"status\":\"PAID\"}"},
+                {"{\"userId\":8}", "{\"orderId\":98232,\"status\":\"paid\"}"},
+                {null, "{\"error\":\"not_found\"}"},
+        };
+        for (String[] body : bodies) {
+            NetworkLog log = append(store, body[0], body[1]);
+            index.add(log.getSequence(), body[0]);
+            index.add(log.getSequence(), body[1]);
+        }
+
+        assertArrayEquals(new long[]{0}, index.search("orderId 98231", store, null));
+        assertArrayEquals(new long[]{0, 1}, index.search("PAID", store, null));
+        // 查询词分别出现在请求体和响应体中
+        assertArrayEquals(new long[]{1}, index.search("userid 8 paid", store, null));
+        assertArrayEquals(new long[]{0, 1}, index.search("9823*", store, null));
+        assertArrayEquals(new long[]{2}, index.search("not_found", store, null));
+        // 按词匹配，不匹配词的一部分
+        assertArrayEquals(new long[0], index.search("9823", store, null));
+        assertArrayEquals(new long[0], index.search("refunded", store, null));
+    }
+
+    @Test
+    public void add_acceptsOutOfOrderResponses() {
+        LogStore store = new LogRingBuffer(16);
+        BodySearchIndex index = new BodySearchIndex();
+        for (int i = 0; i < 4; i++) {
+            append(store, "request " + i, null);
+            index.add(i, "request " + i);
+        }
+        // 响应体按完成顺序到达
+        index.add(3, "shared late");
+        index.add(0, "shared early");
+        index.add(2, "shared");
+
+        assertArrayEquals(new long[]{0, 2, 3}, index.search("shared", store, null));
+        assertArrayEquals(new long[]{0}, index.search("request early", store, null));
+    }
+
+    @Test
+    public void evictBefore_removesPostings() {
+        LogStore store = new LogRingBuffer(4096);
+        BodySearchIndex index = new BodySearchIndex();
+        for (int i = 0; i < 2000; i++) {
+            append(store, null, "item " + i);
+            index.add(i, "{\"id\":\"item-" + i + "\",\"name\":\"item " + i + "\"}");
+        }
+        int terms = index.getTermCount();
+        long memory = index.getMemoryUsage();
+        index.evictBefore(1500);
+
+        assertTrue(index.getTermCount() < terms - 1000);
+        assertTrue(index.getMemoryUsage() < memory);
+        assertArrayEquals(new long[0], index.search("1499", store, null));
+        assertArrayEquals(new long[]{1500}, index.search("1500", store, null));
+        assertEquals(500, index.search("item", store, null).length);
+        assertEquals(1500, index.search("item", store, null)[0]);
+
+        index.add(2000, "item 2000");
+        assertArrayEquals(new long[]{2000}, index.search("2000", store, null));
+        // 已淘汰日志迟到的body被忽略
+        index.add(10, "late 10");
+        assertArrayEquals(new long[0], index.search("late", store, null));
+    }
+
+    @Test
+    public void overBudget_fallsBackToScanWithSameResults() {
+        LogStore store = new LogRingBuffer(4096);
+        BodySearchIndex unbounded = new BodySearchIndex();
+        BodySearchIndex bounded = new BodySearchIndex(64 * 1024);
+        for (int i = 0; i < 3000; i++) {
+            String body = "{\"orderId\":" + (90000 + i) + ",\"user\":\"u" + (i % 50) + "\",\"status\":\""
+                    + (i % 3 == 0 ? "paid" : "pending") + "\"}";
+            append(store, null, body);
+            unbounded.add(i, body);
+            bounded.add(i, body);
+        }
+
+        assertTrue(bounded.getMemoryUsage() <= 64 * 1024);
+        assertTrue(bounded.getScanBeforeSequence() > 0);
+        String[] queries = {"orderId 90007", "u7 paid", "9000*", "pending u49", "missing"};
+        for (String query : queries) {
+            assertArrayEquals(unbounded.search(query, store, null), bounded.search(query, store, null));
+        }
+        assertNull(bounded.search("paid", store, new AtomicBoolean(true)));
+    }
+
+    // 写入count条各含20个订单的响应体并建立索引，订单号为 序号*20+j
+    static BodySearchIndex appendOrders(LogStore store, int count) {
+        BodySearchIndex index = new BodySearchIndex(64L * 1024 * 1024);
+        for (int i = 0; i < count; i++) {
+            StringBuilder body = new StringBuilder("{\"items\":[");
+            for (int j = 0; j < 20; j++) {
+                body.append("{\"orderId\":").append(i * 20 + j).append(",\"sku\":\"SKU-").append((i + j) % 997)
+                        .append("\",\"price\":").append((i * 31 + j) % 10000).append("},");
+            }
+            body.append("]}");
+            append(store, null, body.toString());
+            index.add(i, body.toString());
+        }
+        return index;
+    }
+
+    @Test
+    public void search_indexedMatchesScan() {
+        int count = 10000;
+        LogStore store = new LogRingBuffer(count);
+        BodySearchIndex index = appendOrders(store, count);
+        String[] terms = BodySearchIndex.tokenize("orderId 98231", true);
+        long[] indexed = index.search("orderId 98231", store, null);
+        int scanned = 0;
+        for (long sequence = 0; sequence < count; sequence++) {
+            if (BodySearchIndex.matches(store.get(sequence), terms)) {
+                scanned++;
+            }
+        }
+
+        assertEquals(1, indexed.length);
+        assertEquals(98231 / 20, indexed[0]);
+        assertEquals(1, scanned);
+    }
+}
@@ -0,0 +1,42 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+// 分阶段计时的开销测量，结果与机器负载有关，不作为单元测试运行；需要时去掉@Ignore手动执行
+@Ignore("benchmark")
+public class CallTimingsBenchmark {
+
+    @Test
+    public void listenerOverheadPerCall() {
+        // 模拟一次完整请求的全部事件，测量监听器本身的开销
+        int warmup = 20_000;
+        int iterations = 200_000;
+        runCalls(warmup);
+        long start = System.nanoTime();
+        runCalls(iterations);
+        long nanosPerCall = (System.nanoTime() - start) / iterations;
+        System.out.println("EventListener overhead: " + nanosPerCall + " ns/call");
+    }
+
+    private static void runCalls(int count) {
+        for (int i = 0; i < count; i++) {
+            NetworkLogEventListener listener = new NetworkLogEventListener();
+            listener.callStart(null);
+            NetworkLogEventListener.takeTimings(null);
+            listener.dnsStart(null, null);
+            listener.dnsEnd(null, null, null);
+            listener.connectStart(null, null, null);
+            listener.secureConnectStart(null);
+            listener.secureConnectEnd(null, null);
+            listener.connectEnd(null, null, null, null);
+            listener.connectionAcquired(null, null);
+            listener.requestHeadersStart(null);
+            listener.requestHeadersEnd(null, null);
+            listener.responseHeadersStart(null);
+            listener.responseHeadersEnd(null, null);
+            listener.responseBodyEnd(null, 0);
+            listener.callEnd(null);
+        }
+    }
+}
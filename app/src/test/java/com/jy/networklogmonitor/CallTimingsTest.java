@@ -0,0 +1,142 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CallTimingsTest {
+
+    @Test
+    public void segments_areRelativeToCallStart() {
+        CallTimings timings = new CallTimings();
+        timings.mark(CallTimings.CALL_START, 1_000);
+        timings.mark(CallTimings.DNS_START, 1_100);
+        timings.mark(CallTimings.DNS_END, 1_300);
+        timings.mark(CallTimings.CONNECT_START, 1_300);
+        timings.mark(CallTimings.SECURE_CONNECT_START, 1_500);
+        timings.mark(CallTimings.SECURE_CONNECT_END, 1_900);
+        timings.mark(CallTimings.CONNECT_END, 1_900);
+        timings.mark(CallTimings.REQUEST_HEADERS_START, 2_000);
+        timings.mark(CallTimings.REQUEST_HEADERS_END, 2_050);
+        timings.mark(CallTimings.RESPONSE_HEADERS_START, 3_000);
+        timings.mark(CallTimings.RESPONSE_HEADERS_END, 3_010);
+        timings.mark(CallTimings.RESPONSE_BODY_END, 3_500);
+
+        assertEquals(100, timings.getSegmentStartNanos(CallTimings.SEGMENT_DNS));
+        assertEquals(300, timings.getSegmentEndNanos(CallTimings.SEGMENT_DNS));
+        assertEquals(500, timings.getSegmentStartNanos(CallTimings.SEGMENT_TLS));
+        assertEquals(900, timings.getSegmentEndNanos(CallTimings.SEGMENT_TLS));
+        // 没有请求体时发送阶段以请求头发送完成为结束
+        assertEquals(1_050, timings.getSegmentEndNanos(CallTimings.SEGMENT_REQUEST));
+        assertEquals(1_050, timings.getSegmentStartNanos(CallTimings.SEGMENT_WAITING));
+        assertEquals(2_000, timings.getSegmentEndNanos(CallTimings.SEGMENT_WAITING));
+        assertEquals(2_500, timings.getSegmentEndNanos(CallTimings.SEGMENT_DOWNLOAD));
+        // 还没有callEnd时以响应体结束为总耗时
+        assertEquals(2_500, timings.getTotalNanos());
+    }
+
+    @Test
+    public void missingPhases_returnMinusOne() {
+        CallTimings timings = new CallTimings();
+        assertEquals(-1, timings.getTotalNanos());
+        timings.mark(CallTimings.CALL_START, 1_000);
+        assertEquals(-1, timings.getSegmentStartNanos(CallTimings.SEGMENT_DNS));
+        assertEquals(-1, timings.getSegmentEndNanos(CallTimings.SEGMENT_REQUEST));
+    }
+
+    @Test
+    public void marksAfterFinish_areIgnored() {
+        CallTimings timings = new CallTimings();
+        timings.mark(CallTimings.CALL_START, 1_000);
+        timings.mark(CallTimings.CALL_END, 2_000);
+        timings.finish();
+        // 结束后不再发布新的时间戳，读线程看到的值不会变化
+        timings.mark(CallTimings.CALL_END, 9_000);
+        timings.mark(CallTimings.DNS_START, 1_100);
+        assertEquals(1_000, timings.getTotalNanos());
+        assertEquals(0, timings.getTimestamp(CallTimings.DNS_START));
+    }
+
+    @Test
+    public void listener_detectsConnectionReuse() {
+        NetworkLogEventListener fresh = new NetworkLogEventListener();
+        fresh.callStart(null);
+        CallTimings freshTimings = NetworkLogEventListener.takeTimings(null);
+        fresh.connectStart(null, null, null);
+        fresh.connectEnd(null, null, null, null);
+        fresh.connectionAcquired(null, null);
+        fresh.callEnd(null);
+        assertFalse(freshTimings.isConnectionReused());
+        assertTrue(freshTimings.isFinished());
+
+        NetworkLogEventListener pooled = new NetworkLogEventListener();
+        pooled.callStart(null);
+        CallTimings pooledTimings = NetworkLogEventListener.takeTimings(null);
+        pooled.connectionAcquired(null, null);
+        pooled.callEnd(null);
+        assertTrue(pooledTimings.isConnectionReused());
+        assertEquals(-1, pooledTimings.getSegmentStartNanos(CallTimings.SEGMENT_CONNECT));
+    }
+
+    @Test
+    public void table_putTakeAndRemove() {
+        CallTimingsTable table = new CallTimingsTable(16);
+        Object first = new Object();
+        Object second = new Object();
+        CallTimings firstTimings = new CallTimings();
+        CallTimings secondTimings = new CallTimings();
+        assertTrue(table.put(first, firstTimings));
+        assertTrue(table.put(second, secondTimings));
+
+        assertSame(secondTimings, table.take(second));
+        assertNull(table.take(second));
+        table.remove(first, firstTimings);
+        assertNull(table.take(first));
+    }
+
+    @Test
+    public void table_rejectsWhenProbesExhausted() {
+        CallTimingsTable table = new CallTimingsTable(16);
+        int accepted = 0;
+        for (int i = 0; i < 64; i++) {
+            if (table.put(new Object(), new CallTimings())) {
+                accepted++;
+            }
+        }
+        assertTrue(accepted <= 16);
+        assertTrue(accepted > 0);
+    }
+
+    @Test
+    public void fullCallSequence_recordsEveryPhase() {
+        NetworkLogEventListener listener = new NetworkLogEventListener();
+        listener.callStart(null);
+        CallTimings timings = NetworkLogEventListener.takeTimings(null);
+        assertNotNull(timings);
+        listener.dnsStart(null, null);
+        listener.dnsEnd(null, null, null);
+        listener.connectStart(null, null, null);
+        listener.secureConnectStart(null);
+        listener.secureConnectEnd(null, null);
+        listener.connectEnd(null, null, null, null);
+        listener.connectionAcquired(null, null);
+        listener.requestHeadersStart(null);
+        listener.requestHeadersEnd(null, null);
+        listener.responseHeadersStart(null);
+        listener.responseHeadersEnd(null, null);
+        listener.responseBodyEnd(null, 0);
+        listener.callEnd(null);
+
+        assertTrue(timings.isFinished());
+        assertFalse(timings.isConnectionReused());
+        for (int phase : new int[]{CallTimings.CALL_START, CallTimings.DNS_START, CallTimings.DNS_END,
+                CallTimings.CONNECT_START, CallTimings.SECURE_CONNECT_START, CallTimings.SECURE_CONNECT_END,
+                CallTimings.CONNECT_END, CallTimings.CONNECTION_ACQUIRED, CallTimings.REQUEST_HEADERS_START,
+                CallTimings.REQUEST_HEADERS_END, CallTimings.RESPONSE_HEADERS_START,
+                CallTimings.RESPONSE_HEADERS_END, CallTimings.RESPONSE_BODY_END, CallTimings.CALL_END}) {
+            assertTrue("phase " + phase, timings.getTimestamp(phase) > 0);
+        }
+        // 没有请求体
+        assertEquals(0, timings.getTimestamp(CallTimings.REQUEST_BODY_END));
+    }
+}
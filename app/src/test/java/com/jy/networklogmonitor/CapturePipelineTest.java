@@ -0,0 +1,131 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CapturePipelineTest {
+
+    @Test
+    public void blockPolicy_deliversEveryEventInPerProducerOrder() throws Exception {
+        final int producers = 8;
+        final int perProducer = 20000;
+        final long[] lastSeen = new long[producers];
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+        final CapturePipeline<long[]> pipeline = new CapturePipeline<>("test-capture", 64,
+                CapturePipeline.OverflowPolicy.BLOCK, new CapturePipeline.Handler<long[]>() {
+                    @Override
+                    public void onEvent(long[] event) {
+                        int producer = (int) event[0];
+                        if (event[1] != lastSeen[producer] + 1) {
+                            outOfOrder.incrementAndGet();
+                        }
+                        lastSeen[producer] = event[1];
+                    }
+
+                    @Override
+                    public void onBatchEnd(int count) {
+                        batches.incrementAndGet();
+                    }
+                });
+
+        runProducers(pipeline, producers, perProducer);
+
+        assertTrue(pipeline.awaitIdle(10000));
+        assertEquals(0, outOfOrder.get());
+        assertEquals(0, pipeline.getDroppedCount());
+        assertEquals((long) producers * perProducer, pipeline.getProcessedCount());
+        assertEquals(0, pipeline.getQueueDepth());
+        // 事件按批处理，批次数应远少于事件数
+        assertTrue(batches.get() < producers * perProducer);
+    }
+
+    @Test
+    public void dropPolicy_countsDroppedEventsWhenConsumerIsSlow() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CapturePipeline<long[]> pipeline = new CapturePipeline<>("test-capture", 16,
+                CapturePipeline.OverflowPolicy.DROP, new CapturePipeline.Handler<long[]>() {
+                    @Override
+                    public void onEvent(long[] event) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+
+                    @Override
+                    public void onBatchEnd(int count) {
+                    }
+                });
+
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (pipeline.submit(new long[]{0, i})) {
+                accepted++;
+            }
+        }
+        release.countDown();
+
+        assertTrue(pipeline.awaitIdle(10000));
+        assertTrue(pipeline.getDroppedCount() > 0);
+        assertEquals(100, accepted + pipeline.getDroppedCount());
+        assertEquals(accepted, pipeline.getProcessedCount());
+    }
+
+    @Test
+    public void handlerFailures_areCountedAndDoNotStopWorker() throws Exception {
+        final AtomicInteger handled = new AtomicInteger();
+        CapturePipeline<long[]> pipeline = new CapturePipeline<>("test-capture", 16,
+                CapturePipeline.OverflowPolicy.BLOCK, new CapturePipeline.Handler<long[]>() {
+                    @Override
+                    public void onEvent(long[] event) {
+                        if (event[1] % 2 == 0) {
+                            throw new IllegalStateException("event " + event[1]);
+                        }
+                        handled.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onBatchEnd(int count) {
+                    }
+                });
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.submit(new long[]{0, i});
+        }
+
+        assertTrue(pipeline.awaitIdle(10000));
+        assertEquals(5, handled.get());
+        assertEquals(5, pipeline.getFailedCount());
+        assertEquals(10, pipeline.getProcessedCount());
+    }
+
+    private static void runProducers(final CapturePipeline<long[]> pipeline, int producers, final int perProducer)
+            throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 1; i <= perProducer; i++) {
+                    pipeline.submit(new long[]{producer, i});
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
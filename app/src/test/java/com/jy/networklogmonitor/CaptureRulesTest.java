@@ -0,0 +1,95 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CaptureRulesTest {
+
+    @Test
+    public void captureAll_capturesEverything() {
+        assertTrue(CaptureRules.CAPTURE_ALL.shouldCapture("api.example.com", "/v1/users", 0));
+    }
+
+    @Test
+    public void exclude_winsOverInclude() {
+        CaptureRules rules = CaptureRules.builder()
+                .include("api.example.com", "/**")
+                .exclude("*", "/heartbeat")
+                .exclude("*.cdn.example.com", "/images/**/*.jpg")
+                .build();
+
+        assertTrue(rules.shouldCapture("api.example.com", "/v1/users", 0));
+        assertFalse(rules.shouldCapture("api.example.com", "/heartbeat", 0));
+        assertFalse(rules.shouldCapture("other.example.com", "/v1/users", 0));
+        assertFalse(rules.shouldCapture("img.cdn.example.com", "/images/2024/01/a.jpg", 0));
+    }
+
+    @Test
+    public void pathGlobs_matchSegments() {
+        CaptureRules rules = CaptureRules.builder()
+                .include("api.example.com", "/users/*/avatar")
+                .include("*.example.com", "/v*/orders/**")
+                .build();
+
+        assertTrue(rules.shouldCapture("api.example.com", "/users/42/avatar", 0));
+        assertFalse(rules.shouldCapture("api.example.com", "/users/42/profile", 0));
+        assertTrue(rules.shouldCapture("shop.example.com", "/v2/orders", 0));
+        assertTrue(rules.shouldCapture("a.b.example.com", "/v2/orders/7/items", 0));
+        assertFalse(rules.shouldCapture("example.com", "/v2/orders", 0));
+    }
+
+    @Test
+    public void manyRules_matchExactHostsAndSegments() {
+        CaptureRules.Builder builder = CaptureRules.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.include("host" + i + ".example.com", "/v1/items" + i);
+        }
+        CaptureRules rules = builder.build();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(rules.shouldCapture("host" + i + ".example.com", "/v1/items" + i, 0));
+            assertFalse(rules.shouldCapture("host" + i + ".example.com", "/v1/items" + (i + 1), 0));
+        }
+        assertFalse(rules.shouldCapture("host1.example.co", "/v1/items1", 0));
+    }
+
+    @Test
+    public void regexRules_areApplied() {
+        CaptureRules rules = CaptureRules.builder()
+                .excludeRegex("/track(ing)?/")
+                .build();
+
+        assertFalse(rules.shouldCapture("api.example.com", "/tracking/event", 0));
+        assertTrue(rules.shouldCapture("api.example.com", "/orders", 0));
+    }
+
+    @Test
+    public void sampling_usesFirstMatchingRate() {
+        CaptureRules rules = CaptureRules.builder()
+                .sample("*", "/poll", 0)
+                .sample("*", "/**", 1)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(rules.shouldCapture("api.example.com", "/poll", 0));
+            assertTrue(rules.shouldCapture("api.example.com", "/orders", 0));
+        }
+    }
+
+    @Test
+    public void rateLimit_refillsPerHost() {
+        CaptureRules rules = CaptureRules.builder()
+                .rateLimit("*", 1, 2)
+                .build();
+
+        assertTrue(rules.shouldCapture("a.example.com", "/", 0));
+        assertTrue(rules.shouldCapture("a.example.com", "/", 0));
+        assertFalse(rules.shouldCapture("a.example.com", "/", 0));
+        // 其他host有独立的令牌桶
+        assertTrue(rules.shouldCapture("b.example.com", "/", 0));
+        // 1秒后补充一个令牌
+        assertTrue(rules.shouldCapture("a.example.com", "/", 1_000_000_000L));
+        assertFalse(rules.shouldCapture("a.example.com", "/", 1_000_000_000L));
+    }
+}
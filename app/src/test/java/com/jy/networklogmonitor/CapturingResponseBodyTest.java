@@ -0,0 +1,62 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.junit.Assert.*;
+
+public class CapturingResponseBodyTest {
+
+    @Test
+    public void passesThroughAllBytesAndCapturesPrefix() throws Exception {
+        byte[] payload = new byte[10000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        final AtomicReference<byte[]> captured = new AtomicReference<>();
+        final long[] total = new long[1];
+        final boolean[] exhausted = new boolean[1];
+        ResponseBody body = new CapturingResponseBody(
+                ResponseBody.create(MediaType.parse("application/octet-stream"), payload), 100,
+                (buffer, totalBytes, fullyRead) -> {
+                    captured.set(buffer.readByteArray());
+                    total[0] = totalBytes;
+                    exhausted[0] = fullyRead;
+                });
+
+        assertArrayEquals(payload, body.bytes());
+        assertEquals(100, captured.get().length);
+        assertEquals(payload[99], captured.get()[99]);
+        assertEquals(payload.length, total[0]);
+        assertTrue(exhausted[0]);
+    }
+
+    @Test
+    public void reportsPartialReadWhenClosedEarly() throws Exception {
+        final long[] total = {-1};
+        final boolean[] exhausted = {true};
+        final int[] callbacks = {0};
+        ResponseBody body = new CapturingResponseBody(
+                ResponseBody.create(MediaType.parse("text/plain"), "hello world"), 1024,
+                (buffer, totalBytes, fullyRead) -> {
+                    total[0] = totalBytes;
+                    exhausted[0] = fullyRead;
+                    callbacks[0]++;
+                });
+
+        BufferedSource source = body.source();
+        source.read(new Buffer(), 5);
+        body.close();
+        body.close();
+
+        assertTrue(total[0] > 0);
+        assertFalse(exhausted[0]);
+        assertEquals(1, callbacks[0]);
+    }
+}
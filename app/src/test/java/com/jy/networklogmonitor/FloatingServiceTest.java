@@ -0,0 +1,71 @@
+package com.jy.networklogmonitor;
+
+import android.app.Activity;
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class FloatingServiceTest {
+
+    @Test
+    public void floatingView_followsActivityLifecycleWithoutPolling() {
+        ServiceController<FloatingService> serviceController = Robolectric.buildService(FloatingService.class).create();
+        FloatingService service = serviceController.get();
+        assertFalse(service.isFloatingViewShown());
+
+        ActivityController<Activity> activity = Robolectric.buildActivity(Activity.class).setup();
+        assertTrue(service.isFloatingViewShown());
+
+        // 前台期间不再有定时检查的任务
+        ShadowLooper looper = shadowOf(Looper.getMainLooper());
+        looper.idleFor(Duration.ofSeconds(5));
+        assertEquals(Duration.ZERO, looper.getNextScheduledTaskTime());
+
+        activity.pause().stop();
+        assertFalse(service.isFloatingViewShown());
+
+        // 服务销毁后不再响应前后台切换
+        serviceController.destroy();
+        Robolectric.buildActivity(Activity.class).setup();
+        assertFalse(service.isFloatingViewShown());
+    }
+
+    @Test
+    public void onCreate_showsFloatingViewWhenAlreadyInForeground() {
+        // 与在Application.onCreate中调用NetworkLogMonitor.initialize()时的顺序相同
+        AppForegroundTracker.install(RuntimeEnvironment.getApplication());
+        Robolectric.buildActivity(Activity.class).setup();
+
+        FloatingService service = Robolectric.buildService(FloatingService.class).create().get();
+
+        assertTrue(service.isFloatingViewShown());
+    }
+
+    @Test
+    public void formatDashboard_showsRateInFlightAndP95() {
+        LiveMetrics metrics = new LiveMetrics();
+        long now = 1_700_000_040_000L;
+        assertEquals("0.0 req/s\n0 in flight\np95 -", FloatingService.formatDashboard(metrics.snapshot(now)));
+
+        metrics.onRequestStarted();
+        for (int i = 0; i < 12; i++) {
+            metrics.record(now - 2000 + i, 100, false);
+        }
+        LiveMetrics.Snapshot snapshot = metrics.snapshot(now);
+        assertEquals("2.4 req/s\n1 in flight\np95 " + snapshot.getP95Millis() + " ms",
+                FloatingService.formatDashboard(snapshot));
+    }
+}
@@ -0,0 +1,147 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class JsonFormatterTest {
+
+    @Test
+    public void format_indentsNestedValues() {
+        FormattedBody body = JsonFormatter.format("{\"a\":1,\"b\":[true,null,\"x\"],\"c\":{},\"d\":[]}", null, null);
+        assertEquals("{\n"
+                + "  \"a\": 1,\n"
+                + "  \"b\": [\n"
+                + "    true,\n"
+                + "    null,\n"
+                + "    \"x\"\n"
+                + "  ],\n"
+                + "  \"c\": {},\n"
+                + "  \"d\": []\n"
+                + "}", body.text);
+    }
+
+    @Test
+    public void format_recordsSyntaxSpans() {
+        FormattedBody body = JsonFormatter.format(" {\"k\" : \"v\\\"\", \"n\": -1.5e3, \"f\": false} ", null, null);
+        assertEquals(6, body.getSpanCount());
+        assertSpan(body, 0, "\"k\"", FormattedBody.TYPE_KEY);
+        assertSpan(body, 1, "\"v\\\"\"", FormattedBody.TYPE_STRING);
+        assertSpan(body, 3, "-1.5e3", FormattedBody.TYPE_NUMBER);
+        assertSpan(body, 5, "false", FormattedBody.TYPE_LITERAL);
+        assertEquals(0, body.firstSpanEndingAfter(0));
+        assertEquals(1, body.firstSpanEndingAfter(body.getSpanEnd(0)));
+        assertEquals(6, body.firstSpanEndingAfter(body.text.length()));
+    }
+
+    @Test
+    public void format_toleratesTruncatedInput() {
+        FormattedBody body = JsonFormatter.format("{\"items\":[{\"id\":1},{\"name\":\"unfinish", null, null);
+        assertEquals("{\n"
+                + "  \"items\": [\n"
+                + "    {\n"
+                + "      \"id\": 1\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"name\": \"unfinish", body.text);
+        assertEquals(FormattedBody.TYPE_STRING, body.getSpanType(body.getSpanCount() - 1));
+        // 多余的右括号和不合法的内容也不会出错
+        assertEquals("}\n]\nabc", JsonFormatter.format("}]abc", null, null).text);
+    }
+
+    @Test
+    public void format_putsTopLevelValuesOnSeparateLines() {
+        assertEquals("{\n  \"a\": 1\n}\n{}", JsonFormatter.format("{\"a\":1}\n{}", null, null).text);
+    }
+
+    @Test
+    public void format_reportsFirstScreenThenCompletes() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i > 0 ? "," : "").append("{\"id\":").append(i).append('}');
+        }
+        json.append(']');
+        final List<FormattedBody> partials = new ArrayList<>();
+        FormattedBody body = JsonFormatter.format(json.toString(), new JsonFormatter.Listener() {
+            @Override
+            public void onFirstScreen(FormattedBody partial) {
+                partials.add(partial);
+            }
+        }, null);
+
+        assertEquals(1, partials.size());
+        FormattedBody partial = partials.get(0);
+        assertTrue(partial.text.length() >= JsonFormatter.FIRST_SCREEN_CHARS);
+        assertTrue(partial.text.length() < body.text.length());
+        assertTrue(body.text.startsWith(partial.text));
+        assertEquals(body.getSpanEnd(partial.getSpanCount() - 1), partial.getSpanEnd(partial.getSpanCount() - 1));
+        assertEquals(10000, body.getSpanCount());
+
+        // 不足一屏时不回调
+        partials.clear();
+        JsonFormatter.format("{}", new JsonFormatter.Listener() {
+            @Override
+            public void onFirstScreen(FormattedBody partial) {
+                partials.add(partial);
+            }
+        }, null);
+        assertTrue(partials.isEmpty());
+    }
+
+    @Test
+    public void format_returnsNullWhenCancelled() {
+        StringBuilder json = new StringBuilder();
+        while (json.length() < 256 * 1024) {
+            json.append("{\"a\":1},");
+        }
+        assertNull(JsonFormatter.format("[" + json + "]", null, new AtomicBoolean(true)));
+    }
+
+    @Test
+    public void looksLikeJson() {
+        assertTrue(JsonFormatter.looksLikeJson("  {\"a\":1}"));
+        assertTrue(JsonFormatter.looksLikeJson("\n["));
+        assertFalse(JsonFormatter.looksLikeJson("<html>"));
+        assertFalse(JsonFormatter.looksLikeJson("   "));
+    }
+
+    @Test
+    public void cache_evictsLeastRecentlyUsedByChars() {
+        FormattedBodyCache cache = new FormattedBodyCache(8, 100);
+        cache.put(1, 40, FormattedBody.plain(repeat(40)));
+        cache.put(2, 40, FormattedBody.plain(repeat(40)));
+        assertNotNull(cache.get(1, 40));
+        // 日志内容更新后大小不同，不使用旧的格式化结果
+        assertNull(cache.get(1, 41));
+        cache.put(3, 40, FormattedBody.plain(repeat(40)));
+
+        assertNotNull(cache.get(1, 40));
+        assertNull(cache.get(2, 40));
+        assertNotNull(cache.get(3, 40));
+        assertEquals(80, cache.getTotalChars());
+
+        // 超过容量的结果和没有id的日志不缓存
+        cache.put(4, 200, FormattedBody.plain(repeat(200)));
+        cache.put(-1, 10, FormattedBody.plain(repeat(10)));
+        assertNull(cache.get(4, 200));
+        assertNull(cache.get(-1, 10));
+        assertEquals(80, cache.getTotalChars());
+    }
+
+    private static void assertSpan(FormattedBody body, int index, String text, byte type) {
+        assertEquals(text, body.text.substring(body.getSpanStart(index), body.getSpanEnd(index)));
+        assertEquals(type, body.getSpanType(index));
+    }
+
+    private static String repeat(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append('x');
+        }
+        return builder.toString();
+    }
+}
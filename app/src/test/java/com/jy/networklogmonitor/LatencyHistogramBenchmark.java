@@ -0,0 +1,36 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+// 直方图记录和合并的吞吐，分配情况由LatencyHistogramTest检查；手动运行
+@Ignore("benchmark")
+public class LatencyHistogramBenchmark {
+
+    @Test
+    public void recordAndMergeThroughput() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram merged = new LatencyHistogram();
+        long sink = 0;
+        for (int round = 0; round < 3; round++) {
+            int records = 5_000_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < records; i++) {
+                histogram.record(i & 1023, (i & 63) == 0);
+            }
+            long recordNanos = System.nanoTime() - start;
+            int merges = 100_000;
+            start = System.nanoTime();
+            for (int i = 0; i < merges; i++) {
+                merged.reset();
+                merged.add(histogram);
+                sink += merged.getCount();
+            }
+            long mergeNanos = System.nanoTime() - start;
+            if (round == 2) {
+                System.out.printf("LatencyHistogram: record %.1f ns/op, reset+merge %.0f ns/op (%d)%n",
+                        recordNanos / (double) records, mergeNanos / (double) merges, sink % 10);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketIndex_isMonotonicAndCoversRange() {
+        int previous = -1;
+        for (long millis = 0; millis <= LatencyHistogram.MAX_TRACKABLE_MILLIS; millis++) {
+            int index = LatencyHistogram.bucketIndex(millis);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(millis <= LatencyHistogram.bucketUpperBound(index));
+            // 相对误差不超过1/8
+            assertTrue(LatencyHistogram.bucketUpperBound(index) - millis <= millis / 8);
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, previous);
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles_areWithinBucketError() {
+        Random random = new Random(7);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            // 对数正态分布，模拟长尾的接口耗时
+            values[i] = (long) Math.exp(4 + random.nextGaussian());
+            histogram.record(values[i], i % 100 == 0);
+        }
+        Arrays.sort(values);
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(100, histogram.getErrorCount());
+        assertEquals(values[values.length - 1], histogram.getMaxMillis());
+        for (double percentile : new double[]{50, 90, 99}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long estimate = histogram.getPercentile(percentile);
+            assertTrue(percentile + ": " + estimate + " vs " + exact, estimate >= exact && estimate <= exact + exact / 8);
+        }
+        assertEquals(histogram.getMaxMillis(), histogram.getPercentile(100));
+    }
+
+    @Test
+    public void add_mergesCountsAndMax() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10, false);
+        a.record(20, true);
+        b.record(500_000, true);
+        a.add(b);
+
+        assertEquals(3, a.getCount());
+        assertEquals(2, a.getErrorCount());
+        assertEquals(500_000, a.getMaxMillis());
+        assertEquals(500_000, a.getPercentile(99));
+        assertEquals(10, a.getPercentile(10));
+
+        a.reset();
+        assertEquals(0, a.getCount());
+        assertEquals(0, a.getPercentile(50));
+    }
+
+    // 记录和合并在热路径上执行，不能分配对象
+    @Test
+    public void recordAndMerge_doNotAllocate() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram merged = new LatencyHistogram();
+        // 预热，排除类加载和JIT的影响
+        recordAndMerge(histogram, merged, 10_000);
+
+        long before = allocatedBytes();
+        recordAndMerge(histogram, merged, 1_000_000);
+        long allocated = allocatedBytes() - before;
+        // 反射读取分配量本身会分配少量对象；每次记录哪怕分配一个对象也会超过几十MB
+        assertTrue("allocated " + allocated + " bytes", allocated < 16 * 1024);
+    }
+
+    static void recordAndMerge(LatencyHistogram histogram, LatencyHistogram merged, int records) {
+        for (int i = 0; i < records; i++) {
+            histogram.record(i & 1023, (i & 63) == 0);
+            if ((i & 1023) == 0) {
+                merged.reset();
+                merged.add(histogram);
+            }
+        }
+    }
+
+    private static long allocatedBytes() throws Exception {
+        Object threadBean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean").invoke(null);
+        Method method = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+        return (Long) method.invoke(threadBean, Thread.currentThread().getId());
+    }
+
+    @Test
+    public void resetAndMerge_repeatedlyKeepsCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram merged = new LatencyHistogram();
+        int records = 100_000;
+        for (int i = 0; i < records; i++) {
+            histogram.record(i & 1023, (i & 63) == 0);
+        }
+        for (int i = 0; i < 1000; i++) {
+            merged.reset();
+            merged.add(histogram);
+        }
+        assertEquals(records, merged.getCount());
+        assertEquals((records + 63) / 64, merged.getErrorCount());
+        assertEquals(histogram.getMaxMillis(), merged.getMaxMillis());
+    }
+}
@@ -0,0 +1,101 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LatencyStatsTest {
+    // 对齐到分钟，方便计算槽的边界
+    private static final long T0 = 1_700_000_040_000L;
+
+    @Test
+    public void query_separatesWindows() {
+        LatencyStats stats = new LatencyStats();
+        stats.record("GET api.example.com/slow", T0, 900, false);
+        stats.record("GET api.example.com/slow", T0 + 1000, 1100, true);
+        stats.record("GET api.example.com/fast", T0 + 2000, 10, false);
+
+        List<LatencyStats.EndpointStats> now = stats.query(LatencyStats.WINDOW_1_MINUTE, T0 + 5000);
+        assertEquals(2, now.size());
+        // 按p99从高到低排列
+        LatencyStats.EndpointStats slow = now.get(0);
+        assertEquals("GET api.example.com/slow", slow.getEndpoint());
+        assertEquals(2, slow.getCount());
+        assertEquals(1, slow.getErrorCount());
+        assertEquals(1100, slow.getMax());
+        assertTrue(slow.getP50() >= 900 && slow.getP50() < 1100);
+
+        // 70秒后不在1分钟窗口内，仍在5分钟和会话窗口内
+        long later = T0 + 70_000;
+        stats.record("GET api.example.com/fast", later, 20, false);
+        List<LatencyStats.EndpointStats> oneMinute = stats.query(LatencyStats.WINDOW_1_MINUTE, later);
+        assertEquals(1, oneMinute.size());
+        assertEquals(1, oneMinute.get(0).getCount());
+        assertEquals(4, stats.queryTotal(LatencyStats.WINDOW_5_MINUTES, later).getCount());
+        assertEquals(4, stats.queryTotal(LatencyStats.WINDOW_SESSION, later).getCount());
+
+        // 超过5分钟后只剩会话窗口
+        long muchLater = T0 + 10 * 60_000;
+        assertEquals(0, stats.queryTotal(LatencyStats.WINDOW_5_MINUTES, muchLater).getCount());
+        assertTrue(stats.query(LatencyStats.WINDOW_1_MINUTE, muchLater).isEmpty());
+        assertEquals(4, stats.queryTotal(LatencyStats.WINDOW_SESSION, muchLater).getCount());
+    }
+
+    @Test
+    public void slots_areReusedForNewPeriods() {
+        LatencyStats stats = new LatencyStats();
+        stats.record("GET a", T0, 100, false);
+        // 同一个10秒槽在1分钟后被复用，旧的计数被清空
+        stats.record("GET a", T0 + 60_000, 5, false);
+        LatencyStats.EndpointStats result = stats.queryTotal(LatencyStats.WINDOW_1_MINUTE, T0 + 60_000);
+        assertEquals(1, result.getCount());
+        assertEquals(5, result.getMax());
+    }
+
+    @Test
+    public void record_skipsSlotsOlderThanTheReusedSlot() {
+        LatencyStats stats = new LatencyStats();
+        stats.record("GET a", T0 + 60_000, 5, false);
+        // 1分钟前开始的长轮询按开始时间记录，落在同一个槽上，不能清空槽中较新的数据
+        stats.record("GET a", T0, 60_000, false);
+
+        LatencyStats.EndpointStats oneMinute = stats.queryTotal(LatencyStats.WINDOW_1_MINUTE, T0 + 60_000);
+        assertEquals(1, oneMinute.getCount());
+        assertEquals(5, oneMinute.getMax());
+        assertEquals(2, stats.queryTotal(LatencyStats.WINDOW_SESSION, T0 + 60_000).getCount());
+    }
+
+    @Test
+    public void record_limitsEndpointCount() {
+        LatencyStats stats = new LatencyStats(2);
+        stats.record("GET a", T0, 1, false);
+        stats.record("GET b", T0, 1, false);
+        stats.record("GET c", T0, 1, false);
+        stats.record("GET d", T0, 1, false);
+        stats.record("GET a", T0, 1, false);
+
+        List<LatencyStats.EndpointStats> result = stats.query(LatencyStats.WINDOW_SESSION, T0);
+        assertEquals(3, result.size());
+        for (LatencyStats.EndpointStats item : result) {
+            if (item.getEndpoint().equals(LatencyStats.OTHER_ENDPOINT)) {
+                assertEquals(2, item.getCount());
+            }
+        }
+
+        stats.clear();
+        assertTrue(stats.query(LatencyStats.WINDOW_SESSION, T0).isEmpty());
+    }
+
+    @Test
+    public void endpoint_groupsByTemplate() {
+        UrlTemplateNormalizer normalizer = new UrlTemplateNormalizer();
+        String first = LatencyStats.endpoint("GET", "api.example.com",
+                normalizer.normalize("https://api.example.com/users/1?page=2#top"));
+        String second = LatencyStats.endpoint("GET", "api.example.com",
+                normalizer.normalize("https://api.example.com/users/2?page=3"));
+        assertEquals("GET api.example.com/users/{id}?page", first);
+        assertEquals(first, second);
+    }
+}
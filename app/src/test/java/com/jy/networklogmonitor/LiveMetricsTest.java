@@ -0,0 +1,134 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LiveMetricsTest {
+    // 对齐到秒，方便计算槽的边界
+    private static final long T0 = 1_700_000_040_000L;
+
+    @Test
+    public void snapshot_ratesFinishedRequestsOverCompletedSeconds() {
+        LiveMetrics metrics = new LiveMetrics();
+        for (int second = 0; second < 5; second++) {
+            for (int i = 0; i < 4; i++) {
+                metrics.record(T0 + second * 1000 + i, 10, false);
+            }
+        }
+        // 当前这一秒还没有结束，不计入每秒请求数
+        metrics.record(T0 + 5000, 10, false);
+
+        LiveMetrics.Snapshot snapshot = metrics.snapshot(T0 + 5500);
+
+        assertEquals(4.0, snapshot.getRequestsPerSecond(), 0.001);
+        assertEquals(21, snapshot.getRequestCount());
+        assertTrue(snapshot.isActive());
+    }
+
+    @Test
+    public void snapshot_p95CoversLatencyWindow() {
+        LiveMetrics metrics = new LiveMetrics();
+        for (int i = 0; i < 95; i++) {
+            metrics.record(T0 + i * 50, 10, false);
+        }
+        for (int i = 0; i < 5; i++) {
+            metrics.record(T0 + 20_000 + i, 2000, false);
+        }
+
+        LiveMetrics.Snapshot snapshot = metrics.snapshot(T0 + 25_000);
+        assertEquals(100, snapshot.getRequestCount());
+        assertTrue("p95 " + snapshot.getP95Millis(), snapshot.getP95Millis() < 100);
+        // 每秒请求数只看最近5秒
+        assertEquals(1.0, snapshot.getRequestsPerSecond(), 0.001);
+
+        // 30秒后较早的快速请求移出窗口，只剩慢请求
+        LiveMetrics.Snapshot later = metrics.snapshot(T0 + 35_000);
+        assertEquals(5, later.getRequestCount());
+        assertTrue("p95 " + later.getP95Millis(), later.getP95Millis() >= 1000);
+    }
+
+    @Test
+    public void snapshot_isIdleAfterWindowExpires() {
+        LiveMetrics metrics = new LiveMetrics();
+        metrics.onRequestStarted();
+        metrics.onRequestFinished(false);
+        metrics.record(T0, 50, false);
+
+        LiveMetrics.Snapshot snapshot = metrics.snapshot(T0 + LiveMetrics.LATENCY_WINDOW_SECONDS * 1000L);
+
+        assertEquals(0, snapshot.getRequestCount());
+        assertEquals(0, snapshot.getP95Millis());
+        assertEquals(0.0, snapshot.getRequestsPerSecond(), 0.001);
+        assertFalse(snapshot.isActive());
+    }
+
+    @Test
+    public void record_reusesSlotsAndDropsStaleEntries() {
+        LiveMetrics metrics = new LiveMetrics();
+        metrics.record(T0, 10, false);
+        // 同一个槽被下一轮的秒复用，旧数据被清空
+        long next = T0 + LiveMetrics.LATENCY_WINDOW_SECONDS * 1000L;
+        metrics.record(next, 20, false);
+        // 比槽中数据更早的请求直接丢弃
+        metrics.record(T0 + 1, 30, false);
+
+        assertEquals(1, metrics.snapshot(next).getRequestCount());
+    }
+
+    @Test
+    public void onRequestFinished_tracksInFlightAndErrorsSinceLastOpen() {
+        LiveMetrics metrics = new LiveMetrics();
+        metrics.onRequestStarted();
+        metrics.onRequestStarted();
+        metrics.onRequestStarted();
+        metrics.onRequestFinished(true);
+
+        LiveMetrics.Snapshot snapshot = metrics.snapshot(T0);
+        assertEquals(2, snapshot.getInFlightCount());
+        assertEquals(1, snapshot.getErrorsSinceLastOpen());
+        assertTrue(snapshot.isActive());
+
+        metrics.markErrorsSeen();
+        assertEquals(0, metrics.snapshot(T0).getErrorsSinceLastOpen());
+
+        metrics.onRequestFinished(true);
+        metrics.onRequestFinished(false);
+        snapshot = metrics.snapshot(T0);
+        assertEquals(0, snapshot.getInFlightCount());
+        assertEquals(1, snapshot.getErrorsSinceLastOpen());
+    }
+
+    @Test
+    public void stripedCounter_sumsConcurrentIncrements() throws InterruptedException {
+        final StripedCounter counter = new StripedCounter();
+        final int threads = 8;
+        final int perThread = 100_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < perThread; j++) {
+                        counter.increment();
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals((long) threads * perThread, counter.sum());
+    }
+}
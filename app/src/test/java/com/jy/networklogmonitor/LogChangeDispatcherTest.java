@@ -0,0 +1,126 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LogChangeDispatcherTest {
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<LogChangeBatch> batches = new ArrayList<>();
+    private LogRingBuffer store;
+    private LogChangeDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        store = new LogRingBuffer(100);
+        dispatcher = new LogChangeDispatcher(
+                (task, delayMillis) -> scheduled.add(task),
+                new LogChangeDispatcher.SequenceSource() {
+                    @Override
+                    public long getFirstSequence() {
+                        return store.getFirstSequence();
+                    }
+
+                    @Override
+                    public long getEndSequence() {
+                        return store.getEndSequence();
+                    }
+                }, 16);
+        dispatcher.addListener(batches::add);
+    }
+
+    @Test
+    public void burstOfChanges_isCoalescedIntoOneCallback() {
+        for (int i = 0; i < 50; i++) {
+            store.append(new NetworkLog("https://example.com/" + i, "GET"));
+            dispatcher.onLogsAppended();
+            dispatcher.onLogUpdated(i);
+        }
+
+        assertEquals(1, scheduled.size());
+        runScheduled();
+
+        assertEquals(1, batches.size());
+        LogChangeBatch batch = batches.get(0);
+        assertEquals(0, batch.getFromSequence());
+        assertEquals(50, batch.getAddedCount());
+        assertEquals(0, batch.getEvictedCount());
+        assertEquals(50, batch.getUpdatedCount());
+        assertEquals(0, batch.getUpdatedFromSequence());
+        assertEquals(50, batch.getUpdatedToSequence());
+        assertFalse(batch.isReset());
+    }
+
+    @Test
+    public void evictionBetweenFlushes_isReportedAsDelta() {
+        appendAndFlush(80);
+        appendAndFlush(70);
+
+        assertEquals(2, batches.size());
+        LogChangeBatch batch = batches.get(1);
+        // 之前持有[0, 80)，现在存储为[50, 150)
+        assertEquals(50, batch.getEvictedCount());
+        assertEquals(80, batch.getFromSequence());
+        assertEquals(150, batch.getToSequence());
+    }
+
+    @Test
+    public void clear_deliversReset() {
+        appendAndFlush(10);
+        store.clear();
+        dispatcher.onReset();
+        runScheduled();
+
+        LogChangeBatch batch = batches.get(batches.size() - 1);
+        assertTrue(batch.isReset());
+        assertEquals(0, batch.getAddedCount());
+    }
+
+    @Test
+    public void changesDuringFlush_scheduleAnotherFlush() {
+        // 监听器回调期间又写入一条日志
+        dispatcher.addListener(batch -> {
+            if (batches.size() == 1) {
+                store.append(new NetworkLog("https://example.com/late", "GET"));
+                dispatcher.onLogsAppended();
+            }
+        });
+        appendAndFlush(1);
+        assertEquals(1, batches.size());
+        assertEquals(1, scheduled.size());
+
+        runScheduled();
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(1).getFromSequence());
+        assertEquals(1, batches.get(1).getAddedCount());
+    }
+
+    @Test
+    public void notificationWithoutChanges_doesNotCallBack() {
+        appendAndFlush(1);
+        dispatcher.onLogsAppended();
+        assertEquals(1, scheduled.size());
+        runScheduled();
+        assertEquals(1, batches.size());
+    }
+
+    private void appendAndFlush(int count) {
+        for (int i = 0; i < count; i++) {
+            store.append(new NetworkLog("https://example.com/" + i, "GET"));
+            dispatcher.onLogsAppended();
+        }
+        runScheduled();
+    }
+
+    private void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 导出10万条日志为HAR的耗时和峰值堆增长，堆上限由LogExporterTest断言；手动运行
+@Ignore("benchmark")
+public class LogExporterBenchmark {
+
+    @Test
+    public void export100kEntries() throws IOException {
+        final int count = 100_000;
+        LogView store = new LogExporterTest.GeneratingStore(count, 1024);
+        LogExporterTest.CountingOutputStream out = new LogExporterTest.CountingOutputStream();
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long baseline = runtime.totalMemory() - runtime.freeMemory();
+        final long[] maxUsed = new long[1];
+
+        long start = System.nanoTime();
+        LogExporter.export(store, null, LogExporter.FORMAT_HAR, out, new LogExporter.Listener() {
+            @Override
+            public void onProgress(int exported, long scanned, long total) {
+                if (scanned % (LogExporter.PROGRESS_INTERVAL * 40) == 0) {
+                    System.gc();
+                    maxUsed[0] = Math.max(maxUsed[0], runtime.totalMemory() - runtime.freeMemory());
+                }
+            }
+
+            @Override
+            public void onComplete(int exported, boolean cancelled) {
+            }
+
+            @Override
+            public void onError(IOException e) {
+            }
+        }, new AtomicBoolean());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        System.out.println("LogExporter 100k entries: " + out.count / (1024 * 1024) + " MB in " + elapsedMillis
+                + " ms, heap growth " + (maxUsed[0] - baseline) / 1024 + " KB");
+    }
+}
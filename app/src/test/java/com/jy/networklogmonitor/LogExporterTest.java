@@ -0,0 +1,293 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Headers;
+
+import static org.junit.Assert.*;
+
+public class LogExporterTest {
+
+    private static NetworkLog newLog(long id, String url, int status) {
+        NetworkLog log = new NetworkLog(url, "POST");
+        log.setId(id);
+        log.setTimestampNanos(1714552215123L * 1_000_000L);
+        log.setStatusCode(status);
+        log.setResponseTime(120);
+        log.setHeaders(Headers.of("Content-Type", "application/json", "X-Trace", "a\"b"));
+        log.setRequestBody("{\"q\":\"中文\\n\"}");
+        log.setResponseBody("line1\nline2\t\u0001 😀");
+        return log;
+    }
+
+    private static String export(LogView store, LogQuery query, int format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (query != null) {
+            query.prepare(new UrlSearchIndex(), new AtomicBoolean());
+        }
+        LogExporter.export(store, query, format, out, null, new AtomicBoolean());
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // 检查文本是一个合法的JSON值
+    private static void assertValidJson(String json) {
+        int end = new JsonChecker(json).skipValue(0);
+        assertEquals("trailing content", json.length(), end);
+    }
+
+    @Test
+    public void export_writesValidHar() throws IOException {
+        LogRingBuffer store = new LogRingBuffer(10);
+        store.append(newLog(1, "https://api.example.com/orders?page=2&q=a%20b&flag", 200));
+        store.append(newLog(2, "https://api.example.com/orders", 503));
+
+        String har = export(store, null, LogExporter.FORMAT_HAR);
+
+        assertValidJson(har);
+        assertTrue(har.startsWith("{\"log\":{\"version\":\"1.2\",\"creator\":{\"name\":\"NetworkLogMonitor\""));
+        assertTrue(har.contains("\"startedDateTime\":\"2024-05-01T08:30:15.123Z\""));
+        assertTrue(har.contains("\"queryString\":[{\"name\":\"page\",\"value\":\"2\"},"
+                + "{\"name\":\"q\",\"value\":\"a%20b\"},{\"name\":\"flag\",\"value\":\"\"}]"));
+        assertTrue(har.contains("{\"name\":\"X-Trace\",\"value\":\"a\\\"b\"}"));
+        assertTrue(har.contains("\"postData\":{\"mimeType\":\"application/json\",\"text\":\"{\\\"q\\\":\\\"中文\\\\n\\\"}\"}"));
+        assertTrue(har.contains("\"text\":\"line1\\nline2\\t\\u0001 😀\""));
+        assertTrue(har.contains("\"status\":503"));
+        assertTrue(har.contains("\"timings\":{\"send\":0,\"wait\":120,\"receive\":0}"));
+    }
+
+    @Test
+    public void export_writesFilteredNdjson() throws IOException {
+        LogRingBuffer store = new LogRingBuffer(10);
+        for (int i = 0; i < 6; i++) {
+            store.append(newLog(i, "https://api.example.com/items/" + i, i % 2 == 0 ? 200 : 500));
+        }
+
+        String ndjson = export(store, LogQuery.parse("status:5xx"), LogExporter.FORMAT_NDJSON);
+
+        String[] lines = ndjson.split("\n");
+        assertEquals(3, lines.length);
+        for (String line : lines) {
+            assertValidJson(line);
+            assertTrue(line.contains("\"status\":500"));
+        }
+        assertTrue(lines[0].startsWith("{\"id\":1,\"timestamp\":1714552215123,\"method\":\"POST\","
+                + "\"url\":\"https://api.example.com/items/1\""));
+        assertTrue(ndjson.endsWith("}\n"));
+        // 空的HAR也是合法的文档
+        assertValidJson(export(new LogRingBuffer(1), null, LogExporter.FORMAT_HAR));
+    }
+
+    @Test
+    public void formatIsoDate_handlesLeapDays() throws IOException {
+        LogRingBuffer store = new LogRingBuffer(1);
+        NetworkLog log = newLog(1, "https://example.com/", 200);
+        log.setTimestampNanos(951782400000L * 1_000_000L);
+        store.append(log);
+
+        assertTrue(export(store, null, LogExporter.FORMAT_HAR).contains("\"2000-02-29T00:00:00.000Z\""));
+    }
+
+    @Test
+    public void export_stopsWhenCancelled() throws IOException {
+        LogView store = new GeneratingStore(10_000, 16);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        int exported = LogExporter.export(store, null, LogExporter.FORMAT_NDJSON, new CountingOutputStream(),
+                new LogExporter.Listener() {
+                    @Override
+                    public void onProgress(int exported, long scanned, long total) {
+                        cancelled.set(true);
+                    }
+
+                    @Override
+                    public void onComplete(int exported, boolean cancelled) {
+                    }
+
+                    @Override
+                    public void onError(IOException e) {
+                    }
+                }, cancelled);
+
+        assertEquals(-1, exported);
+    }
+
+    @Test
+    public void export_100kEntriesWithBoundedHeap() throws IOException {
+        final int count = 100_000;
+        LogView store = new GeneratingStore(count, 1024);
+        CountingOutputStream out = new CountingOutputStream();
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long baseline = runtime.totalMemory() - runtime.freeMemory();
+        final long[] maxUsed = new long[1];
+
+        int exported = LogExporter.export(store, null, LogExporter.FORMAT_HAR, out, new LogExporter.Listener() {
+            @Override
+            public void onProgress(int exported, long scanned, long total) {
+                // 每约1万条采样一次GC之后的堆占用
+                if (scanned % (LogExporter.PROGRESS_INTERVAL * 40) == 0) {
+                    System.gc();
+                    maxUsed[0] = Math.max(maxUsed[0], runtime.totalMemory() - runtime.freeMemory());
+                }
+            }
+
+            @Override
+            public void onComplete(int exported, boolean cancelled) {
+            }
+
+            @Override
+            public void onError(IOException e) {
+            }
+        }, new AtomicBoolean());
+
+        assertEquals(count, exported);
+        assertTrue(out.count > count * 1024L);
+        long growth = maxUsed[0] - baseline;
+        // 输出超过100MB，堆占用只增加缓冲区和单条日志的大小
+        assertTrue("heap grew by " + growth, growth < 8 * 1024 * 1024);
+    }
+
+    // 按需生成日志的存储，自身不占用与日志条数成正比的内存
+    static final class GeneratingStore implements LogView {
+        private final int count;
+        private final String body;
+
+        GeneratingStore(int count, int bodySize) {
+            this.count = count;
+            StringBuilder builder = new StringBuilder(bodySize);
+            while (builder.length() < bodySize) {
+                builder.append("{\"k\":\"v\"}");
+            }
+            this.body = builder.substring(0, bodySize);
+        }
+
+        @Override
+        public NetworkLog get(long sequence) {
+            NetworkLog log = new NetworkLog("https://api.example.com/items/" + sequence + "?page=1", "GET");
+            log.setId(sequence);
+            log.setStatusCode(200);
+            log.setResponseBody(body);
+            log.setTimestampNanos(System.currentTimeMillis() * 1_000_000L);
+            return log;
+        }
+
+        @Override
+        public long getFirstSequence() {
+            return 0;
+        }
+
+        @Override
+        public long getEndSequence() {
+            return count;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public NetworkLog getById(long id) {
+            return get(id);
+        }
+
+        @Override
+        public LogRow getRow(long sequence) {
+            return null;
+        }
+
+        @Override
+        public List<NetworkLog> snapshot() {
+            return Collections.emptyList();
+        }
+    }
+
+    static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    // 只检查语法的JSON解析器，返回值结束的位置
+    private static final class JsonChecker {
+        private final String text;
+
+        JsonChecker(String text) {
+            this.text = text;
+        }
+
+        int skipValue(int i) {
+            i = skipWhitespace(i);
+            char c = text.charAt(i);
+            if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                i = skipWhitespace(i + 1);
+                if (text.charAt(i) == close) {
+                    return i + 1;
+                }
+                while (true) {
+                    if (c == '{') {
+                        assertEquals('"', text.charAt(i));
+                        i = skipWhitespace(skipString(i));
+                        assertEquals(':', text.charAt(i));
+                        i++;
+                    }
+                    i = skipWhitespace(skipValue(i));
+                    if (text.charAt(i) == close) {
+                        return i + 1;
+                    }
+                    assertEquals(',', text.charAt(i));
+                    i = skipWhitespace(i + 1);
+                }
+            }
+            if (c == '"') {
+                return skipString(i);
+            }
+            int start = i;
+            while (i < text.length() && "-+.eE0123456789truefalsn".indexOf(text.charAt(i)) >= 0) {
+                i++;
+            }
+            assertTrue("bad token at " + start, i > start);
+            return i;
+        }
+
+        private int skipString(int i) {
+            i++;
+            while (true) {
+                char c = text.charAt(i);
+                assertTrue("unescaped control character", c >= 0x20);
+                if (c == '\\') {
+                    char escaped = text.charAt(i + 1);
+                    assertTrue("bad escape " + escaped, "\"\\/bfnrtu".indexOf(escaped) >= 0);
+                    i += escaped == 'u' ? 6 : 2;
+                } else if (c == '"') {
+                    return i + 1;
+                } else {
+                    i++;
+                }
+            }
+        }
+
+        private int skipWhitespace(int i) {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class LogListModelTest {
+
+    private static void append(LogStore store, String method, int count) {
+        for (int i = 0; i < count; i++) {
+            store.append(new NetworkLog("https://api.example.com/items/" + store.getEndSequence(), method));
+        }
+    }
+
+    private static LogListModel.Update replace(LogListModel model, String query, LogStore store) {
+        LogQuery logQuery = LogQuery.parse(query);
+        return model.replace(logQuery, LogListModel.load(logQuery, store, new AtomicBoolean()));
+    }
+
+    private static long[] sequencesOf(List<NetworkLog> logs) {
+        long[] sequences = new long[logs.size()];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = logs.get(i).getSequence();
+        }
+        return sequences;
+    }
+
+    // 统计读取完整日志的次数
+    private static final class CountingStore implements LogStore {
+        final LogRingBuffer delegate = new LogRingBuffer(1000);
+        int fullReads;
+
+        @Override
+        public long append(NetworkLog log) {
+            return delegate.append(log);
+        }
+
+        @Override
+        public void update(NetworkLog log) {
+            delegate.update(log);
+        }
+
+        @Override
+        public NetworkLog get(long sequence) {
+            fullReads++;
+            return delegate.get(sequence);
+        }
+
+        @Override
+        public NetworkLog getById(long id) {
+            fullReads++;
+            return delegate.getById(id);
+        }
+
+        @Override
+        public LogRow getRow(long sequence) {
+            return delegate.getRow(sequence);
+        }
+
+        @Override
+        public long getFirstSequence() {
+            return delegate.getFirstSequence();
+        }
+
+        @Override
+        public long getEndSequence() {
+            return delegate.getEndSequence();
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public List<NetworkLog> snapshot() {
+            throw new AssertionError("snapshot() reads every log");
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+    }
+
+    // 记录区间变化，模拟适配器
+    private static final class RecordingCallback implements LogListModel.UpdateCallback {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add("-" + position + "+" + count);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add("+" + position + "+" + count);
+        }
+    }
+
+    @Test
+    public void append_emitsRangeInsertsAndHeadRemovals() {
+        LogRingBuffer store = new LogRingBuffer(10);
+        LogListModel model = new LogListModel();
+        SequenceList adapter = new SequenceList();
+        replace(model, "", store).applyTo(adapter, null);
+
+        append(store, "GET", 6);
+        RecordingCallback callback = new RecordingCallback();
+        model.append(store).applyTo(adapter, callback);
+        assertEquals("[+0+6]", callback.events.toString());
+
+        // 超出容量后淘汰最旧的4条，新增的8条合并为一次插入
+        append(store, "GET", 8);
+        callback.events.clear();
+        LogListModel.Update update = model.append(store);
+        update.applyTo(adapter, callback);
+        assertEquals("[-0+4, +2+8]", callback.events.toString());
+        assertArrayEquals(model.getSequences(), adapter.toArray());
+        assertEquals(4, adapter.get(0));
+        assertEquals(13, adapter.get(9));
+
+        assertTrue(model.append(store).isEmpty());
+    }
+
+    @Test
+    public void replace_diffsSortedRowsAndKeepsAdapterInSync() {
+        LogRingBuffer store = new LogRingBuffer(100);
+        for (int i = 0; i < 30; i++) {
+            append(store, i % 3 == 0 ? "POST" : "GET", 1);
+        }
+        LogListModel model = new LogListModel();
+        SequenceList adapter = new SequenceList();
+        replace(model, "method:GET", store).applyTo(adapter, null);
+        assertEquals(20, adapter.size());
+
+        RecordingCallback callback = new RecordingCallback();
+        replace(model, "", store).applyTo(adapter, callback);
+        // 只插入缺少的POST行，已有的行保留
+        assertEquals(10, callback.events.size());
+        assertEquals("+0+1", callback.events.get(0));
+        assertArrayEquals(model.getSequences(), adapter.toArray());
+        assertArrayEquals(sequencesOf(store.snapshot()), adapter.toArray());
+
+        callback.events.clear();
+        replace(model, "method:POST", store).applyTo(adapter, callback);
+        assertArrayEquals(model.getSequences(), adapter.toArray());
+        assertEquals(10, adapter.size());
+        // 相邻的GET行合并为一次区间删除
+        assertEquals("-1+2", callback.events.get(0));
+
+        // 过滤条件也作用于之后追加的日志
+        append(store, "GET", 3);
+        append(store, "POST", 2);
+        model.append(store).applyTo(adapter, null);
+        assertEquals(12, adapter.size());
+        assertEquals(34, adapter.get(11));
+    }
+
+    @Test
+    public void load_excludesLogsAppendedAfterEndSequence() {
+        LogRingBuffer store = new LogRingBuffer(100);
+        append(store, "GET", 5);
+        LogListModel model = new LogListModel();
+        LogQuery query = LogQuery.parse("");
+        LogListModel.Snapshot snapshot = LogListModel.load(query, store, new AtomicBoolean());
+        // 结果应用之前又写入的日志由append()追加，不会重复
+        append(store, "GET", 2);
+        SequenceList adapter = new SequenceList();
+        model.replace(query, snapshot).applyTo(adapter, null);
+        model.append(store).applyTo(adapter, null);
+
+        assertArrayEquals(sequencesOf(store.snapshot()), adapter.toArray());
+    }
+
+    @Test
+    public void load_decidesFromRowsAndCandidatesWithoutReadingFullLogs() {
+        CountingStore store = new CountingStore();
+        append(store, "GET", 30);
+        append(store, "POST", 10);
+        LogListModel model = new LogListModel();
+
+        replace(model, "method:POST status:0", store);
+        assertEquals(10, model.getSequences().length);
+        assertEquals(0, store.fullReads);
+
+        // 摘要中没有响应体大小，只有这种条件才读取完整日志
+        replace(model, "method:POST size<1", store);
+        assertEquals(10, model.getSequences().length);
+        assertEquals(10, store.fullReads);
+
+        // URL条件用索引的候选缩小范围
+        UrlSearchIndex index = new UrlSearchIndex();
+        index.rebuild(store.delegate);
+        LogQuery query = LogQuery.parse("items/3");
+        assertTrue(query.prepare(index, new AtomicBoolean()));
+        model.replace(query, LogListModel.load(query, store, new AtomicBoolean()));
+        assertArrayEquals(new long[]{3, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39}, model.getSequences());
+    }
+
+    @Test
+    public void refresh_reevaluatesOnlyUpdatedRows() {
+        CountingStore store = new CountingStore();
+        append(store, "POST", 10);
+        LogListModel model = new LogListModel();
+        replace(model, "body:paid", store);
+        assertEquals(0, model.getSequences().length);
+
+        NetworkLog log = store.delegate.get(4);
+        log.setResponseBody("{\"status\":\"paid\"}");
+        store.update(log);
+        store.fullReads = 0;
+        SequenceList adapter = new SequenceList();
+        model.refresh(store, 4, 5).applyTo(adapter, null);
+
+        assertArrayEquals(new long[]{4}, model.getSequences());
+        assertArrayEquals(new long[]{4}, adapter.toArray());
+        assertEquals(1, store.fullReads);
+
+        // 结果不变时没有更新，不再符合时删除
+        assertTrue(model.refresh(store, 4, 5).isEmpty());
+        log.setResponseBody("{\"status\":\"failed\"}");
+        model.refresh(store, 0, 10).applyTo(adapter, null);
+        assertEquals(0, model.getSequences().length);
+        assertEquals(0, adapter.size());
+    }
+
+    @Test
+    public void refresh_showsLiveLogsOnceResponseSizeMatches() {
+        CountingStore store = new CountingStore();
+        LogListModel model = new LogListModel();
+        replace(model, "size>1mb", store);
+        // 日志写入时还没有响应体，大小为-1
+        append(store, "GET", 3);
+        model.append(store);
+        assertEquals(0, model.getSequences().length);
+        LogQuery query = LogQuery.parse("size>1mb");
+        assertTrue(query.dependsOnResponseBody());
+
+        NetworkLog log = store.delegate.get(1);
+        log.setResponseBodyState(null, false, 2L * 1024 * 1024, true);
+        store.update(log);
+        model.refresh(store, 1, 2);
+
+        assertArrayEquals(new long[]{1}, model.getSequences());
+    }
+}
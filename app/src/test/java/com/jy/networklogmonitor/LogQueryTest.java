@@ -0,0 +1,134 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class LogQueryTest {
+
+    private static NetworkLog log(long sequence, String method, String url, int status, long responseTime,
+                                  long responseSize) {
+        NetworkLog log = new NetworkLog(url, method);
+        log.setSequence(sequence);
+        log.setStatusCode(status);
+        log.setResponseTime(responseTime);
+        log.setResponseBodySize(responseSize);
+        return log;
+    }
+
+    @Test
+    public void parse_fieldsAndUnits() {
+        NetworkLog log = log(0, "POST", "https://api.example.com/v1/orders", 503, 1200, 2 * 1024 * 1024);
+
+        assertTrue(LogQuery.parse("status:5xx method:POST host:api.* latency>800 size>1mb").matches(log));
+        assertTrue(LogQuery.parse("status:503 method:post host:API.example.com").matches(log));
+        assertTrue(LogQuery.parse("latency>=1.2s latency<1201ms size<=2mb").matches(log));
+        assertFalse(LogQuery.parse("status:4xx").matches(log));
+        assertFalse(LogQuery.parse("latency>1200").matches(log));
+        assertFalse(LogQuery.parse("size>2mb").matches(log));
+        assertFalse(LogQuery.parse("host:*.cdn.com").matches(log));
+        assertTrue(LogQuery.parse("error:false").matches(log));
+    }
+
+    @Test
+    public void dependsOnResponseBody_coversBodyAndSizeTerms() {
+        assertTrue(LogQuery.parse("body:paid").dependsOnResponseBody());
+        assertTrue(LogQuery.parse("method:GET OR size>1mb").dependsOnResponseBody());
+        assertFalse(LogQuery.parse("status:5xx latency>800 orders").dependsOnResponseBody());
+        assertFalse(LogQuery.parse("").dependsOnResponseBody());
+    }
+
+    @Test
+    public void parse_endpointMatchesTemplate() {
+        NetworkLog log = log(0, "GET", "https://api.example.com/users/42/orders?page=2", 200, 10, 10);
+        log.setUrlTemplate("/users/{id}/orders?page");
+
+        assertTrue(LogQuery.parse("endpoint:/users/{id}/orders").matches(log));
+        assertTrue(LogQuery.parse("endpoint:/users/*").matches(log));
+        assertTrue(LogQuery.parse("endpoint:/users/{id}/orders?page").matches(log));
+        assertFalse(LogQuery.parse("endpoint:/users/{id}").matches(log));
+        assertFalse(LogQuery.parse("endpoint:/users/{id}/orders?sort").matches(log));
+        // 没有保存模板的日志按URL重新归一化
+        NetworkLog restored = log(1, "GET", "https://api.example.com/users/7/orders", 200, 10, 10);
+        assertTrue(LogQuery.parse("endpoint:/users/{id}/orders").matches(restored));
+    }
+
+    @Test
+    public void parse_booleanOperators() {
+        NetworkLog ok = log(0, "GET", "https://api.example.com/users", 200, 50, 10);
+        NetworkLog failed = log(1, "GET", "https://api.example.com/users", 0, 50, 0);
+        failed.setErrorMessage("timeout");
+
+        LogQuery query = LogQuery.parse("(status:4xx OR error:true) url:users");
+        assertFalse(query.matches(ok));
+        assertTrue(query.matches(failed));
+        assertTrue(LogQuery.parse("-error:true").matches(ok));
+        assertFalse(LogQuery.parse("-error:true").matches(failed));
+        // 不带字段名的词按URL包含匹配，不区分大小写
+        assertTrue(LogQuery.parse("USERS").matches(ok));
+        assertTrue(LogQuery.parse("\"example.com/users\"").matches(ok));
+        assertTrue(LogQuery.parse("").isEmpty());
+        assertTrue(LogQuery.parse("   ").matches(ok));
+    }
+
+    @Test
+    public void parse_rejectsInvalidQueries() {
+        String[] invalid = {"status:abc", "latency>fast", "(status:200", "status:200)", "error:maybe",
+                "method>GET", "a OR", "status:", "-", "url:\"abc"};
+        for (String text : invalid) {
+            try {
+                LogQuery.parse(text);
+                fail("expected error for " + text);
+            } catch (IllegalArgumentException expected) {
+                // 符合预期
+            }
+        }
+    }
+
+    @Test
+    public void prepare_usesUrlIndexCandidates() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        LogStore store = new LogRingBuffer(16);
+        for (int i = 0; i < 10; i++) {
+            String url = "https://api.example.com/" + (i % 2 == 0 ? "orders/" : "users/") + i;
+            store.append(log(i, "GET", url, 200, 10, 10));
+            index.add(i, url);
+        }
+        LogQuery query = LogQuery.parse("orders -url:orders/4");
+        assertTrue(query.prepare(index, new AtomicBoolean()));
+
+        long[] result = LogQueryEvaluator.filter(query, store, 0, store.getEndSequence(), new AtomicBoolean());
+        assertArrayEquals(new long[]{0, 2, 6, 8}, result);
+    }
+
+    @Test
+    public void filter_parallelMatchesSequentialInOrder() {
+        LogStore store = new LogRingBuffer(65536);
+        List<Long> expected = new ArrayList<>();
+        String[] methods = {"GET", "POST", "PUT"};
+        LogQuery query = LogQuery.parse("(status:5xx OR size>=10kb) method:POST -host:h3.* latency>100");
+        for (int i = 0; i < 50000; i++) {
+            NetworkLog log = log(i, methods[i % 3], "https://h" + (i % 7) + ".example.com/items/" + i,
+                    (i % 5 == 0) ? 500 : 200, i % 1000, (i % 13) * 1024L);
+            store.append(log);
+            if (query.matches(log)) {
+                expected.add(log.getSequence());
+            }
+        }
+
+        // 超过CHUNK_SIZE时拆分成多个任务并行判断，结果仍按序号顺序排列
+        long[] result = LogQueryEvaluator.filter(query, store, 0, store.getEndSequence(), new AtomicBoolean());
+        assertTrue(result.length > 0);
+        assertEquals(expected.size(), result.length);
+        for (int i = 0; i < result.length; i++) {
+            assertEquals((long) expected.get(i), result[i]);
+        }
+
+        AtomicBoolean cancelled = new AtomicBoolean(true);
+        assertNull(LogQueryEvaluator.filter(query, store, 0, store.getEndSequence(), cancelled));
+    }
+}
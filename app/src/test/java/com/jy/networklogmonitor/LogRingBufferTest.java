@@ -0,0 +1,164 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void append_evictsOldestWhenFull() {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            buffer.append(new NetworkLog("https://example.com/" + i, "GET"));
+        }
+
+        List<NetworkLog> logs = buffer.snapshot();
+        assertEquals(3, logs.size());
+        assertEquals("https://example.com/2", logs.get(0).getUrl());
+        assertEquals("https://example.com/4", logs.get(2).getUrl());
+        assertNull(buffer.get(1));
+        assertEquals("https://example.com/3", buffer.get(3).getUrl());
+    }
+
+    @Test
+    public void getById_findsRetainedLogsOnly() {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            NetworkLog log = new NetworkLog("https://example.com/" + i, "GET");
+            log.setId(100 + i);
+            buffer.append(log);
+        }
+
+        assertNull(buffer.getById(101));
+        assertEquals("https://example.com/2", buffer.getById(102).getUrl());
+        assertEquals(4, buffer.getById(104).getSequence());
+        assertNull(buffer.getById(-1));
+
+        buffer.clear();
+        assertNull(buffer.getById(104));
+        NetworkLog log = new NetworkLog("https://example.com/5", "GET");
+        log.setId(105);
+        buffer.append(log);
+        assertSame(log, buffer.getById(105));
+    }
+
+    @Test
+    public void clear_dropsExistingLogsOnly() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        buffer.append(new NetworkLog("https://example.com/a", "GET"));
+        buffer.append(new NetworkLog("https://example.com/b", "GET"));
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.snapshot().isEmpty());
+
+        buffer.append(new NetworkLog("https://example.com/c", "GET"));
+        List<NetworkLog> logs = buffer.snapshot();
+        assertEquals(1, logs.size());
+        assertEquals("https://example.com/c", logs.get(0).getUrl());
+    }
+
+    @Test
+    public void concurrentAppend_keepsNewestContiguousSequences() throws Exception {
+        final int threadCount = 8;
+        final int perThread = 20000;
+        final int capacity = 1000;
+        final LogRingBuffer buffer = new LogRingBuffer(capacity);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        buffer.append(new NetworkLog("https://example.com/" + i, "GET"));
+                        if ((i & 63) == 0) {
+                            // 写入过程中并发读取快照，快照必须始终有序
+                            assertOrdered(buffer.snapshot());
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+
+        List<NetworkLog> logs = buffer.snapshot();
+        long total = (long) threadCount * perThread;
+        assertEquals(capacity, logs.size());
+        assertEquals(total - capacity, logs.get(0).getSequence());
+        assertEquals(total - 1, logs.get(capacity - 1).getSequence());
+        for (int i = 1; i < logs.size(); i++) {
+            assertEquals(logs.get(i - 1).getSequence() + 1, logs.get(i).getSequence());
+        }
+    }
+
+    @Test
+    public void concurrentAppend_keepsEveryRetainedLogFindableById() throws Exception {
+        final int threadCount = 4;
+        final int perThread = 50000;
+        final int capacity = 2000;
+        final LogRingBuffer buffer = new LogRingBuffer(capacity);
+        final AtomicLong nextId = new AtomicLong(1L << 40);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        NetworkLog log = new NetworkLog("https://example.com/" + i, "GET");
+                        log.setId(nextId.getAndIncrement());
+                        buffer.append(log);
+                        // 写入过程中并发按id查询，查到的日志id必须一致
+                        NetworkLog found = buffer.getById(log.getId());
+                        if (found != null) {
+                            assertSame(log, found);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+
+        // 反复覆盖后失效的索引项被复用，仍保留的日志都能按id查到
+        for (NetworkLog log : buffer.snapshot()) {
+            assertSame(log, buffer.getById(log.getId()));
+        }
+        assertNull(buffer.getById(1L << 40));
+    }
+
+    private static void assertOrdered(List<NetworkLog> logs) {
+        for (int i = 1; i < logs.size(); i++) {
+            assertTrue(logs.get(i - 1).getSequence() < logs.get(i).getSequence());
+        }
+    }
+}
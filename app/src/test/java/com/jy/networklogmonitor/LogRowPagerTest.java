@@ -0,0 +1,125 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class LogRowPagerTest {
+
+    // 手动执行的加载线程和主线程
+    private final Queue<Runnable> loadTasks = new ArrayDeque<>();
+    private final Queue<Runnable> mainTasks = new ArrayDeque<>();
+    private final List<long[]> loadedPages = new ArrayList<>();
+    private final List<String> loadedRanges = new ArrayList<>();
+
+    private LogRowPager newPager(SequenceList sequences) {
+        return new LogRowPager(sequences, new LogRowPager.RowLoader() {
+            @Override
+            public LogRow[] load(long[] pageSequences) {
+                loadedPages.add(pageSequences);
+                LogRow[] rows = new LogRow[pageSequences.length];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = new LogRow(pageSequences[i], pageSequences[i], "GET", 200, 1, "https://example.com/" + pageSequences[i], 0);
+                }
+                return rows;
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                loadTasks.add(command);
+            }
+        }, new LogChangeDispatcher.Scheduler() {
+            @Override
+            public void schedule(Runnable task, long delayMillis) {
+                mainTasks.add(task);
+            }
+        }, new LogRowPager.Listener() {
+            @Override
+            public void onRowsLoaded(int position, int count) {
+                loadedRanges.add(position + "+" + count);
+            }
+        });
+    }
+
+    private void runAll() {
+        while (!loadTasks.isEmpty() || !mainTasks.isEmpty()) {
+            while (!loadTasks.isEmpty()) {
+                loadTasks.poll().run();
+            }
+            while (!mainTasks.isEmpty()) {
+                mainTasks.poll().run();
+            }
+        }
+    }
+
+    private static SequenceList sequences(int count) {
+        SequenceList sequences = new SequenceList();
+        for (int i = 0; i < count; i++) {
+            sequences.add(1000 + i);
+        }
+        return sequences;
+    }
+
+    @Test
+    public void visibleRange_loadsPagesAndPrefetchesAhead() {
+        SequenceList sequences = sequences(1000);
+        LogRowPager pager = newPager(sequences);
+        assertNull(pager.getRow(0));
+        runAll();
+        assertEquals(1, loadedPages.size());
+        assertEquals(LogRowPager.PAGE_SIZE, loadedPages.get(0).length);
+        assertEquals("[0+50]", loadedRanges.toString());
+        assertEquals(1000, pager.getRow(0).getSequence());
+
+        // 向下滚动时预取后面的页，不重复加载已有的页
+        loadedPages.clear();
+        pager.onVisibleRangeChanged(10, 30, 1);
+        runAll();
+        assertEquals(LogRowPager.PREFETCH_PAGES, loadedPages.size());
+        assertEquals(1050, loadedPages.get(0)[0]);
+        assertNotNull(pager.getRow(149));
+        assertEquals(3 * LogRowPager.PAGE_SIZE, pager.getLoadedRowCount());
+    }
+
+    @Test
+    public void farPages_areDropped() {
+        SequenceList sequences = sequences(2000);
+        LogRowPager pager = newPager(sequences);
+        pager.onVisibleRangeChanged(0, 20, 0);
+        runAll();
+        pager.onVisibleRangeChanged(1500, 1520, 1);
+        runAll();
+
+        assertNull(pager.getRow(0));
+        assertNotNull(pager.getRow(1500));
+        assertTrue(pager.getLoadedRowCount() <= (2 * LogRowPager.RETAIN_PAGES + 1) * LogRowPager.PAGE_SIZE);
+    }
+
+    @Test
+    public void loadedRows_followListChangesAndInvalidate() {
+        SequenceList sequences = sequences(100);
+        LogRowPager pager = newPager(sequences);
+        pager.onVisibleRangeChanged(0, 10, 0);
+        // 加载期间头部的20行被删除，回调使用新的位置
+        sequences.remove(0, 20);
+        loadTasks.poll().run();
+        mainTasks.poll().run();
+        assertEquals("[0+30]", loadedRanges.toString());
+        assertEquals(1020, pager.getRow(0).getSequence());
+
+        // 失效之前发出的加载结果被丢弃
+        runAll();
+        loadedRanges.clear();
+        pager.getRow(79);
+        pager.invalidate();
+        runAll();
+        assertTrue(loadedRanges.isEmpty());
+        assertNull(pager.getRow(0));
+    }
+}
@@ -0,0 +1,83 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongIndexMapTest {
+
+    @Test
+    public void putGetRemove() {
+        LongIndexMap map = new LongIndexMap();
+        map.put(42, 7);
+        map.put(-3, 8);
+        map.put(42, 9);
+        assertEquals(2, map.size());
+        assertEquals(9, map.get(42));
+        assertEquals(8, map.get(-3));
+        assertEquals(LongIndexMap.MISSING, map.get(1));
+
+        assertEquals(9, map.remove(42));
+        assertEquals(LongIndexMap.MISSING, map.remove(42));
+        assertEquals(LongIndexMap.MISSING, map.get(42));
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(LongIndexMap.MISSING, map.get(-3));
+    }
+
+    @Test
+    public void sequentialKeys_growAndShrink() {
+        LongIndexMap map = new LongIndexMap();
+        long base = System.currentTimeMillis() << 20;
+        for (int i = 0; i < 100_000; i++) {
+            map.put(base + i, i);
+        }
+        assertEquals(100_000, map.size());
+        // 模拟从旧到新依次淘汰
+        for (int i = 0; i < 99_990; i++) {
+            assertEquals(i, map.remove(base + i));
+        }
+        assertEquals(10, map.size());
+        assertEquals(LongIndexMap.MISSING, map.get(base));
+        for (int i = 99_990; i < 100_000; i++) {
+            assertEquals(i, map.get(base + i));
+        }
+    }
+
+    @Test
+    public void randomOperations_matchHashMap() {
+        Random random = new Random(1);
+        LongIndexMap map = new LongIndexMap();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // 键的范围较小，使插入和删除频繁落在同一探测链上
+            long key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Long removed = expected.remove(key);
+                assertEquals(removed == null ? LongIndexMap.MISSING : removed, map.remove(key));
+            } else {
+                long value = random.nextLong();
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            if (i % 1000 == 0) {
+                assertEquals(expected.size(), map.size());
+            }
+        }
+        for (long key = -1000; key < 1000; key++) {
+            Long value = expected.get(key);
+            assertEquals(value == null ? LongIndexMap.MISSING : value, map.get(key));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reservedKey_isRejected() {
+        new LongIndexMap().put(Long.MIN_VALUE, 1);
+    }
+}
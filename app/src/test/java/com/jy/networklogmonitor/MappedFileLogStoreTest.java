@@ -0,0 +1,246 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MappedFileLogStoreTest {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void append_getAndSnapshot() throws IOException {
+        MappedFileLogStore store = new MappedFileLogStore(temporaryFolder.newFolder());
+        NetworkLog log = newLog(0);
+        log.setRequestBody("{\"name\":\"张三\"}");
+        log.setHeaderNamesAndValues(new String[]{"Accept", "application/json"});
+        log.setStatusCode(201);
+        log.setRequestBodyTruncated(true);
+        log.setRequestBodyRaw(false);
+        assertEquals(0, store.append(log));
+        store.append(newLog(1));
+
+        NetworkLog read = store.get(0);
+        assertEquals("https://api.example.com/v1/items/0", read.getUrl());
+        assertEquals("POST", read.getMethod());
+        assertEquals(201, read.getStatusCode());
+        assertTrue(read.isRequestBodyTruncated());
+        assertFalse(read.isRequestBodyRaw());
+        assertTrue(store.get(1).isRequestBodyRaw());
+        assertEquals("{\"name\":\"张三\"}", read.getRequestBody());
+        assertArrayEquals(new String[]{"Accept", "application/json"}, read.getHeaderNamesAndValues());
+        assertEquals(log.getTimestampNanos(), read.getTimestampNanos());
+        assertEquals(2, store.size());
+        assertEquals(2, store.snapshot().size());
+        assertNull(store.get(2));
+
+        // 行摘要只读取body之前的字段
+        LogRow row = store.getRow(1);
+        assertEquals(1, row.getSequence());
+        assertEquals(1001, row.getId());
+        assertEquals("POST", row.getMethod());
+        assertEquals(200, row.getStatusCode());
+        assertEquals(1, row.getResponseTime());
+        assertEquals("https://api.example.com/v1/items/1", row.getUrl());
+        assertEquals(log.getTimestampNanos() / 1_000_000L, store.getRow(0).getTimestampMillis());
+        assertNull(store.getRow(2));
+    }
+
+    @Test
+    public void update_replacesRecord() throws IOException {
+        MappedFileLogStore store = new MappedFileLogStore(temporaryFolder.newFolder());
+        NetworkLog log = newLog(0);
+        store.append(log);
+        log.setResponseBody("{\"ok\":true}");
+        store.update(log);
+
+        assertEquals("{\"ok\":true}", store.get(0).getResponseBody());
+        assertEquals(1, store.snapshot().size());
+    }
+
+    @Test
+    public void update_appendsOnlyResponseBody() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        MappedFileLogStore store = new MappedFileLogStore(directory, 64 * 1024, 1 << 20, DAY_MILLIS);
+        StringBuilder requestBody = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            requestBody.append('x');
+        }
+        for (int i = 0; i < 100; i++) {
+            NetworkLog log = newLog(i);
+            log.setRequestBody(requestBody.toString());
+            store.append(log);
+            log.setResponseBodyState(("response " + i).getBytes(StandardCharsets.UTF_8), false, 5000 + i, true);
+            store.update(log);
+        }
+
+        // 每条日志的完整记录约1.1KB，整条重写时需要4个分段
+        assertEquals(2 * 64 * 1024, store.getDiskUsage());
+        NetworkLog read = store.get(42);
+        assertEquals("response 42", read.getResponseBody());
+        assertEquals(5042, read.getResponseBodySize());
+        assertTrue(read.isResponseBodyTruncated());
+        assertEquals(requestBody.toString(), read.getRequestBody());
+        assertEquals(200, store.getRow(42).getStatusCode());
+        store.close();
+
+        MappedFileLogStore reopened = new MappedFileLogStore(directory, 64 * 1024, 1 << 20, DAY_MILLIS);
+        assertEquals("response 99", reopened.getById(1099).getResponseBody());
+        assertEquals(5099, reopened.get(99).getResponseBodySize());
+    }
+
+    @Test
+    public void reopen_recoversLogsAndContinuesSequences() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        MappedFileLogStore store = new MappedFileLogStore(directory, 4096, 1 << 20, DAY_MILLIS);
+        for (int i = 0; i < 50; i++) {
+            NetworkLog log = newLog(i);
+            store.append(log);
+            log.setResponseBody("response " + i);
+            store.update(log);
+        }
+        store.close();
+
+        MappedFileLogStore reopened = new MappedFileLogStore(directory, 4096, 1 << 20, DAY_MILLIS);
+        assertEquals(0, reopened.getFirstSequence());
+        assertEquals(50, reopened.getEndSequence());
+        assertEquals("response 42", reopened.get(42).getResponseBody());
+        assertEquals(50, reopened.append(newLog(50)));
+    }
+
+    @Test
+    public void getById_survivesReopenAndDropsEvictedLogs() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        MappedFileLogStore store = new MappedFileLogStore(directory, 4096, 3 * 4096, DAY_MILLIS);
+        for (int i = 0; i < 500; i++) {
+            store.append(newLog(i));
+        }
+        long first = store.getFirstSequence();
+        assertNull(store.getById(1000));
+        assertNull(store.getById(1000 + first - 1));
+        assertEquals(first, store.getById(1000 + first).getSequence());
+        assertEquals(1499, store.getById(1499).getId());
+        store.close();
+
+        MappedFileLogStore reopened = new MappedFileLogStore(directory, 4096, 3 * 4096, DAY_MILLIS);
+        assertEquals("https://api.example.com/v1/items/450", reopened.getById(1450).getUrl());
+        assertNull(reopened.getById(1000 + first - 1));
+        reopened.clear();
+        assertNull(reopened.getById(1499));
+    }
+
+    @Test
+    public void recovery_ignoresTornRecord() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        MappedFileLogStore store = new MappedFileLogStore(directory, 4096, 1 << 20, DAY_MILLIS);
+        store.append(newLog(0));
+        store.close();
+
+        // 模拟写到一半的记录：长度已写入，数据和校验值不匹配
+        File segment = directory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long position = 16;
+            file.seek(position);
+            int length = file.readInt();
+            position += 8 + length;
+            file.seek(position);
+            file.writeInt(100);
+            file.writeInt(12345);
+        }
+
+        MappedFileLogStore reopened = new MappedFileLogStore(directory, 4096, 1 << 20, DAY_MILLIS);
+        assertEquals(1, reopened.size());
+        assertEquals(1, reopened.append(newLog(1)));
+        assertEquals("https://api.example.com/v1/items/1", reopened.get(1).getUrl());
+    }
+
+    @Test
+    public void retention_deletesOldestSegmentsBySize() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        MappedFileLogStore store = new MappedFileLogStore(directory, 4096, 3 * 4096, DAY_MILLIS);
+        for (int i = 0; i < 500; i++) {
+            store.append(newLog(i));
+        }
+
+        assertTrue(directory.listFiles().length <= 3);
+        assertTrue(store.getDiskUsage() <= 3 * 4096);
+        assertTrue(store.getFirstSequence() > 0);
+        assertNull(store.get(0));
+        List<NetworkLog> logs = store.snapshot();
+        assertEquals(store.size(), logs.size());
+        assertEquals(499, logs.get(logs.size() - 1).getSequence());
+        assertEquals("https://api.example.com/v1/items/499", logs.get(logs.size() - 1).getUrl());
+    }
+
+    @Test
+    public void retention_deletesSegmentsOlderThanMaxAge() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        MappedFileLogStore store = new MappedFileLogStore(directory, 4096, 1 << 20, DAY_MILLIS);
+        long old = (System.currentTimeMillis() - 2 * DAY_MILLIS) * 1_000_000L;
+        for (int i = 0; i < 90; i++) {
+            NetworkLog log = newLog(i);
+            log.setTimestampNanos(old);
+            store.append(log);
+        }
+        // 新分段开始时淘汰过期分段
+        for (int i = 90; i < 200; i++) {
+            store.append(newLog(i));
+        }
+
+        // 只包含过期日志的分段被删除，同时包含新旧日志的分段保留
+        assertTrue(store.getFirstSequence() > 0);
+        assertTrue(store.getFirstSequence() < 90);
+        assertNull(store.get(0));
+        assertEquals(199, store.get(199).getSequence());
+    }
+
+    @Test
+    public void oversizedBody_isDropped() throws IOException {
+        MappedFileLogStore store = new MappedFileLogStore(temporaryFolder.newFolder(), 4096, 1 << 20, DAY_MILLIS);
+        NetworkLog log = newLog(0);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            body.append('x');
+        }
+        log.setResponseBody(body.toString());
+        store.append(log);
+
+        NetworkLog read = store.get(0);
+        assertNull(read.getResponseBody());
+        assertTrue(read.isResponseBodyTruncated());
+    }
+
+    @Test
+    public void clear_keepsSequencesIncreasing() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        MappedFileLogStore store = new MappedFileLogStore(directory);
+        store.append(newLog(0));
+        store.append(newLog(1));
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(2, store.append(newLog(2)));
+        store.close();
+
+        MappedFileLogStore reopened = new MappedFileLogStore(directory);
+        assertEquals(2, reopened.getFirstSequence());
+        assertEquals(1, reopened.snapshot().size());
+    }
+
+    private static NetworkLog newLog(int i) {
+        NetworkLog log = new NetworkLog("https://api.example.com/v1/items/" + i, "POST");
+        log.setStatusCode(200);
+        log.setResponseTime(i);
+        log.setId(1000 + i);
+        return log;
+    }
+}
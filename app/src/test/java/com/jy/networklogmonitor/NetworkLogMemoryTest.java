@@ -0,0 +1,223 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Headers;
+
+import static org.junit.Assert.*;
+
+public class NetworkLogMemoryTest {
+    private static final int LOG_COUNT = 10_000;
+
+    @Test
+    public void getters_roundTrip() {
+        NetworkLog log = new NetworkLog("https://api.example.com/v1/users/42?expand=orders#top", "POST");
+        log.setStatusCode(503);
+        log.setRequestBodyTruncated(true);
+        log.setRequestBody("{\"name\":\"张三\"}");
+        log.setTimestamp(new Date(1_700_000_000_123L));
+
+        assertEquals("https://api.example.com/v1/users/42?expand=orders#top", log.getUrl());
+        assertEquals("POST", log.getMethod());
+        assertEquals(503, log.getStatusCode());
+        assertTrue(log.isRequestBodyTruncated());
+        assertFalse(log.isResponseBodyTruncated());
+        assertEquals("{\"name\":\"张三\"}", log.getRequestBody());
+        assertNull(log.getResponseBody());
+        assertEquals(1_700_000_000_123L, log.getTimestamp().getTime());
+
+        log.setStatusCode(200);
+        log.setRequestBodyTruncated(false);
+        assertEquals(200, log.getStatusCode());
+        assertFalse(log.isRequestBodyTruncated());
+    }
+
+    @Test
+    public void urlPrefix_isSharedBetweenLogs() {
+        NetworkLog first = new NetworkLog("https://api.example.com/v1/users/1", "GET");
+        NetworkLog second = new NetworkLog("https://api.example.com/v1/users/2", "GET");
+        assertEquals("https://api.example.com/v1/users/1", first.getUrl());
+        assertEquals("https://api.example.com/v1/users/2", second.getUrl());
+        assertEquals(0, NetworkLog.urlPrefixEnd("https://api.example.com"));
+        assertEquals("https://api.example.com/v1/".length(),
+                NetworkLog.urlPrefixEnd("https://api.example.com/v1/users?next=/a/b"));
+    }
+
+    @Test
+    public void headers_shareNamesAndLowCardinalityValuesOnly() {
+        NetworkLog first = new NetworkLog("https://api.example.com/a", "GET");
+        first.setHeaders(Headers.of("Content-Type", new String("application/json"),
+                "Authorization", new String("Bearer secret")));
+        NetworkLog second = new NetworkLog("https://api.example.com/b", "GET");
+        second.setHeaders(Headers.of("content-type", new String("application/json"),
+                "Authorization", new String("Bearer secret")));
+
+        String[] a = first.getHeaderNamesAndValues();
+        String[] b = second.getHeaderNamesAndValues();
+        // 请求头名和Content-Type的值共享，Authorization的值不放入共享池
+        assertSame(a[2], b[2]);
+        assertSame(a[1], b[1]);
+        assertEquals(a[3], b[3]);
+        assertNotSame(a[3], b[3]);
+
+        // 清空后之前的实例不再被共享
+        NetworkLog.clearPools();
+        NetworkLog third = new NetworkLog("https://api.example.com/c", "GET");
+        third.setHeaders(Headers.of("Content-Type", new String("application/json")));
+        assertNotSame(a[1], third.getHeaderNamesAndValues()[1]);
+    }
+
+    @Test
+    public void bytesPerLog_beforeAndAfter() {
+        List<Object> legacyLogs = new ArrayList<>();
+        List<Object> compactLogs = new ArrayList<>();
+        for (int i = 0; i < LOG_COUNT; i++) {
+            String url = "https://api.example.com/v1/users/" + i + "/orders?page=" + (i % 7);
+            String method = i % 3 == 0 ? "POST" : "GET";
+            String requestBody = i % 3 == 0 ? "{\"userId\":" + i + ",\"note\":\"下单备注\"}" : null;
+            String responseBody = "{\"code\":0,\"message\":\"ok\",\"data\":{\"id\":" + i
+                    + ",\"items\":[{\"sku\":\"A-100\",\"count\":2},{\"sku\":\"B-200\",\"count\":1}],\"status\":\"PAID\"}}";
+            Headers headers = Headers.of("Accept", "application/json", "User-Agent", "okhttp/4.9.3");
+            long timestamp = 1_700_000_000_000L + i;
+
+            LegacyNetworkLog legacy = new LegacyNetworkLog();
+            legacy.url = url;
+            legacy.method = method;
+            legacy.statusCode = 200;
+            legacy.responseTime = i % 500;
+            legacy.requestBody = requestBody;
+            legacy.responseBody = responseBody;
+            legacy.headers = headers;
+            legacy.timestamp = new Date(timestamp);
+            legacyLogs.add(legacy);
+
+            NetworkLog log = new NetworkLog(url, method);
+            log.setStatusCode(200);
+            log.setResponseTime(i % 500);
+            log.setRequestBody(requestBody);
+            log.setResponseBody(responseBody);
+            log.setHeaders(headers);
+            log.setTimestampNanos(timestamp * 1_000_000L);
+            compactLogs.add(log);
+        }
+
+        long legacyBytes = new SizeEstimator().deepSize(legacyLogs) / LOG_COUNT;
+        long compactBytes = new SizeEstimator().deepSize(compactLogs) / LOG_COUNT;
+        assertTrue("before=" + legacyBytes + ", after=" + compactBytes, compactBytes * 10 < legacyBytes * 7);
+    }
+
+    // 改造前的日志结构，用作对照
+    @SuppressWarnings("unused")
+    private static class LegacyNetworkLog {
+        String url;
+        String method;
+        int statusCode;
+        long responseTime;
+        String requestBody;
+        long requestBodySize = -1;
+        boolean requestBodyTruncated;
+        String responseBody;
+        long responseBodySize = -1;
+        boolean responseBodyTruncated;
+        Headers headers;
+        String errorMessage;
+        Date timestamp;
+        long sequence = -1;
+        CallTimings callTimings;
+    }
+
+    // 类似JOL的对象图大小估算：按64位虚拟机、压缩指针、8字节对齐计算，共享的对象只计算一次。
+    // String按UTF-16（每个字符2字节）计算，与不压缩字符串的Android版本一致；JDK内部类不做反射。
+    private static class SizeEstimator {
+        private static final int HEADER = 12;
+        private static final int ARRAY_HEADER = 16;
+        private static final int REFERENCE = 4;
+
+        private final Map<Object, Boolean> visited = new IdentityHashMap<>();
+
+        long deepSize(Object root) {
+            if (root == null || visited.put(root, Boolean.TRUE) != null) {
+                return 0;
+            }
+            Class<?> type = root.getClass();
+            if (root instanceof String) {
+                return align(HEADER + REFERENCE + 8) + align(ARRAY_HEADER + 2L * ((String) root).length());
+            }
+            if (root instanceof Date) {
+                return align(HEADER + 8 + REFERENCE);
+            }
+            if (root instanceof List) {
+                long size = 0;
+                for (Object element : (List<?>) root) {
+                    size += deepSize(element);
+                }
+                return size;
+            }
+            if (type.isArray()) {
+                Class<?> component = type.getComponentType();
+                int length = java.lang.reflect.Array.getLength(root);
+                if (!component.isPrimitive()) {
+                    long size = align(ARRAY_HEADER + (long) REFERENCE * length);
+                    for (int i = 0; i < length; i++) {
+                        size += deepSize(java.lang.reflect.Array.get(root, i));
+                    }
+                    return size;
+                }
+                return align(ARRAY_HEADER + (long) primitiveSize(component) * length);
+            }
+            if (type.getName().startsWith("java.")) {
+                throw new IllegalArgumentException("unsupported JDK type " + type.getName());
+            }
+            long shallow = HEADER;
+            List<Object> children = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive()) {
+                        shallow += primitiveSize(field.getType());
+                        continue;
+                    }
+                    shallow += REFERENCE;
+                    try {
+                        field.setAccessible(true);
+                        children.add(field.get(root));
+                    } catch (IllegalAccessException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            }
+            long size = align(shallow);
+            for (Object child : children) {
+                size += deepSize(child);
+            }
+            return size;
+        }
+
+        private static int primitiveSize(Class<?> type) {
+            if (type == long.class || type == double.class) {
+                return 8;
+            }
+            if (type == int.class || type == float.class) {
+                return 4;
+            }
+            if (type == short.class || type == char.class) {
+                return 2;
+            }
+            return 1;
+        }
+
+        private static long align(long size) {
+            return (size + 7) & ~7L;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.jy.networklogmonitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Headers;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class RequestReplayerTest {
+    private MockWebServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<String> postBodies = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int current = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(current, Math::max);
+                try {
+                    Thread.sleep(20);
+                    if (request.getPath().startsWith("/fail")) {
+                        synchronized (postBodies) {
+                            postBodies.add(request.getHeader("Content-Length") + " " + request.getBody().readUtf8());
+                        }
+                        return new MockResponse().setResponseCode(503).setBody("unavailable");
+                    }
+                    return new MockResponse().setResponseCode(200).setBody("{\"ok\":true}");
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private NetworkLog log(String method, String path, String body) {
+        NetworkLog log = new NetworkLog(server.url(path).toString(), method);
+        // 抓到的Content-Length与实际请求体不一致时应由OkHttp重新计算
+        log.setHeaders(Headers.of("Content-Type", "application/json", "Content-Length", "999"));
+        if (body != null) {
+            log.setRequestBody(body);
+        }
+        return log;
+    }
+
+    private static ReplayReport await(RequestReplayer replayer, List<NetworkLog> logs,
+                                      RequestReplayer.Options options) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<ReplayReport> result = new AtomicReference<>();
+        replayer.start(logs, options, new RequestReplayer.Listener() {
+            @Override
+            public void onProgress(int completed, int total) {
+            }
+
+            @Override
+            public void onComplete(ReplayReport report) {
+                result.set(report);
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        return result.get();
+    }
+
+    private static ReplayReport.EndpointReport find(ReplayReport report, String suffix) {
+        for (ReplayReport.EndpointReport endpoint : report.getEndpoints()) {
+            if (endpoint.getEndpoint().endsWith(suffix)) {
+                return endpoint;
+            }
+        }
+        fail("no endpoint " + suffix);
+        return null;
+    }
+
+    @Test
+    public void start_reportsPerEndpointStatsAndErrors() throws Exception {
+        List<NetworkLog> logs = Arrays.asList(log("GET", "/users/1", null), log("GET", "/users/2", null),
+                log("POST", "/fail", "{\"a\":1}"));
+
+        ReplayReport report = await(new RequestReplayer(), logs, new RequestReplayer.Options(2, 5, 0));
+
+        assertEquals(15, server.getRequestCount());
+        assertEquals(15, report.getTotal().getCount());
+        assertEquals(5, report.getTotal().getErrorCount());
+        assertFalse(report.isCancelled());
+        assertTrue(report.getThroughput() > 0);
+        // 同一接口模板的请求合并统计
+        assertEquals(2, report.getEndpoints().size());
+        ReplayReport.EndpointReport users = find(report, "/users/{id}");
+        assertEquals(10, users.getCount());
+        assertEquals(0, users.getErrorCount());
+        assertTrue(users.getP50() >= 20);
+        ReplayReport.EndpointReport failed = find(report, "/fail");
+        assertEquals(5, failed.getErrorCount());
+        assertEquals(Integer.valueOf(5), failed.getErrors().get("HTTP 503"));
+        assertTrue(failed.getEndpoint().startsWith("POST "));
+        // 并发数不超过设置值，请求体原样发送
+        assertTrue(maxInFlight.get() <= 2);
+        assertEquals(5, postBodies.size());
+        assertEquals("7 {\"a\":1}", postBodies.get(0));
+    }
+
+    @Test
+    public void toRequest_skipsBodiesCapturedAsPreviewOrSummary() {
+        NetworkLog binary = log("POST", "/upload", "[binary body, 16 bytes, application/octet-stream]\n00 01");
+        binary.setRequestBodyRaw(false);
+        assertNull(RequestReplayer.toRequest(binary));
+
+        NetworkLog text = log("POST", "/upload", "{\"a\":1}");
+        assertNotNull(RequestReplayer.toRequest(text));
+    }
+
+    @Test
+    public void start_skipsTruncatedBodiesAndReportsConnectionErrors() throws Exception {
+        NetworkLog truncated = log("POST", "/fail", "{\"a\":");
+        truncated.setRequestBodyTruncated(true);
+        NetworkLog unreachable = new NetworkLog("http://127.0.0.1:1/none", "GET");
+
+        ReplayReport report = await(new RequestReplayer(), Arrays.asList(truncated, unreachable),
+                new RequestReplayer.Options(1, 1, 0));
+
+        assertEquals(1, report.getSkippedCount());
+        assertEquals(0, server.getRequestCount());
+        assertEquals(1, report.getTotal().getErrorCount());
+        assertEquals(Integer.valueOf(1), report.getTotal().getErrors().get("ConnectException"));
+    }
+
+    @Test
+    public void cancel_stopsRemainingRequests() throws Exception {
+        List<NetworkLog> logs = Arrays.asList(log("GET", "/users/1", null));
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<ReplayReport> result = new AtomicReference<>();
+        final AtomicReference<RequestReplayer.Run> run = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        run.set(new RequestReplayer().start(logs, new RequestReplayer.Options(1, 1000, 0),
+                new RequestReplayer.Listener() {
+                    @Override
+                    public void onProgress(int completed, int total) {
+                        started.countDown();
+                    }
+
+                    @Override
+                    public void onComplete(ReplayReport report) {
+                        result.set(report);
+                        done.countDown();
+                    }
+                }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        run.get().cancel();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(result.get().isCancelled());
+        assertTrue(result.get().getTotal().getCount() < 1000);
+    }
+
+    @Test
+    public void start_rampUpDelaysLaterWorkers() throws Exception {
+        List<NetworkLog> logs = Arrays.asList(log("GET", "/users/1", null));
+
+        long start = System.nanoTime();
+        ReplayReport report = await(new RequestReplayer(), logs, new RequestReplayer.Options(4, 4, 400));
+
+        assertEquals(4, report.getTotal().getCount());
+        // 第4个线程在爬坡时间的3/4处才开始
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 300);
+    }
+
+    @Test
+    public void rampUp_waitsOutsideThePoolAndCancelEndsPendingWorkers() throws Exception {
+        List<NetworkLog> logs = Arrays.asList(log("GET", "/users/1", null));
+        final AtomicInteger submitted = new AtomicInteger();
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        Executor countingExecutor = task -> {
+            submitted.incrementAndGet();
+            pool.execute(task);
+        };
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<ReplayReport> result = new AtomicReference<>();
+        RequestReplayer replayer = new RequestReplayer(RequestReplayer.getSharedClient(), countingExecutor);
+        RequestReplayer.Run run = replayer.start(logs, new RequestReplayer.Options(4, 1000, 60_000),
+                new RequestReplayer.Listener() {
+                    @Override
+                    public void onProgress(int completed, int total) {
+                        started.countDown();
+                    }
+
+                    @Override
+                    public void onComplete(ReplayReport report) {
+                        result.set(report);
+                        done.countDown();
+                    }
+                });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // 其余线程还在等待爬坡，没有占用线程池
+        assertEquals(1, submitted.get());
+
+        run.cancel();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(result.get().isCancelled());
+        assertEquals(4, submitted.get());
+        pool.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void options_rejectsTooMuchConcurrency() {
+        new RequestReplayer.Options(RequestReplayer.MAX_CONCURRENCY + 1, 1, 0);
+    }
+}
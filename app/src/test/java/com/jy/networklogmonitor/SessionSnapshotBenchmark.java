@@ -0,0 +1,37 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+// 10万条日志的快照写入耗时，以及打开并读取全部行摘要（即导入到列表可显示）的耗时；手动运行
+@Ignore("benchmark")
+public class SessionSnapshotBenchmark {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void import100kEntries() throws IOException {
+        LogRingBuffer store = SessionSnapshotTest.largeStore(100_000);
+        File file = folder.newFile("large" + SessionSnapshot.FILE_SUFFIX);
+        long writeStart = System.nanoTime();
+        SessionSnapshot.write(store, file);
+        long writeMillis = (System.nanoTime() - writeStart) / 1_000_000L;
+
+        long start = System.nanoTime();
+        SessionSnapshot snapshot = SessionSnapshot.open(file);
+        long errors = 0;
+        for (long sequence = 0; sequence < snapshot.getEndSequence(); sequence++) {
+            if (snapshot.getRow(sequence).getStatusCode() == 500) {
+                errors++;
+            }
+        }
+        long importMillis = (System.nanoTime() - start) / 1_000_000L;
+        System.out.println("SessionSnapshot 100k entries: " + file.length() / 1024 + " KB, write " + writeMillis
+                + " ms, open and read rows " + importMillis + " ms (" + errors + " errors)");
+    }
+}
@@ -0,0 +1,204 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import okhttp3.Headers;
+
+import static org.junit.Assert.*;
+
+public class SessionSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void write_roundTripsAllFields() throws IOException {
+        LogRingBuffer store = new LogRingBuffer(10);
+        NetworkLog full = new NetworkLog("https://api.example.com/v1/users/42?q=中文", "POST");
+        full.setId(7);
+        full.setTimestampNanos(1714552215123456789L);
+        full.setStatusCode(201);
+        full.setResponseTime(85);
+        full.setHeaders(Headers.of("Content-Type", "application/json", "X-Trace", "abc"));
+        full.setRequestBody("{\"name\":\"a\"}");
+        full.setRequestBodySize(12);
+        full.setRequestBodyTruncated(true);
+        String largeBody = repeat("{\"id\":1,\"name\":\"item\"},", 100);
+        full.setResponseBody(largeBody);
+        full.setResponseBodySize(largeBody.length());
+        full.setUrlTemplate("/v1/users/{id}");
+        CallTimings timings = new CallTimings();
+        timings.mark(CallTimings.CALL_START, 1000);
+        timings.mark(CallTimings.CALL_END, 5000);
+        timings.setConnectionReused(true);
+        timings.finish();
+        full.setCallTimings(timings);
+        store.append(full);
+        NetworkLog failed = new NetworkLog("https://api.example.com/v1/users/43", "GET");
+        failed.setId(8);
+        failed.setErrorMessage("timeout");
+        failed.setRequestBodyRaw(false);
+        store.append(failed);
+        File file = folder.newFile("session" + SessionSnapshot.FILE_SUFFIX);
+
+        assertEquals(2, SessionSnapshot.write(store, file));
+        SessionSnapshot snapshot = SessionSnapshot.open(file);
+
+        assertEquals(2, snapshot.size());
+        assertEquals(0, snapshot.getFirstSequence());
+        assertEquals(2, snapshot.getEndSequence());
+        NetworkLog log = snapshot.getById(7);
+        assertEquals(0, log.getSequence());
+        assertEquals("https://api.example.com/v1/users/42?q=中文", log.getUrl());
+        assertEquals("POST", log.getMethod());
+        assertEquals(1714552215123456789L, log.getTimestampNanos());
+        assertEquals(201, log.getStatusCode());
+        assertEquals(85, log.getResponseTime());
+        assertEquals("application/json", log.getHeaders().get("Content-Type"));
+        assertEquals("abc", log.getHeaders().get("X-Trace"));
+        assertEquals("{\"name\":\"a\"}", log.getRequestBody());
+        assertEquals(12, log.getRequestBodySize());
+        assertTrue(log.isRequestBodyTruncated());
+        assertFalse(log.isResponseBodyTruncated());
+        assertEquals(largeBody, log.getResponseBody());
+        assertEquals(largeBody.length(), log.getResponseBodySize());
+        assertEquals("/v1/users/{id}", log.getUrlTemplate());
+        assertEquals(4000, log.getCallTimings().getTotalNanos());
+        assertTrue(log.getCallTimings().isConnectionReused());
+        assertNull(log.getErrorMessage());
+
+        NetworkLog other = snapshot.get(1);
+        assertEquals("timeout", other.getErrorMessage());
+        assertTrue(log.isRequestBodyRaw());
+        assertFalse(other.isRequestBodyRaw());
+        assertNull(other.getHeaders());
+        assertNull(other.getRequestBody());
+        assertNull(other.getCallTimings());
+        LogRow row = snapshot.getRow(1);
+        assertEquals(8, row.getId());
+        assertEquals("GET", row.getMethod());
+        assertEquals("https://api.example.com/v1/users/43", row.getUrl());
+        assertNull(snapshot.get(2));
+        assertNull(snapshot.getById(9));
+        snapshot.close();
+        assertNull(snapshot.get(0));
+    }
+
+    @Test
+    public void write_compressesLargeBodiesWithoutSharedDictionary() throws IOException {
+        LogRingBuffer store = new LogRingBuffer(10);
+        String body = repeat("{\"status\":\"ok\",\"items\":[1,2,3]}", 200);
+        for (int i = 0; i < 5; i++) {
+            NetworkLog log = new NetworkLog("https://api.example.com/items", "GET");
+            log.setResponseBody(body);
+            store.append(log);
+        }
+        File file = folder.newFile("compressed" + SessionSnapshot.FILE_SUFFIX);
+
+        SessionSnapshot.write(store, file);
+
+        assertTrue("file size " + file.length(), file.length() < body.length());
+        assertEquals(body, SessionSnapshot.open(file).get(4).getResponseBody());
+    }
+
+    @Test
+    public void open_rejectsCorruptFiles() throws IOException {
+        LogRingBuffer store = new LogRingBuffer(10);
+        store.append(new NetworkLog("https://api.example.com/", "GET"));
+        File file = folder.newFile("corrupt" + SessionSnapshot.FILE_SUFFIX);
+        SessionSnapshot.write(store, file);
+        // 把最后一个分区的长度改为超出文件范围
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(file.length() - 8);
+        randomAccessFile.writeInt(Integer.MAX_VALUE);
+        randomAccessFile.close();
+
+        try {
+            SessionSnapshot.open(file);
+            fail();
+        } catch (IOException expected) {
+            assertEquals("Corrupt session snapshot", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void open_rejectsOutOfRangeOffsetsAndReferences() throws IOException {
+        // {分区, 下标, 值}：方法列引用超出字符串表、URL偏移递减、耗时行超出耗时数据
+        int[][] corruptions = {{6, 0, 1000}, {8, 1, -1}, {14, 0, 1000}};
+        for (int[] corruption : corruptions) {
+            LogRingBuffer store = new LogRingBuffer(10);
+            store.append(new NetworkLog("https://api.example.com/a", "GET"));
+            store.append(new NetworkLog("https://api.example.com/b", "POST"));
+            File file = folder.newFile("references" + corruption[0] + SessionSnapshot.FILE_SUFFIX);
+            SessionSnapshot.write(store, file);
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.seek(file.length() - (12 + 20 * 8) + 8 + corruption[0] * 8);
+            int offset = randomAccessFile.readInt();
+            randomAccessFile.seek(offset + corruption[1] * 4);
+            randomAccessFile.writeInt(corruption[2]);
+            randomAccessFile.close();
+
+            try {
+                SessionSnapshot.open(file);
+                fail("section " + corruption[0]);
+            } catch (IOException expected) {
+                assertEquals("Corrupt session snapshot", expected.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void open_100kEntries() throws IOException {
+        final int count = 100_000;
+        LogRingBuffer store = largeStore(count);
+        File file = folder.newFile("large" + SessionSnapshot.FILE_SUFFIX);
+        SessionSnapshot.write(store, file);
+
+        // 打开并读取列表需要的全部行摘要
+        SessionSnapshot snapshot = SessionSnapshot.open(file);
+        long errors = 0;
+        for (long sequence = 0; sequence < snapshot.getEndSequence(); sequence++) {
+            if (snapshot.getRow(sequence).getStatusCode() == 500) {
+                errors++;
+            }
+        }
+
+        assertEquals(count, snapshot.size());
+        assertEquals(count / 50, errors);
+        NetworkLog log = snapshot.getById(54_321);
+        assertEquals("https://api1.example.com/v1/items/54321?page=1", log.getUrl());
+        assertEquals("GET", log.getMethod());
+        assertEquals("req-21", log.getHeaders().get("X-Request-Id"));
+        assertEquals("{\"id\":54321,\"name\":\"item\"}", log.getResponseBody());
+    }
+
+    // count条日志，每50条有一条500，id与序号相同
+    static LogRingBuffer largeStore(int count) {
+        LogRingBuffer store = new LogRingBuffer(count);
+        String[] methods = {"GET", "POST", "PUT"};
+        for (int i = 0; i < count; i++) {
+            NetworkLog log = new NetworkLog("https://api" + i % 8 + ".example.com/v1/items/" + i + "?page=" + i % 10,
+                    methods[i % 3]);
+            log.setId(i);
+            log.setStatusCode(i % 50 == 0 ? 500 : 200);
+            log.setResponseTime(i % 1000);
+            log.setHeaders(Headers.of("Content-Type", "application/json", "X-Request-Id", "req-" + i % 100));
+            log.setResponseBody("{\"id\":" + i + ",\"name\":\"item\"}");
+            store.append(log);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,50 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Locale;
+
+// URL搜索在1k/10k/100k条日志下的查询延迟，对比索引查询和逐行toLowerCase扫描；手动运行
+@Ignore("benchmark")
+public class UrlSearchIndexBenchmark {
+
+    @Test
+    public void queryLatency() {
+        String[] hosts = {"api.example.com", "cdn.example.com", "auth.example.com", "pay.example.net"};
+        String[] paths = {"/v1/users/", "/v1/orders/", "/v2/feed/items/", "/static/img/", "/oauth/token/"};
+        for (int size : new int[]{1_000, 10_000, 100_000}) {
+            UrlSearchIndex index = new UrlSearchIndex();
+            String[] urls = new String[size];
+            for (int i = 0; i < size; i++) {
+                urls[i] = "https://" + hosts[i % hosts.length] + paths[(i / 3) % paths.length] + i + "?lang=zh-CN";
+                index.add(i, urls[i]);
+            }
+            String[] queries = {"orders/12", "PAY.example", "feed/items/9999", "token"};
+
+            long indexedNanos = 0;
+            long scanNanos = 0;
+            int matches = 0;
+            int rounds = 20;
+            for (int round = 0; round < rounds; round++) {
+                for (String query : queries) {
+                    long start = System.nanoTime();
+                    matches += index.search(query, null).length;
+                    indexedNanos += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    for (String url : urls) {
+                        if (url.toLowerCase().contains(query.toLowerCase(Locale.ROOT))) {
+                            matches++;
+                        }
+                    }
+                    scanNanos += System.nanoTime() - start;
+                }
+            }
+            int count = rounds * queries.length;
+            System.out.println(String.format(Locale.US,
+                    "UrlSearchIndex %,d entries: indexed %.3f ms/query, scan %.3f ms/query (%d matches)",
+                    size, indexedNanos / 1e6 / count, scanNanos / 1e6 / count, matches));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class UrlSearchIndexTest {
+
+    @Test
+    public void search_isCaseInsensitiveSubstringMatch() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        index.add(0, "https://api.example.com/v1/Users/42");
+        index.add(1, "https://api.example.com/v1/orders/7");
+        index.add(2, "https://cdn.example.com/img/users.png");
+
+        assertArrayEquals(new long[]{0, 2}, index.search("USERS", null));
+        assertArrayEquals(new long[]{1}, index.search("orders/7", null));
+        assertArrayEquals(new long[0], index.search("payments", null));
+        // 少于3个字符时扫描
+        assertArrayEquals(new long[]{0}, index.search("42", null));
+    }
+
+    @Test
+    public void evictBefore_removesOldEntries() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        for (int i = 0; i < 2000; i++) {
+            index.add(i, "https://api.example.com/items/" + i);
+        }
+        index.evictBefore(1500);
+
+        assertEquals(500, index.size());
+        long[] result = index.search("items/1", null);
+        for (long sequence : result) {
+            assertTrue(sequence >= 1500);
+        }
+        assertEquals(1500, index.search("items/1", null)[0]);
+        assertEquals(0, index.search("items/14", null).length);
+        // 压缩后继续追加
+        index.add(2000, "https://api.example.com/items/2000");
+        assertArrayEquals(new long[]{2000}, index.search("items/2000", null));
+    }
+
+    @Test
+    public void clear_thenContinueWithLaterSequences() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        index.add(0, "https://a.example.com/");
+        index.add(1, "https://b.example.com/");
+        index.clear();
+        index.add(2, "https://a.example.com/");
+
+        assertArrayEquals(new long[]{2}, index.search("a.example", null));
+    }
+
+    @Test
+    public void rebuild_keepsOldIndexSearchableAndAddsLogsAppendedMeanwhile() throws Exception {
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final LogRingBuffer store = new LogRingBuffer(64) {
+            @Override
+            public LogRow getRow(long sequence) {
+                if (reading.getCount() > 0) {
+                    reading.countDown();
+                    try {
+                        resume.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getRow(sequence);
+            }
+        };
+        store.append(new NetworkLog("https://api.example.com/orders/1", "GET"));
+        final UrlSearchIndex index = new UrlSearchIndex();
+        index.add(0, "https://old.example.com/users/1");
+
+        Thread rebuild = new Thread(() -> index.rebuild(store));
+        rebuild.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        // 重建读取存储期间旧索引仍可查询
+        assertArrayEquals(new long[]{0}, index.search("users", null));
+        store.append(new NetworkLog("https://api.example.com/orders/2", "GET"));
+        resume.countDown();
+        rebuild.join(5000);
+
+        assertArrayEquals(new long[0], index.search("users", null));
+        assertArrayEquals(new long[]{0, 1}, index.search("orders", null));
+        assertEquals(2, index.getEndSequence());
+    }
+
+    @Test
+    public void evictedTrigrams_areDroppedOnCompaction() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.add(i, "https://old.example.com/" + i);
+        }
+        for (int i = 1000; i < 3000; i++) {
+            index.add(i, "https://api.example.com/items/" + i);
+        }
+        index.evictBefore(2000);
+
+        assertArrayEquals(new long[0], index.search("old.example", null));
+        assertEquals(1000, index.search("items", null).length);
+        assertArrayEquals(new long[]{2500}, index.search("items/2500", null));
+    }
+
+    @Test
+    public void cancelledQuery_returnsNull() {
+        UrlSearchIndex index = new UrlSearchIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.add(i, "https://api.example.com/items/" + i);
+        }
+        assertNull(index.search("items", new AtomicBoolean(true)));
+    }
+
+    @Test
+    public void searcher_debouncesAndDropsStaleQueries() throws Exception {
+        LogSearcher searcher = new LogSearcher(50);
+        final AtomicInteger runs = new AtomicInteger();
+        final AtomicReference<String> delivered = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        for (final String query : new String[]{"a", "ap", "api"}) {
+            searcher.submit(new LogSearcher.Query<String>() {
+                @Override
+                public String run(AtomicBoolean cancelled) {
+                    runs.incrementAndGet();
+                    return query;
+                }
+            }, new LogSearcher.Callback<String>() {
+                @Override
+                public void onResult(String result) {
+                    delivered.set(result);
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals("api", delivered.get());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void search_matchesLowercaseScan() {
+        String[] hosts = {"api.example.com", "cdn.example.com", "auth.example.com", "pay.example.net"};
+        String[] paths = {"/v1/users/", "/v1/orders/", "/v2/feed/items/", "/static/img/", "/oauth/token/"};
+        for (int size : new int[]{1_000, 10_000, 100_000}) {
+            UrlSearchIndex index = new UrlSearchIndex();
+            String[] urls = new String[size];
+            for (int i = 0; i < size; i++) {
+                urls[i] = "https://" + hosts[i % hosts.length] + paths[(i / 3) % paths.length] + i + "?lang=zh-CN";
+                index.add(i, urls[i]);
+            }
+            String[] queries = {"orders/12", "PAY.example", "feed/items/9999", "token"};
+
+            for (String query : queries) {
+                long[] indexed = index.search(query, null);
+
+                // 原来的做法：每行都对URL和搜索文本调用toLowerCase()
+                int matches = 0;
+                for (String url : urls) {
+                    if (url.toLowerCase().contains(query.toLowerCase(Locale.ROOT))) {
+                        matches++;
+                    }
+                }
+                assertEquals(matches, indexed.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.jy.networklogmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UrlTemplateNormalizerTest {
+
+    @Test
+    public void classify_recognizesVariableSegments() {
+        assertEquals("{id}", UrlTemplateNormalizer.classify("12345"));
+        assertEquals("{uuid}", UrlTemplateNormalizer.classify("3f2504e0-4f89-11d3-9a0c-0305e82c3301"));
+        assertEquals("{hash}", UrlTemplateNormalizer.classify("d41d8cd98f00b204e9800998ecf8427e"));
+        assertEquals("{token}", UrlTemplateNormalizer.classify("eyJhbGciOiJIUzI1NiJ9abcdef"));
+        assertNull(UrlTemplateNormalizer.classify("users"));
+        assertNull(UrlTemplateNormalizer.classify("v2"));
+        // 不含数字的十六进制字母串是普通单词
+        assertNull(UrlTemplateNormalizer.classify("deadbeefcafebabe"));
+        assertNull(UrlTemplateNormalizer.classify(""));
+    }
+
+    @Test
+    public void normalize_replacesIdsAndKeepsQueryNames() {
+        UrlTemplateNormalizer normalizer = new UrlTemplateNormalizer();
+
+        assertEquals("/users/{id}/orders?page",
+                normalizer.normalize("https://api.example.com/users/123/orders?page=2"));
+        assertEquals("/users/{id}/orders?page",
+                normalizer.normalize("https://api.example.com/users/456/orders?page=3#top"));
+        assertEquals("/files/{uuid}",
+                normalizer.normalize("https://api.example.com/files/3f2504e0-4f89-11d3-9a0c-0305e82c3301"));
+        assertEquals("/search?lang&q",
+                normalizer.normalize("https://api.example.com/search?q=a&lang=en&q=b"));
+        assertEquals("/", normalizer.normalize("https://api.example.com"));
+        assertEquals("/?q", normalizer.normalize("https://api.example.com?q=1"));
+    }
+
+    @Test
+    public void normalize_learnsHighCardinalitySegments() {
+        UrlTemplateNormalizer normalizer = new UrlTemplateNormalizer();
+        for (int i = 0; i < UrlTemplateNormalizer.LEARN_THRESHOLD; i++) {
+            assertEquals("/users/name" + i + "/repos",
+                    normalizer.normalize("https://api.example.com/users/name" + i + "/repos"));
+        }
+        assertEquals("/users/{var}/repos", normalizer.normalize("https://api.example.com/users/alice/repos"));
+        // 之前缓存的结果也改为变量
+        assertEquals("/users/{var}/repos", normalizer.normalize("https://api.example.com/users/name0/repos"));
+        // 其他host的同一位置单独学习
+        assertEquals("/users/alice/repos", normalizer.normalize("https://other.example.com/users/alice/repos"));
+    }
+
+    @Test
+    public void learnedVariable_prunesPositionsBelowConcreteValues() {
+        UrlTemplateNormalizer normalizer = new UrlTemplateNormalizer();
+        for (int i = 0; i < UrlTemplateNormalizer.LEARN_THRESHOLD; i++) {
+            normalizer.normalize("https://api.example.com/users/name" + i + "/repos");
+        }
+        assertEquals(UrlTemplateNormalizer.LEARN_THRESHOLD + 2, normalizer.getLearnedPositionCount());
+
+        assertEquals("/users/{var}/repos", normalizer.normalize("https://api.example.com/users/alice/repos"));
+        // 只剩host、users之后的变量位置和{var}之后的位置
+        assertEquals(3, normalizer.getLearnedPositionCount());
+    }
+
+    @Test
+    public void positions_evictLeastRecentlyUsedInsteadOfRefusingNewOnes() {
+        UrlTemplateNormalizer normalizer = new UrlTemplateNormalizer();
+        for (int i = 0; i < UrlTemplateNormalizer.MAX_LEARNED_POSITIONS * 2; i++) {
+            normalizer.normalize("https://h" + i + ".example.com/static");
+        }
+        assertEquals(UrlTemplateNormalizer.MAX_LEARNED_POSITIONS, normalizer.getLearnedPositionCount());
+
+        // 位置已满时新的接口仍然可以学习
+        for (int i = 0; i < UrlTemplateNormalizer.LEARN_THRESHOLD; i++) {
+            normalizer.normalize("https://api.example.com/users/name" + i);
+        }
+        assertEquals("/users/{var}", normalizer.normalize("https://api.example.com/users/alice"));
+        assertEquals(UrlTemplateNormalizer.MAX_LEARNED_POSITIONS, normalizer.getLearnedPositionCount());
+    }
+
+    @Test
+    public void normalizeReadOnly_usesLearnedPositionsWithoutLearning() {
+        UrlTemplateNormalizer normalizer = new UrlTemplateNormalizer();
+        for (int i = 0; i <= UrlTemplateNormalizer.LEARN_THRESHOLD; i++) {
+            assertEquals("/orders/ord" + i, normalizer.normalizeReadOnly("https://api.example.com/orders/ord" + i));
+        }
+        // 只读归一化没有记录取值，也没有写入缓存
+        assertEquals("/orders/ord0", normalizer.normalize("https://api.example.com/orders/ord0"));
+        assertEquals(1, normalizer.getCachedCount());
+
+        for (int i = 0; i <= UrlTemplateNormalizer.LEARN_THRESHOLD; i++) {
+            normalizer.normalize("https://api.example.com/users/name" + i + "/repos");
+        }
+        assertEquals("/users/{var}/repos", normalizer.normalizeReadOnly("https://api.example.com/users/bob/repos"));
+    }
+
+    @Test
+    public void addTemplate_takesPrecedence() {
+        UrlTemplateNormalizer normalizer = new UrlTemplateNormalizer();
+        normalizer.addTemplate("/users/{name}/repos");
+
+        assertEquals("/users/{name}/repos", normalizer.normalize("https://api.example.com/users/alice/repos"));
+        assertEquals("/users/{name}/repos?sort", normalizer.normalize("https://api.example.com/users/42/repos?sort=asc"));
+        assertEquals("/users/alice", normalizer.normalize("https://api.example.com/users/alice"));
+
+        normalizer.clearTemplates();
+        assertEquals("/users/alice/repos", normalizer.normalize("https://api.example.com/users/alice/repos"));
+    }
+
+    @Test
+    public void normalize_cacheIsBounded() {
+        UrlTemplateNormalizer normalizer = new UrlTemplateNormalizer(4);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("/items/{id}", normalizer.normalize("https://host" + i + ".example.com/items/" + i));
+        }
+        assertEquals(4, normalizer.getCachedCount());
+    }
+}